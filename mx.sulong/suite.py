@@ -169,6 +169,21 @@ suite = {
       "license" : "BSD-new",
     },
 
+    "com.oracle.truffle.llvm.parser.bench" : {
+      "subDir" : "projects",
+      "sourceDirs" : ["src"],
+      "dependencies" : [
+        "com.oracle.truffle.llvm.parser",
+        "mx:JMH_1_21",
+      ],
+      "checkstyle" : "com.oracle.truffle.llvm.runtime",
+      "javaCompliance" : "1.8",
+      "annotationProcessors" : ["mx:JMH_1_21"],
+      "workingSets" : "Truffle, LLVM",
+      "testProject" : True,
+      "license" : "BSD-new",
+    },
+
     "com.oracle.truffle.llvm" : {
       "subDir" : "projects",
       "sourceDirs" : ["src"],
@@ -182,6 +197,21 @@ suite = {
       "license" : "BSD-new",
     },
 
+    "com.oracle.truffle.llvm.bench" : {
+      "subDir" : "projects",
+      "sourceDirs" : ["src"],
+      "dependencies" : [
+        "com.oracle.truffle.llvm",
+        "mx:JMH_1_21",
+      ],
+      "checkstyle" : "com.oracle.truffle.llvm.runtime",
+      "javaCompliance" : "1.8",
+      "annotationProcessors" : ["mx:JMH_1_21"],
+      "workingSets" : "Truffle, LLVM",
+      "testProject" : True,
+      "license" : "BSD-new",
+    },
+
     "com.oracle.truffle.llvm.launcher" : {
       "subDir" : "projects",
       "sourceDirs" : ["src"],
@@ -352,7 +382,7 @@ suite = {
       "class" : "SulongTestSuite",
       "variants" : ["O0", "O0_MISC_OPTS", "O1", "O2", "O3", "gcc_O0"],
       "buildEnv" : {
-        "LDFLAGS" : "-lm",
+        "LDFLAGS" : "-lm -pthread",
         "OS" : "<os>",
       },
       "testProject" : True,
@@ -468,6 +498,26 @@ suite = {
       "license" : "BSD-new",
     },
 
+    "SULONG_BENCHMARKS" : {
+      "subDir" : "projects",
+      "dependencies" : [
+        "com.oracle.truffle.llvm.parser.bench",
+        "com.oracle.truffle.llvm.bench",
+      ],
+      "exclude" : [
+        "mx:JMH_1_21",
+      ],
+      "distDependencies" : [
+        "truffle:TRUFFLE_API",
+        "sulong:SULONG",
+      ],
+      "javaProperties" : {
+        "sulongbench.bitcodePath" : "<path:SULONG_TEST_SUITES>"
+      },
+      "testDistribution" : True,
+      "license" : "BSD-new",
+    },
+
     "SULONG_TEST_NATIVE" : {
       "native" : True,
       "platformDependent" : True,
@@ -210,7 +210,9 @@ import com.oracle.truffle.llvm.nodes.cast.LLVMToAddressNodeGen;
 import com.oracle.truffle.llvm.nodes.func.LLVMArgNodeGen;
 import com.oracle.truffle.llvm.nodes.func.LLVMInlineAssemblyRootNode;
 import com.oracle.truffle.llvm.nodes.intrinsics.llvm.debug.LLVMDebugTrapNode;
-import com.oracle.truffle.llvm.nodes.memory.LLVMFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMAcquireFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMFullFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMReleaseFenceNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.load.LLVMDirectLoadNodeFactory.LLVMPointerDirectLoadNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.load.LLVMI16LoadNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.load.LLVMI32LoadNodeGen;
@@ -463,9 +465,13 @@ class AsmFactory {
                 // TODO: implement properly
                 break;
             case "mfence":
-            case "lfance":
+                statements.add(LLVMFullFenceNodeGen.create());
+                break;
+            case "lfence":
+                statements.add(LLVMAcquireFenceNodeGen.create());
+                break;
             case "sfence":
-                statements.add(LLVMFenceNodeGen.create());
+                statements.add(LLVMReleaseFenceNodeGen.create());
                 break;
             case "rdtsc": {
                 LLVMAMD64WriteValueNode high = getRegisterStore("rdx");
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.oracle.truffle.llvm.nodes.control.LLVMIndirectBranchNode;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMNativePointerLiteralNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+
+/**
+ * Measures the dispatch of indirect branches. The computed-goto interpreter of the
+ * {@code labeledgoto2.c} test is run from the bitcode files in the directory given by the
+ * {@value #BITCODE_PATH_PROPERTY} system property, which shows the speedup of compiled code when
+ * it is compared between revisions. The resolution of the branch target is also compared between
+ * the block-to-successor table of {@link LLVMIndirectBranchNode} and the linear search over the
+ * successors that it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IndirectBranchBenchmark {
+
+    static final String BITCODE_PATH_PROPERTY = "sulongbench.bitcodePath";
+
+    private static final String PROGRAM = "c/labeladdress/labeledgoto2/O1.bc";
+
+    // the block indices of the targets of the dispatch table in labeledgoto2.c
+    private static final int[] TARGETS = {3, 7, 12, 18, 21, 25, 30, 34, 39, 41, 45};
+    private static final int BRANCHES = 1024;
+
+    private Context context;
+    private Value main;
+    private LLVMIndirectBranchNode[] branches;
+
+    @Setup
+    public void setUp() throws IOException {
+        String path = System.getProperty(BITCODE_PATH_PROPERTY);
+        if (path == null) {
+            throw new IllegalStateException("Set " + BITCODE_PATH_PROPERTY + " to a directory that contains the compiled test suites.");
+        }
+        context = Context.newBuilder().allowAllAccess(true).build();
+        main = context.eval(Source.newBuilder("llvm", new File(path, PROGRAM)).build()).getMember("main");
+
+        // a random sequence of branches, as the instructions of an interpreted program
+        Random random = new Random(42);
+        branches = new LLVMIndirectBranchNode[BRANCHES];
+        for (int i = 0; i < BRANCHES; i++) {
+            LLVMNativePointerLiteralNode address = new LLVMNativePointerLiteralNode(LLVMNativePointer.create(TARGETS[random.nextInt(TARGETS.length)]));
+            branches[i] = LLVMIndirectBranchNode.create(new LLVMIndirectBranchNode.LLVMBasicBranchAddressNode(address), TARGETS, new LLVMStatementNode[TARGETS.length], null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Runs the threaded-code stack machine, which executes an indirect branch per instruction.
+     */
+    @Benchmark
+    public void runComputedGotoInterpreter(Blackhole blackhole) {
+        int result = main.execute().asInt();
+        if (result != 0) {
+            throw new IllegalStateException("unexpected result: " + result);
+        }
+        blackhole.consume(result);
+    }
+
+    /**
+     * Resolves the branch targets by comparing them with every successor in order.
+     */
+    @Benchmark
+    public void resolveTargetLinear(Blackhole blackhole) {
+        for (LLVMIndirectBranchNode branch : branches) {
+            int target = branch.executeCondition(null);
+            int[] successors = branch.getSuccessors();
+            for (int i = 0; i < successors.length; i++) {
+                if (successors[i] == target) {
+                    blackhole.consume(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves the branch targets with the block-to-successor table.
+     */
+    @Benchmark
+    public void resolveTargetTable(Blackhole blackhole) {
+        for (LLVMIndirectBranchNode branch : branches) {
+            blackhole.consume(branch.executeSuccessorIndex(null));
+        }
+    }
+}
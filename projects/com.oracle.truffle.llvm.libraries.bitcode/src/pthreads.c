@@ -27,17 +27,36 @@
  * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
  * OF THE POSSIBILITY OF SUCH DAMAGE.
  */
+#include <errno.h>
+#include <limits.h>
 #include <sys/types.h>
 #include <unistd.h>
 #include <pthread.h>
 
 #include "unsupported.h"
 
+/*
+ * Threads, mutexes, condition variables, read-write locks, thread-specific data and pthread_once
+ * are implemented by intrinsics (see LLVMPThreadContext). The attribute objects are plain memory.
+ * The intrinsics of pthread_create and pthread_mutex_init rely on the layouts below.
+ */
+typedef struct {
+  int detachstate;
+  size_t stacksize;
+} sulong_pthread_attr_t;
+
+_Static_assert(sizeof(sulong_pthread_attr_t) <= sizeof(pthread_attr_t), "pthread_attr_t is too small");
+_Static_assert(sizeof(int) <= sizeof(pthread_mutexattr_t), "pthread_mutexattr_t is too small");
+
+// the default of the llvm.threadStackSizeKB option, which applies to threads with a stacksize of 0
+#define SULONG_THREAD_STACK_SIZE (8192 * 1024)
+
 int pthread_attr_destroy(pthread_attr_t *attr) {
-  ERR_UNSUPPORTED(pthread_attr_destroy);
+  return 0;
 }
 int pthread_attr_getdetachstate(const pthread_attr_t *attr, int *detachstate) {
-  ERR_UNSUPPORTED(pthread_attr_getdetachstate);
+  *detachstate = ((const sulong_pthread_attr_t *)attr)->detachstate;
+  return 0;
 }
 int pthread_attr_getguardsize(const pthread_attr_t *attr, size_t *guardsize) {
   ERR_UNSUPPORTED(pthread_attr_getguardsize);
@@ -58,13 +77,21 @@ int pthread_attr_getstackaddr(const pthread_attr_t *attr, void **stackaddr) {
   ERR_UNSUPPORTED(pthread_attr_getstackaddr);
 }
 int pthread_attr_getstacksize(const pthread_attr_t *restrict attr, size_t *restrict stacksize) {
-  ERR_UNSUPPORTED(pthread_attr_getstacksize);
+  size_t size = ((const sulong_pthread_attr_t *)attr)->stacksize;
+  *stacksize = size == 0 ? SULONG_THREAD_STACK_SIZE : size;
+  return 0;
 }
 int pthread_attr_init(pthread_attr_t *attr) {
-  ERR_UNSUPPORTED(pthread_attr_init);
+  ((sulong_pthread_attr_t *)attr)->detachstate = PTHREAD_CREATE_JOINABLE;
+  ((sulong_pthread_attr_t *)attr)->stacksize = 0;
+  return 0;
 }
 int pthread_attr_setdetachstate(pthread_attr_t *attr, int detachstate) {
-  ERR_UNSUPPORTED(pthread_attr_setdetachstate);
+  if (detachstate != PTHREAD_CREATE_JOINABLE && detachstate != PTHREAD_CREATE_DETACHED) {
+    return EINVAL;
+  }
+  ((sulong_pthread_attr_t *)attr)->detachstate = detachstate;
+  return 0;
 }
 int pthread_attr_setguardsize(pthread_attr_t *attr, size_t guardsize) {
   ERR_UNSUPPORTED(pthread_attr_setguardsize);
@@ -85,99 +112,49 @@ int pthread_attr_setstackaddr(pthread_attr_t *attr, void *stackaddr) {
   ERR_UNSUPPORTED(pthread_attr_setstackaddr);
 }
 int pthread_attr_setstacksize(pthread_attr_t *attr, size_t stacksize) {
-  ERR_UNSUPPORTED(pthread_attr_setstacksize);
+  if (stacksize < PTHREAD_STACK_MIN) {
+    return EINVAL;
+  }
+  ((sulong_pthread_attr_t *)attr)->stacksize = stacksize;
+  return 0;
 }
 int pthread_cancel(pthread_t thread) {
   ERR_UNSUPPORTED(pthread_cancel);
 }
 // void  pthread_cleanup_push(void*, void *);
 // void  pthread_cleanup_pop(int);
-int pthread_cond_broadcast(pthread_cond_t *cond) {
-  ERR_UNSUPPORTED(pthread_cond_broadcast);
-}
-int pthread_cond_destroy(pthread_cond_t *cond) {
-  ERR_UNSUPPORTED(pthread_cond_destroy);
-}
-int pthread_cond_init(pthread_cond_t *restrict cond, const pthread_condattr_t *restrict attr) {
-  ERR_UNSUPPORTED(pthread_cond_init);
-}
-int pthread_cond_signal(pthread_cond_t *cond) {
-  ERR_UNSUPPORTED(pthread_cond_signal);
-}
-int pthread_cond_timedwait(pthread_cond_t *restrict cond, pthread_mutex_t *restrict mutex, const struct timespec *restrict abstime) {
-  ERR_UNSUPPORTED(pthread_cond_timedwait);
-}
-int pthread_cond_wait(pthread_cond_t *restrict cond, pthread_mutex_t *restrict mutex) {
-  ERR_UNSUPPORTED(pthread_cond_wait);
-}
 int pthread_condattr_destroy(pthread_condattr_t *attr) {
-  ERR_UNSUPPORTED(pthread_condattr_destroy);
+  return 0;
 }
 int pthread_condattr_getpshared(const pthread_condattr_t *restrict attr, int *restrict pshared) {
   ERR_UNSUPPORTED(pthread_condattr_getpshared);
 }
 int pthread_condattr_init(pthread_condattr_t *attr) {
-  ERR_UNSUPPORTED(pthread_condattr_init);
+  return 0;
 }
 int pthread_condattr_setpshared(pthread_condattr_t *attr, int pshared) {
   ERR_UNSUPPORTED(pthread_condattr_setpshared);
 }
-int pthread_create(pthread_t *restrict thread, const pthread_attr_t *restrict attr, void *(*start_routine)(void *), void *restrict arg) {
-  ERR_UNSUPPORTED(pthread_create);
-}
-int pthread_detach(pthread_t thread) {
-  ERR_UNSUPPORTED(pthread_detach);
-}
 // this function might be defined as a macro
 #ifndef pthread_equal
 int pthread_equal(pthread_t t1, pthread_t t2) {
-  ERR_UNSUPPORTED(pthread_equal);
+  return t1 == t2;
 }
 #endif
-void pthread_exit(void *value_ptr) {
-  ERR_UNSUPPORTED(pthread_exit);
-}
 int pthread_getconcurrency(void) {
   ERR_UNSUPPORTED(pthread_getconcurrency);
 }
 int pthread_getschedparam(pthread_t thread, int *restrict policy, struct sched_param *restrict param) {
   ERR_UNSUPPORTED(pthread_getschedparam);
 }
-void *pthread_getspecific(pthread_key_t key) {
-  ERR_UNSUPPORTED(pthread_getspecific);
-}
-int pthread_join(pthread_t thread, void **value_ptr) {
-  ERR_UNSUPPORTED(pthread_join);
-}
-int pthread_key_create(pthread_key_t *key, void (*destructor)(void *)) {
-  ERR_UNSUPPORTED(pthread_key_create);
-}
-int pthread_key_delete(pthread_key_t key) {
-  ERR_UNSUPPORTED(pthread_key_delete);
-}
-int pthread_mutex_destroy(pthread_mutex_t *mutex) {
-  ERR_UNSUPPORTED(pthread_mutex_destroy);
-}
 int pthread_mutex_getprioceiling(const pthread_mutex_t *restrict mutex, int *restrict prioceiling) {
   ERR_UNSUPPORTED(pthread_mutex_getprioceiling);
 }
-int pthread_mutex_init(pthread_mutex_t *restrict mutex, const pthread_mutexattr_t *restrict attr) {
-  ERR_UNSUPPORTED(pthread_mutex_init);
-}
-int pthread_mutex_lock(pthread_mutex_t *mutex) {
-  ERR_UNSUPPORTED(pthread_mutex_lock);
-}
 int pthread_mutex_setprioceiling(pthread_mutex_t *restrict mutex, int prioceiling, int *restrict old_ceiling) {
   ERR_UNSUPPORTED(pthread_mutex_setprioceiling);
 }
-int pthread_mutex_trylock(pthread_mutex_t *mutex) {
-  ERR_UNSUPPORTED(pthread_mutex_trylock);
-}
-int pthread_mutex_unlock(pthread_mutex_t *mutex) {
-  ERR_UNSUPPORTED(pthread_mutex_unlock);
-}
 int pthread_mutexattr_destroy(pthread_mutexattr_t *attr) {
-  ERR_UNSUPPORTED(pthread_mutexattr_destroy);
+  return 0;
 }
 int pthread_mutexattr_getprioceiling(const pthread_mutexattr_t *restrict attr, int *restrict prioceiling) {
   ERR_UNSUPPORTED(pthread_mutexattr_getprioceiling);
@@ -189,10 +166,12 @@ int pthread_mutexattr_getpshared(const pthread_mutexattr_t *restrict attr, int *
   ERR_UNSUPPORTED(pthread_mutexattr_getpshared);
 }
 int pthread_mutexattr_gettype(const pthread_mutexattr_t *restrict attr, int *restrict type) {
-  ERR_UNSUPPORTED(pthread_mutexattr_gettype);
+  *type = *(const int *)attr;
+  return 0;
 }
 int pthread_mutexattr_init(pthread_mutexattr_t *attr) {
-  ERR_UNSUPPORTED(pthread_mutexattr_init);
+  *(int *)attr = PTHREAD_MUTEX_DEFAULT;
+  return 0;
 }
 int pthread_mutexattr_setprioceiling(pthread_mutexattr_t *attr, int protocol) {
   ERR_UNSUPPORTED(pthread_mutexattr_setprioceiling);
@@ -204,52 +183,36 @@ int pthread_mutexattr_setpshared(pthread_mutexattr_t *attr, int pshared) {
   ERR_UNSUPPORTED(pthread_mutexattr_setpshared);
 }
 int pthread_mutexattr_settype(pthread_mutexattr_t *attr, int type) {
-  ERR_UNSUPPORTED(pthread_mutexattr_settype);
-}
-int pthread_once(pthread_once_t *once_control, void (*init_routine)(void)) {
-  ERR_UNSUPPORTED(pthread_once);
-}
-int pthread_rwlock_destroy(pthread_rwlock_t *rwlock) {
-  ERR_UNSUPPORTED(pthread_rwlock_destroy);
-}
-int pthread_rwlock_init(pthread_rwlock_t *restrict rwlock, const pthread_rwlockattr_t *restrict attr) {
-  ERR_UNSUPPORTED(pthread_rwlock_init);
-}
-int pthread_rwlock_rdlock(pthread_rwlock_t *rwlock) {
-  ERR_UNSUPPORTED(pthread_rwlock_rdlock);
-}
-int pthread_rwlock_tryrdlock(pthread_rwlock_t *rwlock) {
-  ERR_UNSUPPORTED(pthread_rwlock_tryrdlock);
-}
-int pthread_rwlock_trywrlock(pthread_rwlock_t *rwlock) {
-  ERR_UNSUPPORTED(pthread_rwlock_trywrlock);
-}
-int pthread_rwlock_unlock(pthread_rwlock_t *rwlock) {
-  ERR_UNSUPPORTED(pthread_rwlock_unlock);
-}
-int pthread_rwlock_wrlock(pthread_rwlock_t *rwlock) {
-  ERR_UNSUPPORTED(pthread_rwlock_wrlockk);
+  if (type != PTHREAD_MUTEX_NORMAL && type != PTHREAD_MUTEX_RECURSIVE && type != PTHREAD_MUTEX_ERRORCHECK) {
+    return EINVAL;
+  }
+  *(int *)attr = type;
+  return 0;
 }
 int pthread_rwlockattr_destroy(pthread_rwlockattr_t *attr) {
-  ERR_UNSUPPORTED(pthread_rwlockattr_destroy);
+  return 0;
 }
 int pthread_rwlockattr_getpshared(const pthread_rwlockattr_t *restrict attr, int *restrict pshared) {
   ERR_UNSUPPORTED(pthread_rwlockattr_getpshared);
 }
 int pthread_rwlockattr_init(pthread_rwlockattr_t *attr) {
-  ERR_UNSUPPORTED(pthread_rwlockattr_init);
+  return 0;
 }
 int pthread_rwlockattr_setpshared(pthread_rwlockattr_t *attr, int pshared) {
   ERR_UNSUPPORTED(pthread_rwlockattr_setpshared);
 }
-pthread_t pthread_self(void) {
-  ERR_UNSUPPORTED(pthread_self);
-}
 int pthread_setcancelstate(int state, int *oldstate) {
-  ERR_UNSUPPORTED(pthread_setcancelstate);
+  // cancellation is not supported, so threads are never cancelled anyway
+  if (oldstate) {
+    *oldstate = PTHREAD_CANCEL_ENABLE;
+  }
+  return 0;
 }
 int pthread_setcanceltype(int type, int *oldtype) {
-  ERR_UNSUPPORTED(pthread_setcanceltype);
+  if (oldtype) {
+    *oldtype = PTHREAD_CANCEL_DEFERRED;
+  }
+  return 0;
 }
 int pthread_setconcurrency(int new_level) {
   ERR_UNSUPPORTED(pthread_setconcurrency);
@@ -257,9 +220,6 @@ int pthread_setconcurrency(int new_level) {
 int pthread_setschedparam(pthread_t thread, int policy, const struct sched_param *param) {
   ERR_UNSUPPORTED(pthread_setschedparam);
 }
-int pthread_setspecific(pthread_key_t key, const void *value) {
-  ERR_UNSUPPORTED(pthread_setspecific);
-}
 void pthread_testcancel(void) {
-  // do nothing - this is fine as long as no other pthread methods are supported
+  // do nothing - threads cannot be cancelled
 }
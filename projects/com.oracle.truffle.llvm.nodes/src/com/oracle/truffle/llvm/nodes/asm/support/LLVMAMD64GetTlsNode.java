@@ -29,18 +29,30 @@
  */
 package com.oracle.truffle.llvm.nodes.asm.support;
 
-import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameUtil;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.llvm.runtime.memory.LLVMStack;
+import com.oracle.truffle.llvm.runtime.memory.LLVMStack.StackPointer;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 
 public class LLVMAMD64GetTlsNode extends LLVMExpressionNode {
-    @TruffleBoundary
-    private Object getTLS() {
-        return getContextReference().get().getThreadLocalStorage();
+
+    @CompilationFinal private FrameSlot stackPointerSlot;
+
+    private FrameSlot getStackPointerSlot() {
+        if (stackPointerSlot == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            stackPointerSlot = getRootNode().getFrameDescriptor().findFrameSlot(LLVMStack.FRAME_ID);
+        }
+        return stackPointerSlot;
     }
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        return getTLS();
+        StackPointer stackPointer = (StackPointer) FrameUtil.getObjectSafe(frame, getStackPointerSlot());
+        return stackPointer.getThreadContext().getThreadLocalStorage();
     }
 }
@@ -29,25 +29,104 @@
  */
 package com.oracle.truffle.llvm.nodes.asm.syscall;
 
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.memory.LLVMSyscallOperationNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMFutexTable;
 
 public abstract class LLVMAMD64SyscallFutexNode extends LLVMSyscallOperationNode {
 
+    // @formatter:off
+    public static final int FUTEX_WAIT             = 0;
+    public static final int FUTEX_WAKE             = 1;
+    public static final int FUTEX_WAIT_BITSET      = 9;
+    public static final int FUTEX_WAKE_BITSET      = 10;
+    public static final int FUTEX_PRIVATE_FLAG     = 128;
+    public static final int FUTEX_CLOCK_REALTIME   = 256;
+    public static final int FUTEX_BITSET_MATCH_ANY = 0xffffffff;
+    // @formatter:on
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
     @Override
     public final String getName() {
         return "futex";
     }
 
-    @SuppressWarnings("unused")
     @Specialization
-    protected long doI64(LLVMNativePointer uaddr, long futexOp, long val, LLVMNativePointer timeout, LLVMNativePointer uaddr2, long val3) {
-        return -LLVMAMD64Error.ENOSYS;
+    protected long doI64(LLVMNativePointer uaddr, long futexOp, long val, LLVMNativePointer timeout, @SuppressWarnings("unused") LLVMNativePointer uaddr2, long val3,
+                    @Cached("getContextReference()") ContextReference<LLVMContext> context) {
+        LLVMFutexTable futexTable = context.get().getPThreadContext().getFutexTable();
+        // all futexes are private to the process, so FUTEX_PRIVATE_FLAG makes no difference
+        int op = (int) futexOp & ~(FUTEX_PRIVATE_FLAG | FUTEX_CLOCK_REALTIME);
+        switch (op) {
+            case FUTEX_WAIT:
+                return doWait(futexTable, uaddr, (int) val, FUTEX_BITSET_MATCH_ANY, timeout, false, false);
+            case FUTEX_WAIT_BITSET:
+                if ((int) val3 == 0) {
+                    return -LLVMAMD64Error.EINVAL;
+                }
+                return doWait(futexTable, uaddr, (int) val, (int) val3, timeout, true, (futexOp & FUTEX_CLOCK_REALTIME) != 0);
+            case FUTEX_WAKE:
+                return futexTable.wake(uaddr, (int) val, FUTEX_BITSET_MATCH_ANY);
+            case FUTEX_WAKE_BITSET:
+                if ((int) val3 == 0) {
+                    return -LLVMAMD64Error.EINVAL;
+                }
+                return futexTable.wake(uaddr, (int) val, (int) val3);
+            default:
+                return -LLVMAMD64Error.ENOSYS;
+        }
     }
 
     @Specialization
-    protected long doI64(long uaddr, long futexOp, long val, long timeout, long uaddr2, long val3) {
-        return doI64(LLVMNativePointer.create(uaddr), futexOp, val, LLVMNativePointer.create(timeout), LLVMNativePointer.create(uaddr2), val3);
+    protected long doI64(long uaddr, long futexOp, long val, long timeout, long uaddr2, long val3,
+                    @Cached("getContextReference()") ContextReference<LLVMContext> context) {
+        return doI64(LLVMNativePointer.create(uaddr), futexOp, val, LLVMNativePointer.create(timeout), LLVMNativePointer.create(uaddr2), val3, context);
+    }
+
+    /**
+     * The timeout of {@code FUTEX_WAIT} is relative, while the timeout of
+     * {@code FUTEX_WAIT_BITSET} is an absolute time of {@code CLOCK_MONOTONIC} or
+     * {@code CLOCK_REALTIME}.
+     */
+    private long doWait(LLVMFutexTable futexTable, LLVMNativePointer uaddr, int expected, int bitset, LLVMNativePointer timeout, boolean absolute, boolean realtime) {
+        LLVMMemory memory = getLLVMMemory();
+        boolean timed = !timeout.isNull();
+        long deadline = 0;
+        if (timed) {
+            long seconds = memory.getI64(timeout);
+            long nanos = memory.getI64(timeout.asNative() + Long.BYTES);
+            if (seconds < 0 || nanos < 0 || nanos >= NANOS_PER_SECOND) {
+                return -LLVMAMD64Error.EINVAL;
+            }
+            if (seconds >= Long.MAX_VALUE / NANOS_PER_SECOND / 2) {
+                // too far in the future to make a difference
+                timed = false;
+            } else {
+                long time = seconds * NANOS_PER_SECOND + nanos;
+                if (!absolute) {
+                    deadline = System.nanoTime() + time;
+                } else if (realtime) {
+                    deadline = System.nanoTime() + (time - System.currentTimeMillis() * NANOS_PER_MILLI);
+                } else {
+                    // CLOCK_MONOTONIC is based on System.nanoTime (see clock_gettime)
+                    deadline = time;
+                }
+            }
+        }
+        switch (futexTable.await(memory, uaddr, expected, bitset, timed, deadline)) {
+            case LLVMFutexTable.VALUE_CHANGED:
+                return -LLVMAMD64Error.EAGAIN;
+            case LLVMFutexTable.TIMED_OUT:
+                return -LLVMAMD64Error.ETIMEDOUT;
+            default:
+                return 0;
+        }
     }
 }
@@ -39,9 +39,6 @@ public class LLVMAMD64SyscallGettidNode extends LLVMSyscallOperationNode {
 
     @Override
     public long execute(Object rdi, Object rsi, Object rdx, Object r10, Object r8, Object r9) {
-        // TODO: once multithreading is supported, this must return the TID
-        // instead of the PID. Returning the PID means that the process is
-        // single-threaded.
-        return LLVMInfo.getpid();
+        return getContextReference().get().getPThreadContext().getCurrentTid(LLVMInfo.getpid());
     }
 }
@@ -31,6 +31,7 @@ package com.oracle.truffle.llvm.nodes.asm.syscall;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.memory.LLVMSyscallOperationNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMPointer;
@@ -54,7 +55,8 @@ public abstract class LLVMAMD64SyscallSetTidAddressNode extends LLVMSyscallOpera
 
     @TruffleBoundary
     private long exec(LLVMPointer tidptr) {
-        getContextReference().get().setClearChildTid(tidptr);
-        return Thread.currentThread().getId();
+        LLVMContext context = getContextReference().get();
+        context.setClearChildTid(tidptr);
+        return context.getPThreadContext().getCurrentTid(LLVMInfo.getpid());
     }
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.control;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.ExplodeLoop.LoopExplosionKind;
+import com.oracle.truffle.api.nodes.LoopNode;
+import com.oracle.truffle.api.nodes.RepeatingNode;
+import com.oracle.truffle.llvm.nodes.base.LLVMBasicBlockNode;
+import com.oracle.truffle.llvm.nodes.base.LLVMFrameNullerUtil;
+import com.oracle.truffle.llvm.nodes.func.LLVMInvokeNode;
+import com.oracle.truffle.llvm.nodes.func.LLVMResumeNode;
+import com.oracle.truffle.llvm.nodes.others.LLVMUnreachableNode;
+import com.oracle.truffle.llvm.runtime.except.LLVMUserException;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMControlFlowNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
+
+/**
+ * Dispatches between the basic blocks of a function or of a single loop within a function. Blocks
+ * are addressed by their index in the function. Blocks that do not belong to this region are
+ * {@code null}, and the headers of nested loops are mapped to an {@link LLVMLoopNode} which
+ * executes the whole nested loop.
+ *
+ * A loop region executes one iteration per {@link #executeRepeating} call: it starts at the loop
+ * header and stops as soon as control returns to the header or leaves the loop. In the latter case
+ * the index of the successor block is stored in the loop successor frame slot.
+ */
+final class LLVMBasicBlockRegionNode extends LLVMNode implements RepeatingNode {
+
+    private static final Object CONTINUE_LOOP = new Object();
+    private static final Object EXIT_LOOP = new Object();
+
+    private final int entryBlock;
+    private final boolean isLoop;
+    private final FrameSlot exceptionValueSlot;
+    private final FrameSlot loopSuccessorSlot;
+    @Children private final LLVMBasicBlockNode[] bodyNodes;
+    @Children private final LLVMLoopNode[] loopNodes;
+    @CompilationFinal(dimensions = 2) private final FrameSlot[][] beforeBlockNuller;
+    @CompilationFinal(dimensions = 2) private final FrameSlot[][] afterBlockNuller;
+
+    LLVMBasicBlockRegionNode(int entryBlock, boolean isLoop, FrameSlot exceptionValueSlot, FrameSlot loopSuccessorSlot, LLVMBasicBlockNode[] bodyNodes, LLVMLoopNode[] loopNodes,
+                    FrameSlot[][] beforeBlockNuller, FrameSlot[][] afterBlockNuller) {
+        assert bodyNodes.length == loopNodes.length;
+        this.entryBlock = entryBlock;
+        this.isLoop = isLoop;
+        this.exceptionValueSlot = exceptionValueSlot;
+        this.loopSuccessorSlot = loopSuccessorSlot;
+        this.bodyNodes = bodyNodes;
+        this.loopNodes = loopNodes;
+        this.beforeBlockNuller = beforeBlockNuller;
+        this.afterBlockNuller = afterBlockNuller;
+    }
+
+    @Override
+    public boolean executeRepeating(VirtualFrame frame) {
+        assert isLoop;
+        return executeRegion(frame) == CONTINUE_LOOP;
+    }
+
+    @ExplodeLoop(kind = LoopExplosionKind.MERGE_EXPLODE)
+    Object executeRegion(VirtualFrame frame) {
+        Object returnValue = null;
+
+        CompilerAsserts.compilationConstant(bodyNodes.length);
+        int basicBlockIndex = entryBlock;
+        boolean entered = false;
+        int backEdgeCounter = 0;
+        outer: while (basicBlockIndex != LLVMBasicBlockNode.RETURN_FROM_FUNCTION) {
+            CompilerAsserts.partialEvaluationConstant(basicBlockIndex);
+            if (isLoop && entered && basicBlockIndex == entryBlock) {
+                // back edge to the loop header - the current iteration is done
+                returnValue = CONTINUE_LOOP;
+                break outer;
+            }
+
+            LLVMLoopNode loopNode = loopNodes[basicBlockIndex];
+            if (loopNode != null) {
+                // the loop has already written the phis and nulled the dead slots of its exit edge
+                int loopSuccessor = loopNode.executeLoop(frame);
+                int[] loopSuccessors = loopNode.getSuccessors();
+                for (int i = 0; i < loopSuccessors.length; i++) {
+                    if (loopSuccessors[i] == loopSuccessor) {
+                        basicBlockIndex = loopSuccessors[i];
+                        continue outer;
+                    }
+                }
+                CompilerDirectives.transferToInterpreter();
+                throw new IllegalStateException("unexpected loop successor: " + loopSuccessor);
+            }
+
+            LLVMBasicBlockNode bb = bodyNodes[basicBlockIndex];
+            if (bb == null) {
+                // the successor is not part of this loop
+                assert isLoop;
+                frame.setInt(loopSuccessorSlot, basicBlockIndex);
+                returnValue = EXIT_LOOP;
+                break outer;
+            }
+            entered = true;
+
+            // execute all statements
+            bb.execute(frame);
+
+            // execute control flow node, write phis, null stack frame slots, and dispatch to
+            // the correct successor block
+            LLVMControlFlowNode controlFlowNode = bb.termInstruction;
+            if (controlFlowNode instanceof LLVMConditionalBranchNode) {
+                LLVMConditionalBranchNode conditionalBranchNode = (LLVMConditionalBranchNode) controlFlowNode;
+                boolean condition = conditionalBranchNode.executeCondition(frame);
+                if (CompilerDirectives.injectBranchProbability(bb.getBranchProbability(LLVMConditionalBranchNode.TRUE_SUCCESSOR), condition)) {
+                    if (CompilerDirectives.inInterpreter()) {
+                        bb.increaseBranchProbability(LLVMConditionalBranchNode.TRUE_SUCCESSOR);
+                        if (conditionalBranchNode.getTrueSuccessor() <= basicBlockIndex) {
+                            backEdgeCounter++;
+                        }
+                    }
+                    executePhis(frame, conditionalBranchNode, LLVMConditionalBranchNode.TRUE_SUCCESSOR);
+                    nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                    basicBlockIndex = conditionalBranchNode.getTrueSuccessor();
+                    nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                    continue outer;
+                } else {
+                    if (CompilerDirectives.inInterpreter()) {
+                        bb.increaseBranchProbability(LLVMConditionalBranchNode.FALSE_SUCCESSOR);
+                        if (conditionalBranchNode.getFalseSuccessor() <= basicBlockIndex) {
+                            backEdgeCounter++;
+                        }
+                    }
+                    executePhis(frame, conditionalBranchNode, LLVMConditionalBranchNode.FALSE_SUCCESSOR);
+                    nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                    basicBlockIndex = conditionalBranchNode.getFalseSuccessor();
+                    nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                    continue outer;
+                }
+            } else if (controlFlowNode instanceof LLVMSwitchNode) {
+                LLVMSwitchNode switchNode = (LLVMSwitchNode) controlFlowNode;
+                int[] successors = switchNode.getSuccessors();
+                int successorIndex = switchNode.executeSuccessorIndex(frame);
+                if (CompilerDirectives.inInterpreter()) {
+                    // jump directly to the successor, the compiler needs a constant block index
+                    bb.increaseBranchProbability(successorIndex);
+                    if (successors[successorIndex] <= basicBlockIndex) {
+                        backEdgeCounter++;
+                    }
+                    executePhis(frame, switchNode, successorIndex);
+                    nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                    basicBlockIndex = successors[successorIndex];
+                    nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                    continue outer;
+                }
+
+                // compare the resolved index only with one index per distinct successor block
+                int[] distinctSuccessorIndices = switchNode.getDistinctSuccessorIndices();
+                for (int j = 0; j < distinctSuccessorIndices.length - 1; j++) {
+                    int i = distinctSuccessorIndices[j];
+                    if (CompilerDirectives.injectBranchProbability(bb.getBranchProbability(i), successorIndex == i)) {
+                        executePhis(frame, switchNode, i);
+                        nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                        basicBlockIndex = successors[i];
+                        nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                        continue outer;
+                    }
+                }
+
+                int i = distinctSuccessorIndices[distinctSuccessorIndices.length - 1];
+                assert successorIndex == i;
+                executePhis(frame, switchNode, i);
+                nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                basicBlockIndex = successors[i];
+                nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                continue outer;
+            } else if (controlFlowNode instanceof LLVMIndirectBranchNode) {
+                LLVMIndirectBranchNode indirectBranchNode = (LLVMIndirectBranchNode) controlFlowNode;
+                int[] successors = indirectBranchNode.getSuccessors();
+                int successorIndex = indirectBranchNode.executeSuccessorIndex(frame);
+                if (CompilerDirectives.inInterpreter()) {
+                    // jump directly to the target, the compiler needs a constant block index
+                    bb.increaseBranchProbability(successorIndex);
+                    if (successors[successorIndex] <= basicBlockIndex) {
+                        backEdgeCounter++;
+                    }
+                    executePhis(frame, indirectBranchNode, successorIndex);
+                    nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                    basicBlockIndex = successors[successorIndex];
+                    nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                    continue outer;
+                }
+
+                // compare the resolved index only with one index per distinct target block
+                int[] distinctSuccessorIndices = indirectBranchNode.getDistinctSuccessorIndices();
+                for (int j = 0; j < distinctSuccessorIndices.length - 1; j++) {
+                    int i = distinctSuccessorIndices[j];
+                    if (CompilerDirectives.injectBranchProbability(bb.getBranchProbability(i), successorIndex == i)) {
+                        executePhis(frame, indirectBranchNode, i);
+                        nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                        basicBlockIndex = successors[i];
+                        nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                        continue outer;
+                    }
+                }
+
+                int i = distinctSuccessorIndices[distinctSuccessorIndices.length - 1];
+                assert successorIndex == i;
+                executePhis(frame, indirectBranchNode, i);
+                nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                basicBlockIndex = successors[i];
+                nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                continue outer;
+            } else if (controlFlowNode instanceof LLVMBrUnconditionalNode) {
+                LLVMBrUnconditionalNode unconditionalNode = (LLVMBrUnconditionalNode) controlFlowNode;
+                if (CompilerDirectives.inInterpreter()) {
+                    if (unconditionalNode.getSuccessor() <= basicBlockIndex) {
+                        backEdgeCounter++;
+                    }
+                }
+                unconditionalNode.execute(frame); // required for instrumentation
+                executePhis(frame, unconditionalNode, 0);
+                nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                basicBlockIndex = unconditionalNode.getSuccessor();
+                nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                continue outer;
+            } else if (controlFlowNode instanceof LLVMInvokeNode) {
+                LLVMInvokeNode invokeNode = (LLVMInvokeNode) controlFlowNode;
+                try {
+                    invokeNode.execute(frame);
+                    if (CompilerDirectives.inInterpreter()) {
+                        if (invokeNode.getNormalSuccessor() <= basicBlockIndex) {
+                            backEdgeCounter++;
+                        }
+                    }
+                    executePhis(frame, invokeNode, LLVMInvokeNode.NORMAL_SUCCESSOR);
+                    nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                    basicBlockIndex = invokeNode.getNormalSuccessor();
+                    nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                    continue outer;
+                } catch (LLVMUserException e) {
+                    frame.setObject(exceptionValueSlot, e);
+                    if (CompilerDirectives.inInterpreter()) {
+                        if (invokeNode.getUnwindSuccessor() <= basicBlockIndex) {
+                            backEdgeCounter++;
+                        }
+                    }
+                    executePhis(frame, invokeNode, LLVMInvokeNode.UNWIND_SUCCESSOR);
+                    nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                    basicBlockIndex = invokeNode.getUnwindSuccessor();
+                    nullDeadSlots(frame, basicBlockIndex, beforeBlockNuller);
+                    continue outer;
+                }
+            } else if (controlFlowNode instanceof LLVMRetNode) {
+                LLVMRetNode retNode = (LLVMRetNode) controlFlowNode;
+                returnValue = retNode.execute(frame);
+                assert noPhisNecessary(retNode);
+                nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                basicBlockIndex = retNode.getSuccessor();
+                continue outer;
+            } else if (controlFlowNode instanceof LLVMResumeNode) {
+                LLVMResumeNode resumeNode = (LLVMResumeNode) controlFlowNode;
+                assert noPhisNecessary(resumeNode);
+                nullDeadSlots(frame, basicBlockIndex, afterBlockNuller);
+                resumeNode.execute(frame);
+                CompilerAsserts.neverPartOfCompilation();
+                throw new IllegalStateException("must not reach here");
+            } else if (controlFlowNode instanceof LLVMUnreachableNode) {
+                LLVMUnreachableNode unreachableNode = (LLVMUnreachableNode) controlFlowNode;
+                assert noPhisNecessary(unreachableNode);
+                unreachableNode.execute();
+                CompilerAsserts.neverPartOfCompilation();
+                throw new IllegalStateException("must not reach here");
+            } else {
+                CompilerAsserts.neverPartOfCompilation();
+                throw new UnsupportedOperationException("unexpected controlFlowNode type: " + controlFlowNode);
+            }
+        }
+        assert backEdgeCounter >= 0;
+        LoopNode.reportLoopCount(this, backEdgeCounter);
+        return returnValue;
+    }
+
+    @ExplodeLoop
+    private static void executePhis(VirtualFrame frame, LLVMControlFlowNode controlFlowNode, int successorIndex) {
+        LLVMStatementNode phi = controlFlowNode.getPhiNode(successorIndex);
+        if (phi != null) {
+            phi.execute(frame);
+        }
+    }
+
+    @ExplodeLoop
+    private static void nullDeadSlots(VirtualFrame frame, int bci, FrameSlot[][] blockNullers) {
+        FrameSlot[] frameSlotsToNull = blockNullers[bci];
+        if (frameSlotsToNull != null) {
+            assert frameSlotsToNull.length > 0;
+            for (int i = 0; i < frameSlotsToNull.length; i++) {
+                LLVMFrameNullerUtil.nullFrameSlot(frame, frameSlotsToNull[i], false);
+            }
+        }
+    }
+
+    private static boolean noPhisNecessary(LLVMControlFlowNode controlFlowNode) {
+        return controlFlowNode.getSuccessorCount() == 0 || controlFlowNode.getSuccessorCount() == 1 && controlFlowNode.getPhiNode(0) == null;
+    }
+}
@@ -29,6 +29,8 @@
  */
 package com.oracle.truffle.llvm.nodes.control;
 
+import java.util.Arrays;
+
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.frame.VirtualFrame;
@@ -71,11 +73,25 @@ public abstract class LLVMIndirectBranchNode extends LLVMControlFlowNode impleme
 
     public abstract int[] getSuccessors();
 
+    /**
+     * Returns the first position of the branch target within {@link #getSuccessors()}.
+     */
+    public abstract int executeSuccessorIndex(VirtualFrame frame);
+
+    /**
+     * Returns the indices that {@link #executeSuccessorIndex} can return, one per distinct target
+     * block, in ascending order.
+     */
+    public abstract int[] getDistinctSuccessorIndices();
+
     private static final class LLVMIndirectBranchNodeImpl extends LLVMIndirectBranchNode {
 
         @Child private LLVMBranchAddressNode branchAddress;
         @Children private final LLVMStatementNode[] phiWriteNodes;
         @CompilationFinal(dimensions = 1) private final int[] successors;
+        // maps a basic block index to its position in the successors array, or -1
+        @CompilationFinal(dimensions = 1) private final int[] successorIndices;
+        @CompilationFinal(dimensions = 1) private final int[] distinctSuccessorIndices;
 
         private LLVMIndirectBranchNodeImpl(LLVMBranchAddressNode branchAddress, int[] indices, LLVMStatementNode[] phiWriteNodes, LLVMSourceLocation sourceSection) {
             super(sourceSection);
@@ -83,6 +99,17 @@ public abstract class LLVMIndirectBranchNode extends LLVMControlFlowNode impleme
             this.successors = indices;
             this.branchAddress = branchAddress;
             this.phiWriteNodes = phiWriteNodes;
+
+            int maxIndex = 0;
+            for (int index : indices) {
+                maxIndex = Math.max(maxIndex, index);
+            }
+            this.successorIndices = new int[maxIndex + 1];
+            Arrays.fill(successorIndices, -1);
+            for (int i = indices.length - 1; i >= 0; i--) {
+                successorIndices[indices[i]] = i;
+            }
+            this.distinctSuccessorIndices = getDistinctSuccessorIndices(getFirstSuccessorIndices(indices));
         }
 
         @Override
@@ -104,6 +131,24 @@ public abstract class LLVMIndirectBranchNode extends LLVMControlFlowNode impleme
         public int[] getSuccessors() {
             return successors;
         }
+
+        @Override
+        public int[] getDistinctSuccessorIndices() {
+            return distinctSuccessorIndices;
+        }
+
+        @Override
+        public int executeSuccessorIndex(VirtualFrame frame) {
+            int basicBlockIndex = executeCondition(frame);
+            if (basicBlockIndex >= 0 && basicBlockIndex < successorIndices.length) {
+                int successorIndex = successorIndices[basicBlockIndex];
+                if (successorIndex >= 0) {
+                    return successorIndex;
+                }
+            }
+            CompilerDirectives.transferToInterpreter();
+            throw new IllegalStateException("invalid target of indirect branch: " + basicBlockIndex);
+        }
     }
 
     public abstract static class LLVMBranchAddressNode extends LLVMNode {
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.control;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.llvm.nodes.base.LLVMBasicBlockNode;
+import com.oracle.truffle.llvm.nodes.func.LLVMInvokeNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMControlFlowNode;
+
+/**
+ * Finds the natural loops of a function and splits its basic blocks into nested
+ * {@link LLVMBasicBlockRegionNode regions}, one for the function itself and one for every loop.
+ * Irreducible control flow is left in the enclosing region.
+ */
+final class LLVMLoopAnalysis {
+
+    private final LLVMBasicBlockNode[] blocks;
+    private final FrameSlot exceptionValueSlot;
+    private final FrameSlot loopSuccessorSlot;
+    private final FrameSlot[][] beforeBlockNuller;
+    private final FrameSlot[][] afterBlockNuller;
+
+    private final int[][] successors;
+    private final BitSet[] loopBodies;
+
+    private LLVMLoopAnalysis(LLVMBasicBlockNode[] blocks, FrameSlot exceptionValueSlot, FrameSlot loopSuccessorSlot, FrameSlot[][] beforeBlockNuller, FrameSlot[][] afterBlockNuller) {
+        this.blocks = blocks;
+        this.exceptionValueSlot = exceptionValueSlot;
+        this.loopSuccessorSlot = loopSuccessorSlot;
+        this.beforeBlockNuller = beforeBlockNuller;
+        this.afterBlockNuller = afterBlockNuller;
+        this.successors = new int[blocks.length][];
+        this.loopBodies = new BitSet[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            successors[i] = getSuccessors(blocks[i].termInstruction);
+        }
+    }
+
+    static LLVMBasicBlockRegionNode createFunctionRegion(FrameSlot exceptionValueSlot, FrameSlot loopSuccessorSlot, LLVMBasicBlockNode[] blocks, FrameSlot[][] beforeBlockNuller,
+                    FrameSlot[][] afterBlockNuller, boolean extractLoops) {
+        LLVMLoopAnalysis analysis = new LLVMLoopAnalysis(blocks, exceptionValueSlot, loopSuccessorSlot, beforeBlockNuller, afterBlockNuller);
+        if (extractLoops && loopSuccessorSlot != null) {
+            analysis.findLoops();
+        }
+        BitSet allBlocks = new BitSet(blocks.length);
+        allBlocks.set(0, blocks.length);
+        return analysis.createRegion(0, false, allBlocks);
+    }
+
+    private static int[] getSuccessors(LLVMControlFlowNode controlFlowNode) {
+        if (controlFlowNode instanceof LLVMConditionalBranchNode) {
+            LLVMConditionalBranchNode conditionalBranchNode = (LLVMConditionalBranchNode) controlFlowNode;
+            return new int[]{conditionalBranchNode.getTrueSuccessor(), conditionalBranchNode.getFalseSuccessor()};
+        } else if (controlFlowNode instanceof LLVMSwitchNode) {
+            return ((LLVMSwitchNode) controlFlowNode).getSuccessors();
+        } else if (controlFlowNode instanceof LLVMIndirectBranchNode) {
+            return ((LLVMIndirectBranchNode) controlFlowNode).getSuccessors();
+        } else if (controlFlowNode instanceof LLVMBrUnconditionalNode) {
+            return new int[]{((LLVMBrUnconditionalNode) controlFlowNode).getSuccessor()};
+        } else if (controlFlowNode instanceof LLVMInvokeNode) {
+            LLVMInvokeNode invokeNode = (LLVMInvokeNode) controlFlowNode;
+            return new int[]{invokeNode.getNormalSuccessor(), invokeNode.getUnwindSuccessor()};
+        } else {
+            // ret, resume and unreachable leave the function
+            return new int[0];
+        }
+    }
+
+    private void findLoops() {
+        int[] order = computeReversePostOrder();
+        int[] orderIndex = new int[blocks.length];
+        Arrays.fill(orderIndex, -1);
+        for (int i = 0; i < order.length; i++) {
+            orderIndex[order[i]] = i;
+        }
+
+        List<List<Integer>> predecessors = new ArrayList<>(blocks.length);
+        for (int i = 0; i < blocks.length; i++) {
+            predecessors.add(new ArrayList<>());
+        }
+        for (int block : order) {
+            for (int successor : successors[block]) {
+                predecessors.get(successor).add(block);
+            }
+        }
+
+        int[] dominators = computeDominators(order, orderIndex, predecessors);
+        for (int block : order) {
+            for (int successor : successors[block]) {
+                if (dominates(dominators, successor, block)) {
+                    if (loopBodies[successor] == null) {
+                        loopBodies[successor] = new BitSet(blocks.length);
+                        loopBodies[successor].set(successor);
+                    }
+                    addLoopBody(loopBodies[successor], block, predecessors);
+                }
+            }
+        }
+    }
+
+    private int[] computeReversePostOrder() {
+        int[] postOrder = new int[blocks.length];
+        int count = 0;
+        BitSet visited = new BitSet(blocks.length);
+        Deque<int[]> stack = new ArrayDeque<>();
+        visited.set(0);
+        stack.push(new int[]{0, 0});
+        while (!stack.isEmpty()) {
+            int[] top = stack.peek();
+            int[] blockSuccessors = successors[top[0]];
+            if (top[1] < blockSuccessors.length) {
+                int successor = blockSuccessors[top[1]++];
+                if (!visited.get(successor)) {
+                    visited.set(successor);
+                    stack.push(new int[]{successor, 0});
+                }
+            } else {
+                stack.pop();
+                postOrder[count++] = top[0];
+            }
+        }
+        int[] reversePostOrder = new int[count];
+        for (int i = 0; i < count; i++) {
+            reversePostOrder[i] = postOrder[count - 1 - i];
+        }
+        return reversePostOrder;
+    }
+
+    /**
+     * Computes the immediate dominators of all reachable blocks (Cooper, Harvey, Kennedy: "A Simple,
+     * Fast Dominance Algorithm").
+     */
+    private int[] computeDominators(int[] order, int[] orderIndex, List<List<Integer>> predecessors) {
+        int[] dominators = new int[blocks.length];
+        Arrays.fill(dominators, -1);
+        dominators[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < order.length; i++) {
+                int block = order[i];
+                int newDominator = -1;
+                for (int predecessor : predecessors.get(block)) {
+                    if (dominators[predecessor] == -1) {
+                        continue;
+                    }
+                    newDominator = newDominator == -1 ? predecessor : intersect(dominators, orderIndex, predecessor, newDominator);
+                }
+                if (dominators[block] != newDominator) {
+                    dominators[block] = newDominator;
+                    changed = true;
+                }
+            }
+        }
+        return dominators;
+    }
+
+    private static int intersect(int[] dominators, int[] orderIndex, int block1, int block2) {
+        int finger1 = block1;
+        int finger2 = block2;
+        while (finger1 != finger2) {
+            while (orderIndex[finger1] > orderIndex[finger2]) {
+                finger1 = dominators[finger1];
+            }
+            while (orderIndex[finger2] > orderIndex[finger1]) {
+                finger2 = dominators[finger2];
+            }
+        }
+        return finger1;
+    }
+
+    private static boolean dominates(int[] dominators, int dominator, int block) {
+        int current = block;
+        while (current != dominator) {
+            if (current == 0) {
+                return false;
+            }
+            current = dominators[current];
+        }
+        return true;
+    }
+
+    /**
+     * Adds all blocks from which the back edge source can be reached without passing the loop header.
+     */
+    private static void addLoopBody(BitSet body, int backEdgeSource, List<List<Integer>> predecessors) {
+        Deque<Integer> worklist = new ArrayDeque<>();
+        worklist.push(backEdgeSource);
+        while (!worklist.isEmpty()) {
+            int block = worklist.pop();
+            if (!body.get(block)) {
+                body.set(block);
+                for (int predecessor : predecessors.get(block)) {
+                    worklist.push(predecessor);
+                }
+            }
+        }
+    }
+
+    private LLVMBasicBlockRegionNode createRegion(int entryBlock, boolean isLoop, BitSet regionBlocks) {
+        LLVMBasicBlockNode[] bodyNodes = new LLVMBasicBlockNode[blocks.length];
+        LLVMLoopNode[] loopNodes = new LLVMLoopNode[blocks.length];
+
+        BitSet nestedBlocks = new BitSet(blocks.length);
+        for (int header = regionBlocks.nextSetBit(0); header >= 0; header = regionBlocks.nextSetBit(header + 1)) {
+            if (header != entryBlock && loopBodies[header] != null && isOutermostLoop(header, entryBlock, regionBlocks)) {
+                loopNodes[header] = createLoop(header);
+                nestedBlocks.or(loopBodies[header]);
+            }
+        }
+        for (int block = regionBlocks.nextSetBit(0); block >= 0; block = regionBlocks.nextSetBit(block + 1)) {
+            if (!nestedBlocks.get(block)) {
+                bodyNodes[block] = blocks[block];
+            }
+        }
+        return new LLVMBasicBlockRegionNode(entryBlock, isLoop, exceptionValueSlot, loopSuccessorSlot, bodyNodes, loopNodes, beforeBlockNuller, afterBlockNuller);
+    }
+
+    private boolean isOutermostLoop(int header, int entryBlock, BitSet regionBlocks) {
+        for (int other = regionBlocks.nextSetBit(0); other >= 0; other = regionBlocks.nextSetBit(other + 1)) {
+            if (other != header && other != entryBlock && loopBodies[other] != null && loopBodies[other].get(header)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private LLVMLoopNode createLoop(int header) {
+        BitSet body = loopBodies[header];
+        BitSet exits = new BitSet(blocks.length);
+        for (int block = body.nextSetBit(0); block >= 0; block = body.nextSetBit(block + 1)) {
+            for (int successor : successors[block]) {
+                if (!body.get(successor)) {
+                    exits.set(successor);
+                }
+            }
+        }
+        return new LLVMLoopNode(createRegion(header, true, body), loopSuccessorSlot, exits.stream().toArray());
+    }
+}
@@ -29,16 +29,22 @@
  */
 package com.oracle.truffle.llvm.nodes.control;
 
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.instrumentation.GenerateWrapper;
 import com.oracle.truffle.api.instrumentation.InstrumentableNode;
 import com.oracle.truffle.api.instrumentation.ProbeNode;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 import com.oracle.truffle.api.profiles.ValueProfile;
 import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceLocation;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMControlFlowNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType.PrimitiveKind;
 
 @GenerateWrapper
 public abstract class LLVMSwitchNode extends LLVMControlFlowNode implements InstrumentableNode {
@@ -70,13 +76,26 @@ public abstract class LLVMSwitchNode extends LLVMControlFlowNode implements Inst
 
     public abstract int[] getSuccessors();
 
-    public abstract LLVMExpressionNode getCase(int i);
+    /**
+     * Returns the index of the successor that belongs to the current value of the condition. The
+     * last index is the default case. Of all indices that lead to the same block, only the first
+     * one is returned.
+     */
+    public abstract int executeSuccessorIndex(VirtualFrame frame);
+
+    /**
+     * Returns the indices that {@link #executeSuccessorIndex} can return, one per distinct
+     * successor block, in ascending order.
+     */
+    public abstract int[] getDistinctSuccessorIndices();
 
     public static class LLVMSwitchNodeImpl extends LLVMSwitchNode {
         @Children private final LLVMStatementNode[] phiNodes;
         @Child protected LLVMExpressionNode cond;
         @Children protected final LLVMExpressionNode[] cases;
         @CompilationFinal(dimensions = 1) private final int[] successors;
+        @CompilationFinal(dimensions = 1) private final int[] firstSuccessorIndices;
+        @CompilationFinal(dimensions = 1) private final int[] distinctSuccessorIndices;
 
         private final ValueProfile conditionValueClass = ValueProfile.createClassProfile();
 
@@ -87,6 +106,8 @@ public abstract class LLVMSwitchNode extends LLVMControlFlowNode implements Inst
             this.phiNodes = phiNodes;
             this.cond = cond;
             this.cases = cases;
+            this.firstSuccessorIndices = getFirstSuccessorIndices(successors);
+            this.distinctSuccessorIndices = getDistinctSuccessorIndices(firstSuccessorIndices);
         }
 
         @Override
@@ -110,8 +131,179 @@ public abstract class LLVMSwitchNode extends LLVMControlFlowNode implements Inst
         }
 
         @Override
-        public LLVMExpressionNode getCase(int i) {
-            return cases[i];
+        public int[] getDistinctSuccessorIndices() {
+            return distinctSuccessorIndices;
+        }
+
+        @Override
+        @ExplodeLoop
+        public int executeSuccessorIndex(VirtualFrame frame) {
+            Object condition = executeCondition(frame);
+            for (int i = 0; i < cases.length; i++) {
+                Object caseValue = cases[i].executeGeneric(frame);
+                assert caseValue.getClass() == condition.getClass() : "must be the same type - otherwise equals might wrongly return false";
+                if (condition.equals(caseValue)) {
+                    return firstSuccessorIndices[i];
+                }
+            }
+            return firstSuccessorIndices[cases.length];
+        }
+    }
+
+    /**
+     * A switch over an integer condition whose case values are all constant. Dense case values are
+     * looked up in a table, sparse case values with a binary search. The condition is never boxed.
+     */
+    public static final class LLVMIntegerSwitchNodeImpl extends LLVMSwitchNode {
+
+        private static final int MAX_TABLE_SIZE = 1 << 16;
+        private static final int MIN_TABLE_DENSITY = 4;
+
+        @Children private final LLVMStatementNode[] phiNodes;
+        @Child private LLVMExpressionNode cond;
+        @CompilationFinal(dimensions = 1) private final int[] successors;
+        @CompilationFinal(dimensions = 1) private final int[] distinctSuccessorIndices;
+        private final int defaultIndex;
+        private final PrimitiveKind kind;
+
+        // dense case values: table[i] is the successor index of the value tableBase + i
+        private final long tableBase;
+        @CompilationFinal(dimensions = 1) private final int[] table;
+
+        // sparse case values: sorted case values and their successor indices
+        @CompilationFinal(dimensions = 1) private final long[] sortedValues;
+        @CompilationFinal(dimensions = 1) private final int[] sortedSuccessorIndices;
+
+        public LLVMIntegerSwitchNodeImpl(int[] successors, LLVMStatementNode[] phiNodes, LLVMExpressionNode cond, long[] caseValues, PrimitiveKind kind,
+                        LLVMSourceLocation sourceSection) {
+            super(sourceSection);
+            assert successors.length == caseValues.length + 1 : "the last entry of the successors array must be the default case";
+            this.successors = successors;
+            this.phiNodes = phiNodes;
+            this.cond = cond;
+            this.kind = kind;
+
+            int[] firstSuccessorIndices = getFirstSuccessorIndices(successors);
+            this.distinctSuccessorIndices = getDistinctSuccessorIndices(firstSuccessorIndices);
+            this.defaultIndex = firstSuccessorIndices[caseValues.length];
+
+            long[] values = new long[caseValues.length];
+            Integer[] order = new Integer[caseValues.length];
+            for (int i = 0; i < caseValues.length; i++) {
+                values[i] = normalize(kind, caseValues[i]);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(values[a], values[b]));
+
+            long range = values.length == 0 ? -1 : values[order[order.length - 1]] - values[order[0]];
+            if (range >= 0 && range < MAX_TABLE_SIZE && range < (long) values.length * MIN_TABLE_DENSITY) {
+                this.tableBase = values[order[0]];
+                this.table = new int[(int) range + 1];
+                Arrays.fill(table, defaultIndex);
+                for (int i = 0; i < values.length; i++) {
+                    table[(int) (values[i] - tableBase)] = firstSuccessorIndices[i];
+                }
+                this.sortedValues = null;
+                this.sortedSuccessorIndices = null;
+            } else {
+                this.tableBase = 0;
+                this.table = null;
+                this.sortedValues = new long[values.length];
+                this.sortedSuccessorIndices = new int[values.length];
+                for (int i = 0; i < order.length; i++) {
+                    sortedValues[i] = values[order[i]];
+                    sortedSuccessorIndices[i] = firstSuccessorIndices[order[i]];
+                }
+            }
+        }
+
+        private static long normalize(PrimitiveKind kind, long value) {
+            switch (kind) {
+                case I1:
+                    return value & 0x1L;
+                case I8:
+                    return value & 0xFFL;
+                case I16:
+                    return value & 0xFFFFL;
+                case I32:
+                    return value & 0xFFFFFFFFL;
+                default:
+                    return value;
+            }
+        }
+
+        private long executeConditionValue(VirtualFrame frame) {
+            try {
+                switch (kind) {
+                    case I1:
+                        return cond.executeI1(frame) ? 1 : 0;
+                    case I8:
+                        return cond.executeI8(frame) & 0xFFL;
+                    case I16:
+                        return cond.executeI16(frame) & 0xFFFFL;
+                    case I32:
+                        return cond.executeI32(frame) & 0xFFFFFFFFL;
+                    case I64:
+                        return cond.executeI64(frame);
+                    default:
+                        CompilerDirectives.transferToInterpreter();
+                        throw new IllegalStateException("unexpected switch condition type: " + kind);
+                }
+            } catch (UnexpectedResultException e) {
+                CompilerDirectives.transferToInterpreter();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int executeSuccessorIndex(VirtualFrame frame) {
+            long value = executeConditionValue(frame);
+            if (table != null) {
+                long offset = value - tableBase;
+                if (Long.compareUnsigned(offset, table.length) < 0) {
+                    return table[(int) offset];
+                }
+                return defaultIndex;
+            }
+            int low = 0;
+            int high = sortedValues.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midValue = sortedValues[mid];
+                if (midValue < value) {
+                    low = mid + 1;
+                } else if (midValue > value) {
+                    high = mid - 1;
+                } else {
+                    return sortedSuccessorIndices[mid];
+                }
+            }
+            return defaultIndex;
+        }
+
+        @Override
+        public Object executeCondition(VirtualFrame frame) {
+            return cond.executeGeneric(frame);
+        }
+
+        @Override
+        public int[] getSuccessors() {
+            return successors;
+        }
+
+        @Override
+        public int getSuccessorCount() {
+            return successors.length;
+        }
+
+        @Override
+        public LLVMStatementNode getPhiNode(int successorIndex) {
+            return phiNodes[successorIndex];
+        }
+
+        @Override
+        public int[] getDistinctSuccessorIndices() {
+            return distinctSuccessorIndices;
         }
     }
 }
@@ -30,6 +30,7 @@
 package com.oracle.truffle.llvm.nodes.intrinsics.interop;
 
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.interop.CanResolve;
@@ -42,8 +43,10 @@ import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.llvm.nodes.intrinsics.llvm.LLVMIntrinsic;
 import com.oracle.truffle.llvm.runtime.interop.LLVMInternalTruffleObject;
 import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
+import com.oracle.truffle.llvm.runtime.memory.UnsafeArrayAccess;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectCompareExchangeNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectReadNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectWriteNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
@@ -131,6 +134,11 @@ public abstract class LLVMTruffleManagedMalloc extends LLVMIntrinsic {
         public LLVMObjectWriteNode createWriteNode() {
             return new ManagedWriteNode();
         }
+
+        @Override
+        public LLVMObjectCompareExchangeNode createCompareExchangeNode() {
+            return new ManagedCompareExchangeNode();
+        }
     }
 
     static class ManagedReadNode extends LLVMObjectReadNode {
@@ -163,6 +171,33 @@ public abstract class LLVMTruffleManagedMalloc extends LLVMIntrinsic {
         }
     }
 
+    static class ManagedCompareExchangeNode extends LLVMObjectCompareExchangeNode {
+
+        @CompilationFinal private UnsafeArrayAccess unsafeArrayAccess;
+
+        @Override
+        public boolean canAccess(Object obj) {
+            return obj instanceof ManagedMallocObject;
+        }
+
+        @Override
+        public Object executeCompareExchange(Object obj, long offset, Object expected, Object newValue, ForeignToLLVMType type) throws InteropException {
+            assert offset % LLVMExpressionNode.ADDRESS_SIZE_IN_BYTES == 0 : "invalid offset";
+            int idx = (int) (offset / LLVMExpressionNode.ADDRESS_SIZE_IN_BYTES);
+            if (unsafeArrayAccess == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                unsafeArrayAccess = getUnsafeArrayAccess();
+            }
+            ManagedMallocObject object = (ManagedMallocObject) obj;
+            while (true) {
+                Object current = object.get(idx);
+                if (!isSameValue(current, expected) || unsafeArrayAccess.compareAndSwapObject(object.contents, idx, current, newValue)) {
+                    return current;
+                }
+            }
+        }
+    }
+
     @Specialization
     protected Object doIntrinsic(long size) {
         if (size < 0) {
@@ -34,21 +34,25 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.llvm.runtime.memory.LLVMMemSetNode;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.memory.LLVMStack.StackPointer;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 
 public abstract class LLVMMemoryIntrinsic extends LLVMExpressionNode {
 
-    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class)})
+    /*
+     * The stack pointer leads to the context of the current thread, which holds the thread's cache
+     * of the allocator.
+     */
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class), @NodeChild(type = LLVMExpressionNode.class)})
     public abstract static class LLVMMalloc extends LLVMMemoryIntrinsic {
 
         @Specialization
-        protected LLVMNativePointer doVoid(int size,
+        protected LLVMNativePointer doVoid(StackPointer stackPointer, int size,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
             try {
-                return memory.allocateMemory(size);
+                return memory.allocateMemory(stackPointer.getThreadContext(), size);
             } catch (OutOfMemoryError e) {
                 CompilerDirectives.transferToInterpreter();
                 return LLVMNativePointer.createNull();
@@ -56,10 +60,10 @@ public abstract class LLVMMemoryIntrinsic extends LLVMExpressionNode {
         }
 
         @Specialization
-        protected LLVMNativePointer doVoid(long size,
+        protected LLVMNativePointer doVoid(StackPointer stackPointer, long size,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
             try {
-                return memory.allocateMemory(size);
+                return memory.allocateMemory(stackPointer.getThreadContext(), size);
             } catch (OutOfMemoryError e) {
                 CompilerDirectives.transferToInterpreter();
                 return LLVMNativePointer.createNull();
@@ -67,22 +71,14 @@ public abstract class LLVMMemoryIntrinsic extends LLVMExpressionNode {
         }
     }
 
-    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class), @NodeChild(type = LLVMExpressionNode.class)})
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class), @NodeChild(type = LLVMExpressionNode.class), @NodeChild(type = LLVMExpressionNode.class)})
     public abstract static class LLVMCalloc extends LLVMMemoryIntrinsic {
-        @Child private LLVMMemSetNode memSet;
-
-        public LLVMCalloc(LLVMMemSetNode memSet) {
-            this.memSet = memSet;
-        }
 
         @Specialization
-        protected LLVMNativePointer doVoid(int n, int size,
+        protected LLVMNativePointer doVoid(StackPointer stackPointer, int n, int size,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
             try {
-                long length = Math.multiplyExact(n, size);
-                LLVMNativePointer address = memory.allocateMemory(length);
-                memSet.executeWithTarget(address, (byte) 0, length);
-                return address;
+                return memory.allocateZeroedMemory(stackPointer.getThreadContext(), Math.multiplyExact(n, size));
             } catch (OutOfMemoryError | ArithmeticException e) {
                 CompilerDirectives.transferToInterpreter();
                 return LLVMNativePointer.createNull();
@@ -90,13 +86,10 @@ public abstract class LLVMMemoryIntrinsic extends LLVMExpressionNode {
         }
 
         @Specialization
-        protected LLVMNativePointer doVoid(long n, long size,
+        protected LLVMNativePointer doVoid(StackPointer stackPointer, long n, long size,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
             try {
-                long length = Math.multiplyExact(n, size);
-                LLVMNativePointer address = memory.allocateMemory(length);
-                memSet.executeWithTarget(address, (byte) 0, length);
-                return address;
+                return memory.allocateZeroedMemory(stackPointer.getThreadContext(), Math.multiplyExact(n, size));
             } catch (OutOfMemoryError | ArithmeticException e) {
                 CompilerDirectives.transferToInterpreter();
                 return LLVMNativePointer.createNull();
@@ -128,13 +121,13 @@ public abstract class LLVMMemoryIntrinsic extends LLVMExpressionNode {
         }
     }
 
-    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class)})
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class), @NodeChild(type = LLVMExpressionNode.class)})
     public abstract static class LLVMFree extends LLVMMemoryIntrinsic {
 
         @Specialization
-        protected Object doVoid(LLVMNativePointer address,
+        protected Object doVoid(StackPointer stackPointer, LLVMNativePointer address,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
-            memory.free(address);
+            memory.free(stackPointer.getThreadContext(), address);
             return null;
         }
     }
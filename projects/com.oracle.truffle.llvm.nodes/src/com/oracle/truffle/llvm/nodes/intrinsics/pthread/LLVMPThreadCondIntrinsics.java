@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.intrinsics.pthread;
+
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.NodeChildren;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.llvm.nodes.intrinsics.llvm.LLVMIntrinsic;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadContext;
+
+/**
+ * Intrinsics for {@code pthread_cond_t}. The state of a condition variable is kept in a
+ * {@link com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadCondition}.
+ */
+public abstract class LLVMPThreadCondIntrinsics extends LLVMIntrinsic {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "cond"), @NodeChild(type = LLVMExpressionNode.class, value = "attr")})
+    public abstract static class LLVMPThreadCondInit extends LLVMPThreadCondIntrinsics {
+
+        @Specialization
+        protected int doInit(Object cond, @SuppressWarnings("unused") Object attr,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            context.get().getPThreadContext().initCondition(getLLVMMemory(), toNative.executeWithTarget(cond).asNative());
+            return 0;
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "cond")
+    public abstract static class LLVMPThreadCondDestroy extends LLVMPThreadCondIntrinsics {
+
+        @Specialization
+        protected int doDestroy(Object cond,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return context.get().getPThreadContext().destroyCondition(getLLVMMemory(), toNative.executeWithTarget(cond).asNative());
+        }
+    }
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "cond"), @NodeChild(type = LLVMExpressionNode.class, value = "mutex")})
+    public abstract static class LLVMPThreadCondWait extends LLVMPThreadCondIntrinsics {
+
+        @Specialization
+        protected int doWait(Object cond, Object mutex,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeCond,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeMutex) {
+            LLVMMemory memory = getLLVMMemory();
+            LLVMPThreadContext pthreadContext = context.get().getPThreadContext();
+            return pthreadContext.getCondition(memory, toNativeCond.executeWithTarget(cond).asNative()).await(
+                            LLVMPThreadMutexIntrinsics.getMutex(memory, pthreadContext, toNativeMutex.executeWithTarget(mutex)), -1);
+        }
+    }
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "cond"), @NodeChild(type = LLVMExpressionNode.class, value = "mutex"),
+                    @NodeChild(type = LLVMExpressionNode.class, value = "abstime")})
+    public abstract static class LLVMPThreadCondTimedWait extends LLVMPThreadCondIntrinsics {
+
+        @Specialization
+        protected int doTimedWait(Object cond, Object mutex, Object abstime,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeCond,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeMutex,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeTime) {
+            LLVMMemory memory = getLLVMMemory();
+            // struct timespec { time_t tv_sec; long tv_nsec; } relative to CLOCK_REALTIME
+            LLVMNativePointer time = toNativeTime.executeWithTarget(abstime);
+            long seconds = memory.getI64(time);
+            long nanos = memory.getI64(time.asNative() + Long.BYTES);
+            if (nanos < 0 || nanos >= NANOS_PER_SECOND) {
+                return LLVMPThreadContext.EINVAL;
+            }
+            long deadline = Math.max(0, seconds * 1000 + nanos / NANOS_PER_MILLI);
+            LLVMPThreadContext pthreadContext = context.get().getPThreadContext();
+            return pthreadContext.getCondition(memory, toNativeCond.executeWithTarget(cond).asNative()).await(
+                            LLVMPThreadMutexIntrinsics.getMutex(memory, pthreadContext, toNativeMutex.executeWithTarget(mutex)), deadline);
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "cond")
+    public abstract static class LLVMPThreadCondSignal extends LLVMPThreadCondIntrinsics {
+
+        @Specialization
+        protected int doSignal(Object cond,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return context.get().getPThreadContext().getCondition(getLLVMMemory(), toNative.executeWithTarget(cond).asNative()).signal();
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "cond")
+    public abstract static class LLVMPThreadCondBroadcast extends LLVMPThreadCondIntrinsics {
+
+        @Specialization
+        protected int doBroadcast(Object cond,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return context.get().getPThreadContext().getCondition(getLLVMMemory(), toNative.executeWithTarget(cond).asNative()).broadcast();
+        }
+    }
+}
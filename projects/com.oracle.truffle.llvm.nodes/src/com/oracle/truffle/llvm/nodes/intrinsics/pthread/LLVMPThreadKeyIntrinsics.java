@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.intrinsics.pthread;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.NodeChildren;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.llvm.nodes.func.LLVMLookupDispatchNode;
+import com.oracle.truffle.llvm.nodes.func.LLVMLookupDispatchNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.llvm.LLVMIntrinsic;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.memory.LLVMStack.StackPointer;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMPointer;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadContext;
+import com.oracle.truffle.llvm.runtime.types.FunctionType;
+import com.oracle.truffle.llvm.runtime.types.Type;
+import com.oracle.truffle.llvm.runtime.types.VoidType;
+
+/**
+ * Intrinsics for thread-specific data ({@code pthread_key_t}) and {@code pthread_once}.
+ */
+public abstract class LLVMPThreadKeyIntrinsics extends LLVMIntrinsic {
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "key"), @NodeChild(type = LLVMExpressionNode.class, value = "destructor")})
+    public abstract static class LLVMPThreadKeyCreate extends LLVMPThreadKeyIntrinsics {
+
+        @Specialization
+        protected int doCreate(Object key, LLVMPointer destructor,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            int id = context.get().getPThreadContext().createKey(destructor.isNull() ? null : destructor);
+            getLLVMMemory().putI32(toNative.executeWithTarget(key), id);
+            return 0;
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "key")
+    public abstract static class LLVMPThreadKeyDelete extends LLVMPThreadKeyIntrinsics {
+
+        @Specialization
+        protected int doDelete(int key,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context) {
+            return context.get().getPThreadContext().deleteKey(key);
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "key")
+    public abstract static class LLVMPThreadGetSpecific extends LLVMPThreadKeyIntrinsics {
+
+        @Specialization
+        protected Object doGetSpecific(int key,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context) {
+            Object value = context.get().getPThreadContext().getSpecific(key);
+            return value == null ? LLVMNativePointer.createNull() : value;
+        }
+    }
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "key"), @NodeChild(type = LLVMExpressionNode.class, value = "value")})
+    public abstract static class LLVMPThreadSetSpecific extends LLVMPThreadKeyIntrinsics {
+
+        @Specialization
+        protected int doSetSpecific(int key, LLVMPointer value,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context) {
+            return context.get().getPThreadContext().setSpecific(key, value.isNull() ? null : value);
+        }
+    }
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "stackPointer"), @NodeChild(type = LLVMExpressionNode.class, value = "onceControl"),
+                    @NodeChild(type = LLVMExpressionNode.class, value = "initRoutine")})
+    public abstract static class LLVMPThreadOnce extends LLVMPThreadKeyIntrinsics {
+
+        private static final FunctionType INIT_ROUTINE_TYPE = new FunctionType(VoidType.INSTANCE, new Type[0], false);
+
+        protected static LLVMLookupDispatchNode createDispatch() {
+            return LLVMLookupDispatchNodeGen.create(INIT_ROUTINE_TYPE);
+        }
+
+        @Specialization
+        protected int doOnce(StackPointer stackPointer, Object onceControl, Object initRoutine,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
+                        @Cached("createDispatch()") LLVMLookupDispatchNode dispatch) {
+            LLVMMemory memory = getLLVMMemory();
+            // pthread_once_t is an int that PTHREAD_ONCE_INIT sets to 0
+            long address = toNative.executeWithTarget(onceControl).asNative();
+            LLVMPThreadContext pthreadContext = context.get().getPThreadContext();
+            ReentrantLock lock = pthreadContext.getOnceLock(address);
+            lock(lock);
+            try {
+                if (memory.getI32(address) == 0) {
+                    dispatch.executeDispatch(initRoutine, new Object[]{stackPointer});
+                    memory.putI32(address, 1);
+                }
+            } finally {
+                unlock(lock);
+            }
+            // the control is set, so later calls do not wait, and PTHREAD_ONCE_INIT gets a new lock
+            pthreadContext.removeOnceLock(address, lock);
+            return 0;
+        }
+
+        @TruffleBoundary
+        private static void lock(ReentrantLock lock) {
+            lock.lock();
+        }
+
+        @TruffleBoundary
+        private static void unlock(ReentrantLock lock) {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.intrinsics.pthread;
+
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.NodeChildren;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.llvm.nodes.intrinsics.llvm.LLVMIntrinsic;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadContext;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadMutex;
+
+/**
+ * Intrinsics for {@code pthread_mutex_t}. The guest memory of a mutex only holds its serial number
+ * and its type, the state is kept in a {@link LLVMPThreadMutex}.
+ */
+public abstract class LLVMPThreadMutexIntrinsics extends LLVMIntrinsic {
+
+    // offset of __kind in glibc's pthread_mutex_t, which PTHREAD_RECURSIVE_MUTEX_INITIALIZER_NP sets
+    private static final long MUTEX_KIND_OFFSET = 16;
+
+    static LLVMPThreadMutex getMutex(LLVMMemory memory, LLVMPThreadContext pthreadContext, LLVMNativePointer mutex) {
+        int type = memory.getI32(mutex.asNative() + MUTEX_KIND_OFFSET);
+        return pthreadContext.getMutex(memory, mutex.asNative(), type);
+    }
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "mutex"), @NodeChild(type = LLVMExpressionNode.class, value = "attr")})
+    public abstract static class LLVMPThreadMutexInit extends LLVMPThreadMutexIntrinsics {
+
+        @Specialization
+        protected int doInit(Object mutex, Object attr,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeMutex,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeAttr) {
+            LLVMMemory memory = getLLVMMemory();
+            LLVMNativePointer attrPointer = toNativeAttr.executeWithTarget(attr);
+            // pthread_mutexattr_t only holds the type (see pthreads.c)
+            int type = attrPointer.isNull() ? LLVMPThreadMutex.TYPE_NORMAL : memory.getI32(attrPointer);
+            long address = toNativeMutex.executeWithTarget(mutex).asNative();
+            memory.putI32(address + MUTEX_KIND_OFFSET, type);
+            context.get().getPThreadContext().initMutex(memory, address, type);
+            return 0;
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "mutex")
+    public abstract static class LLVMPThreadMutexDestroy extends LLVMPThreadMutexIntrinsics {
+
+        @Specialization
+        protected int doDestroy(Object mutex,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return context.get().getPThreadContext().destroyMutex(getLLVMMemory(), toNative.executeWithTarget(mutex).asNative());
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "mutex")
+    public abstract static class LLVMPThreadMutexLock extends LLVMPThreadMutexIntrinsics {
+
+        @Specialization
+        protected int doLock(Object mutex,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getMutex(getLLVMMemory(), context.get().getPThreadContext(), toNative.executeWithTarget(mutex)).lock();
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "mutex")
+    public abstract static class LLVMPThreadMutexTryLock extends LLVMPThreadMutexIntrinsics {
+
+        @Specialization
+        protected int doTryLock(Object mutex,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getMutex(getLLVMMemory(), context.get().getPThreadContext(), toNative.executeWithTarget(mutex)).tryLock();
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "mutex")
+    public abstract static class LLVMPThreadMutexUnlock extends LLVMPThreadMutexIntrinsics {
+
+        @Specialization
+        protected int doUnlock(Object mutex,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getMutex(getLLVMMemory(), context.get().getPThreadContext(), toNative.executeWithTarget(mutex)).unlock();
+        }
+    }
+}
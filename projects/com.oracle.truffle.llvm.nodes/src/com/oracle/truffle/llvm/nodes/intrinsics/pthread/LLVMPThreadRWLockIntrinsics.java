@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.intrinsics.pthread;
+
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.NodeChildren;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.llvm.nodes.intrinsics.llvm.LLVMIntrinsic;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadRWLock;
+
+/**
+ * Intrinsics for {@code pthread_rwlock_t}. The state of a lock is kept in a
+ * {@link LLVMPThreadRWLock}.
+ */
+@NodeChild(type = LLVMExpressionNode.class, value = "rwlock")
+public abstract class LLVMPThreadRWLockIntrinsics extends LLVMIntrinsic {
+
+    protected LLVMPThreadRWLock getRWLock(ContextReference<LLVMContext> context, LLVMToNativeNode toNative, Object rwlock) {
+        return context.get().getPThreadContext().getRWLock(getLLVMMemory(), toNative.executeWithTarget(rwlock).asNative());
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "attr")
+    public abstract static class LLVMPThreadRWLockInit extends LLVMPThreadRWLockIntrinsics {
+
+        @Specialization
+        protected int doInit(Object rwlock, @SuppressWarnings("unused") Object attr,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            context.get().getPThreadContext().initRWLock(getLLVMMemory(), toNative.executeWithTarget(rwlock).asNative());
+            return 0;
+        }
+    }
+
+    public abstract static class LLVMPThreadRWLockDestroy extends LLVMPThreadRWLockIntrinsics {
+
+        @Specialization
+        protected int doDestroy(Object rwlock,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return context.get().getPThreadContext().destroyRWLock(getLLVMMemory(), toNative.executeWithTarget(rwlock).asNative());
+        }
+    }
+
+    public abstract static class LLVMPThreadRWLockReadLock extends LLVMPThreadRWLockIntrinsics {
+
+        @Specialization
+        protected int doReadLock(Object rwlock,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getRWLock(context, toNative, rwlock).readLock();
+        }
+    }
+
+    public abstract static class LLVMPThreadRWLockTryReadLock extends LLVMPThreadRWLockIntrinsics {
+
+        @Specialization
+        protected int doTryReadLock(Object rwlock,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getRWLock(context, toNative, rwlock).tryReadLock();
+        }
+    }
+
+    public abstract static class LLVMPThreadRWLockWriteLock extends LLVMPThreadRWLockIntrinsics {
+
+        @Specialization
+        protected int doWriteLock(Object rwlock,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getRWLock(context, toNative, rwlock).writeLock();
+        }
+    }
+
+    public abstract static class LLVMPThreadRWLockTryWriteLock extends LLVMPThreadRWLockIntrinsics {
+
+        @Specialization
+        protected int doTryWriteLock(Object rwlock,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getRWLock(context, toNative, rwlock).tryWriteLock();
+        }
+    }
+
+    public abstract static class LLVMPThreadRWLockUnlock extends LLVMPThreadRWLockIntrinsics {
+
+        @Specialization
+        protected int doUnlock(Object rwlock,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative) {
+            return getRWLock(context, toNative, rwlock).unlock();
+        }
+    }
+}
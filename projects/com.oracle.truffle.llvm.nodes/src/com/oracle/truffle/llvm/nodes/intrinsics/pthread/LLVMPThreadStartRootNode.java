@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.intrinsics.pthread;
+
+import java.util.List;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.llvm.nodes.func.LLVMLookupDispatchNode;
+import com.oracle.truffle.llvm.nodes.func.LLVMLookupDispatchNodeGen;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.LLVMLanguage;
+import com.oracle.truffle.llvm.runtime.memory.LLVMStack.StackPointer;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadContext;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadExitException;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadInterruptedException;
+import com.oracle.truffle.llvm.runtime.types.FunctionType;
+import com.oracle.truffle.llvm.runtime.types.PointerType;
+import com.oracle.truffle.llvm.runtime.types.Type;
+import com.oracle.truffle.llvm.runtime.types.VoidType;
+
+/**
+ * The entry point of a thread that was started by {@code pthread_create}. It calls the start
+ * routine on a fresh stack of the new thread, and runs the destructors of the thread-specific
+ * values afterwards.
+ */
+public final class LLVMPThreadStartRootNode extends RootNode {
+
+    private static final FunctionType START_ROUTINE_TYPE = new FunctionType(PointerType.VOID, new Type[]{PointerType.VOID}, false);
+    private static final FunctionType DESTRUCTOR_TYPE = new FunctionType(VoidType.INSTANCE, new Type[]{PointerType.VOID}, false);
+
+    // PTHREAD_DESTRUCTOR_ITERATIONS
+    private static final int DESTRUCTOR_ITERATIONS = 4;
+
+    @Child private LLVMLookupDispatchNode startDispatch = LLVMLookupDispatchNodeGen.create(START_ROUTINE_TYPE);
+    @Child private LLVMLookupDispatchNode destructorDispatch = LLVMLookupDispatchNodeGen.create(DESTRUCTOR_TYPE);
+
+    private final ContextReference<LLVMContext> ctxRef;
+
+    public LLVMPThreadStartRootNode(LLVMLanguage language) {
+        super(language);
+        this.ctxRef = language.getContextReference();
+    }
+
+    @Override
+    public boolean isInternal() {
+        return true;
+    }
+
+    @Override
+    public Object execute(VirtualFrame frame) {
+        Object startRoutine = frame.getArguments()[0];
+        Object argument = frame.getArguments()[1];
+        LLVMContext context = ctxRef.get();
+        try (StackPointer stackPointer = context.getThreadingStack().getStack().newFrame()) {
+            Object result;
+            try {
+                result = startDispatch.executeDispatch(startRoutine, new Object[]{stackPointer, argument});
+            } catch (LLVMPThreadExitException e) {
+                result = e.getReturnValue();
+            }
+            runDestructors(context.getPThreadContext(), stackPointer);
+            return result;
+        } catch (LLVMPThreadInterruptedException e) {
+            // the context is shutting down
+            return LLVMNativePointer.createNull();
+        }
+    }
+
+    @TruffleBoundary
+    private void runDestructors(LLVMPThreadContext pthreadContext, StackPointer stackPointer) {
+        for (int i = 0; i < DESTRUCTOR_ITERATIONS; i++) {
+            // destructors may set new values, which are destroyed in the next iteration
+            List<Object[]> destructions = pthreadContext.takeValuesForDestruction();
+            if (destructions.isEmpty()) {
+                return;
+            }
+            for (Object[] destruction : destructions) {
+                destructorDispatch.executeDispatch(destruction[0], new Object[]{stackPointer, destruction[1]});
+            }
+        }
+    }
+}
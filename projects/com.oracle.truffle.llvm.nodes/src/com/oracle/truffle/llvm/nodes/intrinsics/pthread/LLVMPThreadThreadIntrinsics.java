@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.intrinsics.pthread;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.NodeChildren;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.llvm.nodes.intrinsics.llvm.LLVMIntrinsic;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.LLVMExitException;
+import com.oracle.truffle.llvm.runtime.LLVMLanguage;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThread;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadContext;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadExitException;
+
+/**
+ * Intrinsics for creating, joining and exiting threads. A {@code pthread_t} is the id of the Java
+ * thread.
+ */
+public abstract class LLVMPThreadThreadIntrinsics extends LLVMIntrinsic {
+
+    // pthread_attr_t is laid out as struct { int detachstate; size_t stacksize; } (see pthreads.c)
+    private static final int PTHREAD_CREATE_DETACHED = 1;
+    private static final long STACKSIZE_OFFSET = 8;
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "thread"), @NodeChild(type = LLVMExpressionNode.class, value = "attr"),
+                    @NodeChild(type = LLVMExpressionNode.class, value = "startRoutine"), @NodeChild(type = LLVMExpressionNode.class, value = "argument")})
+    public abstract static class LLVMPThreadCreate extends LLVMPThreadThreadIntrinsics {
+
+        @Specialization
+        protected int doCreate(Object thread, Object attr, Object startRoutine, Object argument,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeThread,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeAttr) {
+            LLVMMemory memory = getLLVMMemory();
+            LLVMNativePointer attrPointer = toNativeAttr.executeWithTarget(attr);
+            boolean detached = !attrPointer.isNull() && memory.getI32(attrPointer) == PTHREAD_CREATE_DETACHED;
+            // a stack size of 0 stands for the default of the llvm.threadStackSizeKB option
+            long stackSize = attrPointer.isNull() ? 0 : memory.getI64(attrPointer.asNative() + STACKSIZE_OFFSET);
+            long id = createThread(context.get(), startRoutine, argument, detached, stackSize);
+            if (id < 0) {
+                return LLVMPThreadContext.EAGAIN;
+            }
+            memory.putI64(toNativeThread.executeWithTarget(thread), id);
+            return 0;
+        }
+
+        @TruffleBoundary
+        private long createThread(LLVMContext context, Object startRoutine, Object argument, boolean detached, long stackSize) {
+            LLVMLanguage language = getRootNode().getLanguage(LLVMLanguage.class);
+            LLVMPThreadContext pthreadContext = context.getPThreadContext();
+            CallTarget start = pthreadContext.getThreadStart(() -> Truffle.getRuntime().createCallTarget(new LLVMPThreadStartRootNode(language)));
+            try {
+                return pthreadContext.createThread(start, startRoutine, argument, detached, stackSize);
+            } catch (IllegalStateException e) {
+                // the polyglot context does not allow another thread
+                return -1;
+            }
+        }
+    }
+
+    @NodeChildren({@NodeChild(type = LLVMExpressionNode.class, value = "thread"), @NodeChild(type = LLVMExpressionNode.class, value = "returnValue")})
+    public abstract static class LLVMPThreadJoin extends LLVMPThreadThreadIntrinsics {
+
+        @Specialization
+        protected int doJoin(long thread, Object returnValue,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeReturnValue,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNativeResult) {
+            LLVMPThreadContext pthreadContext = context.get().getPThreadContext();
+            LLVMPThread pthread = pthreadContext.getThread(thread);
+            if (pthread == null) {
+                return LLVMPThreadContext.ESRCH;
+            }
+            if (thread == LLVMPThreadContext.getCurrentThreadId()) {
+                return LLVMPThreadContext.EDEADLK;
+            }
+            if (!pthreadContext.join(pthread)) {
+                return LLVMPThreadContext.EINVAL;
+            }
+            LLVMNativePointer returnValuePointer = toNativeReturnValue.executeWithTarget(returnValue);
+            if (!returnValuePointer.isNull()) {
+                Object result = pthread.getResult();
+                getLLVMMemory().putPointer(returnValuePointer, result == null ? LLVMNativePointer.createNull() : toNativeResult.executeWithTarget(result));
+            }
+            return 0;
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "thread")
+    public abstract static class LLVMPThreadDetach extends LLVMPThreadThreadIntrinsics {
+
+        @Specialization
+        protected int doDetach(long thread,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context) {
+            return context.get().getPThreadContext().detach(thread);
+        }
+    }
+
+    public abstract static class LLVMPThreadSelf extends LLVMPThreadThreadIntrinsics {
+
+        @Specialization
+        protected long doSelf() {
+            return LLVMPThreadContext.getCurrentThreadId();
+        }
+    }
+
+    @NodeChild(type = LLVMExpressionNode.class, value = "returnValue")
+    public abstract static class LLVMPThreadExit extends LLVMPThreadThreadIntrinsics {
+
+        @Specialization
+        protected Object doExit(Object returnValue,
+                        @Cached("getContextReference()") ContextReference<LLVMContext> context) {
+            LLVMPThreadContext pthreadContext = context.get().getPThreadContext();
+            if (pthreadContext.getThread(LLVMPThreadContext.getCurrentThreadId()) != null) {
+                throw new LLVMPThreadExitException(returnValue);
+            }
+            // the process terminates when the last thread exits, as if it had called exit(0)
+            pthreadContext.joinAll();
+            throw LLVMExitException.exit(0);
+        }
+    }
+}
@@ -38,23 +38,8 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.llvm.nodes.memory.LLVMCompareExchangeNodeGen.LLVMCMPXCHInternalNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI16LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI16LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI32LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI32LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI64LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI64LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI8LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI8LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI16StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI16StoreNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI32StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI32StoreNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI64StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI64StoreNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI8StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI8StoreNodeGen;
 import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI16;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI32;
@@ -63,6 +48,8 @@ import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI8;
 import com.oracle.truffle.llvm.runtime.memory.LLVMStack;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMPointer;
@@ -155,82 +142,55 @@ public abstract class LLVMCompareExchangeNode extends LLVMExpressionNode {
 
         @Specialization
         protected Object doOp(VirtualFrame frame, LLVMManagedPointer address, byte comparisonValue, byte newValue,
-                        @Cached("createI8Read()") LLVMI8LoadNode read,
-                        @Cached("createI8Write()") LLVMI8StoreNode write,
+                        @Cached("createI8CompareExchange()") LLVMManagedCompareExchangeNode cmpxchg,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
-            synchronized (address.getObject()) {
-                LLVMNativePointer allocation = allocateResult(frame, memory);
-                byte currentValue = (byte) read.executeWithTarget(address);
-                boolean success = currentValue == comparisonValue;
-                if (success) {
-                    write.executeWithTarget(address, newValue);
-                }
-                memory.putI8(allocation, currentValue);
-                memory.putI1(allocation.increment(secondValueOffset), success);
-                return allocation;
-            }
+            Object witness = cmpxchg.executeWithTarget(address, comparisonValue, newValue);
+            LLVMNativePointer allocation = allocateResult(frame, memory);
+            memory.putI8(allocation, (byte) witness);
+            memory.putI1(allocation.increment(secondValueOffset), LLVMObjectCompareExchangeNode.isSameValue(witness, comparisonValue));
+            return allocation;
         }
 
         @Specialization
         protected Object doOp(VirtualFrame frame, LLVMManagedPointer address, short comparisonValue, short newValue,
-                        @Cached("createI16Read()") LLVMI16LoadNode read,
-                        @Cached("createI16Write()") LLVMI16StoreNode write,
+                        @Cached("createI16CompareExchange()") LLVMManagedCompareExchangeNode cmpxchg,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
-            synchronized (address.getObject()) {
-                LLVMNativePointer allocation = allocateResult(frame, memory);
-                short currentValue = (short) read.executeWithTarget(address);
-                boolean success = currentValue == comparisonValue;
-                if (success) {
-                    write.executeWithTarget(address, newValue);
-                }
-                memory.putI16(allocation, currentValue);
-                memory.putI1(allocation.increment(secondValueOffset), success);
-                return allocation;
-            }
+            Object witness = cmpxchg.executeWithTarget(address, comparisonValue, newValue);
+            LLVMNativePointer allocation = allocateResult(frame, memory);
+            memory.putI16(allocation, (short) witness);
+            memory.putI1(allocation.increment(secondValueOffset), LLVMObjectCompareExchangeNode.isSameValue(witness, comparisonValue));
+            return allocation;
         }
 
         @Specialization
         protected Object doOp(VirtualFrame frame, LLVMManagedPointer address, int comparisonValue, int newValue,
-                        @Cached("createI32Read()") LLVMI32LoadNode read,
-                        @Cached("createI32Write()") LLVMI32StoreNode write,
+                        @Cached("createI32CompareExchange()") LLVMManagedCompareExchangeNode cmpxchg,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
-            synchronized (address.getObject()) {
-                LLVMNativePointer allocation = allocateResult(frame, memory);
-                int currentValue = (int) read.executeWithTarget(address);
-                boolean success = currentValue == comparisonValue;
-                if (success) {
-                    write.executeWithTarget(address, newValue);
-                }
-                memory.putI32(allocation, currentValue);
-                memory.putI1(allocation.increment(secondValueOffset), success);
-                return allocation;
-            }
+            Object witness = cmpxchg.executeWithTarget(address, comparisonValue, newValue);
+            LLVMNativePointer allocation = allocateResult(frame, memory);
+            memory.putI32(allocation, (int) witness);
+            memory.putI1(allocation.increment(secondValueOffset), LLVMObjectCompareExchangeNode.isSameValue(witness, comparisonValue));
+            return allocation;
         }
 
         @Specialization
         protected Object doOp(VirtualFrame frame, LLVMManagedPointer address, long comparisonValue, long newValue,
-                        @Cached("createI64Read()") LLVMI64LoadNode read,
-                        @Cached("createI64Write()") LLVMI64StoreNode write,
+                        @Cached("createI64CompareExchange()") LLVMManagedCompareExchangeNode cmpxchg,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
-            synchronized (address.getObject()) {
-                LLVMNativePointer allocation = allocateResult(frame, memory);
-                long currentValue = (long) read.executeWithTarget(address);
-                boolean success = currentValue == comparisonValue;
-                if (success) {
-                    write.executeWithTarget(address, newValue);
-                }
-                memory.putI64(allocation, currentValue);
-                memory.putI1(allocation.increment(secondValueOffset), success);
-                return allocation;
-            }
+            Object witness = cmpxchg.executeWithTarget(address, comparisonValue, newValue);
+            LLVMNativePointer allocation = allocateResult(frame, memory);
+            memory.putI64(allocation, toNative.executeWithTarget(witness).asNative());
+            memory.putI1(allocation.increment(secondValueOffset), LLVMObjectCompareExchangeNode.isSameValue(witness, comparisonValue));
+            return allocation;
         }
 
         @Specialization
         protected Object doOp(VirtualFrame frame, LLVMManagedPointer address, LLVMNativePointer comparisonValue, LLVMNativePointer newValue,
-                        @Cached("createI64Read()") LLVMI64LoadNode read,
-                        @Cached("createI64Write()") LLVMI64StoreNode write,
+                        @Cached("createI64CompareExchange()") LLVMManagedCompareExchangeNode cmpxchg,
+                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
                         @Cached("getLLVMMemory()") LLVMMemory memory) {
-            return doOp(frame, address, comparisonValue.asNative(), newValue.asNative(), read, write, memory);
+            return doOp(frame, address, comparisonValue.asNative(), newValue.asNative(), cmpxchg, toNative, memory);
         }
 
         private LLVMNativePointer allocateResult(VirtualFrame frame, LLVMMemory memory) {
@@ -238,36 +198,20 @@ public abstract class LLVMCompareExchangeNode extends LLVMExpressionNode {
             return allocation;
         }
 
-        protected static LLVMI8LoadNode createI8Read() {
-            return LLVMI8LoadNodeGen.create(null);
-        }
-
-        protected static LLVMI8StoreNode createI8Write() {
-            return LLVMI8StoreNodeGen.create(null, null);
-        }
-
-        protected static LLVMI16LoadNode createI16Read() {
-            return LLVMI16LoadNodeGen.create(null);
-        }
-
-        protected static LLVMI16StoreNode createI16Write() {
-            return LLVMI16StoreNodeGen.create(null, null);
-        }
-
-        protected static LLVMI32LoadNode createI32Read() {
-            return LLVMI32LoadNodeGen.create(null);
+        protected static LLVMManagedCompareExchangeNode createI8CompareExchange() {
+            return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I8);
         }
 
-        protected static LLVMI32StoreNode createI32Write() {
-            return LLVMI32StoreNodeGen.create(null, null);
+        protected static LLVMManagedCompareExchangeNode createI16CompareExchange() {
+            return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I16);
         }
 
-        protected static LLVMI64LoadNode createI64Read() {
-            return LLVMI64LoadNodeGen.create(null);
+        protected static LLVMManagedCompareExchangeNode createI32CompareExchange() {
+            return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I32);
         }
 
-        protected static LLVMI64StoreNode createI64Write() {
-            return LLVMI64StoreNodeGen.create(null, null);
+        protected static LLVMManagedCompareExchangeNode createI64CompareExchange() {
+            return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I64);
         }
     }
 }
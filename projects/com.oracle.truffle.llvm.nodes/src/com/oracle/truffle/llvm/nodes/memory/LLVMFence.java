@@ -34,10 +34,55 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
 
+/**
+ * Fences that emit only the barrier required by their ordering. Only sequentially consistent
+ * fences need to order stores with subsequent loads, which is the only barrier that is not free
+ * on AMD64.
+ */
 public abstract class LLVMFence extends LLVMStatementNode {
 
-    @Specialization
-    protected void doOp(@Cached("getLLVMMemory()") LLVMMemory memory) {
-        memory.fullFence();
+    public abstract static class LLVMAcquireFence extends LLVMFence {
+
+        @Specialization
+        protected void doOp(@Cached("getLLVMMemory()") LLVMMemory memory) {
+            memory.loadFence();
+        }
+    }
+
+    public abstract static class LLVMReleaseFence extends LLVMFence {
+
+        @Specialization
+        protected void doOp(@Cached("getLLVMMemory()") LLVMMemory memory) {
+            memory.storeFence();
+        }
+    }
+
+    public abstract static class LLVMAcquireReleaseFence extends LLVMFence {
+
+        @Specialization
+        protected void doOp(@Cached("getLLVMMemory()") LLVMMemory memory) {
+            memory.loadFence();
+            memory.storeFence();
+        }
+    }
+
+    public abstract static class LLVMFullFence extends LLVMFence {
+
+        @Specialization
+        protected void doOp(@Cached("getLLVMMemory()") LLVMMemory memory) {
+            memory.fullFence();
+        }
+    }
+
+    /**
+     * A fence that only synchronizes with the current thread, which already observes its own
+     * memory operations in program order.
+     */
+    public abstract static class LLVMSingleThreadFence extends LLVMFence {
+
+        @Specialization
+        protected void doOp() {
+            // nothing to do
+        }
     }
 }
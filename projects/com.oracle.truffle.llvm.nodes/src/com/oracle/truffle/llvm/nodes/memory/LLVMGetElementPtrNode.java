@@ -33,6 +33,7 @@ import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.NodeField;
+import com.oracle.truffle.api.dsl.NodeFields;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.llvm.nodes.memory.LLVMGetElementPtrNodeGen.LLVMIncrementPointerNodeGen;
 import com.oracle.truffle.llvm.runtime.LLVMBoxedPrimitive;
@@ -42,32 +43,71 @@ import com.oracle.truffle.llvm.runtime.nodes.api.LLVMNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMPointer;
 
+/**
+ * Computes {@code address + typeWidth * index + constantOffset}. The parser folds all constant
+ * indices of a getelementptr into the constant offset, so that a single node adds the scaled
+ * dynamic index, if there is one, and the constant.
+ */
 @NodeChildren({@NodeChild(type = LLVMExpressionNode.class), @NodeChild(type = LLVMExpressionNode.class)})
-@NodeField(type = long.class, name = "typeWidth")
+@NodeFields({@NodeField(type = long.class, name = "typeWidth"), @NodeField(type = long.class, name = "constantOffset")})
 public abstract class LLVMGetElementPtrNode extends LLVMExpressionNode {
 
     @Child private LLVMIncrementPointerNode incrementNode = LLVMIncrementPointerNodeGen.create();
 
     public abstract long getTypeWidth();
 
+    public abstract long getConstantOffset();
+
+    @Specialization
+    protected LLVMPointer doPointer(LLVMPointer addr, long val) {
+        return addr.increment(getTypeWidth() * val + getConstantOffset());
+    }
+
+    @Specialization
+    protected LLVMPointer doPointer(LLVMPointer addr, int val) {
+        return addr.increment(getTypeWidth() * val + getConstantOffset());
+    }
+
     @Specialization
     protected Object longIncrement(Object addr, long val) {
-        long incr = getTypeWidth() * val;
+        long incr = getTypeWidth() * val + getConstantOffset();
         return incrementNode.executeWithTarget(addr, incr);
     }
 
     @Specialization
     protected Object longIncrement(Object addr, LLVMNativePointer val) {
-        long incr = getTypeWidth() * val.asNative();
+        long incr = getTypeWidth() * val.asNative() + getConstantOffset();
         return incrementNode.executeWithTarget(addr, incr);
     }
 
     @Specialization
     protected Object intIncrement(Object addr, int val) {
-        long incr = getTypeWidth() * val;
+        long incr = getTypeWidth() * val + getConstantOffset();
         return incrementNode.executeWithTarget(addr, incr);
     }
 
+    /**
+     * A getelementptr whose indices are all constant, i.e., that only adds a precomputed offset.
+     */
+    @NodeChild(type = LLVMExpressionNode.class)
+    @NodeField(type = long.class, name = "constantOffset")
+    public abstract static class LLVMConstantOffsetElementPtrNode extends LLVMExpressionNode {
+
+        @Child private LLVMIncrementPointerNode incrementNode = LLVMIncrementPointerNodeGen.create();
+
+        public abstract long getConstantOffset();
+
+        @Specialization
+        protected LLVMPointer doPointer(LLVMPointer addr) {
+            return addr.increment(getConstantOffset());
+        }
+
+        @Specialization
+        protected Object doIncrement(Object addr) {
+            return incrementNode.executeWithTarget(addr, getConstantOffset());
+        }
+    }
+
     public abstract static class LLVMIncrementPointerNode extends LLVMNode {
         public abstract Object executeWithTarget(Object addr, int val);
 
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.memory;
+
+import java.util.function.BinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectReadNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
+import com.oracle.truffle.llvm.runtime.nodes.factories.LLVMObjectAccessFactory;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
+
+/**
+ * Atomic operations on managed memory. The operations are implemented as compare-and-swap loops
+ * on top of {@link LLVMObjectCompareExchangeNode}, which is lock-free for all storage that is
+ * managed by Sulong itself.
+ */
+public final class LLVMManagedCompareExchangeNode extends LLVMNode {
+
+    @Child private LLVMObjectReadNode read;
+    @Child private LLVMObjectCompareExchangeNode cmpxchg;
+    @Child private LLVMToNativeNode toNative;
+
+    private final ForeignToLLVMType type;
+
+    private LLVMManagedCompareExchangeNode(ForeignToLLVMType type) {
+        this.read = LLVMObjectAccessFactory.createRead();
+        this.cmpxchg = LLVMObjectAccessFactory.createCompareExchange();
+        this.type = type;
+    }
+
+    public static LLVMManagedCompareExchangeNode create(ForeignToLLVMType type) {
+        return new LLVMManagedCompareExchangeNode(type);
+    }
+
+    /**
+     * @return the previous value, which {@link LLVMObjectCompareExchangeNode#isSameValue is the
+     *         same} as {@code expected} if and only if the swap took place
+     */
+    public Object executeWithTarget(LLVMManagedPointer address, Object expected, Object newValue) {
+        try {
+            return cmpxchg.executeCompareExchange(address.getObject(), address.getOffset(), expected, newValue, type);
+        } catch (InteropException e) {
+            CompilerDirectives.transferToInterpreter();
+            throw e.raise();
+        }
+    }
+
+    public Object getAndSet(LLVMManagedPointer address, Object value) {
+        Object current = read(address);
+        while (true) {
+            Object witness = executeWithTarget(address, current, value);
+            if (LLVMObjectCompareExchangeNode.isSameValue(witness, current)) {
+                return current;
+            }
+            current = witness;
+        }
+    }
+
+    public long getAndOpI64(LLVMManagedPointer address, long value, LongBinaryOperator f) {
+        Object current = read(address);
+        while (true) {
+            long old = toI64(current);
+            Object witness = executeWithTarget(address, current, f.applyAsLong(old, value));
+            if (LLVMObjectCompareExchangeNode.isSameValue(witness, current)) {
+                return old;
+            }
+            current = witness;
+        }
+    }
+
+    public int getAndOpI32(LLVMManagedPointer address, int value, IntBinaryOperator f) {
+        Object current = read(address);
+        while (true) {
+            int old = (int) current;
+            Object witness = executeWithTarget(address, current, f.applyAsInt(old, value));
+            if (LLVMObjectCompareExchangeNode.isSameValue(witness, current)) {
+                return old;
+            }
+            current = witness;
+        }
+    }
+
+    public short getAndOpI16(LLVMManagedPointer address, short value, BinaryOperator<Short> f) {
+        Object current = read(address);
+        while (true) {
+            short old = (short) current;
+            Object witness = executeWithTarget(address, current, f.apply(old, value));
+            if (LLVMObjectCompareExchangeNode.isSameValue(witness, current)) {
+                return old;
+            }
+            current = witness;
+        }
+    }
+
+    public byte getAndOpI8(LLVMManagedPointer address, byte value, BinaryOperator<Byte> f) {
+        Object current = read(address);
+        while (true) {
+            byte old = (byte) current;
+            Object witness = executeWithTarget(address, current, f.apply(old, value));
+            if (LLVMObjectCompareExchangeNode.isSameValue(witness, current)) {
+                return old;
+            }
+            current = witness;
+        }
+    }
+
+    public boolean getAndOpI1(LLVMManagedPointer address, boolean value, BinaryOperator<Boolean> f) {
+        Object current = read(address);
+        while (true) {
+            boolean old = (boolean) current;
+            Object witness = executeWithTarget(address, current, f.apply(old, value));
+            if (LLVMObjectCompareExchangeNode.isSameValue(witness, current)) {
+                return old;
+            }
+            current = witness;
+        }
+    }
+
+    private Object read(LLVMManagedPointer address) {
+        try {
+            return read.executeRead(address.getObject(), address.getOffset(), type);
+        } catch (InteropException e) {
+            CompilerDirectives.transferToInterpreter();
+            throw e.raise();
+        }
+    }
+
+    private long toI64(Object value) {
+        if (value instanceof Long) {
+            return (long) value;
+        }
+        if (toNative == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            toNative = insert(LLVMToNativeNode.createToNativeWithTarget());
+        }
+        return toNative.executeWithTarget(value).asNative();
+    }
+}
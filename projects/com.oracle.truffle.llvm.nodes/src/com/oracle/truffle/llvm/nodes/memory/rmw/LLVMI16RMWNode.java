@@ -33,10 +33,8 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI16LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI16LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI16StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI16StoreNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMManagedCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
@@ -45,12 +43,8 @@ import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 @NodeChildren(value = {@NodeChild(type = LLVMExpressionNode.class, value = "pointerNode"), @NodeChild(type = LLVMExpressionNode.class, value = "valueNode")})
 public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
-    protected static LLVMI16LoadNode createRead() {
-        return LLVMI16LoadNodeGen.create(null);
-    }
-
-    protected static LLVMI16StoreNode createWrite() {
-        return LLVMI16StoreNodeGen.create(null, null);
+    protected static LLVMManagedCompareExchangeNode createCompareExchange() {
+        return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I16);
     }
 
     public abstract static class LLVMI16RMWXchgNode extends LLVMI16RMWNode {
@@ -63,13 +57,8 @@ public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected short doOp(LLVMManagedPointer address, short value,
-                        @Cached("createRead()") LLVMI16LoadNode read,
-                        @Cached("createWrite()") LLVMI16StoreNode write) {
-            synchronized (address.getObject()) {
-                short result = (short) read.executeWithTarget(address);
-                write.executeWithTarget(address, value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return (short) cmpxchg.getAndSet(address, value);
         }
     }
 
@@ -83,13 +72,8 @@ public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected short doOp(LLVMManagedPointer address, short value,
-                        @Cached("createRead()") LLVMI16LoadNode read,
-                        @Cached("createWrite()") LLVMI16StoreNode write) {
-            synchronized (address.getObject()) {
-                short result = (short) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((short) (result + value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI16(address, value, (a, b) -> ((short) (a + b)));
         }
     }
 
@@ -103,13 +87,8 @@ public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected short doOp(LLVMManagedPointer address, short value,
-                        @Cached("createRead()") LLVMI16LoadNode read,
-                        @Cached("createWrite()") LLVMI16StoreNode write) {
-            synchronized (address.getObject()) {
-                short result = (short) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((short) (result - value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI16(address, value, (a, b) -> ((short) (a - b)));
         }
     }
 
@@ -123,13 +102,8 @@ public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected short doOp(LLVMManagedPointer address, short value,
-                        @Cached("createRead()") LLVMI16LoadNode read,
-                        @Cached("createWrite()") LLVMI16StoreNode write) {
-            synchronized (address.getObject()) {
-                short result = (short) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((short) (result & value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI16(address, value, (a, b) -> ((short) (a & b)));
         }
     }
 
@@ -143,13 +117,8 @@ public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected short doOp(LLVMManagedPointer address, short value,
-                        @Cached("createRead()") LLVMI16LoadNode read,
-                        @Cached("createWrite()") LLVMI16StoreNode write) {
-            synchronized (address.getObject()) {
-                short result = (short) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((short) ~(result & value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI16(address, value, (a, b) -> ((short) ~(a & b)));
         }
     }
 
@@ -163,13 +132,8 @@ public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected short doOp(LLVMManagedPointer address, short value,
-                        @Cached("createRead()") LLVMI16LoadNode read,
-                        @Cached("createWrite()") LLVMI16StoreNode write) {
-            synchronized (address.getObject()) {
-                short result = (short) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((short) (result | value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI16(address, value, (a, b) -> ((short) (a | b)));
         }
     }
 
@@ -183,13 +147,8 @@ public abstract class LLVMI16RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected short doOp(LLVMManagedPointer address, short value,
-                        @Cached("createRead()") LLVMI16LoadNode read,
-                        @Cached("createWrite()") LLVMI16StoreNode write) {
-            synchronized (address.getObject()) {
-                short result = (short) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((short) (result ^ value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI16(address, value, (a, b) -> ((short) (a ^ b)));
         }
     }
 }
@@ -33,10 +33,8 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI1LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI1LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI1StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI1StoreNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMManagedCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
@@ -45,12 +43,8 @@ import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 @NodeChildren(value = {@NodeChild(type = LLVMExpressionNode.class, value = "pointerNode"), @NodeChild(type = LLVMExpressionNode.class, value = "valueNode")})
 public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
-    protected static LLVMI1LoadNode createRead() {
-        return LLVMI1LoadNodeGen.create(null);
-    }
-
-    protected static LLVMI1StoreNode createWrite() {
-        return LLVMI1StoreNodeGen.create(null, null);
+    protected static LLVMManagedCompareExchangeNode createCompareExchange() {
+        return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I1);
     }
 
     public abstract static class LLVMI1RMWXchgNode extends LLVMI1RMWNode {
@@ -63,13 +57,8 @@ public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected boolean doOp(LLVMManagedPointer address, boolean value,
-                        @Cached("createRead()") LLVMI1LoadNode read,
-                        @Cached("createWrite()") LLVMI1StoreNode write) {
-            synchronized (address.getObject()) {
-                boolean result = (boolean) read.executeWithTarget(address);
-                write.executeWithTarget(address, value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return (boolean) cmpxchg.getAndSet(address, value);
         }
     }
 
@@ -83,13 +72,8 @@ public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected boolean doOp(LLVMManagedPointer address, boolean value,
-                        @Cached("createRead()") LLVMI1LoadNode read,
-                        @Cached("createWrite()") LLVMI1StoreNode write) {
-            synchronized (address.getObject()) {
-                boolean result = (boolean) read.executeWithTarget(address);
-                write.executeWithTarget(address, result ^ value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI1(address, value, (a, b) -> a ^ b);
         }
     }
 
@@ -103,13 +87,8 @@ public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected boolean doOp(LLVMManagedPointer address, boolean value,
-                        @Cached("createRead()") LLVMI1LoadNode read,
-                        @Cached("createWrite()") LLVMI1StoreNode write) {
-            synchronized (address.getObject()) {
-                boolean result = (boolean) read.executeWithTarget(address);
-                write.executeWithTarget(address, result ^ value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI1(address, value, (a, b) -> a ^ b);
         }
     }
 
@@ -123,13 +102,8 @@ public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected boolean doOp(LLVMManagedPointer address, boolean value,
-                        @Cached("createRead()") LLVMI1LoadNode read,
-                        @Cached("createWrite()") LLVMI1StoreNode write) {
-            synchronized (address.getObject()) {
-                boolean result = (boolean) read.executeWithTarget(address);
-                write.executeWithTarget(address, result & value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI1(address, value, (a, b) -> a & b);
         }
     }
 
@@ -143,13 +117,8 @@ public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected boolean doOp(LLVMManagedPointer address, boolean value,
-                        @Cached("createRead()") LLVMI1LoadNode read,
-                        @Cached("createWrite()") LLVMI1StoreNode write) {
-            synchronized (address.getObject()) {
-                boolean result = (boolean) read.executeWithTarget(address);
-                write.executeWithTarget(address, !(result & value));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI1(address, value, (a, b) -> !(a & b));
         }
     }
 
@@ -163,13 +132,8 @@ public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected boolean doOp(LLVMManagedPointer address, boolean value,
-                        @Cached("createRead()") LLVMI1LoadNode read,
-                        @Cached("createWrite()") LLVMI1StoreNode write) {
-            synchronized (address.getObject()) {
-                boolean result = (boolean) read.executeWithTarget(address);
-                write.executeWithTarget(address, result | value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI1(address, value, (a, b) -> a | b);
         }
     }
 
@@ -183,13 +147,8 @@ public abstract class LLVMI1RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected boolean doOp(LLVMManagedPointer address, boolean value,
-                        @Cached("createRead()") LLVMI1LoadNode read,
-                        @Cached("createWrite()") LLVMI1StoreNode write) {
-            synchronized (address.getObject()) {
-                boolean result = (boolean) read.executeWithTarget(address);
-                write.executeWithTarget(address, result ^ value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI1(address, value, (a, b) -> a ^ b);
         }
     }
 }
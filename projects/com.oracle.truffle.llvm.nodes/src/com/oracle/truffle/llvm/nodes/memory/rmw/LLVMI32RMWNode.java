@@ -33,10 +33,8 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI32LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI32LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI32StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI32StoreNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMManagedCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
@@ -45,12 +43,8 @@ import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 @NodeChildren(value = {@NodeChild(type = LLVMExpressionNode.class, value = "pointerNode"), @NodeChild(type = LLVMExpressionNode.class, value = "valueNode")})
 public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
-    protected static LLVMI32LoadNode createRead() {
-        return LLVMI32LoadNodeGen.create(null);
-    }
-
-    protected static LLVMI32StoreNode createWrite() {
-        return LLVMI32StoreNodeGen.create(null, null);
+    protected static LLVMManagedCompareExchangeNode createCompareExchange() {
+        return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I32);
     }
 
     public abstract static class LLVMI32RMWXchgNode extends LLVMI32RMWNode {
@@ -63,13 +57,8 @@ public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected int doOp(LLVMManagedPointer address, int value,
-                        @Cached("createRead()") LLVMI32LoadNode read,
-                        @Cached("createWrite()") LLVMI32StoreNode write) {
-            synchronized (address.getObject()) {
-                int result = (int) read.executeWithTarget(address);
-                write.executeWithTarget(address, value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return (int) cmpxchg.getAndSet(address, value);
         }
     }
 
@@ -83,13 +72,8 @@ public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected int doOp(LLVMManagedPointer address, int value,
-                        @Cached("createRead()") LLVMI32LoadNode read,
-                        @Cached("createWrite()") LLVMI32StoreNode write) {
-            synchronized (address.getObject()) {
-                int result = (int) read.executeWithTarget(address);
-                write.executeWithTarget(address, result + value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI32(address, value, (a, b) -> a + b);
         }
     }
 
@@ -103,13 +87,8 @@ public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected int doOp(LLVMManagedPointer address, int value,
-                        @Cached("createRead()") LLVMI32LoadNode read,
-                        @Cached("createWrite()") LLVMI32StoreNode write) {
-            synchronized (address.getObject()) {
-                int result = (int) read.executeWithTarget(address);
-                write.executeWithTarget(address, result - value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI32(address, value, (a, b) -> a - b);
         }
     }
 
@@ -123,13 +102,8 @@ public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected int doOp(LLVMManagedPointer address, int value,
-                        @Cached("createRead()") LLVMI32LoadNode read,
-                        @Cached("createWrite()") LLVMI32StoreNode write) {
-            synchronized (address.getObject()) {
-                int result = (int) read.executeWithTarget(address);
-                write.executeWithTarget(address, result & value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI32(address, value, (a, b) -> a & b);
         }
     }
 
@@ -143,13 +117,8 @@ public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected int doOp(LLVMManagedPointer address, int value,
-                        @Cached("createRead()") LLVMI32LoadNode read,
-                        @Cached("createWrite()") LLVMI32StoreNode write) {
-            synchronized (address.getObject()) {
-                int result = (int) read.executeWithTarget(address);
-                write.executeWithTarget(address, ~(result & value));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI32(address, value, (a, b) -> ~(a & b));
         }
     }
 
@@ -163,13 +132,8 @@ public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected int doOp(LLVMManagedPointer address, int value,
-                        @Cached("createRead()") LLVMI32LoadNode read,
-                        @Cached("createWrite()") LLVMI32StoreNode write) {
-            synchronized (address.getObject()) {
-                int result = (int) read.executeWithTarget(address);
-                write.executeWithTarget(address, result | value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI32(address, value, (a, b) -> a | b);
         }
     }
 
@@ -183,13 +147,8 @@ public abstract class LLVMI32RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected int doOp(LLVMManagedPointer address, int value,
-                        @Cached("createRead()") LLVMI32LoadNode read,
-                        @Cached("createWrite()") LLVMI32StoreNode write) {
-            synchronized (address.getObject()) {
-                int result = (int) read.executeWithTarget(address);
-                write.executeWithTarget(address, result ^ value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI32(address, value, (a, b) -> a ^ b);
         }
     }
 }
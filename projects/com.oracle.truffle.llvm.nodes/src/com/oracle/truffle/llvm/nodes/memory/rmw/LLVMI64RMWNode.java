@@ -33,25 +33,18 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI64LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI64LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI64StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI64StoreNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMManagedCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
-import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 
 @NodeChildren(value = {@NodeChild(type = LLVMExpressionNode.class, value = "pointerNode"), @NodeChild(type = LLVMExpressionNode.class, value = "valueNode")})
 public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
-    protected static LLVMI64LoadNode createRead() {
-        return LLVMI64LoadNodeGen.create(null);
-    }
-
-    protected static LLVMI64StoreNode createWrite() {
-        return LLVMI64StoreNodeGen.create(null, null);
+    protected static LLVMManagedCompareExchangeNode createCompareExchange() {
+        return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I64);
     }
 
     public abstract static class LLVMI64RMWXchgNode extends LLVMI64RMWNode {
@@ -64,13 +57,8 @@ public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected Object doOp(LLVMManagedPointer address, long value,
-                        @Cached("createRead()") LLVMI64LoadNode read,
-                        @Cached("createWrite()") LLVMI64StoreNode write) {
-            synchronized (address.getObject()) {
-                Object result = read.executeWithTarget(address);
-                write.executeWithTarget(address, value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndSet(address, value);
         }
     }
 
@@ -84,14 +72,8 @@ public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected long doOp(LLVMManagedPointer address, long value,
-                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
-                        @Cached("createRead()") LLVMI64LoadNode read,
-                        @Cached("createWrite()") LLVMI64StoreNode write) {
-            synchronized (address.getObject()) {
-                long result = toNative.executeWithTarget(read.executeWithTarget(address)).asNative();
-                write.executeWithTarget(address, result + value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI64(address, value, (a, b) -> a + b);
         }
     }
 
@@ -105,14 +87,8 @@ public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected long doOp(LLVMManagedPointer address, long value,
-                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
-                        @Cached("createRead()") LLVMI64LoadNode read,
-                        @Cached("createWrite()") LLVMI64StoreNode write) {
-            synchronized (address.getObject()) {
-                long result = toNative.executeWithTarget(read.executeWithTarget(address)).asNative();
-                write.executeWithTarget(address, result - value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI64(address, value, (a, b) -> a - b);
         }
     }
 
@@ -126,14 +102,8 @@ public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected long doOp(LLVMManagedPointer address, long value,
-                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
-                        @Cached("createRead()") LLVMI64LoadNode read,
-                        @Cached("createWrite()") LLVMI64StoreNode write) {
-            synchronized (address.getObject()) {
-                long result = toNative.executeWithTarget(read.executeWithTarget(address)).asNative();
-                write.executeWithTarget(address, result & value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI64(address, value, (a, b) -> a & b);
         }
     }
 
@@ -147,14 +117,8 @@ public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected long doOp(LLVMManagedPointer address, long value,
-                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
-                        @Cached("createRead()") LLVMI64LoadNode read,
-                        @Cached("createWrite()") LLVMI64StoreNode write) {
-            synchronized (address.getObject()) {
-                long result = toNative.executeWithTarget(read.executeWithTarget(address)).asNative();
-                write.executeWithTarget(address, ~(result & value));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI64(address, value, (a, b) -> ~(a & b));
         }
     }
 
@@ -168,14 +132,8 @@ public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected long doOp(LLVMManagedPointer address, long value,
-                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
-                        @Cached("createRead()") LLVMI64LoadNode read,
-                        @Cached("createWrite()") LLVMI64StoreNode write) {
-            synchronized (address.getObject()) {
-                long result = toNative.executeWithTarget(read.executeWithTarget(address)).asNative();
-                write.executeWithTarget(address, result | value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI64(address, value, (a, b) -> a | b);
         }
     }
 
@@ -189,14 +147,8 @@ public abstract class LLVMI64RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected long doOp(LLVMManagedPointer address, long value,
-                        @Cached("createToNativeWithTarget()") LLVMToNativeNode toNative,
-                        @Cached("createRead()") LLVMI64LoadNode read,
-                        @Cached("createWrite()") LLVMI64StoreNode write) {
-            synchronized (address.getObject()) {
-                long result = toNative.executeWithTarget(read.executeWithTarget(address)).asNative();
-                write.executeWithTarget(address, result ^ value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI64(address, value, (a, b) -> a ^ b);
         }
     }
 }
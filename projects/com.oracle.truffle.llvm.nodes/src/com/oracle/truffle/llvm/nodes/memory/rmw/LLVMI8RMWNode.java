@@ -33,10 +33,8 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeChildren;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI8LoadNode;
-import com.oracle.truffle.llvm.nodes.memory.load.LLVMI8LoadNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI8StoreNode;
-import com.oracle.truffle.llvm.nodes.memory.store.LLVMI8StoreNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMManagedCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
@@ -45,12 +43,8 @@ import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 @NodeChildren(value = {@NodeChild(type = LLVMExpressionNode.class, value = "pointerNode"), @NodeChild(type = LLVMExpressionNode.class, value = "valueNode")})
 public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
-    protected static LLVMI8LoadNode createRead() {
-        return LLVMI8LoadNodeGen.create(null);
-    }
-
-    protected static LLVMI8StoreNode createWrite() {
-        return LLVMI8StoreNodeGen.create(null, null);
+    protected static LLVMManagedCompareExchangeNode createCompareExchange() {
+        return LLVMManagedCompareExchangeNode.create(ForeignToLLVMType.I8);
     }
 
     public abstract static class LLVMI8RMWXchgNode extends LLVMI8RMWNode {
@@ -63,13 +57,8 @@ public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected byte doOp(LLVMManagedPointer address, byte value,
-                        @Cached("createRead()") LLVMI8LoadNode read,
-                        @Cached("createWrite()") LLVMI8StoreNode write) {
-            synchronized (address.getObject()) {
-                byte result = (byte) read.executeWithTarget(address);
-                write.executeWithTarget(address, value);
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return (byte) cmpxchg.getAndSet(address, value);
         }
     }
 
@@ -83,13 +72,8 @@ public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected byte doOp(LLVMManagedPointer address, byte value,
-                        @Cached("createRead()") LLVMI8LoadNode read,
-                        @Cached("createWrite()") LLVMI8StoreNode write) {
-            synchronized (address.getObject()) {
-                byte result = (byte) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((byte) (result + value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI8(address, value, (a, b) -> ((byte) (a + b)));
         }
     }
 
@@ -103,13 +87,8 @@ public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected byte doOp(LLVMManagedPointer address, byte value,
-                        @Cached("createRead()") LLVMI8LoadNode read,
-                        @Cached("createWrite()") LLVMI8StoreNode write) {
-            synchronized (address.getObject()) {
-                byte result = (byte) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((byte) (result - value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI8(address, value, (a, b) -> ((byte) (a - b)));
         }
     }
 
@@ -123,13 +102,8 @@ public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected byte doOp(LLVMManagedPointer address, byte value,
-                        @Cached("createRead()") LLVMI8LoadNode read,
-                        @Cached("createWrite()") LLVMI8StoreNode write) {
-            synchronized (address.getObject()) {
-                byte result = (byte) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((byte) (result & value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI8(address, value, (a, b) -> ((byte) (a & b)));
         }
     }
 
@@ -143,13 +117,8 @@ public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected byte doOp(LLVMManagedPointer address, byte value,
-                        @Cached("createRead()") LLVMI8LoadNode read,
-                        @Cached("createWrite()") LLVMI8StoreNode write) {
-            synchronized (address.getObject()) {
-                byte result = (byte) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((byte) ~(result & value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI8(address, value, (a, b) -> ((byte) ~(a & b)));
         }
     }
 
@@ -163,13 +132,8 @@ public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected byte doOp(LLVMManagedPointer address, byte value,
-                        @Cached("createRead()") LLVMI8LoadNode read,
-                        @Cached("createWrite()") LLVMI8StoreNode write) {
-            synchronized (address.getObject()) {
-                byte result = (byte) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((byte) (result | value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI8(address, value, (a, b) -> ((byte) (a | b)));
         }
     }
 
@@ -183,13 +147,8 @@ public abstract class LLVMI8RMWNode extends LLVMExpressionNode {
 
         @Specialization
         protected byte doOp(LLVMManagedPointer address, byte value,
-                        @Cached("createRead()") LLVMI8LoadNode read,
-                        @Cached("createWrite()") LLVMI8StoreNode write) {
-            synchronized (address.getObject()) {
-                byte result = (byte) read.executeWithTarget(address);
-                write.executeWithTarget(address, ((byte) (result ^ value)));
-                return result;
-            }
+                        @Cached("createCompareExchange()") LLVMManagedCompareExchangeNode cmpxchg) {
+            return cmpxchg.getAndOpI8(address, value, (a, b) -> ((byte) (a ^ b)));
         }
     }
 }
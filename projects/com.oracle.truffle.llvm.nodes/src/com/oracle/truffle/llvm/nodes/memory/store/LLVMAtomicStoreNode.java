@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.nodes.memory.store;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
+
+/**
+ * Surrounds the store of a {@code store atomic} instruction with the barriers its ordering
+ * requires.
+ */
+public abstract class LLVMAtomicStoreNode extends LLVMStatementNode {
+
+    @Child protected LLVMStatementNode store;
+
+    @CompilationFinal private LLVMMemory memory;
+
+    protected LLVMAtomicStoreNode(LLVMStatementNode store) {
+        this.store = store;
+    }
+
+    protected final LLVMMemory getMemory() {
+        if (memory == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            memory = getLLVMMemory();
+        }
+        return memory;
+    }
+
+    /**
+     * A release store, which is preceded by a release fence.
+     */
+    public static final class LLVMReleaseStoreNode extends LLVMAtomicStoreNode {
+
+        public LLVMReleaseStoreNode(LLVMStatementNode store) {
+            super(store);
+        }
+
+        @Override
+        public void execute(VirtualFrame frame) {
+            getMemory().storeFence();
+            store.execute(frame);
+        }
+    }
+
+    /**
+     * A sequentially consistent store, which additionally is followed by a full fence so that it
+     * is ordered with subsequent sequentially consistent loads.
+     */
+    public static final class LLVMSequentiallyConsistentStoreNode extends LLVMAtomicStoreNode {
+
+        public LLVMSequentiallyConsistentStoreNode(LLVMStatementNode store) {
+            super(store);
+        }
+
+        @Override
+        public void execute(VirtualFrame frame) {
+            LLVMMemory llvmMemory = getMemory();
+            llvmMemory.storeFence();
+            store.execute(frame);
+            llvmMemory.fullFence();
+        }
+    }
+}
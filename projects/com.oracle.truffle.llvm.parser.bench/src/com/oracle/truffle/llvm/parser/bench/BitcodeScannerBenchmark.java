@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.parser.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.graalvm.polyglot.io.ByteSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.oracle.truffle.llvm.parser.listeners.ParserListener;
+import com.oracle.truffle.llvm.parser.scanner.BitReader;
+import com.oracle.truffle.llvm.parser.scanner.BitStream;
+import com.oracle.truffle.llvm.parser.scanner.Block;
+import com.oracle.truffle.llvm.parser.scanner.LLVMScanner;
+
+/**
+ * Measures how fast the bitcode files of the test suites are decoded. The files are searched in the
+ * directory given by the {@value #BITCODE_PATH_PROPERTY} system property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BitcodeScannerBenchmark {
+
+    static final String BITCODE_PATH_PROPERTY = "sulongbench.bitcodePath";
+
+    private static final int VBR6_WIDTH = 6;
+
+    // arbitrary data can contain long chains of continuation bits, stop early enough
+    private static final long END_MARGIN = 4096;
+
+    private List<ByteSequence> files;
+
+    @Setup
+    public void readFiles() throws IOException {
+        String path = System.getProperty(BITCODE_PATH_PROPERTY);
+        if (path == null) {
+            throw new IllegalStateException("Set " + BITCODE_PATH_PROPERTY + " to a directory that contains bitcode files.");
+        }
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(Paths.get(path))) {
+            paths = stream.filter(p -> p.toString().endsWith(".bc")).sorted().collect(Collectors.toList());
+        }
+        if (paths.isEmpty()) {
+            throw new IllegalStateException("No bitcode files found in " + path);
+        }
+        files = new ArrayList<>(paths.size());
+        for (Path p : paths) {
+            files.add(ByteSequence.create(Files.readAllBytes(p)));
+        }
+    }
+
+    /**
+     * Decodes all blocks and records, including the lazily parsed function bodies.
+     */
+    @Benchmark
+    public void scanBitcode(Blackhole blackhole) {
+        for (ByteSequence file : files) {
+            CountingListener listener = new CountingListener();
+            LLVMScanner.scanBitcode(file, listener);
+            for (LLVMScanner.LazyScanner lazyScanner : listener.lazyBlocks) {
+                lazyScanner.scanBlock(listener);
+            }
+            blackhole.consume(listener.records);
+        }
+    }
+
+    /**
+     * Decodes the files as a sequence of VBR6 fields, the most common field encoding, with the
+     * byte-wise {@link BitStream}.
+     */
+    @Benchmark
+    public void readVBR6BitStream(Blackhole blackhole) {
+        for (ByteSequence file : files) {
+            BitStream stream = BitStream.create(file);
+            long size = stream.size() - END_MARGIN;
+            long offset = 0;
+            long sum = 0;
+            while (offset < size) {
+                long value = stream.readVBR(offset, VBR6_WIDTH);
+                offset += BitStream.widthVBR(value, VBR6_WIDTH);
+                sum += value;
+            }
+            blackhole.consume(sum);
+        }
+    }
+
+    /**
+     * Decodes the files as a sequence of VBR6 fields with the word-based {@link BitReader}.
+     */
+    @Benchmark
+    public void readVBR6BitReader(Blackhole blackhole) {
+        for (ByteSequence file : files) {
+            BitReader reader = BitReader.create(file);
+            long size = reader.size() - END_MARGIN;
+            long sum = 0;
+            while (reader.getPosition() < size) {
+                sum += reader.readVBR6();
+            }
+            blackhole.consume(sum);
+        }
+    }
+
+    private static final class CountingListener implements ParserListener {
+
+        private final List<LLVMScanner.LazyScanner> lazyBlocks = new ArrayList<>();
+        private long records;
+
+        @Override
+        public void skip(Block block, LLVMScanner.LazyScanner lazyScanner) {
+            lazyBlocks.add(lazyScanner);
+        }
+
+        @Override
+        public void record(long id, long[] args) {
+            records += args.length + 1;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.parser.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.io.ByteSequence;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.llvm.parser.LLVMLivenessAnalysis;
+import com.oracle.truffle.llvm.parser.LLVMParserRuntime;
+import com.oracle.truffle.llvm.parser.LLVMPhiManager;
+import com.oracle.truffle.llvm.parser.StackManager;
+import com.oracle.truffle.llvm.parser.model.ModelModule;
+import com.oracle.truffle.llvm.parser.model.blocks.InstructionBlock;
+import com.oracle.truffle.llvm.parser.model.functions.FunctionDefinition;
+import com.oracle.truffle.llvm.parser.scanner.LLVMScanner;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.LLVMLanguage;
+import com.oracle.truffle.llvm.runtime.LLVMScope;
+
+/**
+ * Measures the liveness analysis on all functions of the bitcode files of the test suites. The
+ * files are searched in the directory given by the
+ * {@value BitcodeScannerBenchmark#BITCODE_PATH_PROPERTY} system property. Besides the time per
+ * pass over all functions, the benchmark reports the number of analyzed instructions per
+ * millisecond.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LivenessAnalysisBenchmark {
+
+    private Context polyglot;
+    private LLVMContext context;
+    private List<AnalyzedFunction> functions;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long instructions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            instructions = 0;
+        }
+    }
+
+    @Setup
+    public void parseFiles() throws IOException {
+        String path = System.getProperty(BitcodeScannerBenchmark.BITCODE_PATH_PROPERTY);
+        if (path == null) {
+            throw new IllegalStateException("Set " + BitcodeScannerBenchmark.BITCODE_PATH_PROPERTY + " to a directory that contains bitcode files.");
+        }
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(Paths.get(path))) {
+            paths = stream.filter(p -> p.toString().endsWith(".bc")).sorted().collect(Collectors.toList());
+        }
+
+        polyglot = Context.newBuilder().allowAllAccess(true).build();
+        polyglot.initialize(LLVMLanguage.NAME);
+        polyglot.enter();
+        context = LLVMLanguage.getLLVMContextReference().get();
+
+        functions = new ArrayList<>();
+        for (Path p : paths) {
+            ByteSequence bytes = ByteSequence.create(Files.readAllBytes(p));
+            Source source = Source.newBuilder(LLVMLanguage.NAME, bytes, p.getFileName().toString()).build();
+            ModelModule model = LLVMScanner.parse(bytes, source, context);
+            if (model == null) {
+                continue;
+            }
+            LLVMParserRuntime runtime = new LLVMParserRuntime(context, null, new LLVMScope());
+            for (FunctionDefinition function : model.getDefinedFunctions()) {
+                model.getFunctionParser(function).parse(model.getFunctionProcessor(), source, runtime);
+                functions.add(new AnalyzedFunction(function));
+            }
+        }
+        if (functions.isEmpty()) {
+            throw new IllegalStateException("No functions found in the bitcode files in " + path);
+        }
+    }
+
+    @TearDown
+    public void closeContext() {
+        polyglot.leave();
+        polyglot.close();
+    }
+
+    /**
+     * Computes the liveness of all local values of all functions.
+     */
+    @Benchmark
+    public void computeLiveness(Counters counters, Blackhole blackhole) {
+        for (AnalyzedFunction function : functions) {
+            blackhole.consume(LLVMLivenessAnalysis.computeLiveness(function.frame, context, function.phis, function.definition));
+            counters.instructions += function.instructionCount;
+        }
+    }
+
+    private static final class AnalyzedFunction {
+
+        private final FunctionDefinition definition;
+        private final FrameDescriptor frame;
+        private final Map<InstructionBlock, List<LLVMPhiManager.Phi>> phis;
+        private final int instructionCount;
+
+        AnalyzedFunction(FunctionDefinition definition) {
+            this.definition = definition;
+            this.frame = StackManager.createFrame(definition);
+            this.phis = LLVMPhiManager.getPhis(definition);
+            int count = 0;
+            for (InstructionBlock block : definition.getBlocks()) {
+                count += block.getInstructionCount();
+            }
+            this.instructionCount = count;
+        }
+    }
+}
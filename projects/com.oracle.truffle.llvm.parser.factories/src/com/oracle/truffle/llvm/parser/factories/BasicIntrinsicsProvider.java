@@ -148,6 +148,34 @@ import com.oracle.truffle.llvm.nodes.intrinsics.llvm.arith.LLVMComplexDoubleDiv;
 import com.oracle.truffle.llvm.nodes.intrinsics.llvm.arith.LLVMComplexDoubleMul;
 import com.oracle.truffle.llvm.nodes.intrinsics.llvm.arith.LLVMComplexFloatDiv;
 import com.oracle.truffle.llvm.nodes.intrinsics.llvm.arith.LLVMComplexFloatMul;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadCondIntrinsicsFactory.LLVMPThreadCondBroadcastNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadCondIntrinsicsFactory.LLVMPThreadCondDestroyNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadCondIntrinsicsFactory.LLVMPThreadCondInitNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadCondIntrinsicsFactory.LLVMPThreadCondSignalNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadCondIntrinsicsFactory.LLVMPThreadCondTimedWaitNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadCondIntrinsicsFactory.LLVMPThreadCondWaitNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadKeyIntrinsicsFactory.LLVMPThreadGetSpecificNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadKeyIntrinsicsFactory.LLVMPThreadKeyCreateNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadKeyIntrinsicsFactory.LLVMPThreadKeyDeleteNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadKeyIntrinsicsFactory.LLVMPThreadOnceNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadKeyIntrinsicsFactory.LLVMPThreadSetSpecificNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadMutexIntrinsicsFactory.LLVMPThreadMutexDestroyNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadMutexIntrinsicsFactory.LLVMPThreadMutexInitNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadMutexIntrinsicsFactory.LLVMPThreadMutexLockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadMutexIntrinsicsFactory.LLVMPThreadMutexTryLockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadMutexIntrinsicsFactory.LLVMPThreadMutexUnlockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadRWLockIntrinsicsFactory.LLVMPThreadRWLockDestroyNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadRWLockIntrinsicsFactory.LLVMPThreadRWLockInitNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadRWLockIntrinsicsFactory.LLVMPThreadRWLockReadLockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadRWLockIntrinsicsFactory.LLVMPThreadRWLockTryReadLockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadRWLockIntrinsicsFactory.LLVMPThreadRWLockTryWriteLockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadRWLockIntrinsicsFactory.LLVMPThreadRWLockUnlockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadRWLockIntrinsicsFactory.LLVMPThreadRWLockWriteLockNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadThreadIntrinsicsFactory.LLVMPThreadCreateNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadThreadIntrinsicsFactory.LLVMPThreadDetachNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadThreadIntrinsicsFactory.LLVMPThreadExitNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadThreadIntrinsicsFactory.LLVMPThreadJoinNodeGen;
+import com.oracle.truffle.llvm.nodes.intrinsics.pthread.LLVMPThreadThreadIntrinsicsFactory.LLVMPThreadSelfNodeGen;
 import com.oracle.truffle.llvm.nodes.intrinsics.rust.LLVMPanicNodeGen;
 import com.oracle.truffle.llvm.nodes.intrinsics.rust.LLVMStartFactory.LLVMLangStartInternalNodeGen;
 import com.oracle.truffle.llvm.nodes.intrinsics.rust.LLVMStartFactory.LLVMLangStartNodeGen;
@@ -334,6 +362,7 @@ public class BasicIntrinsicsProvider implements LLVMIntrinsicProvider, ContextEx
         registerComplexNumberIntrinsics();
         registerCTypeIntrinsics();
         registerManagedAllocationIntrinsics();
+        registerPThreadIntrinsics();
         return this;
     }
 
@@ -1562,19 +1591,218 @@ public class BasicIntrinsicsProvider implements LLVMIntrinsicProvider, ContextEx
         });
     }
 
+    protected void registerPThreadIntrinsics() {
+        add("@pthread_create", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadCreateNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2), LLVMArgNodeGen.create(3), LLVMArgNodeGen.create(4));
+            }
+        });
+        add("@pthread_join", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadJoinNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+        add("@pthread_detach", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadDetachNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_self", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadSelfNodeGen.create();
+            }
+        });
+        add("@pthread_exit", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadExitNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_mutex_init", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadMutexInitNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+        add("@pthread_mutex_destroy", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadMutexDestroyNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_mutex_lock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadMutexLockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_mutex_trylock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadMutexTryLockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_mutex_unlock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadMutexUnlockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_cond_init", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadCondInitNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+        add("@pthread_cond_destroy", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadCondDestroyNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_cond_wait", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadCondWaitNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+        add("@pthread_cond_timedwait", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadCondTimedWaitNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2), LLVMArgNodeGen.create(3));
+            }
+        });
+        add("@pthread_cond_signal", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadCondSignalNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_cond_broadcast", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadCondBroadcastNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_rwlock_init", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadRWLockInitNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+        add("@pthread_rwlock_destroy", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadRWLockDestroyNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_rwlock_rdlock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadRWLockReadLockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_rwlock_tryrdlock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadRWLockTryReadLockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_rwlock_wrlock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadRWLockWriteLockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_rwlock_trywrlock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadRWLockTryWriteLockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_rwlock_unlock", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadRWLockUnlockNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_key_create", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadKeyCreateNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+        add("@pthread_key_delete", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadKeyDeleteNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_getspecific", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadGetSpecificNodeGen.create(LLVMArgNodeGen.create(1));
+            }
+        });
+        add("@pthread_setspecific", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadSetSpecificNodeGen.create(LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+        add("@pthread_once", new LLVMIntrinsicFactory(true, false) {
+
+            @Override
+            protected LLVMExpressionNode generate(FunctionType type) {
+                return LLVMPThreadOnceNodeGen.create(LLVMArgNodeGen.create(0), LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+            }
+        });
+    }
+
     protected void registerMemoryFunctionIntrinsics() {
         add("@malloc", new LLVMIntrinsicFactory(true, false) {
 
             @Override
             protected LLVMExpressionNode generate(FunctionType type) {
-                return LLVMMallocNodeGen.create(LLVMArgNodeGen.create(1));
+                return LLVMMallocNodeGen.create(LLVMArgNodeGen.create(0), LLVMArgNodeGen.create(1));
             }
         });
         add("@calloc", new LLVMIntrinsicFactory(true, false) {
 
             @Override
             protected LLVMExpressionNode generate(FunctionType type) {
-                return LLVMCallocNodeGen.create(context.getNodeFactory().createMemSet(), LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
+                return LLVMCallocNodeGen.create(LLVMArgNodeGen.create(0), LLVMArgNodeGen.create(1), LLVMArgNodeGen.create(2));
             }
         });
         add("@realloc", new LLVMIntrinsicFactory(true, false) {
@@ -1588,7 +1816,7 @@ public class BasicIntrinsicsProvider implements LLVMIntrinsicProvider, ContextEx
 
             @Override
             protected LLVMExpressionNode generate(FunctionType type) {
-                return LLVMFreeNodeGen.create(LLVMArgNodeGen.create(1));
+                return LLVMFreeNodeGen.create(LLVMArgNodeGen.create(0), LLVMArgNodeGen.create(1));
             }
         });
         LLVMIntrinsicFactory memset = new LLVMIntrinsicFactory(true, false) {
@@ -61,6 +61,7 @@ import com.oracle.truffle.llvm.nodes.control.LLVMRetNodeFactory.LLVMIVarBitRetNo
 import com.oracle.truffle.llvm.nodes.control.LLVMRetNodeFactory.LLVMStructRetNodeGen;
 import com.oracle.truffle.llvm.nodes.control.LLVMRetNodeFactory.LLVMVectorRetNodeGen;
 import com.oracle.truffle.llvm.nodes.control.LLVMRetNodeFactory.LLVMVoidReturnNodeGen;
+import com.oracle.truffle.llvm.nodes.control.LLVMSwitchNode.LLVMIntegerSwitchNodeImpl;
 import com.oracle.truffle.llvm.nodes.control.LLVMSwitchNode.LLVMSwitchNodeImpl;
 import com.oracle.truffle.llvm.nodes.control.LLVMWritePhisNode;
 import com.oracle.truffle.llvm.nodes.func.LLVMArgNodeGen;
@@ -155,8 +156,13 @@ import com.oracle.truffle.llvm.nodes.literals.LLVMVectorLiteralNodeFactory.LLVMI
 import com.oracle.truffle.llvm.nodes.literals.LLVMVectorLiteralNodeFactory.LLVMI8VectorLiteralNodeGen;
 import com.oracle.truffle.llvm.nodes.literals.LLVMVectorLiteralNodeFactory.LLVMPointerVectorLiteralNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.LLVMCompareExchangeNodeGen;
-import com.oracle.truffle.llvm.nodes.memory.LLVMFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMAcquireFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMAcquireReleaseFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMFullFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMReleaseFenceNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMFenceFactory.LLVMSingleThreadFenceNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.LLVMGetElementPtrNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.LLVMGetElementPtrNodeGen.LLVMConstantOffsetElementPtrNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.LLVMGetStackSpaceInstruction.LLVMGetStackForConstInstruction;
 import com.oracle.truffle.llvm.nodes.memory.LLVMGetStackSpaceInstructionFactory.LLVMAllocaConstInstructionNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.LLVMGetStackSpaceInstructionFactory.LLVMAllocaInstructionNodeGen;
@@ -179,6 +185,7 @@ import com.oracle.truffle.llvm.nodes.memory.literal.LLVMI8ArrayLiteralNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.literal.LLVMPointerArrayLiteralNode;
 import com.oracle.truffle.llvm.nodes.memory.literal.LLVMPointerArrayLiteralNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.literal.LLVMStructArrayLiteralNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.load.LLVMAcquireLoadNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.load.LLVMDirectLoadNodeFactory.LLVM80BitFloatDirectLoadNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.load.LLVMDirectLoadNodeFactory.LLVMIVarBitDirectLoadNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.load.LLVMDirectLoadNodeFactory.LLVMPointerDirectLoadNodeGen;
@@ -204,6 +211,8 @@ import com.oracle.truffle.llvm.nodes.memory.rmw.LLVMI32RMWNodeFactory;
 import com.oracle.truffle.llvm.nodes.memory.rmw.LLVMI64RMWNodeFactory;
 import com.oracle.truffle.llvm.nodes.memory.rmw.LLVMI8RMWNodeFactory;
 import com.oracle.truffle.llvm.nodes.memory.store.LLVM80BitFloatStoreNodeGen;
+import com.oracle.truffle.llvm.nodes.memory.store.LLVMAtomicStoreNode.LLVMReleaseStoreNode;
+import com.oracle.truffle.llvm.nodes.memory.store.LLVMAtomicStoreNode.LLVMSequentiallyConsistentStoreNode;
 import com.oracle.truffle.llvm.nodes.memory.store.LLVMDoubleStoreNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.store.LLVMFloatStoreNodeGen;
 import com.oracle.truffle.llvm.nodes.memory.store.LLVMI16StoreNodeGen;
@@ -257,6 +266,7 @@ import com.oracle.truffle.llvm.nodes.op.LLVMPointerCompareNodeGen.LLVMNegateNode
 import com.oracle.truffle.llvm.nodes.op.LLVMVectorArithmeticNodeGen;
 import com.oracle.truffle.llvm.nodes.op.LLVMVectorCompareNodeGen;
 import com.oracle.truffle.llvm.nodes.others.LLVMAccessGlobalVariableStorageNode;
+import com.oracle.truffle.llvm.nodes.others.LLVMAccessThreadLocalGlobalVariableNode;
 import com.oracle.truffle.llvm.nodes.others.LLVMSelectNodeFactory.LLVM80BitFloatSelectNodeGen;
 import com.oracle.truffle.llvm.nodes.others.LLVMSelectNodeFactory.LLVMDoubleSelectNodeGen;
 import com.oracle.truffle.llvm.nodes.others.LLVMSelectNodeFactory.LLVMFloatSelectNodeGen;
@@ -341,6 +351,7 @@ import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor.LLVMIRFunction;
 import com.oracle.truffle.llvm.runtime.LLVMIVarBit;
 import com.oracle.truffle.llvm.runtime.LLVMUnsupportedException;
 import com.oracle.truffle.llvm.runtime.LLVMUnsupportedException.UnsupportedReason;
+import com.oracle.truffle.llvm.runtime.MemoryOrdering;
 import com.oracle.truffle.llvm.runtime.NodeFactory;
 import com.oracle.truffle.llvm.runtime.debug.scope.LLVMDebugGlobalVariable;
 import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceLocation;
@@ -379,6 +390,7 @@ import com.oracle.truffle.llvm.runtime.nodes.api.LLVMLoadNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStoreNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMTypesGen;
+import com.oracle.truffle.llvm.runtime.options.SulongEngineOption;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 import com.oracle.truffle.llvm.runtime.types.AggregateType;
@@ -500,6 +512,21 @@ public class BasicNodeFactory implements NodeFactory {
         }
     }
 
+    @Override
+    public LLVMExpressionNode createAtomicLoad(Type resolvedResultType, LLVMExpressionNode loadTarget, MemoryOrdering ordering) {
+        LLVMExpressionNode load = createLoad(resolvedResultType, loadTarget);
+        switch (ordering) {
+            case PLAIN:
+                return load;
+            case MONOTONIC:
+            case ACQUIRE:
+            case SEQUENTIALLY_CONSISTENT:
+                return LLVMAcquireLoadNodeGen.create(load);
+            default:
+                throw new AssertionError("Invalid load ordering: " + ordering);
+        }
+    }
+
     private static LLVMLoadNode createLoadVector(VectorType resultType, LLVMExpressionNode loadTarget, int size) {
         Type elemType = resultType.getElementType();
         if (elemType instanceof PrimitiveType) {
@@ -533,6 +560,22 @@ public class BasicNodeFactory implements NodeFactory {
         return createStore(pointerNode, valueNode, type, context.getByteSize(type), source);
     }
 
+    @Override
+    public LLVMStatementNode createAtomicStore(LLVMExpressionNode pointerNode, LLVMExpressionNode valueNode, Type type, LLVMSourceLocation source, MemoryOrdering ordering) {
+        LLVMStatementNode store = createStore(pointerNode, valueNode, type, source);
+        switch (ordering) {
+            case PLAIN:
+            case MONOTONIC:
+                return store;
+            case RELEASE:
+                return new LLVMReleaseStoreNode(store);
+            case SEQUENTIALLY_CONSISTENT:
+                return new LLVMSequentiallyConsistentStoreNode(store);
+            default:
+                throw new AssertionError("Invalid store ordering: " + ordering);
+        }
+    }
+
     @Override
     public LLVMExpressionNode createRMWXchg(LLVMExpressionNode pointerNode, LLVMExpressionNode valueNode, Type type) {
         switch (((PrimitiveType) type).getPrimitiveKind()) {
@@ -660,8 +703,21 @@ public class BasicNodeFactory implements NodeFactory {
     }
 
     @Override
-    public LLVMStatementNode createFence() {
-        return LLVMFenceNodeGen.create();
+    public LLVMStatementNode createFence(MemoryOrdering ordering) {
+        switch (ordering) {
+            case PLAIN:
+                return LLVMSingleThreadFenceNodeGen.create();
+            case ACQUIRE:
+                return LLVMAcquireFenceNodeGen.create();
+            case RELEASE:
+                return LLVMReleaseFenceNodeGen.create();
+            case ACQUIRE_RELEASE:
+                return LLVMAcquireReleaseFenceNodeGen.create();
+            case SEQUENTIALLY_CONSISTENT:
+                return LLVMFullFenceNodeGen.create();
+            default:
+                throw new AssertionError("Invalid fence ordering: " + ordering);
+        }
     }
 
     @Override
@@ -1130,8 +1186,11 @@ public class BasicNodeFactory implements NodeFactory {
     }
 
     @Override
-    public LLVMExpressionNode createTypedElementPointer(LLVMExpressionNode aggregateAddress, LLVMExpressionNode index, long indexedTypeLength, Type targetType) {
-        return LLVMGetElementPtrNodeGen.create(aggregateAddress, index, indexedTypeLength);
+    public LLVMExpressionNode createTypedElementPointer(LLVMExpressionNode aggregateAddress, LLVMExpressionNode index, long indexedTypeLength, long constantOffset, Type targetType) {
+        if (index == null) {
+            return LLVMConstantOffsetElementPtrNodeGen.create(aggregateAddress, constantOffset);
+        }
+        return LLVMGetElementPtrNodeGen.create(aggregateAddress, index, indexedTypeLength, constantOffset);
     }
 
     @Override
@@ -1225,7 +1284,11 @@ public class BasicNodeFactory implements NodeFactory {
             } else if (LLVMManagedPointer.isInstance(value)) {
                 return new LLVMManagedPointerLiteralNode(LLVMManagedPointer.cast(value));
             } else if (value instanceof LLVMGlobal) {
-                return new LLVMAccessGlobalVariableStorageNode((LLVMGlobal) value);
+                LLVMGlobal global = (LLVMGlobal) value;
+                if (global.isThreadLocal()) {
+                    return new LLVMAccessThreadLocalGlobalVariableNode(global);
+                }
+                return new LLVMAccessGlobalVariableStorageNode(global);
             } else {
                 throw new AssertionError(value.getClass());
             }
@@ -1268,6 +1331,12 @@ public class BasicNodeFactory implements NodeFactory {
         return new LLVMSwitchNodeImpl(successors, phiWriteNodes, cond, caseNodes, source);
     }
 
+    @Override
+    public LLVMControlFlowNode createSwitch(LLVMExpressionNode cond, int[] successors, long[] caseValues, PrimitiveType llvmType, LLVMStatementNode[] phiWriteNodes,
+                    LLVMSourceLocation source) {
+        return new LLVMIntegerSwitchNodeImpl(successors, phiWriteNodes, cond, caseValues, llvmType.getPrimitiveKind(), source);
+    }
+
     @Override
     public LLVMControlFlowNode createConditionalBranch(int trueIndex, int falseIndex, LLVMExpressionNode conditionNode, LLVMStatementNode truePhiWriteNodes,
                     LLVMStatementNode falsePhiWriteNodes, LLVMSourceLocation sourceSection) {
@@ -1475,13 +1544,13 @@ public class BasicNodeFactory implements NodeFactory {
     }
 
     @Override
-    public LLVMExpressionNode createFunctionBlockNode(FrameSlot exceptionValueSlot, List<? extends LLVMStatementNode> allFunctionNodes, UniquesRegionAllocator uniquesRegionAllocator,
-                    FrameSlot[][] beforeBlockNuller,
-                    FrameSlot[][] afterBlockNuller, LLVMSourceLocation location, LLVMStatementNode[] copyArgumentsToFrame) {
+    public LLVMExpressionNode createFunctionBlockNode(FrameSlot exceptionValueSlot, FrameSlot loopSuccessorSlot, List<? extends LLVMStatementNode> allFunctionNodes,
+                    UniquesRegionAllocator uniquesRegionAllocator, FrameSlot[][] beforeBlockNuller, FrameSlot[][] afterBlockNuller, LLVMSourceLocation location,
+                    LLVMStatementNode[] copyArgumentsToFrame) {
         LLVMUniquesRegionAllocNode uniquesRegionAllocNode = LLVMUniquesRegionAllocNodeGen.create(uniquesRegionAllocator);
-        return new LLVMDispatchBasicBlockNode(exceptionValueSlot, allFunctionNodes.toArray(new LLVMBasicBlockNode[allFunctionNodes.size()]), uniquesRegionAllocNode, beforeBlockNuller,
-                        afterBlockNuller, location,
-                        copyArgumentsToFrame);
+        boolean extractLoops = context.getEnv().getOptions().get(SulongEngineOption.OSR_LOOPS);
+        return new LLVMDispatchBasicBlockNode(exceptionValueSlot, loopSuccessorSlot, allFunctionNodes.toArray(new LLVMBasicBlockNode[allFunctionNodes.size()]), uniquesRegionAllocNode,
+                        beforeBlockNuller, afterBlockNuller, location, copyArgumentsToFrame, extractLoops);
     }
 
     @Override
@@ -1940,6 +2009,11 @@ public class BasicNodeFactory implements NodeFactory {
 
         Object value = null;
         if (isGlobal) {
+            if (valueNode instanceof LLVMAccessThreadLocalGlobalVariableNode) {
+                // the debug value of a global is not bound to a frame, so there is no thread to
+                // resolve the storage of a thread-local global for
+                return LLVMDebugObjectBuilder.UNAVAILABLE;
+            }
             assert valueNode instanceof LLVMAccessGlobalVariableStorageNode;
             LLVMAccessGlobalVariableStorageNode node = (LLVMAccessGlobalVariableStorageNode) valueNode;
             value = new LLVMDebugGlobalVariable(node.getDescriptor());
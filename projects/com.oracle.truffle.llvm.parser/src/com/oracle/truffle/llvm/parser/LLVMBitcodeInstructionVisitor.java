@@ -42,6 +42,7 @@ import com.oracle.truffle.llvm.parser.model.SymbolImpl;
 import com.oracle.truffle.llvm.parser.model.attributes.Attribute;
 import com.oracle.truffle.llvm.parser.model.attributes.AttributesGroup;
 import com.oracle.truffle.llvm.parser.model.enums.AsmDialect;
+import com.oracle.truffle.llvm.parser.model.enums.AtomicOrdering;
 import com.oracle.truffle.llvm.parser.model.enums.ReadModifyWriteOperator;
 import com.oracle.truffle.llvm.parser.model.symbols.constants.InlineAsmConstant;
 import com.oracle.truffle.llvm.parser.model.symbols.constants.NullConstant;
@@ -87,6 +88,7 @@ import com.oracle.truffle.llvm.parser.nodes.LLVMSymbolReadResolver;
 import com.oracle.truffle.llvm.parser.util.LLVMBitcodeTypeHelper;
 import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.LLVMContext.ExternalLibrary;
+import com.oracle.truffle.llvm.runtime.MemoryOrdering;
 import com.oracle.truffle.llvm.runtime.NodeFactory;
 import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceLocation;
 import com.oracle.truffle.llvm.runtime.except.LLVMUserException;
@@ -561,8 +563,7 @@ final class LLVMBitcodeInstructionVisitor implements SymbolVisitor {
         }
 
         if (offset != 0) {
-            final LLVMExpressionNode oneLiteralNode = nodeFactory.createLiteral(1, PrimitiveType.I32);
-            targetAddress = nodeFactory.createTypedElementPointer(targetAddress, oneLiteralNode, offset, extract.getType());
+            targetAddress = nodeFactory.createTypedElementPointer(targetAddress, null, 0, offset, extract.getType());
         }
 
         final LLVMExpressionNode result = nodeFactory.createExtractValue(resultType, targetAddress);
@@ -627,7 +628,13 @@ final class LLVMBitcodeInstructionVisitor implements SymbolVisitor {
     @Override
     public void visit(LoadInstruction load) {
         LLVMExpressionNode source = symbols.resolve(load.getSource());
-        LLVMExpressionNode result = nodeFactory.createLoad(load.getType(), source);
+        LLVMExpressionNode result;
+        if (load.getAtomicOrdering() == AtomicOrdering.NOT_ATOMIC) {
+            result = nodeFactory.createLoad(load.getType(), source);
+        } else {
+            MemoryOrdering ordering = LLVMBitcodeTypeHelper.getMemoryOrdering(load.getAtomicOrdering(), load.getSynchronizationScope());
+            result = nodeFactory.createAtomicLoad(load.getType(), source, ordering);
+        }
         createFrameWrite(result, load);
     }
 
@@ -690,7 +697,13 @@ final class LLVMBitcodeInstructionVisitor implements SymbolVisitor {
             source = getSourceLocation(store);
         }
 
-        final LLVMStatementNode node = nodeFactory.createStore(pointerNode, valueNode, type, source);
+        final LLVMStatementNode node;
+        if (store.getAtomicOrdering() == AtomicOrdering.NOT_ATOMIC) {
+            node = nodeFactory.createStore(pointerNode, valueNode, type, source);
+        } else {
+            MemoryOrdering ordering = LLVMBitcodeTypeHelper.getMemoryOrdering(store.getAtomicOrdering(), store.getSynchronizationScope());
+            node = nodeFactory.createAtomicStore(pointerNode, valueNode, type, source, ordering);
+        }
         addInstruction(node);
     }
 
@@ -732,7 +745,8 @@ final class LLVMBitcodeInstructionVisitor implements SymbolVisitor {
 
     @Override
     public void visit(FenceInstruction fence) {
-        final LLVMStatementNode node = nodeFactory.createFence();
+        MemoryOrdering ordering = LLVMBitcodeTypeHelper.getMemoryOrdering(fence.getAtomicOrdering(), fence.getSynchronizationScope());
+        final LLVMStatementNode node = nodeFactory.createFence(ordering);
         addInstruction(node);
     }
 
@@ -746,6 +760,24 @@ final class LLVMBitcodeInstructionVisitor implements SymbolVisitor {
         successors[successors.length - 1] = zwitch.getDefaultBlock().getBlockIndex();
 
         Type llvmType = zwitch.getCondition().getType();
+        if (isIntegerSwitchType(llvmType)) {
+            long[] caseValues = new long[zwitch.getCaseCount()];
+            boolean constantCases = true;
+            for (int i = 0; i < caseValues.length && constantCases; i++) {
+                SymbolImpl caseValue = zwitch.getCaseValue(i);
+                if (caseValue instanceof IntegerConstant) {
+                    caseValues[i] = ((IntegerConstant) caseValue).getValue();
+                } else {
+                    constantCases = false;
+                }
+            }
+            if (constantCases) {
+                LLVMControlFlowNode node = nodeFactory.createSwitch(cond, successors, caseValues, (PrimitiveType) llvmType, getPhiWriteNodes(zwitch), getSourceLocation(zwitch));
+                setControlFlowNode(node);
+                return;
+            }
+        }
+
         LLVMExpressionNode[] cases = new LLVMExpressionNode[zwitch.getCaseCount()];
         for (int i = 0; i < cases.length; i++) {
             cases[i] = symbols.resolve(zwitch.getCaseValue(i));
@@ -755,6 +787,22 @@ final class LLVMBitcodeInstructionVisitor implements SymbolVisitor {
         setControlFlowNode(node);
     }
 
+    private static boolean isIntegerSwitchType(Type type) {
+        if (type instanceof PrimitiveType) {
+            switch (((PrimitiveType) type).getPrimitiveKind()) {
+                case I1:
+                case I8:
+                case I16:
+                case I32:
+                case I64:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
     private LLVMStatementNode[] getPhiWriteNodes(TerminatingInstruction terminatingInstruction) {
         if (blockPhis != null) {
             ArrayList<Phi>[] phisPerSuccessor = LLVMPhiManager.getPhisForSuccessors(terminatingInstruction, blockPhis);
@@ -795,6 +843,16 @@ final class LLVMBitcodeInstructionVisitor implements SymbolVisitor {
         successors[successors.length - 1] = zwitch.getDefaultBlock().getBlockIndex();
 
         final PrimitiveType llvmType = (PrimitiveType) zwitch.getCondition().getType();
+        if (isIntegerSwitchType(llvmType)) {
+            long[] caseValues = new long[zwitch.getCaseCount()];
+            for (int i = 0; i < caseValues.length; i++) {
+                caseValues[i] = zwitch.getCaseValue(i);
+            }
+            LLVMControlFlowNode node = nodeFactory.createSwitch(cond, successors, caseValues, llvmType, getPhiWriteNodes(zwitch), getSourceLocation(zwitch));
+            setControlFlowNode(node);
+            return;
+        }
+
         final LLVMExpressionNode[] cases = new LLVMExpressionNode[zwitch.getCaseCount()];
         for (int i = 0; i < cases.length; i++) {
             // the case value is always a long here regardless of the values actual type, implicit
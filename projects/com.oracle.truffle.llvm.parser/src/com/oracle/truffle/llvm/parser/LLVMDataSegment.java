@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.oracle.truffle.llvm.parser.model.SymbolImpl;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.NullConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.StringConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.UndefinedConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.aggregate.AggregateConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.aggregate.ArrayConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.aggregate.StructureConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.aggregate.VectorConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.floatingpoint.DoubleConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.floatingpoint.FloatConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.constants.integer.IntegerConstant;
+import com.oracle.truffle.llvm.parser.model.symbols.globals.GlobalVariable;
+import com.oracle.truffle.llvm.parser.model.visitors.SymbolVisitor;
+import com.oracle.truffle.llvm.runtime.datalayout.DataLayout;
+import com.oracle.truffle.llvm.runtime.types.AggregateType;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType.PrimitiveKind;
+import com.oracle.truffle.llvm.runtime.types.Type;
+import com.oracle.truffle.llvm.runtime.types.VectorType;
+
+/**
+ * A memory image of the globals of a library that are stored in one contiguous block. The constant
+ * initializers of globals are serialized into the image, so that all of them can be initialized
+ * with a single copy instead of building and executing an initialization node per global.
+ *
+ * Initializers that cannot be serialized, e.g., because they refer to the address of a function or
+ * another global, are rejected and still need to be initialized by nodes after the image has been
+ * copied.
+ */
+public final class LLVMDataSegment {
+
+    private final DataLayout dataLayout;
+    private final byte[] image;
+    private final ByteBuffer buffer;
+
+    public LLVMDataSegment(DataLayout dataLayout, int size) {
+        this.dataLayout = dataLayout;
+        this.image = new byte[size];
+        this.buffer = ByteBuffer.wrap(image).order(ByteOrder.nativeOrder());
+    }
+
+    public byte[] getImage() {
+        return image;
+    }
+
+    /**
+     * Serializes the initializer of a global into the image.
+     *
+     * @return whether the global is fully initialized by the image
+     */
+    public boolean write(GlobalVariable global, int offset) {
+        final SymbolImpl value = global.getValue();
+        if (value == null) {
+            // there is nothing to initialize
+            return true;
+        }
+
+        final Writer writer = new Writer();
+        writer.write(value, offset);
+        return writer.supported;
+    }
+
+    private final class Writer implements SymbolVisitor {
+
+        private boolean supported = true;
+        private int offset;
+
+        void write(SymbolImpl value, int valueOffset) {
+            if (supported) {
+                final int previousOffset = offset;
+                offset = valueOffset;
+                value.accept(this);
+                offset = previousOffset;
+            }
+        }
+
+        private void writeElements(AggregateConstant constant, Type elementType) {
+            final int elementSize = elementType.getSize(dataLayout);
+            for (int i = 0; i < constant.getElementCount() && supported; i++) {
+                write(constant.getElement(i), offset + i * elementSize);
+            }
+        }
+
+        @Override
+        public void defaultAction(SymbolImpl symbol) {
+            // the value is either not constant data or contains a relocation
+            supported = false;
+        }
+
+        @Override
+        public void visit(ArrayConstant constant) {
+            writeElements(constant, constant.getType().getElementType());
+        }
+
+        @Override
+        public void visit(VectorConstant constant) {
+            final Type elementType = ((VectorType) constant.getType()).getElementType();
+            if (elementType instanceof PrimitiveType && ((PrimitiveType) elementType).getPrimitiveKind() == PrimitiveKind.I1) {
+                // vectors of i1 are not stored as one byte per element
+                supported = false;
+            } else {
+                writeElements(constant, elementType);
+            }
+        }
+
+        @Override
+        public void visit(StructureConstant constant) {
+            final AggregateType type = (AggregateType) constant.getType();
+            for (int i = 0; i < constant.getElementCount() && supported; i++) {
+                write(constant.getElement(i), offset + (int) type.getOffsetOf(i, dataLayout));
+            }
+        }
+
+        @Override
+        public void visit(IntegerConstant constant) {
+            final Type type = constant.getType();
+            if (!(type instanceof PrimitiveType)) {
+                supported = false;
+                return;
+            }
+
+            final long value = constant.getValue();
+            switch (((PrimitiveType) type).getPrimitiveKind()) {
+                case I1:
+                    buffer.put(offset, (byte) (value != 0 ? 1 : 0));
+                    break;
+                case I8:
+                    buffer.put(offset, (byte) value);
+                    break;
+                case I16:
+                    buffer.putShort(offset, (short) value);
+                    break;
+                case I32:
+                    buffer.putInt(offset, (int) value);
+                    break;
+                case I64:
+                    buffer.putLong(offset, value);
+                    break;
+                default:
+                    supported = false;
+                    break;
+            }
+        }
+
+        @Override
+        public void visit(FloatConstant constant) {
+            buffer.putFloat(offset, constant.getValue());
+        }
+
+        @Override
+        public void visit(DoubleConstant constant) {
+            buffer.putDouble(offset, constant.getValue());
+        }
+
+        @Override
+        public void visit(StringConstant constant) {
+            final String value = constant.getString();
+            for (int i = 0; i < value.length(); i++) {
+                image[offset + i] = (byte) value.charAt(i);
+            }
+        }
+
+        @Override
+        public void visit(NullConstant constant) {
+            // the image is zero-initialized
+        }
+
+        @Override
+        public void visit(UndefinedConstant constant) {
+            // the image is zero-initialized
+        }
+    }
+}
@@ -73,13 +73,13 @@ import com.oracle.truffle.llvm.parser.model.symbols.instructions.UnreachableInst
 import com.oracle.truffle.llvm.parser.model.symbols.instructions.VoidCallInstruction;
 import com.oracle.truffle.llvm.parser.model.symbols.instructions.VoidInvokeInstruction;
 import com.oracle.truffle.llvm.parser.model.visitors.SymbolVisitor;
+import com.oracle.truffle.llvm.parser.util.FixedBitSet;
 import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.options.SulongEngineOption;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -93,7 +93,7 @@ public final class LLVMLivenessAnalysis {
         List<InstructionBlock> blocks = functionDefinition.getBlocks();
         BlockInfo[] blockInfos = initializeGenKill(frame, phis, functionDefinition, blocks);
         ArrayList<InstructionBlock>[] predecessors = computePredecessors(blocks);
-        int processedBlocks = iterateToFixedPoint(blocks, frame, blockInfos, predecessors);
+        int processedBlocks = iterateToFixedPoint(blocks, blockInfos, predecessors);
         boolean printStatistics = SulongEngineOption.isTrue(context.getEnv().getOptions().get(SulongEngineOption.PRINT_LIFE_TIME_ANALYSIS_STATS));
         if (printStatistics) {
             printIntermediateResult(context, frame, functionDefinition, blocks, blockInfos, processedBlocks);
@@ -133,18 +133,23 @@ public final class LLVMLivenessAnalysis {
             for (LLVMPhiManager.Phi phi : bbPhis) {
                 processValueUsedInPhi(frame, phi.getValue(), blockInfo);
             }
+
+            blockInfo.genAndPhiDefs.or(blockInfo.gen);
+            blockInfo.genAndPhiDefs.or(blockInfo.phiDefs);
         }
         return result;
     }
 
-    private static int iterateToFixedPoint(List<InstructionBlock> blocks, FrameDescriptor frame, BlockInfo[] blockInfos, ArrayList<InstructionBlock>[] predecessors) {
-        // by processing the graph bottom-up, we may reach a fixed point more quickly
-        ArrayDeque<InstructionBlock> workList = new ArrayDeque<>(blocks);
-        BitSet blockOnWorkList = new BitSet(blocks.size());
-        blockOnWorkList.set(0, blockOnWorkList.size());
-
-        BitSet newPredecessorOut = new BitSet(frame.getSize());
-        BitSet newIn = new BitSet(frame.getSize());
+    private static int iterateToFixedPoint(List<InstructionBlock> blocks, BlockInfo[] blockInfos, ArrayList<InstructionBlock>[] predecessors) {
+        // liveness flows backwards, so we want to process the successors of a block before the
+        // block itself. the work list is processed from its end, so seeding it in reverse
+        // postorder visits the blocks in postorder, which usually reaches the fixed point after
+        // very few iterations.
+        ArrayDeque<InstructionBlock> workList = computeReversePostOrder(blocks);
+        FixedBitSet blockOnWorkList = new FixedBitSet(blocks.size());
+        for (InstructionBlock block : workList) {
+            blockOnWorkList.set(block.getBlockIndex());
+        }
 
         int processedBlocks = 0;
         while (!workList.isEmpty()) {
@@ -152,23 +157,13 @@ public final class LLVMLivenessAnalysis {
             InstructionBlock block = removeBlockFromWorkList(workList, blockOnWorkList);
             BlockInfo blockInfo = blockInfos[block.getBlockIndex()];
 
-            newIn.clear();
-            newIn.or(blockInfo.out);
-            newIn.andNot(blockInfo.defs);
-            newIn.or(blockInfo.gen);
-            newIn.or(blockInfo.phiDefs);
-
-            blockInfo.in.clear();
-            blockInfo.in.or(newIn);
+            // in = (out - defs) + gen + phiDefs
+            blockInfo.in.setAndNotOr(blockInfo.out, blockInfo.defs, blockInfo.genAndPhiDefs);
 
             for (InstructionBlock predecessor : predecessors[block.getBlockIndex()]) {
                 BlockInfo predecessorBlockInfo = blockInfos[predecessor.getBlockIndex()];
-                newPredecessorOut.clear();
-                newPredecessorOut.or(blockInfo.in);
-                newPredecessorOut.andNot(blockInfo.phiDefs);
-                newPredecessorOut.or(predecessorBlockInfo.phiUses);
-
-                boolean changed = or(predecessorBlockInfo.out, newPredecessorOut);
+                // predecessorOut += (in - phiDefs) + predecessorPhiUses
+                boolean changed = predecessorBlockInfo.out.orAndNotOr(blockInfo.in, blockInfo.phiDefs, predecessorBlockInfo.phiUses);
                 if (changed) {
                     addBlockToWorkList(workList, blockOnWorkList, predecessor);
                 }
@@ -177,12 +172,57 @@ public final class LLVMLivenessAnalysis {
         return processedBlocks;
     }
 
+    /**
+     * Orders the blocks in reverse postorder of a depth-first traversal that starts at the entry
+     * block. Unreachable blocks are put in front, so that they are processed last.
+     */
+    private static ArrayDeque<InstructionBlock> computeReversePostOrder(List<InstructionBlock> blocks) {
+        InstructionBlock[] postOrder = new InstructionBlock[blocks.size()];
+        int postOrderCount = 0;
+
+        FixedBitSet visited = new FixedBitSet(blocks.size());
+        int[] nextSuccessor = new int[blocks.size()];
+        ArrayDeque<InstructionBlock> stack = new ArrayDeque<>();
+        if (!blocks.isEmpty()) {
+            InstructionBlock entry = blocks.get(0);
+            visited.set(entry.getBlockIndex());
+            stack.push(entry);
+        }
+        while (!stack.isEmpty()) {
+            InstructionBlock block = stack.peek();
+            TerminatingInstruction terminatingInstruction = block.getTerminatingInstruction();
+            int index = block.getBlockIndex();
+            if (nextSuccessor[index] < terminatingInstruction.getSuccessorCount()) {
+                InstructionBlock successor = terminatingInstruction.getSuccessor(nextSuccessor[index]++);
+                if (!visited.get(successor.getBlockIndex())) {
+                    visited.set(successor.getBlockIndex());
+                    stack.push(successor);
+                }
+            } else {
+                postOrder[postOrderCount++] = stack.pop();
+            }
+        }
+
+        ArrayDeque<InstructionBlock> result = new ArrayDeque<>(blocks.size());
+        if (postOrderCount < blocks.size()) {
+            for (InstructionBlock block : blocks) {
+                if (!visited.get(block.getBlockIndex())) {
+                    result.addLast(block);
+                }
+            }
+        }
+        for (int i = postOrderCount - 1; i >= 0; i--) {
+            result.addLast(postOrder[i]);
+        }
+        return result;
+    }
+
     private static LLVMLivenessAnalysisResult computeLivenessAnalysisResult(FunctionDefinition functionDefinition, List<InstructionBlock> blocks, FrameDescriptor frame, BlockInfo[] blockInfos,
                     ArrayList<InstructionBlock>[] predecessors) {
         @SuppressWarnings("unchecked")
         ArrayList<NullerInformation>[] nullableWithinBlock = new ArrayList[blocks.size()];
-        BitSet[] nullableBeforeBlock = new BitSet[blocks.size()];
-        BitSet[] nullableAfterBlock = new BitSet[blocks.size()];
+        FixedBitSet[] nullableBeforeBlock = new FixedBitSet[blocks.size()];
+        FixedBitSet[] nullableAfterBlock = new FixedBitSet[blocks.size()];
 
         int[] lastInstructionIndexTouchingLocal = new int[frame.getSize()];
         LLVMNullerReadVisitor nullerReadVisitor = new LLVMNullerReadVisitor(frame, lastInstructionIndexTouchingLocal);
@@ -232,7 +272,7 @@ public final class LLVMLivenessAnalysis {
             blockInfo.defs.andNot(blockInfo.out);
 
             int terminatingInstructionIndex = block.getInstructionCount() - 1;
-            BitSet valuesThatDieInBlock = blockInfo.defs;
+            FixedBitSet valuesThatDieInBlock = blockInfo.defs;
             int bitIndex = -1;
             while ((bitIndex = valuesThatDieInBlock.nextSetBit(bitIndex + 1)) >= 0) {
                 assert lastInstructionIndexTouchingLocal[bitIndex] >= 0 : "must have a last usage, otherwise the value would not be alive in this block";
@@ -300,7 +340,7 @@ public final class LLVMLivenessAnalysis {
         return result;
     }
 
-    private static void addBlockToWorkList(ArrayDeque<InstructionBlock> workList, BitSet blockOnWorkList, InstructionBlock predecessorBlock) {
+    private static void addBlockToWorkList(ArrayDeque<InstructionBlock> workList, FixedBitSet blockOnWorkList, InstructionBlock predecessorBlock) {
         boolean predecessorBlockIndex = blockOnWorkList.get(predecessorBlock.getBlockIndex());
         if (!predecessorBlockIndex) {
             workList.addLast(predecessorBlock);
@@ -308,32 +348,12 @@ public final class LLVMLivenessAnalysis {
         }
     }
 
-    private static InstructionBlock removeBlockFromWorkList(ArrayDeque<InstructionBlock> workList, BitSet blockOnWorkList) {
+    private static InstructionBlock removeBlockFromWorkList(ArrayDeque<InstructionBlock> workList, FixedBitSet blockOnWorkList) {
         InstructionBlock block = workList.removeLast();
         blockOnWorkList.clear(block.getBlockIndex());
         return block;
     }
 
-    private static boolean or(BitSet dest, BitSet source) {
-        assert dest.size() == source.size();
-        if (isChangeForOrNecessary(dest, source)) {
-            dest.or(source);
-            return true;
-        }
-        return false;
-    }
-
-    private static boolean isChangeForOrNecessary(BitSet dest, BitSet source) {
-        // this could be far faster if we had direct access to the words in the BitSet
-        int bitIndex = -1;
-        while ((bitIndex = source.nextSetBit(bitIndex + 1)) >= 0) {
-            if (!dest.get(bitIndex)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private static void processReads(LLVMLivenessReadVisitor readVisitor, Instruction instruction) {
         instruction.accept(readVisitor);
     }
@@ -461,7 +481,7 @@ public final class LLVMLivenessAnalysis {
         SulongEngineOption.getStream(context.getEnv().getOptions().get(SulongEngineOption.PRINT_LIFE_TIME_ANALYSIS_STATS)).println(builder.toString());
     }
 
-    private static String formatLocals(FrameDescriptor frame, BitSet bitSet) {
+    private static String formatLocals(FrameDescriptor frame, FixedBitSet bitSet) {
         StringBuilder result = new StringBuilder();
         int bitIndex = -1;
         while ((bitIndex = bitSet.nextSetBit(bitIndex + 1)) >= 0) {
@@ -722,24 +742,28 @@ public final class LLVMLivenessAnalysis {
     }
 
     private static class BlockInfo {
-        public final BitSet in;
-        public final BitSet out;
+        public final FixedBitSet in;
+        public final FixedBitSet out;
+
+        public final FixedBitSet gen;
+        public final FixedBitSet kill;
+        public final FixedBitSet defs;
+        public final FixedBitSet phiDefs;
+        public final FixedBitSet phiUses;
 
-        public final BitSet gen;
-        public final BitSet kill;
-        public final BitSet defs;
-        public final BitSet phiDefs;
-        public final BitSet phiUses;
+        // the union of gen and phiDefs, which does not change during the fixed point iteration
+        public final FixedBitSet genAndPhiDefs;
 
         BlockInfo(int frameSlots) {
-            this.in = new BitSet(frameSlots);
-            this.out = new BitSet(frameSlots);
+            this.in = new FixedBitSet(frameSlots);
+            this.out = new FixedBitSet(frameSlots);
 
-            this.gen = new BitSet(frameSlots);
-            this.kill = new BitSet(frameSlots);
-            this.defs = new BitSet(frameSlots);
-            this.phiDefs = new BitSet(frameSlots);
-            this.phiUses = new BitSet(frameSlots);
+            this.gen = new FixedBitSet(frameSlots);
+            this.kill = new FixedBitSet(frameSlots);
+            this.defs = new FixedBitSet(frameSlots);
+            this.phiDefs = new FixedBitSet(frameSlots);
+            this.phiUses = new FixedBitSet(frameSlots);
+            this.genAndPhiDefs = new FixedBitSet(frameSlots);
         }
     }
 
@@ -750,10 +774,10 @@ public final class LLVMLivenessAnalysis {
      */
     public static class LLVMLivenessAnalysisResult {
         private final ArrayList<NullerInformation>[] nullableWithinBlock;
-        private final BitSet[] nullableBeforeBlock;
-        private final BitSet[] nullableAfterBlock;
+        private final FixedBitSet[] nullableBeforeBlock;
+        private final FixedBitSet[] nullableAfterBlock;
 
-        public LLVMLivenessAnalysisResult(ArrayList<NullerInformation>[] nullableWithinBlock, BitSet[] nullableBeforeBlock, BitSet[] nullableAfterBlock) {
+        public LLVMLivenessAnalysisResult(ArrayList<NullerInformation>[] nullableWithinBlock, FixedBitSet[] nullableBeforeBlock, FixedBitSet[] nullableAfterBlock) {
             this.nullableWithinBlock = nullableWithinBlock;
             this.nullableBeforeBlock = nullableBeforeBlock;
             this.nullableAfterBlock = nullableAfterBlock;
@@ -763,11 +787,11 @@ public final class LLVMLivenessAnalysis {
             return nullableWithinBlock;
         }
 
-        public BitSet[] getNullableBeforeBlock() {
+        public FixedBitSet[] getNullableBeforeBlock() {
             return nullableBeforeBlock;
         }
 
-        public BitSet[] getNullableAfterBlock() {
+        public FixedBitSet[] getNullableAfterBlock() {
             return nullableAfterBlock;
         }
     }
@@ -53,6 +53,7 @@ import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor.LazyLLVMIRFunction
 import com.oracle.truffle.llvm.runtime.LLVMSymbol;
 import com.oracle.truffle.llvm.runtime.datalayout.DataLayout;
 import com.oracle.truffle.llvm.runtime.debug.LLVMSourceContext;
+import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceSymbol;
 import com.oracle.truffle.llvm.runtime.debug.value.LLVMDebugObjectBuilder;
 import com.oracle.truffle.llvm.runtime.except.LLVMLinkerException;
 import com.oracle.truffle.llvm.runtime.global.LLVMGlobal;
@@ -77,12 +78,17 @@ public final class LLVMParser {
         DataLayout targetDataLayout = new DataLayout(layout.getDataLayout());
         runtime.getContext().addDataLayout(targetDataLayout);
 
+        if (context.getEnv().getOptions().get(SulongEngineOption.ENABLE_LVI)) {
+            // the source-level values of all globals are registered when the module is linked
+            module.parseDebugInfo(context);
+        }
+
         List<GlobalVariable> externalGlobals = new ArrayList<>();
         List<GlobalVariable> definedGlobals = new ArrayList<>();
         List<FunctionSymbol> externalFunctions = new ArrayList<>();
         List<String> importedSymbols = new ArrayList<>();
 
-        defineGlobals(module.getGlobalVariables(), definedGlobals, externalGlobals, importedSymbols);
+        defineGlobals(module, definedGlobals, externalGlobals, importedSymbols);
         defineFunctions(module, externalFunctions, importedSymbols);
         defineAliases(module.getAliases(), importedSymbols);
 
@@ -92,13 +98,13 @@ public final class LLVMParser {
         return new LLVMParserResult(runtime, externalFunctions, definedGlobals, externalGlobals, importedSymbols);
     }
 
-    private void defineGlobals(List<GlobalVariable> globals, List<GlobalVariable> definedGlobals, List<GlobalVariable> externalGlobals, List<String> importedSymbols) {
-        for (GlobalVariable global : globals) {
+    private void defineGlobals(ModelModule model, List<GlobalVariable> definedGlobals, List<GlobalVariable> externalGlobals, List<String> importedSymbols) {
+        for (GlobalVariable global : model.getGlobalVariables()) {
             if (global.isExternal()) {
                 externalGlobals.add(global);
                 importedSymbols.add(global.getName());
             } else {
-                defineGlobal(global, importedSymbols);
+                defineGlobal(global, model, importedSymbols);
                 definedGlobals.add(global);
             }
         }
@@ -127,10 +133,15 @@ public final class LLVMParser {
         }
     }
 
-    private void defineGlobal(GlobalVariable global, List<String> importedSymbols) {
+    private void defineGlobal(GlobalVariable global, ModelModule model, List<String> importedSymbols) {
         assert !global.isExternal();
         // handle the file scope
-        LLVMGlobal descriptor = LLVMGlobal.create(context, global.getName(), global.getType(), global.getSourceSymbol(), global.isReadOnly());
+        LLVMGlobal descriptor;
+        if (model.isDebugInfoParsed()) {
+            descriptor = LLVMGlobal.create(context, global.getName(), global.getType(), global.getSourceSymbol(), global.isReadOnly());
+        } else {
+            descriptor = LLVMGlobal.createWithLazySourceSymbol(context, global.getName(), global.getType(), () -> getSourceSymbol(model, global), global.isReadOnly());
+        }
         descriptor.define(global.getType(), library);
         runtime.getFileScope().register(descriptor);
 
@@ -148,13 +159,21 @@ public final class LLVMParser {
         }
     }
 
+    private LLVMSourceSymbol getSourceSymbol(ModelModule model, GlobalVariable global) {
+        // the model is not thread-safe
+        synchronized (model) {
+            model.parseDebugInfo(context);
+            return global.getSourceSymbol();
+        }
+    }
+
     private void defineFunction(FunctionSymbol functionSymbol, ModelModule model, List<String> importedSymbols) {
         assert !functionSymbol.isExternal();
         // handle the file scope
         LLVMFunctionDescriptor descriptor = context.createFunctionDescriptor(functionSymbol.getName(), functionSymbol.getType());
         FunctionDefinition functionDefinition = (FunctionDefinition) functionSymbol;
         LazyToTruffleConverterImpl lazyConverter = new LazyToTruffleConverterImpl(runtime, functionDefinition, source, model.getFunctionParser(functionDefinition),
-                        model.getFunctionProcessor());
+                        model);
         Function function = new LazyLLVMIRFunction(lazyConverter);
         descriptor.define(library, function);
         runtime.getFileScope().register(descriptor);
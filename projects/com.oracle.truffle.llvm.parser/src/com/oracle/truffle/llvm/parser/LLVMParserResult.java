@@ -29,7 +29,10 @@
  */
 package com.oracle.truffle.llvm.parser;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import com.oracle.truffle.llvm.parser.model.functions.FunctionSymbol;
 import com.oracle.truffle.llvm.parser.model.symbols.globals.GlobalVariable;
@@ -41,6 +44,7 @@ public final class LLVMParserResult {
     private final List<GlobalVariable> definedGlobals;
     private final List<GlobalVariable> externalGlobals;
     private final List<String> importedSymbols;
+    private final Set<GlobalVariable> preinitializedGlobals = Collections.newSetFromMap(new IdentityHashMap<>());
 
     LLVMParserResult(LLVMParserRuntime runtime,
                     List<FunctionSymbol> externalFunctions,
@@ -73,4 +77,16 @@ public final class LLVMParserResult {
     public List<String> getImportedSymbols() {
         return importedSymbols;
     }
+
+    /**
+     * Marks a global whose initial value was already written to memory, so that it does not need
+     * an initialization node.
+     */
+    public void addPreinitializedGlobal(GlobalVariable global) {
+        preinitializedGlobals.add(global);
+    }
+
+    public boolean isPreinitialized(GlobalVariable global) {
+        return preinitializedGlobals.contains(global);
+    }
 }
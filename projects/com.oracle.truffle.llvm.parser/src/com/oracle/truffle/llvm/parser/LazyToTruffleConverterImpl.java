@@ -30,7 +30,6 @@
 package com.oracle.truffle.llvm.parser;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
@@ -43,22 +42,34 @@ import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.llvm.parser.LLVMLivenessAnalysis.LLVMLivenessAnalysisResult;
 import com.oracle.truffle.llvm.parser.LLVMPhiManager.Phi;
-import com.oracle.truffle.llvm.parser.metadata.debuginfo.DebugInfoFunctionProcessor;
+import com.oracle.truffle.llvm.parser.model.ModelModule;
+import com.oracle.truffle.llvm.parser.model.SymbolImpl;
 import com.oracle.truffle.llvm.parser.model.attributes.Attribute;
 import com.oracle.truffle.llvm.parser.model.attributes.Attribute.Kind;
 import com.oracle.truffle.llvm.parser.model.attributes.Attribute.KnownAttribute;
 import com.oracle.truffle.llvm.parser.model.blocks.InstructionBlock;
 import com.oracle.truffle.llvm.parser.model.functions.FunctionDefinition;
 import com.oracle.truffle.llvm.parser.model.functions.FunctionParameter;
+import com.oracle.truffle.llvm.parser.model.functions.FunctionSymbol;
 import com.oracle.truffle.llvm.parser.model.functions.LazyFunctionParser;
+import com.oracle.truffle.llvm.parser.model.symbols.instructions.CallInstruction;
+import com.oracle.truffle.llvm.parser.model.symbols.instructions.Instruction;
+import com.oracle.truffle.llvm.parser.model.symbols.instructions.InvokeInstruction;
+import com.oracle.truffle.llvm.parser.model.symbols.instructions.VoidCallInstruction;
+import com.oracle.truffle.llvm.parser.model.symbols.instructions.VoidInvokeInstruction;
 import com.oracle.truffle.llvm.parser.nodes.LLVMSymbolReadResolver;
+import com.oracle.truffle.llvm.parser.util.FixedBitSet;
 import com.oracle.truffle.llvm.runtime.GetStackSpaceFactory;
+import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor;
 import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor.LazyToTruffleConverter;
+import com.oracle.truffle.llvm.runtime.LLVMScope;
+import com.oracle.truffle.llvm.runtime.LLVMSymbol;
 import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceLocation;
 import com.oracle.truffle.llvm.runtime.debug.type.LLVMSourceFunctionType;
 import com.oracle.truffle.llvm.runtime.except.LLVMUserException;
 import com.oracle.truffle.llvm.runtime.memory.LLVMStack;
 import com.oracle.truffle.llvm.runtime.memory.LLVMStack.UniquesRegion;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMControlFlowNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
 import com.oracle.truffle.llvm.runtime.types.PointerType;
@@ -71,23 +82,53 @@ public class LazyToTruffleConverterImpl implements LazyToTruffleConverter {
     private final FunctionDefinition method;
     private final Source source;
     private final LazyFunctionParser parser;
-    private final DebugInfoFunctionProcessor diProcessor;
+    private final ModelModule model;
 
-    LazyToTruffleConverterImpl(LLVMParserRuntime runtime, FunctionDefinition method, Source source, LazyFunctionParser parser,
-                    DebugInfoFunctionProcessor diProcessor) {
+    private RootCallTarget callTarget;
+    private RuntimeException conversionError;
+    private List<LLVMFunctionDescriptor> callees;
+
+    LazyToTruffleConverterImpl(LLVMParserRuntime runtime, FunctionDefinition method, Source source, LazyFunctionParser parser, ModelModule model) {
         this.runtime = runtime;
         this.method = method;
         this.source = source;
         this.parser = parser;
-        this.diProcessor = diProcessor;
+        this.model = model;
     }
 
     @Override
-    public RootCallTarget convert() {
+    public synchronized RootCallTarget convert() {
         CompilerAsserts.neverPartOfCompilation();
 
-        // parse the function block
-        parser.parse(diProcessor, source, runtime);
+        // the function might also be converted speculatively by a background thread
+        if (conversionError != null) {
+            throw conversionError;
+        }
+        if (callTarget == null) {
+            try {
+                if (model.isShared()) {
+                    // the parsed function is shared with other contexts, which must not build
+                    // their call targets from it at the same time
+                    synchronized (model) {
+                        callTarget = doConvert();
+                    }
+                } else {
+                    callTarget = doConvert();
+                }
+            } catch (RuntimeException e) {
+                conversionError = e;
+                throw e;
+            }
+        }
+        return callTarget;
+    }
+
+    private RootCallTarget doConvert() {
+        // parse the function block, the module-level debug information is decoded on first use;
+        // the functions of a module share its symbol table, so they are parsed one at a time
+        synchronized (model) {
+            parser.parse(model.getFunctionProcessor(), source, runtime);
+        }
 
         // prepare the phis
         final Map<InstructionBlock, List<Phi>> phis = LLVMPhiManager.getPhis(method);
@@ -115,12 +156,16 @@ public class LazyToTruffleConverterImpl implements LazyToTruffleConverter {
 
         List<LLVMStatementNode> copyArgumentsToFrame = copyArgumentsToFrame(frame);
         LLVMStatementNode[] copyArgumentsToFrameArray = copyArgumentsToFrame.toArray(new LLVMStatementNode[copyArgumentsToFrame.size()]);
-        LLVMExpressionNode body = runtime.getContext().getNodeFactory().createFunctionBlockNode(frame.findFrameSlot(LLVMUserException.FRAME_SLOT_ID), visitor.getBlocks(), uniquesRegion.build(),
-                        nullableBeforeBlock, nullableAfterBlock, location, copyArgumentsToFrameArray);
+        LLVMExpressionNode body = runtime.getContext().getNodeFactory().createFunctionBlockNode(frame.findFrameSlot(LLVMUserException.FRAME_SLOT_ID),
+                        frame.findFrameSlot(LLVMControlFlowNode.LOOP_SUCCESSOR_FRAME_SLOT_ID), visitor.getBlocks(), uniquesRegion.build(), nullableBeforeBlock, nullableAfterBlock, location,
+                        copyArgumentsToFrameArray);
 
         RootNode rootNode = runtime.getContext().getNodeFactory().createFunctionStartNode(body, frame, method.getName(), method.getSourceName(),
                         method.getParameters().size(), source, location);
-        method.onAfterParse();
+        callees = collectCallees();
+        if (!model.isShared()) {
+            method.onAfterParse();
+        }
 
         return Truffle.getRuntime().createCallTarget(rootNode);
     }
@@ -130,12 +175,49 @@ public class LazyToTruffleConverterImpl implements LazyToTruffleConverter {
         return method.getSourceFunction().getSourceType();
     }
 
-    private static FrameSlot[][] getNullableFrameSlots(FrameDescriptor frame, BitSet[] nullablePerBlock, List<FrameSlot> notNullable) {
+    @Override
+    public synchronized List<LLVMFunctionDescriptor> getCallees() {
+        assert callTarget != null : "the function must be converted first";
+        return callees;
+    }
+
+    private List<LLVMFunctionDescriptor> collectCallees() {
+        List<LLVMFunctionDescriptor> result = new ArrayList<>();
+        for (InstructionBlock block : method.getBlocks()) {
+            for (int i = 0; i < block.getInstructionCount(); i++) {
+                SymbolImpl target = getCallTarget(block.getInstruction(i));
+                if (target instanceof FunctionSymbol) {
+                    FunctionSymbol function = (FunctionSymbol) target;
+                    LLVMScope scope = function.isOverridable() ? runtime.getGlobalScope() : runtime.getFileScope();
+                    LLVMSymbol callee = scope.get(function.getName());
+                    if (callee != null && callee.isFunction()) {
+                        result.add(callee.asFunction());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static SymbolImpl getCallTarget(Instruction instruction) {
+        if (instruction instanceof CallInstruction) {
+            return ((CallInstruction) instruction).getCallTarget();
+        } else if (instruction instanceof VoidCallInstruction) {
+            return ((VoidCallInstruction) instruction).getCallTarget();
+        } else if (instruction instanceof InvokeInstruction) {
+            return ((InvokeInstruction) instruction).getCallTarget();
+        } else if (instruction instanceof VoidInvokeInstruction) {
+            return ((VoidInvokeInstruction) instruction).getCallTarget();
+        }
+        return null;
+    }
+
+    private static FrameSlot[][] getNullableFrameSlots(FrameDescriptor frame, FixedBitSet[] nullablePerBlock, List<FrameSlot> notNullable) {
         List<? extends FrameSlot> frameSlots = frame.getSlots();
         FrameSlot[][] result = new FrameSlot[nullablePerBlock.length][];
 
         for (int i = 0; i < nullablePerBlock.length; i++) {
-            BitSet nullable = nullablePerBlock[i];
+            FixedBitSet nullable = nullablePerBlock[i];
             int bitIndex = -1;
 
             ArrayList<FrameSlot> nullableSlots = new ArrayList<>();
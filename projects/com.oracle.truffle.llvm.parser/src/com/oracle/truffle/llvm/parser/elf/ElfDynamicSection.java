@@ -33,7 +33,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
-import org.graalvm.polyglot.io.ByteSequence;
+
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
 
 public final class ElfDynamicSection {
 
@@ -63,7 +64,7 @@ public final class ElfDynamicSection {
     }
 
     private final Entry[] entries;
-    private final ByteSequence buffer;
+    private final BinaryInput buffer;
 
     private ElfDynamicSection(ElfSectionHeaderTable sht, Entry[] entries, ElfReader buffer) {
         this.entries = entries;
@@ -98,7 +99,7 @@ public final class ElfDynamicSection {
         if (size == 0) {
             return new Entry[0];
         }
-        buffer.setPosition((int) offset);
+        buffer.setPosition(offset);
 
         // load each of the section header entries
         List<Entry> entries = new ArrayList<>();
@@ -136,11 +137,11 @@ public final class ElfDynamicSection {
     }
 
     private String getString(long offset) {
-        if (buffer.length() == 0) {
+        if (buffer.size() == 0) {
             return "";
         }
 
-        int pos = (int) offset;
+        long pos = offset;
         StringBuilder sb = new StringBuilder();
 
         byte b = buffer.byteAt(pos++);
@@ -29,7 +29,7 @@
  */
 package com.oracle.truffle.llvm.parser.elf;
 
-import org.graalvm.polyglot.io.ByteSequence;
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
 
 public final class ElfFile {
 
@@ -44,7 +44,7 @@ public final class ElfFile {
         this.dynamicSection = dynamicSection;
     }
 
-    public static ElfFile create(ByteSequence data) {
+    public static ElfFile create(BinaryInput data) {
         ElfReader reader = new ElfReader(data);
 
         ElfHeader header = ElfHeader.create(reader);
@@ -29,7 +29,7 @@
  */
 package com.oracle.truffle.llvm.parser.elf;
 
-import org.graalvm.polyglot.io.ByteSequence;
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
 
 public final class ElfReader {
 
@@ -39,13 +39,13 @@ public final class ElfReader {
     private static final int ELFDATA2MSB = 2;
     private static final int ELFCLASS64 = 2;
 
-    private final ByteSequence byteSequence;
+    private final BinaryInput byteSequence;
     private final boolean bigEndian;
     private final boolean is64Bit;
 
-    private int position;
+    private long position;
 
-    ElfReader(ByteSequence byteSequence) {
+    ElfReader(BinaryInput byteSequence) {
         checkIdent(byteSequence);
 
         this.byteSequence = byteSequence;
@@ -55,7 +55,7 @@ public final class ElfReader {
         setPosition(EI_NIDENT);
     }
 
-    public void setPosition(int position) {
+    public void setPosition(long position) {
         this.position = position;
     }
 
@@ -112,26 +112,26 @@ public final class ElfReader {
         }
     }
 
-    public ByteSequence getStringTable(long offset, long size) {
-        return byteSequence.subSequence((int) offset, (int) (offset + size));
+    public BinaryInput getStringTable(long offset, long size) {
+        return byteSequence.subSequence(offset, offset + size);
     }
 
-    private static boolean isBigEndian(ByteSequence ident) {
+    private static boolean isBigEndian(BinaryInput ident) {
         return ident.byteAt(EI_DATA) == ELFDATA2MSB;
     }
 
-    private static boolean is64Bit(ByteSequence ident) {
+    private static boolean is64Bit(BinaryInput ident) {
         return ident.byteAt(EI_CLASS) == ELFCLASS64;
     }
 
-    private static void checkIdent(ByteSequence ident) {
+    private static void checkIdent(BinaryInput ident) {
         checkIndentByte(ident, 0, 0x7f);
         checkIndentByte(ident, 1, 'E');
         checkIndentByte(ident, 2, 'L');
         checkIndentByte(ident, 3, 'F');
     }
 
-    private static void checkIndentByte(ByteSequence ident, int ind, int val) {
+    private static void checkIndentByte(BinaryInput ident, int ind, int val) {
         if (ident.byteAt(ind) != val) {
             throw new IllegalArgumentException("Invalid ELF file!");
         }
@@ -31,7 +31,8 @@ package com.oracle.truffle.llvm.parser.elf;
 
 import java.util.HashMap;
 import java.util.Map;
-import org.graalvm.polyglot.io.ByteSequence;
+
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
 
 public final class ElfSectionHeaderTable {
     private static final int ELF32_SHTENT_SIZE = 40;
@@ -134,9 +135,9 @@ public final class ElfSectionHeaderTable {
 
     private final Entry[] entries;
     private final Map<Integer, String> stringMap;
-    private final ByteSequence stringTable;
+    private final BinaryInput stringTable;
 
-    private ElfSectionHeaderTable(Entry[] entries, ByteSequence stringTable) {
+    private ElfSectionHeaderTable(Entry[] entries, BinaryInput stringTable) {
         this.entries = entries;
         this.stringMap = new HashMap<>();
         this.stringTable = stringTable;
@@ -144,13 +145,13 @@ public final class ElfSectionHeaderTable {
 
     public static ElfSectionHeaderTable create(ElfHeader header, ElfReader buffer) {
         Entry[] entries = new Entry[header.getShnum()];
-        buffer.setPosition((int) header.getShoff());
+        buffer.setPosition(header.getShoff());
         for (int cntr = 0; cntr < entries.length; cntr++) {
             entries[cntr] = readEntry(header, buffer);
         }
 
         // read string table
-        ByteSequence data = null;
+        BinaryInput data = null;
         if (header.getShstrndx() < entries.length) {
             Entry e = entries[header.getShstrndx()];
             if (e.getSize() > 0) {
@@ -174,13 +175,13 @@ public final class ElfSectionHeaderTable {
     }
 
     private String getString(int ind) {
-        if (stringTable == null || ind >= stringTable.length()) {
+        if (stringTable == null || ind >= stringTable.size()) {
             return "";
         }
         String str = stringMap.get(ind);
         if (str == null) {
             final StringBuilder buf = new StringBuilder();
-            int pos = ind;
+            long pos = ind;
             byte b = stringTable.byteAt(pos++);
             while (b != 0) {
                 buf.append((char) b);
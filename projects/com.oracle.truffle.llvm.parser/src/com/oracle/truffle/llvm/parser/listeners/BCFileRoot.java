@@ -39,7 +39,6 @@ import com.oracle.truffle.llvm.parser.model.symbols.globals.GlobalValueSymbol;
 import com.oracle.truffle.llvm.parser.scanner.Block;
 import com.oracle.truffle.llvm.parser.text.LLSourceBuilder;
 import com.oracle.truffle.llvm.parser.util.SymbolNameMangling;
-import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.types.symbols.LLVMIdentifier;
 
 public final class BCFileRoot implements ParserListener {
@@ -70,11 +69,12 @@ public final class BCFileRoot implements ParserListener {
         }
     }
 
-    public void exit(LLVMContext context) {
+    public void exit() {
         int globalIndex = setMissingNames(module.getGlobalVariables(), 0);
         setMissingNames(module.getAliases(), globalIndex);
         SymbolNameMangling.demangleGlobals(module);
-        DebugInfoModuleProcessor.processModule(module, scope.getMetadata(), context);
+        module.setDebugInfoParser(() -> DebugInfoModuleProcessor.createFunctionProcessor(module, scope.getMetadata()),
+                        (functionProcessor, context) -> DebugInfoModuleProcessor.processModule(module, scope.getMetadata(), functionProcessor, context));
     }
 
     private static int setMissingNames(List<? extends GlobalValueSymbol> globals, int startIndex) {
@@ -32,6 +32,7 @@ package com.oracle.truffle.llvm.parser.listeners;
 import java.util.LinkedList;
 
 import com.oracle.truffle.llvm.parser.model.IRScope;
+import com.oracle.truffle.llvm.parser.model.LazyMetadataParser;
 import com.oracle.truffle.llvm.parser.model.ModelModule;
 import com.oracle.truffle.llvm.parser.model.ValueSymbol;
 import com.oracle.truffle.llvm.parser.model.attributes.AttributesCodeEntry;
@@ -144,6 +145,7 @@ public final class Module implements ParserListener {
     private static final int GLOBALVAR_LINKAGE = 3;
     private static final int GLOBALVAR_ALIGN = 4;
     private static final int GLOBALVAR_VISIBILITY = 6;
+    private static final int GLOBALVAR_THREADLOCAL = 7;
 
     private void createGlobalVariable(long[] args) {
         final int recordOffset = useStrTab() ? STRTAB_RECORD_OFFSET : 0;
@@ -165,7 +167,13 @@ public final class Module implements ParserListener {
             visibility = args[GLOBALVAR_VISIBILITY + recordOffset];
         }
 
-        GlobalVariable global = GlobalVariable.create(isConstant, (PointerType) type, align, linkage, visibility, scope.getSymbols(), initialiser);
+        // any non-zero value denotes one of the thread-local storage models
+        boolean isThreadLocal = false;
+        if (GLOBALVAR_THREADLOCAL + recordOffset < args.length) {
+            isThreadLocal = args[GLOBALVAR_THREADLOCAL + recordOffset] != 0;
+        }
+
+        GlobalVariable global = GlobalVariable.create(isConstant, isThreadLocal, (PointerType) type, align, linkage, visibility, scope.getSymbols(), initialiser);
         if (useStrTab()) {
             readNameFromStrTab(args, global);
         }
@@ -254,6 +262,9 @@ public final class Module implements ParserListener {
             final Function parser = new Function(scope, types, definition, mode, paramAttributes);
             module.addFunctionParser(definition, new LazyFunctionParser(lazyScanner, parser, llSource));
 
+        } else if (block == Block.METADATA) {
+            module.addMetadataParser(new LazyMetadataParser(lazyScanner, new Metadata(types, scope)));
+
         } else {
             ParserListener.super.skip(block, lazyScanner);
         }
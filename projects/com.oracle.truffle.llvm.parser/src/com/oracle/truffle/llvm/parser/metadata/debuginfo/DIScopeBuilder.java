@@ -222,9 +222,9 @@ final class DIScopeBuilder {
     private final HashMap<String, Source> sources;
     private final MetadataValueList metadata;
     private final FileExtractor fileExtractor;
-    private final LLVMContext context;
+    private LLVMContext context;
 
-    DIScopeBuilder(MetadataValueList metadata, LLVMContext context) {
+    DIScopeBuilder(MetadataValueList metadata) {
         this.metadata = metadata;
         this.fileExtractor = new FileExtractor();
         this.globalCache = new HashMap<>();
@@ -232,6 +232,10 @@ final class DIScopeBuilder {
         this.sourceFiles = new HashMap<>();
         this.sources = new HashMap<>();
         this.paths = new HashMap<>();
+        this.context = null;
+    }
+
+    void setContext(LLVMContext context) {
         this.context = context;
     }
 
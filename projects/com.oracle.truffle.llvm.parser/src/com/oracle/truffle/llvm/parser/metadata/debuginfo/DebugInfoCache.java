@@ -58,12 +58,20 @@ final class DebugInfoCache {
     private final DIScopeBuilder scopeBuilder;
     private final DITypeExtractor typeExtractor;
 
-    DebugInfoCache(MetadataValueList metadata, Map<LLVMSourceStaticMemberType, SymbolImpl> staticMembers, LLVMContext context) {
+    DebugInfoCache(MetadataValueList metadata, Map<LLVMSourceStaticMemberType, SymbolImpl> staticMembers) {
         this.parsedVariables = new HashMap<>();
-        this.scopeBuilder = new DIScopeBuilder(metadata, context);
+        this.scopeBuilder = new DIScopeBuilder(metadata);
         this.typeExtractor = new DITypeExtractor(scopeBuilder, metadata, staticMembers);
     }
 
+    /**
+     * Sets the context that source files are resolved in. The debug information of a module may
+     * be shared by several contexts, so the context is only set while it is being processed.
+     */
+    void setContext(LLVMContext context) {
+        scopeBuilder.setContext(context);
+    }
+
     LLVMSourceSymbol getSourceSymbol(MDBaseNode mdVariable, boolean isStatic) {
         if (parsedVariables.containsKey(mdVariable)) {
             return parsedVariables.get(mdVariable);
@@ -91,15 +91,24 @@ public final class DebugInfoFunctionProcessor {
         this.cache = cache;
     }
 
+    DebugInfoCache getCache() {
+        return cache;
+    }
+
     public void process(FunctionDefinition function, IRScope scope, Source bitcodeSource, LLVMContext context) {
-        ImportsProcessor.process(scope.getMetadata(), context, cache);
-        initSourceFunction(function, bitcodeSource);
-        function.accept((FunctionVisitor) new SymbolProcessor(function.getSourceFunction()));
-        scope.getMetadata().consumeLocals(new MetadataProcessor());
-        for (SourceVariable local : function.getSourceFunction().getVariables()) {
-            local.processFragments();
+        cache.setContext(context);
+        try {
+            ImportsProcessor.process(scope.getMetadata(), context, cache);
+            initSourceFunction(function, bitcodeSource);
+            function.accept((FunctionVisitor) new SymbolProcessor(function.getSourceFunction()));
+            scope.getMetadata().consumeLocals(new MetadataProcessor());
+            for (SourceVariable local : function.getSourceFunction().getVariables()) {
+                local.processFragments();
+            }
+            cache.endLocalScope();
+        } finally {
+            cache.setContext(null);
         }
-        cache.endLocalScope();
     }
 
     private void initSourceFunction(FunctionDefinition function, Source bitcodeSource) {
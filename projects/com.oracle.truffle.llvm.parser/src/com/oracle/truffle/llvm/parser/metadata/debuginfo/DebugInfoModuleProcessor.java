@@ -65,11 +65,26 @@ public final class DebugInfoModuleProcessor {
     private DebugInfoModuleProcessor() {
     }
 
-    public static void processModule(ModelModule irModel, MetadataValueList metadata, LLVMContext context) {
+    /**
+     * Prepares processing the debug information of single functions. This requires the metadata of
+     * the module to be decoded, but does not yet process the source-level globals of the module.
+     */
+    public static DebugInfoFunctionProcessor createFunctionProcessor(ModelModule irModel, MetadataValueList metadata) {
         MDUpgrade.perform(metadata);
+        return new DebugInfoFunctionProcessor(new DebugInfoCache(metadata, irModel.getSourceStaticMembers()));
+    }
 
-        final DebugInfoCache cache = new DebugInfoCache(metadata, irModel.getSourceStaticMembers(), context);
+    public static void processModule(ModelModule irModel, MetadataValueList metadata, DebugInfoFunctionProcessor functionProcessor, LLVMContext context) {
+        final DebugInfoCache cache = functionProcessor.getCache();
+        cache.setContext(context);
+        try {
+            processModule(irModel, metadata, cache, context);
+        } finally {
+            cache.setContext(null);
+        }
+    }
 
+    private static void processModule(ModelModule irModel, MetadataValueList metadata, DebugInfoCache cache, LLVMContext context) {
         ImportsProcessor.process(metadata, context, cache);
 
         final Map<LLVMSourceSymbol, SymbolImpl> globals = irModel.getSourceGlobals();
@@ -82,8 +97,6 @@ public final class DebugInfoModuleProcessor {
         if (cuNode != null) {
             cuNode.accept(mdParser);
         }
-
-        irModel.setFunctionProcessor(new DebugInfoFunctionProcessor(cache));
     }
 
     private static final class SymbolProcessor implements ModelVisitor {
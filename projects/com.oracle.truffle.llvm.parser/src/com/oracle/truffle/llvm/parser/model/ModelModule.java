@@ -34,6 +34,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import com.oracle.truffle.llvm.parser.metadata.debuginfo.DebugInfoFunctionProcessor;
 import com.oracle.truffle.llvm.parser.model.functions.FunctionDeclaration;
@@ -45,6 +47,7 @@ import com.oracle.truffle.llvm.parser.model.symbols.globals.GlobalVariable;
 import com.oracle.truffle.llvm.parser.model.target.TargetDataLayout;
 import com.oracle.truffle.llvm.parser.model.target.TargetInformation;
 import com.oracle.truffle.llvm.parser.model.visitors.ModelVisitor;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.debug.type.LLVMSourceStaticMemberType;
 import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceSymbol;
 import com.oracle.truffle.llvm.runtime.types.Type;
@@ -67,7 +70,11 @@ public final class ModelModule {
     private final Map<LLVMSourceStaticMemberType, SymbolImpl> sourceStaticMembers = new HashMap<>();
     private final Map<FunctionDefinition, LazyFunctionParser> lazyFunctionParsers = new HashMap<>();
     private TargetDataLayout targetDataLayout = defaultLayout;
+    private final List<LazyMetadataParser> lazyMetadataParsers = new ArrayList<>();
+    private Supplier<DebugInfoFunctionProcessor> functionProcessorFactory = null;
+    private BiConsumer<DebugInfoFunctionProcessor, LLVMContext> debugInfoParser = null;
     private DebugInfoFunctionProcessor functionProcessor = null;
+    private volatile boolean shared = false;
 
     public ModelModule() {
     }
@@ -150,12 +157,69 @@ public final class ModelModule {
         return sourceStaticMembers;
     }
 
-    public DebugInfoFunctionProcessor getFunctionProcessor() {
+    public void addMetadataParser(LazyMetadataParser parser) {
+        lazyMetadataParsers.add(parser);
+    }
+
+    /**
+     * Defers decoding the module-level metadata and processing the debug information of this
+     * module until it is first needed. Converting a function only requires the decoded metadata
+     * and the function processor, while the source-level globals, static members and imported
+     * scopes of the whole module are only processed by {@link #parseDebugInfo(LLVMContext)}.
+     */
+    public synchronized void setDebugInfoParser(Supplier<DebugInfoFunctionProcessor> functionProcessorFactory, BiConsumer<DebugInfoFunctionProcessor, LLVMContext> debugInfoParser) {
+        this.functionProcessorFactory = functionProcessorFactory;
+        this.debugInfoParser = debugInfoParser;
+    }
+
+    public synchronized boolean isMetadataParsed() {
+        return lazyMetadataParsers.isEmpty();
+    }
+
+    public synchronized boolean isDebugInfoParsed() {
+        return debugInfoParser == null;
+    }
+
+    /**
+     * @param context the context that requests the debug information, source files are resolved
+     *            in this context
+     */
+    public synchronized void parseDebugInfo(LLVMContext context) {
+        if (debugInfoParser != null) {
+            final BiConsumer<DebugInfoFunctionProcessor, LLVMContext> parser = debugInfoParser;
+            debugInfoParser = null;
+            parser.accept(getFunctionProcessor(), context);
+        }
+    }
+
+    public synchronized DebugInfoFunctionProcessor getFunctionProcessor() {
+        if (functionProcessorFactory != null) {
+            final Supplier<DebugInfoFunctionProcessor> factory = functionProcessorFactory;
+            functionProcessorFactory = null;
+            parseMetadata();
+            functionProcessor = factory.get();
+        }
         return functionProcessor;
     }
 
-    public void setFunctionProcessor(DebugInfoFunctionProcessor functionProcessor) {
-        this.functionProcessor = functionProcessor;
+    /**
+     * Marks this module as shared by several contexts of the same engine. The parsed function
+     * bodies of a shared module are kept, so that every context can build its own call targets from
+     * them.
+     */
+    public void setShared() {
+        shared = true;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    private void parseMetadata() {
+        for (LazyMetadataParser metadataParser : lazyMetadataParsers) {
+            metadataParser.parse();
+        }
+        lazyMetadataParsers.clear();
     }
 
     @Override
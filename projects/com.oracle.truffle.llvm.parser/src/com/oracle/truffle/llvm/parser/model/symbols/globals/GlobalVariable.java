@@ -39,10 +39,12 @@ import com.oracle.truffle.llvm.runtime.types.PointerType;
 public final class GlobalVariable extends GlobalValueSymbol {
 
     private final boolean isReadOnly;
+    private final boolean isThreadLocal;
 
-    private GlobalVariable(boolean isReadOnly, PointerType type, int align, Linkage linkage, Visibility visibility, SymbolTable symbolTable, int value) {
+    private GlobalVariable(boolean isReadOnly, boolean isThreadLocal, PointerType type, int align, Linkage linkage, Visibility visibility, SymbolTable symbolTable, int value) {
         super(type, align, linkage, visibility, symbolTable, value);
         this.isReadOnly = isReadOnly;
+        this.isThreadLocal = isThreadLocal;
     }
 
     @Override
@@ -59,7 +61,11 @@ public final class GlobalVariable extends GlobalValueSymbol {
         return isReadOnly;
     }
 
-    public static GlobalVariable create(boolean isReadOnly, PointerType type, int align, long linkage, long visibility, SymbolTable symbolTable, int value) {
-        return new GlobalVariable(isReadOnly, type, align, Linkage.decode(linkage), Visibility.decode(visibility), symbolTable, value);
+    public boolean isThreadLocal() {
+        return isThreadLocal;
+    }
+
+    public static GlobalVariable create(boolean isReadOnly, boolean isThreadLocal, PointerType type, int align, long linkage, long visibility, SymbolTable symbolTable, int value) {
+        return new GlobalVariable(isReadOnly, isThreadLocal, type, align, Linkage.decode(linkage), Visibility.decode(visibility), symbolTable, value);
     }
 }
@@ -442,9 +442,14 @@ public final class LLVMSymbolReadResolver {
         LLVMExpressionNode currentAddress = resolve(base);
         Type currentType = base.getType();
 
+        // all constant indices are folded into a single offset, so that one node adds the offset
+        // and at most one scaled dynamic index
+        LLVMExpressionNode dynamicIndex = null;
+        long dynamicIndexTypeLength = 0;
+        long constantOffset = 0;
+
         for (int i = 0, indicesSize = indices.size(); i < indicesSize; i++) {
             final SymbolImpl indexSymbol = indices.get(i);
-            final Type indexType = indexSymbol.getType();
 
             final Long indexInteger = evaluateLongIntegerConstant(indexSymbol);
             if (indexInteger == null) {
@@ -453,34 +458,26 @@ public final class LLVMSymbolReadResolver {
                     // according to http://llvm.org/docs/LangRef.html#getelementptr-instruction
                     throw new IllegalStateException("Indices on structs must be constant integers!");
                 }
+                if (dynamicIndex != null) {
+                    // a node can only add one dynamic index
+                    currentAddress = nodeFactory.createTypedElementPointer(currentAddress, dynamicIndex, dynamicIndexTypeLength, constantOffset, currentType);
+                    constantOffset = 0;
+                }
                 AggregateType aggregate = (AggregateType) currentType;
-                final long indexedTypeLength = context.getIndexOffset(1, aggregate);
+                dynamicIndexTypeLength = context.getIndexOffset(1, aggregate);
+                dynamicIndex = resolve(indexSymbol);
                 currentType = aggregate.getElementType(1);
-                final LLVMExpressionNode indexNode = resolve(indexSymbol);
-                currentAddress = nodeFactory.createTypedElementPointer(currentAddress, indexNode, indexedTypeLength, currentType);
             } else {
                 // the index is a constant integer
                 AggregateType aggregate = (AggregateType) currentType;
-                final long addressOffset = context.getIndexOffset(indexInteger, aggregate);
+                constantOffset += context.getIndexOffset(indexInteger, aggregate);
                 currentType = aggregate.getElementType(indexInteger);
-
-                // creating a pointer inserts type information, this needs to happen for the address
-                // computed by getelementptr even if it is the same as the basepointer
-                if (addressOffset != 0 || i == indicesSize - 1) {
-                    final LLVMExpressionNode indexNode;
-                    if (indexType == PrimitiveType.I32) {
-                        indexNode = nodeFactory.createLiteral(1, PrimitiveType.I32);
-                    } else if (indexType == PrimitiveType.I64) {
-                        indexNode = nodeFactory.createLiteral(1L, PrimitiveType.I64);
-                    } else {
-                        throw new AssertionError(indexType);
-                    }
-                    currentAddress = nodeFactory.createTypedElementPointer(currentAddress, indexNode, addressOffset, currentType);
-                }
             }
         }
 
-        return currentAddress;
+        // creating a pointer inserts type information, this needs to happen for the address
+        // computed by getelementptr even if it is the same as the basepointer
+        return nodeFactory.createTypedElementPointer(currentAddress, dynamicIndex, dynamicIndexTypeLength, constantOffset, currentType);
     }
 
     public LLVMExpressionNode resolve(SymbolImpl symbol) {
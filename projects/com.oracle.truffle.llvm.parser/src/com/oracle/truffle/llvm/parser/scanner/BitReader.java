@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.parser.scanner;
+
+import org.graalvm.polyglot.io.ByteSequence;
+
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
+import com.oracle.truffle.llvm.runtime.except.LLVMParserException;
+
+/**
+ * Sequential reader for LLVM bitstreams. Instead of assembling every field from single bytes, the
+ * reader keeps up to 64 not yet consumed bits in a cursor word that is refilled with one 64-bit
+ * load from the underlying input. Most fields can then be extracted with a shift and a mask.
+ */
+public final class BitReader {
+
+    private static final int BYTE_BITS_SHIFT = 3;
+    private static final int BYTE_BITS_MASK = 0x7;
+    private static final long BYTE_MASK = 0xffL;
+
+    private static final byte[] CHAR6 = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789._".getBytes();
+
+    private static final int VBR6_WIDTH = 6;
+    private static final long VBR6_CONTINUATION = 1L << (VBR6_WIDTH - 1);
+    private static final int VBR8_WIDTH = 8;
+    private static final long VBR8_CONTINUATION = 1L << (VBR8_WIDTH - 1);
+
+    private final BinaryInput input;
+    private final long limit;
+
+    /** The bits that have been loaded from the input but not yet consumed, starting at bit 0. */
+    private long word;
+    /** The number of valid bits in {@link #word}. */
+    private int wordBits;
+    /** The index of the next byte to load into {@link #word}. */
+    private long nextByte;
+
+    private BitReader(BinaryInput input) {
+        this.input = input;
+        this.limit = input.size();
+        this.word = 0;
+        this.wordBits = 0;
+        this.nextByte = 0;
+    }
+
+    public static BitReader create(ByteSequence bytes) {
+        return new BitReader(BinaryInput.create(bytes));
+    }
+
+    public static BitReader create(BinaryInput input) {
+        return new BitReader(input);
+    }
+
+    /**
+     * @return the size of the bitstream in bits
+     */
+    public long size() {
+        return limit * Byte.SIZE;
+    }
+
+    /**
+     * @return the offset of the next bit to read
+     */
+    public long getPosition() {
+        return nextByte * Byte.SIZE - wordBits;
+    }
+
+    public void setPosition(long offset) {
+        nextByte = offset >>> BYTE_BITS_SHIFT;
+        word = 0;
+        wordBits = 0;
+        int bitsInByte = (int) (offset & BYTE_BITS_MASK);
+        if (bitsInByte != 0) {
+            refill();
+            if (wordBits < bitsInByte) {
+                throw unexpectedEnd();
+            }
+            consume(bitsInByte);
+        }
+    }
+
+    public void skip(long bits) {
+        if (bits <= wordBits) {
+            consume((int) bits);
+        } else {
+            setPosition(getPosition() + bits);
+        }
+    }
+
+    /**
+     * Skips to the next multiple of {@code alignment} bits, which must be a power of two.
+     */
+    public void align(int alignment) {
+        long position = getPosition();
+        long mask = alignment - 1;
+        if ((position & mask) != 0) {
+            skip(alignment - (position & mask));
+        }
+    }
+
+    /**
+     * Reads a fixed-width field of up to 64 bits.
+     */
+    public long read(int bits) {
+        assert bits > 0 && bits <= Long.SIZE;
+        if (bits <= wordBits) {
+            long value = word & mask(bits);
+            consume(bits);
+            return value;
+        }
+        return readSlow(bits);
+    }
+
+    private long readSlow(int bits) {
+        // the field spans the current word and the next one
+        long low = word;
+        int lowBits = wordBits;
+        word = 0;
+        wordBits = 0;
+        refill();
+
+        int highBits = bits - lowBits;
+        if (wordBits < highBits) {
+            throw unexpectedEnd();
+        }
+        long high = word & mask(highBits);
+        consume(highBits);
+        return low | (high << lowBits);
+    }
+
+    /**
+     * Reads a variable bit rate field with chunks of {@code width} bits.
+     */
+    public long readVBR(int width) {
+        switch (width) {
+            case VBR6_WIDTH:
+                return readVBR6();
+            case VBR8_WIDTH:
+                return readVBR8();
+            default:
+                long continuation = 1L << (width - 1);
+                long chunk = read(width);
+                if ((chunk & continuation) == 0) {
+                    return chunk;
+                }
+                return readVBRSlow(chunk, width);
+        }
+    }
+
+    public long readVBR6() {
+        long chunk = read(VBR6_WIDTH);
+        if ((chunk & VBR6_CONTINUATION) == 0) {
+            return chunk;
+        }
+        return readVBRSlow(chunk, VBR6_WIDTH);
+    }
+
+    public long readVBR8() {
+        long chunk = read(VBR8_WIDTH);
+        if ((chunk & VBR8_CONTINUATION) == 0) {
+            return chunk;
+        }
+        return readVBRSlow(chunk, VBR8_WIDTH);
+    }
+
+    private long readVBRSlow(long firstChunk, int width) {
+        long continuation = 1L << (width - 1);
+        long payloadMask = continuation - 1;
+        long value = firstChunk & payloadMask;
+        int shift = width - 1;
+        long chunk;
+        do {
+            chunk = read(width);
+            value |= (chunk & payloadMask) << shift;
+            shift += width - 1;
+        } while ((chunk & continuation) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a 6-bit character and decodes it.
+     */
+    public long readChar6() {
+        return CHAR6[(int) read(Primitive.CHAR6.getBits())];
+    }
+
+    private void consume(int bits) {
+        word = bits == Long.SIZE ? 0 : word >>> bits;
+        wordBits -= bits;
+    }
+
+    private void refill() {
+        if (nextByte <= limit - Long.BYTES) {
+            // load as many whole bytes as fit into the word at once
+            int bytes = (Long.SIZE - wordBits) >>> BYTE_BITS_SHIFT;
+            long loaded = input.getLong(nextByte);
+            if (bytes < Long.BYTES) {
+                loaded &= mask(bytes * Byte.SIZE);
+            }
+            word |= loaded << wordBits;
+            wordBits += bytes * Byte.SIZE;
+            nextByte += bytes;
+        } else {
+            while (wordBits <= Long.SIZE - Byte.SIZE && nextByte < limit) {
+                word |= (input.byteAt(nextByte++) & BYTE_MASK) << wordBits;
+                wordBits += Byte.SIZE;
+            }
+        }
+    }
+
+    private static long mask(int bits) {
+        return bits == Long.SIZE ? -1L : (1L << bits) - 1;
+    }
+
+    private static LLVMParserException unexpectedEnd() {
+        return new LLVMParserException("Unexpected end of bitstream!");
+    }
+}
@@ -30,6 +30,7 @@
 
 package com.oracle.truffle.llvm.parser.scanner;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -45,14 +46,13 @@ import com.oracle.truffle.llvm.parser.elf.ElfSectionHeaderTable.Entry;
 import com.oracle.truffle.llvm.parser.listeners.BCFileRoot;
 import com.oracle.truffle.llvm.parser.listeners.ParserListener;
 import com.oracle.truffle.llvm.parser.model.ModelModule;
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
 import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.except.LLVMParserException;
 import org.graalvm.polyglot.io.ByteSequence;
 
 public final class LLVMScanner {
 
-    private static final String CHAR6 = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789._";
-
     private static final int DEFAULT_ID_SIZE = 2;
 
     private static final long BC_MAGIC_WORD = 0xdec04342L; // 'BC' c0de
@@ -63,7 +63,7 @@ public final class LLVMScanner {
 
     private final List<AbbreviatedRecord[]> abbreviationDefinitions = new ArrayList<>();
 
-    private final BitStream bitstream;
+    private final BitReader reader;
 
     private final Map<Block, List<AbbreviatedRecord[]>> defaultAbbreviations = new HashMap<>();
 
@@ -77,17 +77,28 @@ public final class LLVMScanner {
 
     private ParserListener parser;
 
-    private long offset;
+    private RecordStreamCache.Writer recorder;
 
-    private LLVMScanner(BitStream bitstream, ParserListener listener) {
-        this.bitstream = bitstream;
+    private LLVMScanner(BitReader reader, ParserListener listener) {
+        this.reader = reader;
         this.parser = listener;
         this.block = Block.ROOT;
         this.idSize = DEFAULT_ID_SIZE;
-        this.offset = 0;
     }
 
     public static ModelModule parse(ByteSequence bytes, Source bcSource, LLVMContext context) {
+        assert bytes != null;
+        return parse(BinaryInput.create(bytes), bcSource, context);
+    }
+
+    /**
+     * Parses a bitcode file from an input that is addressed with 64-bit offsets, for example a
+     * memory-mapped file. This does not modify the context, so different files can be parsed
+     * concurrently. The module-level debug information is only processed when it is first needed.
+     *
+     * @return the parsed module, or {@code null} if the input is not a supported file
+     */
+    public static ModelModule parse(BinaryInput bytes, Source bcSource, LLVMContext context) {
         assert bytes != null;
         if (!isSupportedFile(bytes)) {
             return null;
@@ -95,19 +106,18 @@ public final class LLVMScanner {
 
         final ModelModule model = new ModelModule();
 
-        BitStream b = BitStream.create(bytes);
-        ByteSequence bitcode;
+        BinaryInput bitcode;
         // 0: magic word
-        long magicWord = Integer.toUnsignedLong((int) b.read(0, Integer.SIZE));
-        if (Long.compareUnsigned(magicWord, BC_MAGIC_WORD) == 0) {
+        long magicWord = readWord(bytes, 0);
+        if (magicWord == BC_MAGIC_WORD) {
             bitcode = bytes;
         } else if (magicWord == WRAPPER_MAGIC_WORD) {
-            // 32: version
-            // 64: offset32
-            long offset = b.read(64, Integer.SIZE);
-            // 96: size32
-            long size = b.read(96, Integer.SIZE);
-            bitcode = bytes.subSequence((int) offset, (int) (offset + size));
+            // 4: version
+            // 8: offset32
+            long offset = readWord(bytes, 8);
+            // 12: size32
+            long size = readWord(bytes, 12);
+            bitcode = bytes.subSequence(offset, offset + size);
         } else if (magicWord == ELF_MAGIC_WORD) {
             ElfFile elfFile = ElfFile.create(bytes);
             Entry llvmbc = elfFile.getSectionHeaderTable().getEntry(".llvmbc");
@@ -124,36 +134,73 @@ public final class LLVMScanner {
             }
             long offset = llvmbc.getOffset();
             long size = llvmbc.getSize();
-            bitcode = bytes.subSequence((int) offset, (int) (offset + size));
+            bitcode = bytes.subSequence(offset, offset + size);
         } else {
             throw new LLVMParserException("Not a valid input file!");
         }
 
-        parseBitcodeBlock(bitcode, model, bcSource, context);
-
+        BCFileRoot fileParser = parseBitcodeBlock(bitcode, model, bcSource, context);
+        // the root block does not exist in the LLVM file and is therefore never exited by the
+        // scanner
+        fileParser.exit();
         return model;
     }
 
-    private static boolean isSupportedFile(ByteSequence bytes) {
-        BitStream bs = BitStream.create(bytes);
-        long magicWord = bs.read(0, Integer.SIZE);
+    /**
+     * Decodes the blocks and records of a bitcode file and passes them to {@code listener} without
+     * building a model.
+     */
+    public static void scanBitcode(ByteSequence bitcode, ParserListener listener) {
+        final LLVMScanner scanner = new LLVMScanner(BitReader.create(bitcode), listener);
+        if (scanner.read(Integer.SIZE) != BC_MAGIC_WORD) {
+            throw new LLVMParserException("Not a valid Bitcode File!");
+        }
+        scanner.scanToEnd();
+    }
+
+    private static boolean isSupportedFile(BinaryInput bytes) {
+        if (bytes.size() < Integer.BYTES) {
+            return false;
+        }
+        long magicWord = readWord(bytes, 0);
         return magicWord == BC_MAGIC_WORD || magicWord == WRAPPER_MAGIC_WORD || magicWord == ELF_MAGIC_WORD;
     }
 
-    private static void parseBitcodeBlock(ByteSequence bitcode, ModelModule model, Source bcSource, LLVMContext context) {
-        final BitStream bitstream = BitStream.create(bitcode);
+    /**
+     * Reads an unsigned little-endian 32-bit word.
+     */
+    private static long readWord(BinaryInput bytes, long index) {
+        long word = 0;
+        for (int i = Integer.BYTES - 1; i >= 0; i--) {
+            word = (word << Byte.SIZE) | (bytes.byteAt(index + i) & 0xffL);
+        }
+        return word;
+    }
+
+    private static BCFileRoot parseBitcodeBlock(BinaryInput bitcode, ModelModule model, Source bcSource, LLVMContext context) {
+        final BitReader reader = BitReader.create(bitcode);
         final BCFileRoot fileParser = new BCFileRoot(model, bcSource);
-        final LLVMScanner scanner = new LLVMScanner(bitstream, fileParser);
+        final LLVMScanner scanner = new LLVMScanner(reader, fileParser);
         final long actualMagicWord = scanner.read(Integer.SIZE);
         if (actualMagicWord != BC_MAGIC_WORD) {
             throw new LLVMParserException("Not a valid Bitcode File!");
         }
 
-        scanner.scanToEnd();
-
-        // the root block does not exist in the LLVM file and is therefore never exited by the
-        // scanner
-        fileParser.exit(context);
+        final RecordStreamCache cache = RecordStreamCache.create(bitcode, bcSource, context);
+        final ByteBuffer cachedRecords = cache != null ? cache.load() : null;
+        if (cachedRecords != null) {
+            RecordStreamCache.replay(cachedRecords, scanner, fileParser);
+        } else if (cache != null) {
+            scanner.recorder = RecordStreamCache.createWriter();
+            scanner.scanToEnd();
+            byte[] records = scanner.recorder.finish();
+            // lazily parsed blocks are scanned later and are not recorded
+            scanner.recorder = null;
+            cache.store(records);
+        } else {
+            scanner.scanToEnd();
+        }
+        return fileParser;
     }
 
     private static <V> List<V> subList(List<V> original, int from) {
@@ -165,9 +212,7 @@ public final class LLVMScanner {
     }
 
     private long read(int bits) {
-        final long value = bitstream.read(offset, bits);
-        offset += bits;
-        return value;
+        return reader.read(bits);
     }
 
     private long read(Primitive primitive) {
@@ -179,22 +224,19 @@ public final class LLVMScanner {
     }
 
     private long readChar() {
-        final long value = read(Primitive.CHAR6);
-        return CHAR6.charAt((int) value);
+        return reader.readChar6();
     }
 
     private long readVBR(int width) {
-        final long value = bitstream.readVBR(offset, width);
-        offset += BitStream.widthVBR(value, width);
-        return value;
+        return reader.readVBR(width);
     }
 
     private void scanToEnd() {
-        scanToOffset(bitstream.size());
+        scanToOffset(reader.size());
     }
 
     private void scanToOffset(long to) {
-        while (offset < to) {
+        while (reader.getPosition() < to) {
             final int id = (int) read(idSize);
 
             switch (id) {
@@ -233,10 +275,7 @@ public final class LLVMScanner {
     }
 
     private void alignInt() {
-        long mask = Integer.SIZE - 1;
-        if ((offset & mask) != 0) {
-            offset = (offset & ~mask) + Integer.SIZE;
-        }
+        reader.align(Integer.SIZE);
     }
 
     private void defineAbbreviation() {
@@ -338,15 +377,27 @@ public final class LLVMScanner {
 
         final Block subBlock = Block.lookup(blockId);
         if (subBlock == null || subBlock.skip()) {
-            offset += numWords * Integer.SIZE;
-
-        } else if (subBlock.parseLazily()) {
-            final long endingOffset = offset + (numWords * Integer.SIZE);
-            final LazyScanner lazyScanner = new LazyScanner(new HashMap<>(defaultAbbreviations), offset, endingOffset, (int) newIdSize, subBlock);
-            offset = endingOffset;
+            reader.skip(numWords * Integer.SIZE);
+
+        } else if (subBlock.parseLazily() || isModuleMetadata(subBlock)) {
+            final long startingOffset = reader.getPosition();
+            final long endingOffset = startingOffset + (numWords * Integer.SIZE);
+            final LazyScanner lazyScanner = createLazyScanner(subBlock, startingOffset, endingOffset, (int) newIdSize);
+            if (recorder != null) {
+                recorder.lazyBlock(subBlock, startingOffset, endingOffset, (int) newIdSize);
+            }
+            reader.setPosition(endingOffset);
             parser.skip(subBlock, lazyScanner);
 
         } else {
+            if (recorder != null) {
+                if (subBlock == Block.BLOCKINFO) {
+                    final long startingOffset = reader.getPosition();
+                    recorder.blockInfo(startingOffset, startingOffset + (numWords * Integer.SIZE), (int) newIdSize);
+                } else {
+                    recorder.enterBlock(subBlock);
+                }
+            }
             final int localAbbreviationDefinitionsOffset = defaultAbbreviations.getOrDefault(block, Collections.emptyList()).size();
             parents.push(new ScannerState(subList(abbreviationDefinitions, localAbbreviationDefinitionsOffset), block, idSize, parser));
             parser = parser.enter(subBlock);
@@ -354,6 +405,29 @@ public final class LLVMScanner {
         }
     }
 
+    private boolean isModuleMetadata(Block subBlock) {
+        // the module-level metadata mostly consists of debug information, which is only decoded
+        // once it is actually needed
+        return subBlock == Block.METADATA && block == Block.MODULE;
+    }
+
+    LazyScanner createLazyScanner(Block lazyBlock, long startingOffset, long endingOffset, int newIdSize) {
+        return new LazyScanner(new HashMap<>(defaultAbbreviations), startingOffset, endingOffset, newIdSize, lazyBlock);
+    }
+
+    /**
+     * Scans a BLOCKINFO block that is nested in {@code parentBlock} to set up the default
+     * abbreviations, as if the scanner had just entered it from {@code listener}.
+     */
+    void scanBlockInfo(ParserListener listener, Block parentBlock, long startingOffset, long endingOffset, int newIdSize) {
+        assert parents.isEmpty();
+        parents.push(new ScannerState(Collections.emptyList(), parentBlock, idSize, listener));
+        parser = listener.enter(Block.BLOCKINFO);
+        reader.setPosition(startingOffset);
+        startSubBlock(Block.BLOCKINFO, newIdSize);
+        scanToOffset(endingOffset);
+    }
+
     private void startSubBlock(Block subBlock, int newIdSize) {
         abbreviationDefinitions.clear();
         abbreviationDefinitions.addAll(defaultAbbreviations.getOrDefault(subBlock, Collections.emptyList()));
@@ -402,6 +476,9 @@ public final class LLVMScanner {
 
     private void exitBlock() {
         alignInt();
+        if (recorder != null && block != Block.BLOCKINFO) {
+            recorder.exitBlock();
+        }
         parser.exit();
 
         if (parents.isEmpty()) {
@@ -421,7 +498,12 @@ public final class LLVMScanner {
     }
 
     private void passRecordToParser() {
-        parser.record(recordBuffer.getId(), recordBuffer.getOps());
+        final long id = recordBuffer.getId();
+        final long[] ops = recordBuffer.getOps();
+        if (recorder != null && block != Block.BLOCKINFO) {
+            recorder.record(id, ops);
+        }
+        parser.record(id, ops);
         recordBuffer.invalidate();
     }
 
@@ -460,7 +542,7 @@ public final class LLVMScanner {
             assert parents.isEmpty();
             defaultAbbreviations.clear();
             defaultAbbreviations.putAll(oldDefaultAbbreviations);
-            offset = startingOffset;
+            reader.setPosition(startingOffset);
             parser = lazyParser;
             startSubBlock(startingBlock, startingIdSize);
             scanToOffset(endingOffset);
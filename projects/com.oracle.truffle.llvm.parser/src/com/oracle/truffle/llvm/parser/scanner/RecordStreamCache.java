@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.parser.scanner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.zip.CRC32;
+
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.llvm.parser.listeners.ParserListener;
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.except.LLVMParserException;
+import com.oracle.truffle.llvm.runtime.options.SulongEngineOption;
+
+/**
+ * Persists the decoded record stream of a bitcode file. When the same file is parsed again, the
+ * records are replayed to the parser listeners without decoding the bitstream. Lazily parsed blocks
+ * are not part of the stream, the cache only remembers their location in the bitcode.
+ *
+ * Entries of bitcode files are keyed by the path, modification time and size of the file, so that a
+ * modified file replaces its old entry. Bitcode without a file, e.g., from a literal source, is
+ * keyed by the hash of its content. Every entry stores the hash of the content it was recorded for,
+ * and is only replayed if the bitcode still has this hash: the cached offsets of lazy blocks would
+ * point into the wrong bitcode otherwise, and the modification time alone does not catch a file
+ * that is rewritten within its granularity.
+ */
+final class RecordStreamCache {
+
+    private static final long MAGIC = 0x53554c4f4e475243L; // 'SULONGRC'
+    private static final int VERSION = 4;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String FILE_SUFFIX = ".records";
+
+    private static final int DIGEST_SIZE = 32;
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES + DIGEST_SIZE + Long.BYTES + Integer.BYTES;
+
+    private static final int END_OF_STREAM = 0;
+    private static final int ENTER_BLOCK = 1;
+    private static final int EXIT_BLOCK = 2;
+    private static final int RECORD = 3;
+    private static final int LAZY_BLOCK = 4;
+    private static final int BLOCKINFO_BLOCK = 5;
+
+    private static final int VAR_LONG_BITS = 7;
+    private static final int VAR_LONG_MASK = 0x7f;
+    private static final int VAR_LONG_CONTINUE = 0x80;
+
+    private final TruffleFile cacheDirectory;
+    private final String key;
+    private final long bitcodeSize;
+    private final byte[] bitcodeDigest;
+
+    private RecordStreamCache(TruffleFile cacheDirectory, String key, long bitcodeSize, byte[] bitcodeDigest) {
+        this.cacheDirectory = cacheDirectory;
+        this.key = key;
+        this.bitcodeSize = bitcodeSize;
+        this.bitcodeDigest = bitcodeDigest;
+    }
+
+    static RecordStreamCache create(BinaryInput bitcode, Source bcSource, LLVMContext context) {
+        String directory = context.getEnv().getOptions().get(SulongEngineOption.PARSE_CACHE);
+        if (directory.isEmpty()) {
+            return null;
+        }
+        byte[] bitcodeDigest = contentDigest(bitcode);
+        String key = null;
+        if (bcSource.getPath() != null) {
+            key = fileKey(context.getEnv().getTruffleFile(bcSource.getPath()), bitcode);
+        }
+        if (key == null) {
+            key = toHex(bitcodeDigest);
+        }
+        return new RecordStreamCache(context.getEnv().getTruffleFile(directory), key, bitcode.size(), bitcodeDigest);
+    }
+
+    private static String fileKey(TruffleFile file, BinaryInput bitcode) {
+        ByteBuffer attributes = ByteBuffer.allocate(3 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        String path;
+        try {
+            path = file.getAbsoluteFile().normalize().getPath();
+            attributes.putLong(file.getLastModifiedTime().toMillis());
+            attributes.putLong(file.size());
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        // an ELF file can embed bitcode, which is only part of the file
+        attributes.putLong(bitcode.size());
+
+        MessageDigest digest = createDigest();
+        digest.update(path.getBytes(StandardCharsets.UTF_8));
+        digest.update(attributes.array());
+        return toHex(digest.digest());
+    }
+
+    private static byte[] contentDigest(BinaryInput bitcode) {
+        MessageDigest digest = createDigest();
+        bitcode.updateDigest(digest);
+        return digest.digest();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder str = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            str.append(String.format("%02x", b & 0xff));
+        }
+        return str.toString();
+    }
+
+    /**
+     * Loads the cached record stream of the bitcode.
+     *
+     * @return the record stream, or {@code null} if there is no valid cache entry
+     */
+    ByteBuffer load() {
+        TruffleFile cacheFile = cacheDirectory.resolve(key + FILE_SUFFIX);
+        byte[] content;
+        try {
+            if (!cacheFile.exists()) {
+                return null;
+            }
+            content = cacheFile.readAllBytes();
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        if (content.length < HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(content, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long magic = header.getLong();
+        int version = header.getInt();
+        long size = header.getLong();
+        byte[] digest = new byte[DIGEST_SIZE];
+        header.get(digest);
+        long checksum = header.getLong();
+        int payloadLength = header.getInt();
+        if (magic != MAGIC || version != VERSION || size != bitcodeSize || payloadLength != content.length - HEADER_SIZE) {
+            return null;
+        }
+        if (!Arrays.equals(digest, bitcodeDigest)) {
+            // the entry was recorded for other content, e.g., before the file was rewritten
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(content, HEADER_SIZE, payloadLength);
+        if (crc.getValue() != checksum) {
+            return null;
+        }
+        return ByteBuffer.wrap(content, HEADER_SIZE, payloadLength);
+    }
+
+    /**
+     * Stores the recorded stream. Failing to write the cache is not an error, the bitcode is then
+     * simply decoded again the next time.
+     */
+    void store(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(bitcodeSize);
+        header.put(bitcodeDigest);
+        header.putLong(crc.getValue());
+        header.putInt(payload.length);
+
+        try {
+            cacheDirectory.createDirectories();
+            // write to a temporary file first so that concurrent readers never see partial entries
+            TruffleFile tempFile = cacheDirectory.resolve(key + "." + Thread.currentThread().getId() + "." + System.nanoTime() + ".tmp");
+            try (OutputStream out = tempFile.newOutputStream()) {
+                out.write(header.array());
+                out.write(payload);
+            }
+            tempFile.move(cacheDirectory.resolve(key + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            // ignore, the cache is only an optimization
+        }
+    }
+
+    static Writer createWriter() {
+        return new Writer();
+    }
+
+    /**
+     * Replays a cached record stream to the listener of the root block.
+     */
+    static void replay(ByteBuffer stream, LLVMScanner scanner, ParserListener root) {
+        Reader reader = new Reader(stream);
+        Deque<ParserListener> parentListeners = new ArrayDeque<>();
+        Deque<Block> parentBlocks = new ArrayDeque<>();
+        ParserListener listener = root;
+        Block block = Block.ROOT;
+
+        while (true) {
+            int event = (int) reader.readVarLong();
+            switch (event) {
+                case END_OF_STREAM:
+                    if (!parentListeners.isEmpty()) {
+                        throw new LLVMParserException("Unexpected end of cached record stream!");
+                    }
+                    return;
+
+                case ENTER_BLOCK: {
+                    Block subBlock = Block.lookup(reader.readVarLong());
+                    parentListeners.push(listener);
+                    parentBlocks.push(block);
+                    listener = listener.enter(subBlock);
+                    block = subBlock;
+                    break;
+                }
+
+                case EXIT_BLOCK:
+                    listener.exit();
+                    listener = parentListeners.pop();
+                    block = parentBlocks.pop();
+                    break;
+
+                case RECORD: {
+                    long id = reader.readVarLong();
+                    long[] args = new long[(int) reader.readVarLong()];
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = reader.readVarLong();
+                    }
+                    listener.record(id, args);
+                    break;
+                }
+
+                case LAZY_BLOCK: {
+                    Block lazyBlock = Block.lookup(reader.readVarLong());
+                    int idSize = (int) reader.readVarLong();
+                    long startingOffset = reader.readVarLong();
+                    long endingOffset = reader.readVarLong();
+                    listener.skip(lazyBlock, scanner.createLazyScanner(lazyBlock, startingOffset, endingOffset, idSize));
+                    break;
+                }
+
+                case BLOCKINFO_BLOCK: {
+                    // abbreviations cannot be persisted, so the block is decoded from the bitcode
+                    int idSize = (int) reader.readVarLong();
+                    long startingOffset = reader.readVarLong();
+                    long endingOffset = reader.readVarLong();
+                    scanner.scanBlockInfo(listener, block, startingOffset, endingOffset, idSize);
+                    break;
+                }
+
+                default:
+                    throw new LLVMParserException("Unknown event in cached record stream: " + event);
+            }
+        }
+    }
+
+    static final class Writer {
+
+        private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private int size = 0;
+
+        private Writer() {
+        }
+
+        void enterBlock(Block block) {
+            writeVarLong(ENTER_BLOCK);
+            writeVarLong(block.getId());
+        }
+
+        void exitBlock() {
+            writeVarLong(EXIT_BLOCK);
+        }
+
+        void record(long id, long[] args) {
+            writeVarLong(RECORD);
+            writeVarLong(id);
+            writeVarLong(args.length);
+            for (long arg : args) {
+                writeVarLong(arg);
+            }
+        }
+
+        void lazyBlock(Block block, long startingOffset, long endingOffset, int idSize) {
+            writeVarLong(LAZY_BLOCK);
+            writeVarLong(block.getId());
+            writeVarLong(idSize);
+            writeVarLong(startingOffset);
+            writeVarLong(endingOffset);
+        }
+
+        void blockInfo(long startingOffset, long endingOffset, int idSize) {
+            writeVarLong(BLOCKINFO_BLOCK);
+            writeVarLong(idSize);
+            writeVarLong(startingOffset);
+            writeVarLong(endingOffset);
+        }
+
+        private void writeVarLong(long value) {
+            if (buffer.length - size < Long.BYTES + 2) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            long v = value;
+            while ((v & ~VAR_LONG_MASK) != 0) {
+                buffer[size++] = (byte) ((v & VAR_LONG_MASK) | VAR_LONG_CONTINUE);
+                v >>>= VAR_LONG_BITS;
+            }
+            buffer[size++] = (byte) v;
+        }
+
+        /**
+         * Terminates the stream.
+         *
+         * @return the recorded stream
+         */
+        byte[] finish() {
+            writeVarLong(END_OF_STREAM);
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Reader {
+
+        private final ByteBuffer stream;
+
+        Reader(ByteBuffer stream) {
+            this.stream = stream;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (!stream.hasRemaining()) {
+                    throw new LLVMParserException("Unexpected end of cached record stream!");
+                }
+                b = stream.get();
+                value |= (long) (b & VAR_LONG_MASK) << shift;
+                shift += VAR_LONG_BITS;
+            } while ((b & VAR_LONG_CONTINUE) != 0);
+            return value;
+        }
+    }
+}
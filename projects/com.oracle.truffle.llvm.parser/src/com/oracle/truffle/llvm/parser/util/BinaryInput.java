@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.parser.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Collections;
+
+import org.graalvm.polyglot.io.ByteSequence;
+
+import com.oracle.truffle.api.TruffleFile;
+
+/**
+ * Read-only binary input of the parser with 64-bit offsets. Files are memory-mapped, so even inputs
+ * that are larger than 2 GB are read without copying them onto the heap.
+ *
+ * The data is split into chunks of {@link #CHUNK_SIZE} bytes. Every chunk also contains the first
+ * {@link #CHUNK_OVERLAP} bytes of the next one, so that a multi-byte value can always be loaded
+ * from a single chunk.
+ */
+public final class BinaryInput {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final int CHUNK_OVERLAP = Long.BYTES;
+
+    private final ByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final long start;
+    private final long size;
+
+    private BinaryInput(ByteBuffer[] chunks, int chunkShift, long start, long size) {
+        this.chunks = chunks;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+        this.start = start;
+        this.size = size;
+    }
+
+    public static BinaryInput create(byte[] bytes) {
+        return create(bytes, CHUNK_SHIFT);
+    }
+
+    /**
+     * Creates an input with chunks of {@code 1 << chunkShift} bytes. Inputs with small chunks are
+     * only useful to test values that span two chunks.
+     */
+    public static BinaryInput create(byte[] bytes, int chunkShift) {
+        assert chunkShift >= Integer.numberOfTrailingZeros(CHUNK_OVERLAP) && chunkShift <= CHUNK_SHIFT;
+        long chunkSize = 1L << chunkShift;
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(bytes.length, chunkShift)];
+        for (int i = 0; i < chunks.length; i++) {
+            int chunkStart = (int) (i * chunkSize);
+            int chunkLength = (int) Math.min(chunkSize + CHUNK_OVERLAP, bytes.length - chunkStart);
+            chunks[i] = ByteBuffer.wrap(bytes, chunkStart, chunkLength).slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new BinaryInput(chunks, chunkShift, 0, bytes.length);
+    }
+
+    /**
+     * Creates an input from a {@link ByteSequence}. Sequences that were created by
+     * {@link #asByteSequence()} are unwrapped, all others are copied.
+     */
+    public static BinaryInput create(ByteSequence bytes) {
+        if (bytes instanceof InputByteSequence) {
+            return ((InputByteSequence) bytes).input;
+        }
+        return create(bytes.toByteArray());
+    }
+
+    /**
+     * Maps a file into memory. The file is opened through the file system of the context, so its
+     * access restrictions apply. The mapping stays valid after the file is closed. If the file
+     * system does not support memory mapping, the file is read onto the heap instead.
+     */
+    public static BinaryInput map(TruffleFile file) throws IOException {
+        try (SeekableByteChannel channel = file.newByteChannel(Collections.singleton(StandardOpenOption.READ))) {
+            if (channel instanceof FileChannel) {
+                return map((FileChannel) channel);
+            }
+            return read(channel);
+        }
+    }
+
+    private static BinaryInput map(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(fileSize, CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long chunkStart = i * CHUNK_SIZE;
+            long chunkLength = Math.min(CHUNK_SIZE + CHUNK_OVERLAP, fileSize - chunkStart);
+            chunks[i] = channel.map(MapMode.READ_ONLY, chunkStart, chunkLength).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new BinaryInput(chunks, CHUNK_SHIFT, 0, fileSize);
+    }
+
+    private static BinaryInput read(SeekableByteChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("File is too large to be read without memory mapping.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+        }
+        return create(buffer.array());
+    }
+
+    private static int chunkCount(long length, int chunkShift) {
+        return (int) Math.max(1, (length + (1L << chunkShift) - 1) >>> chunkShift);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte byteAt(long index) {
+        checkIndex(index, Byte.BYTES);
+        long position = start + index;
+        return chunks[(int) (position >>> chunkShift)].get((int) (position & chunkMask));
+    }
+
+    /**
+     * Loads 8 bytes in little-endian order.
+     */
+    public long getLong(long index) {
+        checkIndex(index, Long.BYTES);
+        long position = start + index;
+        return chunks[(int) (position >>> chunkShift)].getLong((int) (position & chunkMask));
+    }
+
+    private void checkIndex(long index, int length) {
+        if (index < 0 || index > size - length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    public BinaryInput subSequence(long from, long to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + size);
+        }
+        return new BinaryInput(chunks, chunkShift, start + from, to - from);
+    }
+
+    public void updateDigest(MessageDigest digest) {
+        long position = start;
+        long end = start + size;
+        while (position < end) {
+            ByteBuffer chunk = chunks[(int) (position >>> chunkShift)].duplicate();
+            int chunkStart = (int) (position & chunkMask);
+            int length = (int) Math.min(chunkMask + 1 - chunkStart, end - position);
+            chunk.position(chunkStart);
+            chunk.limit(chunkStart + length);
+            digest.update(chunk);
+            position += length;
+        }
+    }
+
+    /**
+     * Gets a view of the input as a {@link ByteSequence}, which can only address the first 2 GB.
+     */
+    public ByteSequence asByteSequence() {
+        return new InputByteSequence(this);
+    }
+
+    private static final class InputByteSequence implements ByteSequence {
+
+        private final BinaryInput input;
+
+        InputByteSequence(BinaryInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public int length() {
+            return (int) Math.min(input.size(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public byte byteAt(int index) {
+            return input.byteAt(index);
+        }
+
+        @Override
+        public ByteSequence subSequence(int startIndex, int endIndex) {
+            return new InputByteSequence(input.subSequence(startIndex, endIndex));
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[length()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = input.byteAt(i);
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.parser.util;
+
+import java.util.Arrays;
+
+/**
+ * A bit set with a fixed size that is backed by a {@code long[]}. Unlike {@link java.util.BitSet},
+ * it never grows or shrinks its storage, so all bit sets of the same size can be combined
+ * word-wise, and it provides fused operations that report whether they modified the set.
+ */
+public final class FixedBitSet {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    private final long[] words;
+
+    public FixedBitSet(int size) {
+        assert size >= 0;
+        this.words = new long[wordIndex(size + Long.SIZE - 1)];
+    }
+
+    private static int wordIndex(int bitIndex) {
+        return bitIndex >>> ADDRESS_BITS_PER_WORD;
+    }
+
+    public boolean get(int bitIndex) {
+        return (words[wordIndex(bitIndex)] & (1L << bitIndex)) != 0;
+    }
+
+    public void set(int bitIndex) {
+        words[wordIndex(bitIndex)] |= 1L << bitIndex;
+    }
+
+    public void clear(int bitIndex) {
+        words[wordIndex(bitIndex)] &= ~(1L << bitIndex);
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first set bit at or after {@code fromIndex}, or {@code -1} if there
+     *         is none
+     */
+    public int nextSetBit(int fromIndex) {
+        int u = wordIndex(fromIndex);
+        if (u >= words.length) {
+            return -1;
+        }
+        long word = words[u] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (u << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            }
+            if (++u == words.length) {
+                return -1;
+            }
+            word = words[u];
+        }
+    }
+
+    /**
+     * {@code this = this | other}.
+     */
+    public void or(FixedBitSet other) {
+        assert words.length == other.words.length;
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * {@code this = this & ~other}.
+     */
+    public void andNot(FixedBitSet other) {
+        assert words.length == other.words.length;
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * {@code this = (a & ~b) | c}, in a single pass over the words.
+     */
+    public void setAndNotOr(FixedBitSet a, FixedBitSet b, FixedBitSet c) {
+        assert words.length == a.words.length && words.length == b.words.length && words.length == c.words.length;
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (a.words[i] & ~b.words[i]) | c.words[i];
+        }
+    }
+
+    /**
+     * {@code this = this | (a & ~b) | c}, in a single pass over the words.
+     *
+     * @return whether any bit was added to this set
+     */
+    public boolean orAndNotOr(FixedBitSet a, FixedBitSet b, FixedBitSet c) {
+        assert words.length == a.words.length && words.length == b.words.length && words.length == c.words.length;
+        long added = 0;
+        for (int i = 0; i < words.length; i++) {
+            long old = words[i];
+            long result = old | (a.words[i] & ~b.words[i]) | c.words[i];
+            added |= result ^ old;
+            words[i] = result;
+        }
+        return added != 0;
+    }
+}
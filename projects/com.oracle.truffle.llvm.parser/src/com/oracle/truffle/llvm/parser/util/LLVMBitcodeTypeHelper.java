@@ -29,9 +29,12 @@
  */
 package com.oracle.truffle.llvm.parser.util;
 
+import com.oracle.truffle.llvm.parser.model.enums.AtomicOrdering;
 import com.oracle.truffle.llvm.parser.model.enums.BinaryOperator;
 import com.oracle.truffle.llvm.parser.model.enums.CastOperator;
+import com.oracle.truffle.llvm.parser.model.enums.SynchronizationScope;
 import com.oracle.truffle.llvm.runtime.ArithmeticOperation;
+import com.oracle.truffle.llvm.runtime.MemoryOrdering;
 import com.oracle.truffle.llvm.runtime.NodeFactory;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.types.Type;
@@ -80,6 +83,29 @@ public final class LLVMBitcodeTypeHelper {
         }
     }
 
+    public static MemoryOrdering getMemoryOrdering(AtomicOrdering ordering, SynchronizationScope scope) {
+        if (scope == SynchronizationScope.SINGLE_THREAD) {
+            return MemoryOrdering.PLAIN;
+        }
+        switch (ordering) {
+            case NOT_ATOMIC:
+            case UNORDERED:
+                return MemoryOrdering.PLAIN;
+            case MONOTONIC:
+                return MemoryOrdering.MONOTONIC;
+            case ACQUIRE:
+                return MemoryOrdering.ACQUIRE;
+            case RELEASE:
+                return MemoryOrdering.RELEASE;
+            case ACQUIRE_RELEASE:
+                return MemoryOrdering.ACQUIRE_RELEASE;
+            case SEQUENTIALLY_CONSISTENT:
+                return MemoryOrdering.SEQUENTIALLY_CONSISTENT;
+            default:
+                throw new RuntimeException("Unknown atomic ordering: " + ordering);
+        }
+    }
+
     public static LLVMExpressionNode createCast(NodeFactory nodeFactory, LLVMExpressionNode fromNode, Type targetType, Type fromType, CastOperator operator) {
         switch (operator) {
             case ZERO_EXTEND:
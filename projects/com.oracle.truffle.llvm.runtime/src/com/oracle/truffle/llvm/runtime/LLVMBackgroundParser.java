@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Speculatively parses lazily parsed functions on the parser threads of the context, so that the
+ * call target of a function is usually ready when the function is called for the first time.
+ *
+ * Functions are parsed in the order of their distance from the entry point in the call graph. The
+ * call graph is discovered while parsing: the direct callees of a parsed function are scheduled
+ * with a distance that is increased by one.
+ *
+ * The executor may have more threads than background parsing is allowed to use, e.g., if it also
+ * scans libraries in parallel, so the number of workers that drain the queue is limited
+ * separately.
+ */
+public final class LLVMBackgroundParser {
+
+    private final ExecutorService executor;
+    private final int maxWorkers;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final PriorityBlockingQueue<ParseTask> queue = new PriorityBlockingQueue<>();
+    private final Set<LLVMFunctionDescriptor> scheduled = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequenceNumber = new AtomicLong();
+    private volatile boolean shutdown;
+
+    public LLVMBackgroundParser(ExecutorService executor, int maxWorkers) {
+        this.executor = executor;
+        this.maxWorkers = maxWorkers;
+    }
+
+    public void schedule(LLVMFunctionDescriptor function) {
+        schedule(function, 0);
+    }
+
+    private void schedule(LLVMFunctionDescriptor function, int distance) {
+        if (!shutdown && function.isLazyLLVMIRFunction() && scheduled.add(function)) {
+            queue.add(new ParseTask(function, distance, sequenceNumber.getAndIncrement()));
+            startWorker();
+        }
+    }
+
+    private void startWorker() {
+        int workers;
+        do {
+            workers = activeWorkers.get();
+            if (workers >= maxWorkers) {
+                return;
+            }
+        } while (!activeWorkers.compareAndSet(workers, workers + 1));
+
+        try {
+            executor.execute(this::parseQueued);
+        } catch (RejectedExecutionException e) {
+            // the context is being finalized
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    private void parseQueued() {
+        try {
+            // each iteration parses whatever function is closest to the entry point at that time
+            ParseTask task;
+            while (!shutdown && (task = queue.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+        if (!shutdown && !queue.isEmpty()) {
+            // a task was queued after the last poll, but before this worker was unregistered
+            startWorker();
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        queue.clear();
+    }
+
+    private final class ParseTask implements Comparable<ParseTask> {
+
+        private final LLVMFunctionDescriptor function;
+        private final int distance;
+        private final long sequenceNumber;
+
+        ParseTask(LLVMFunctionDescriptor function, int distance, long sequenceNumber) {
+            this.function = function;
+            this.distance = distance;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        void run() {
+            Iterable<LLVMFunctionDescriptor> callees;
+            try {
+                callees = function.parseLazyLLVMIRFunction();
+            } catch (RuntimeException e) {
+                // the error is reported when the function is called
+                return;
+            }
+            for (LLVMFunctionDescriptor callee : callees) {
+                schedule(callee, distance + 1);
+            }
+        }
+
+        @Override
+        public int compareTo(ParseTask other) {
+            if (distance != other.distance) {
+                return Integer.compare(distance, other.distance);
+            }
+            return Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+}
@@ -40,11 +40,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import org.graalvm.collections.EconomicMap;
-
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -59,15 +63,19 @@ import com.oracle.truffle.llvm.runtime.debug.type.LLVMSourceType;
 import com.oracle.truffle.llvm.runtime.except.LLVMLinkerException;
 import com.oracle.truffle.llvm.runtime.global.LLVMGlobal;
 import com.oracle.truffle.llvm.runtime.global.LLVMGlobalContainer;
+import com.oracle.truffle.llvm.runtime.global.LLVMThreadLocalSegment;
 import com.oracle.truffle.llvm.runtime.interop.LLVMTypedForeignObject;
 import com.oracle.truffle.llvm.runtime.interop.access.LLVMInteropType;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMappedMemory;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.memory.LLVMNativeMemory;
 import com.oracle.truffle.llvm.runtime.memory.LLVMStack.StackPointer;
 import com.oracle.truffle.llvm.runtime.memory.LLVMThreadingStack;
 import com.oracle.truffle.llvm.runtime.options.SulongEngineOption;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMPointer;
+import com.oracle.truffle.llvm.runtime.pthread.LLVMPThreadContext;
 import com.oracle.truffle.llvm.runtime.types.AggregateType;
 import com.oracle.truffle.llvm.runtime.types.FunctionType;
 import com.oracle.truffle.llvm.runtime.types.Type;
@@ -80,11 +88,13 @@ public final class LLVMContext {
     private final HashMap<LLVMPointer, LLVMGlobal> globalsReverseMap = new HashMap<>();
     // allocations used to store non-pointer globals (need to be freed when context is disposed)
     private final ArrayList<LLVMPointer> globalsNonPointerStore = new ArrayList<>();
+    private int threadLocalSegmentCount;
 
     private DataLayout dataLayout;
 
     private final List<LLVMThread> runningThreads = new ArrayList<>();
     private final LLVMThreadingStack threadingStack;
+    private final LLVMPThreadContext pthreadContext;
     private final Object[] mainArguments;
     private final Map<String, String> environment;
     private final LinkedList<LLVMNativePointer> caughtExceptionStack = new LinkedList<>();
@@ -92,20 +102,53 @@ public final class LLVMContext {
 
     private static final class Handle {
 
-        private int refcnt;
+        private static final int RELEASED = -1;
+
+        private final AtomicInteger refcnt;
         private final LLVMNativePointer pointer;
         private final TruffleObject managed;
 
         private Handle(LLVMNativePointer pointer, TruffleObject managed) {
-            this.refcnt = 0;
+            this.refcnt = new AtomicInteger(0);
             this.pointer = pointer;
             this.managed = managed;
         }
+
+        /**
+         * Fails if the last reference to the handle was released concurrently. In this case, the
+         * handle is about to be removed from the handle table and a new one has to be created.
+         */
+        private boolean tryAcquire() {
+            int count;
+            do {
+                count = refcnt.get();
+                if (count == RELEASED) {
+                    return false;
+                }
+            } while (!refcnt.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * Returns {@code true} if the last reference to the handle was released.
+         */
+        private boolean release() {
+            int count;
+            int newCount;
+            do {
+                count = refcnt.get();
+                if (count <= 0) {
+                    throw new UnsupportedOperationException("Cannot resolve native handle: " + pointer);
+                }
+                newCount = count == 1 ? RELEASED : count - 1;
+            } while (!refcnt.compareAndSet(count, newCount));
+            return newCount == RELEASED;
+        }
     }
 
-    private final Object handlesLock;
-    private final EconomicMap<TruffleObject, Handle> handleFromManaged;
-    private final EconomicMap<LLVMNativePointer, Handle> handleFromPointer;
+    // the handle table is read without locking, e.g., for every isHandle check
+    private final ConcurrentHashMap<TruffleObject, Handle> handleFromManaged;
+    private final ConcurrentHashMap<LLVMNativePointer, Handle> handleFromPointer;
 
     private final LLVMSourceContext sourceContext;
 
@@ -120,10 +163,6 @@ public final class LLVMContext {
 
     private final List<ContextExtension> contextExtensions;
 
-    // we are not able to clean up ThreadLocals properly, so we are using maps instead
-    private final Map<Thread, Object> tls = new HashMap<>();
-    private final Map<Thread, LLVMPointer> clearChildTid = new HashMap<>();
-
     // signals
     private final LLVMNativePointer sigDfl;
     private final LLVMNativePointer sigIgn;
@@ -134,6 +173,10 @@ public final class LLVMContext {
     private boolean defaultLibrariesLoaded;
 
     private final NodeFactory nodeFactory;
+    private static final long PARSER_SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final ExecutorService parserThreadPool;
+    private final LLVMBackgroundParser backgroundParser;
 
     private final class LLVMFunctionPointerRegistry {
         private int currentFunctionIndex = 1;
@@ -165,13 +208,14 @@ public final class LLVMContext {
         this.dataLayout = new DataLayout();
         this.destructorFunctions = new ArrayList<>();
         this.nativeCallStatistics = SulongEngineOption.isTrue(env.getOptions().get(SulongEngineOption.NATIVE_CALL_STATS)) ? new HashMap<>() : null;
-        this.threadingStack = new LLVMThreadingStack(Thread.currentThread(), env.getOptions().get(SulongEngineOption.STACK_SIZE_KB));
+        this.threadingStack = new LLVMThreadingStack(Thread.currentThread(), env.getOptions().get(SulongEngineOption.STACK_SIZE_KB),
+                        env.getOptions().get(SulongEngineOption.THREAD_STACK_SIZE_KB));
+        this.pthreadContext = new LLVMPThreadContext(this);
         this.sigDfl = LLVMNativePointer.create(0);
         this.sigIgn = LLVMNativePointer.create(1);
         this.sigErr = LLVMNativePointer.create(-1);
-        this.handleFromManaged = EconomicMap.create();
-        this.handleFromPointer = EconomicMap.create();
-        this.handlesLock = new Object();
+        this.handleFromManaged = new ConcurrentHashMap<>();
+        this.handleFromPointer = new ConcurrentHashMap<>();
         this.functionPointerRegistry = new LLVMFunctionPointerRegistry();
         this.interopTypeRegistry = new LLVMInteropType.InteropTypeRegistry();
         this.sourceContext = new LLVMSourceContext();
@@ -179,6 +223,12 @@ public final class LLVMContext {
         this.globalScope = new LLVMScope();
         this.dynamicLinkChain = new DynamicLinkChain();
 
+        boolean lazyParsing = env.getOptions().get(SulongEngineOption.LAZY_PARSING);
+        int backgroundParsingThreads = lazyParsing ? env.getOptions().get(SulongEngineOption.BACKGROUND_PARSING_THREADS) : 0;
+        int parserThreads = Math.max(backgroundParsingThreads, env.getOptions().get(SulongEngineOption.PARALLEL_PARSING_THREADS));
+        this.parserThreadPool = parserThreads > 0 ? createParserThreadPool(env, parserThreads) : null;
+        this.backgroundParser = backgroundParsingThreads > 0 ? new LLVMBackgroundParser(parserThreadPool, backgroundParsingThreads) : null;
+
         Object mainArgs = env.getConfig().get(LLVMLanguage.MAIN_ARGS_KEY);
         this.mainArguments = mainArgs == null ? env.getApplicationArguments() : (Object[]) mainArgs;
         this.environment = System.getenv();
@@ -197,6 +247,7 @@ public final class LLVMContext {
             assert !cleanupNecessary;
             initialized = true;
             cleanupNecessary = true;
+            initializeNativeMemory();
 
             LLVMFunctionDescriptor initContextDescriptor = globalScope.getFunction("@__sulong_init_context");
             RootCallTarget initContextFunction = initContextDescriptor.getLLVMIRFunction();
@@ -207,6 +258,45 @@ public final class LLVMContext {
         }
     }
 
+    /**
+     * Sets up the allocators of the native memory, which need NFI and are therefore not available
+     * when the context is created.
+     */
+    private void initializeNativeMemory() {
+        LLVMMemory memory = activeConfiguration.getCapability(LLVMMemory.class);
+        if (memory instanceof LLVMNativeMemory) {
+            LLVMNativeMemory nativeMemory = (LLVMNativeMemory) memory;
+            NFIContextExtension nfiContextExtension = getContextExtensionOrNull(NFIContextExtension.class);
+            if (nfiContextExtension != null && !nativeMemory.isMappedMemoryEnabled()) {
+                nativeMemory.enableMappedMemory(LLVMMappedMemory.create(this, nfiContextExtension));
+            }
+            if (SulongEngineOption.NATIVE_ALLOCATOR_ARENA.equals(env.getOptions().get(SulongEngineOption.NATIVE_ALLOCATOR))) {
+                nativeMemory.enableArenaAllocator(env.getOptions().get(SulongEngineOption.ARENA_SIZE_MB) * 1024L * 1024L);
+            }
+        }
+    }
+
+    private static ExecutorService createParserThreadPool(Env env, int threadCount) {
+        return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = env.createThread(r);
+            thread.setName("Sulong Parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the threads that parse libraries and functions concurrently, or {@code null} if
+     *         neither parallel nor background parsing is enabled
+     */
+    public ExecutorService getParserThreadPool() {
+        return parserThreadPool;
+    }
+
+    public LLVMBackgroundParser getBackgroundParser() {
+        return backgroundParser;
+    }
+
     public boolean areDefaultLibrariesLoaded() {
         return defaultLibrariesLoaded;
     }
@@ -258,6 +348,19 @@ public final class LLVMContext {
         return LLVMManagedPointer.create(LLVMTypedForeignObject.createUnknown(value));
     }
 
+    /**
+     * Stops the parser threads. The threads were created for this context, so they have to be
+     * joined while the context is still entered, i.e., before it is disposed.
+     */
+    public void finalizeContext() {
+        if (backgroundParser != null) {
+            backgroundParser.shutdown();
+        }
+        if (parserThreadPool != null) {
+            shutdownParserThreadPool();
+        }
+    }
+
     public void dispose(LLVMMemory memory) {
         printNativeCallStatistic();
 
@@ -276,7 +379,7 @@ public final class LLVMContext {
             }
         }
 
-        threadingStack.freeMainStack(memory);
+        threadingStack.freeStacks(memory);
 
         // free the space allocated for non-pointer globals
         LLVMIntrinsicProvider provider = getContextExtension(LLVMIntrinsicProvider.class);
@@ -299,6 +402,20 @@ public final class LLVMContext {
         }
     }
 
+    @TruffleBoundary
+    private void shutdownParserThreadPool() {
+        parserThreadPool.shutdownNow();
+        try {
+            // parsing a function cannot be interrupted, but it does not take long: the queued work
+            // was discarded, so at most one function per thread is still being parsed
+            if (!parserThreadPool.awaitTermination(PARSER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Sulong parser threads did not terminate within " + PARSER_SHUTDOWN_TIMEOUT_SECONDS + " seconds.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public NodeFactory getNodeFactory() {
         return nodeFactory;
     }
@@ -417,32 +534,33 @@ public final class LLVMContext {
         return globalScope;
     }
 
-    @TruffleBoundary
+    /**
+     * Returns the {@link LLVMThreadContext} of the current thread. Nodes that have access to the
+     * stack pointer of their frame should use {@link StackPointer#getThreadContext()} instead.
+     */
+    public LLVMThreadContext getThreadContext() {
+        return threadingStack.getStack().getThreadContext();
+    }
+
     public Object getThreadLocalStorage() {
-        Object value = tls.get(Thread.currentThread());
-        if (value != null) {
-            return value;
-        }
-        return LLVMNativePointer.createNull();
+        return getThreadContext().getThreadLocalStorage();
     }
 
-    @TruffleBoundary
     public void setThreadLocalStorage(Object value) {
-        tls.put(Thread.currentThread(), value);
+        getThreadContext().setThreadLocalStorage(value);
     }
 
-    @TruffleBoundary
     public LLVMPointer getClearChildTid() {
-        LLVMPointer value = clearChildTid.get(Thread.currentThread());
-        if (value != null) {
-            return value;
-        }
-        return LLVMNativePointer.createNull();
+        return getThreadContext().getClearChildTid();
     }
 
-    @TruffleBoundary
     public void setClearChildTid(LLVMPointer value) {
-        clearChildTid.put(Thread.currentThread(), value);
+        getThreadContext().setClearChildTid(value);
+    }
+
+    @TruffleBoundary
+    public synchronized LLVMThreadLocalSegment createThreadLocalSegment(LLVMNativePointer image, long size) {
+        return new LLVMThreadLocalSegment(threadLocalSegmentCount++, image, size);
     }
 
     @TruffleBoundary
@@ -474,71 +592,66 @@ public final class LLVMContext {
 
     @TruffleBoundary
     public boolean isHandle(LLVMNativePointer address) {
-        synchronized (handlesLock) {
-            return handleFromPointer.containsKey(address);
-        }
+        return handleFromPointer.containsKey(address);
     }
 
     @TruffleBoundary
     public TruffleObject getManagedObjectForHandle(LLVMNativePointer address) {
-        synchronized (handlesLock) {
-            final Handle handle = handleFromPointer.get(address);
+        final Handle handle = handleFromPointer.get(address);
 
-            if (handle == null) {
-                throw new UnsupportedOperationException("Cannot resolve native handle: " + address);
-            }
-
-            return handle.managed;
+        if (handle == null) {
+            throw new UnsupportedOperationException("Cannot resolve native handle: " + address);
         }
+
+        return handle.managed;
     }
 
     @TruffleBoundary
     public void releaseHandle(LLVMMemory memory, LLVMNativePointer address) {
-        synchronized (handlesLock) {
-            Handle handle = handleFromPointer.get(address);
-            if (handle == null) {
-                throw new UnsupportedOperationException("Cannot resolve native handle: " + address);
-            }
+        Handle handle = handleFromPointer.get(address);
+        if (handle == null) {
+            throw new UnsupportedOperationException("Cannot resolve native handle: " + address);
+        }
 
-            if (--handle.refcnt == 0) {
-                handleFromPointer.removeKey(address);
-                handleFromManaged.removeKey(handle.managed);
-                memory.free(address);
-            }
+        if (handle.release()) {
+            handleFromPointer.remove(address, handle);
+            handleFromManaged.remove(handle.managed, handle);
+            memory.free(address);
         }
     }
 
     @TruffleBoundary
     public LLVMNativePointer getHandleForManagedObject(LLVMMemory memory, TruffleObject object) {
-        synchronized (handlesLock) {
-            Handle handle = handleFromManaged.get(object);
-            if (handle == null) {
-                LLVMNativePointer allocatedMemory = memory.allocateMemory(Long.BYTES);
-                memory.putI64(allocatedMemory, 0xdeadbeef);
-                handle = new Handle(allocatedMemory, object);
-                handleFromManaged.put(object, handle);
-                handleFromPointer.put(allocatedMemory, handle);
-            }
-
-            handle.refcnt++;
-            return handle.pointer;
-        }
+        return getHandle(memory, object, false);
     }
 
     @TruffleBoundary
     public LLVMNativePointer getDerefHandleForManagedObject(LLVMMemory memory, TruffleObject object) {
-        synchronized (handlesLock) {
-            Handle handle = handleFromManaged.get(object);
-            if (handle == null) {
-                LLVMNativePointer allocatedMemory = memory.allocateDerefMemory();
-                handle = new Handle(allocatedMemory, object);
-                handleFromManaged.put(object, handle);
-                handleFromPointer.put(allocatedMemory, handle);
+        return getHandle(memory, object, true);
+    }
+
+    private LLVMNativePointer getHandle(LLVMMemory memory, TruffleObject object, boolean deref) {
+        while (true) {
+            Handle handle = handleFromManaged.computeIfAbsent(object, o -> createHandle(memory, o, deref));
+            if (handle.tryAcquire()) {
+                return handle.pointer;
             }
+            // the handle was released concurrently, make sure it is gone before trying again
+            handleFromManaged.remove(object, handle);
+        }
+    }
 
-            handle.refcnt++;
-            return handle.pointer;
+    private Handle createHandle(LLVMMemory memory, TruffleObject object, boolean deref) {
+        LLVMNativePointer allocatedMemory;
+        if (deref) {
+            allocatedMemory = memory.allocateDerefMemory();
+        } else {
+            allocatedMemory = memory.allocateMemory(Long.BYTES);
+            memory.putI64(allocatedMemory, 0xdeadbeef);
         }
+        Handle handle = new Handle(allocatedMemory, object);
+        handleFromPointer.put(allocatedMemory, handle);
+        return handle;
     }
 
     @TruffleBoundary
@@ -562,6 +675,10 @@ public final class LLVMContext {
         return threadingStack;
     }
 
+    public LLVMPThreadContext getPThreadContext() {
+        return pthreadContext;
+    }
+
     public void registerDestructorFunctions(RootCallTarget destructor) {
         assert destructor != null;
         assert !destructorFunctions.contains(destructor);
@@ -591,16 +708,21 @@ public final class LLVMContext {
     }
 
     @TruffleBoundary
-    public synchronized void awaitThreadTermination() {
+    public void awaitThreadTermination() {
         shutdownThreads();
 
-        while (!runningThreads.isEmpty()) {
-            LLVMThread node = runningThreads.get(0);
+        // do not hold the lock while waiting, the threads may still (un)register other threads
+        LLVMThread node;
+        while ((node = getFirstRunningThread()) != null) {
             node.awaitFinish();
-            assert !runningThreads.contains(node); // should be unregistered by LLVMThreadNode
+            assert !getRunningThreads().contains(node); // should be unregistered by LLVMThreadNode
         }
     }
 
+    private synchronized LLVMThread getFirstRunningThread() {
+        return runningThreads.isEmpty() ? null : runningThreads.get(0);
+    }
+
     public RootCallTarget[] getDestructorFunctions() {
         return destructorFunctions.toArray(new RootCallTarget[destructorFunctions.size()]);
     }
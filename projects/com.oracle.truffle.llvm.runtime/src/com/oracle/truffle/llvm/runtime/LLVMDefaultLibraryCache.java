@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime;
+
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.oracle.truffle.api.source.Source;
+
+/**
+ * Caches the parse products of Sulong's default libraries, so that they are shared by all contexts
+ * of an engine. This includes the parsed module with its function bodies and debug information.
+ * Globals, scopes, function descriptors and call targets are still created per context, because
+ * the nodes of a call target refer to the globals and functions of their context.
+ */
+public final class LLVMDefaultLibraryCache {
+
+    private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the cached entry for a default library.
+     *
+     * @param path the path of the library
+     * @param lastModified the modification time of the library file, stale entries are discarded
+     * @return the cached entry, or {@code null} if there is no valid entry
+     */
+    public Entry get(Path path, long lastModified) {
+        Entry entry = entries.get(path);
+        if (entry != null && entry.lastModified != lastModified) {
+            entries.remove(path, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Adds an entry for a default library. If another context added an entry concurrently, that
+     * entry is returned instead.
+     */
+    public Entry put(Path path, long lastModified, Source source) {
+        Entry entry = new Entry(source, lastModified);
+        Entry existing = entries.putIfAbsent(path, entry);
+        return existing != null ? existing : entry;
+    }
+
+    public static final class Entry {
+
+        private final Source source;
+        private final long lastModified;
+
+        private Object module;
+
+        private Entry(Source source, long lastModified) {
+            this.source = source;
+            this.lastModified = lastModified;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * Gets the parsed module of the library. The first context that asks for it parses it,
+         * all other contexts wait for and share the result.
+         *
+         * @param parser parses the module, the result is owned by the parser
+         */
+        @SuppressWarnings("unchecked")
+        public synchronized <T> T getModule(Supplier<T> parser) {
+            if (module == null) {
+                module = parser.get();
+            }
+            return (T) module;
+        }
+    }
+}
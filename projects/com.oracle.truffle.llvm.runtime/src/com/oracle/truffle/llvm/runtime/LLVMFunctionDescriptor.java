@@ -29,7 +29,9 @@
  */
 package com.oracle.truffle.llvm.runtime;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.oracle.truffle.api.Assumption;
@@ -314,6 +316,13 @@ public final class LLVMFunctionDescriptor implements LLVMSymbol, LLVMInternalTru
          * @return the function's source-level type
          */
         LLVMSourceFunctionType getSourceType();
+
+        /**
+         * Get the functions that the already converted function calls directly.
+         *
+         * @return the direct callees of the function
+         */
+        List<LLVMFunctionDescriptor> getCallees();
     }
 
     public void resolveIfLazyLLVMIRFunction() {
@@ -323,6 +332,27 @@ public final class LLVMFunctionDescriptor implements LLVMSymbol, LLVMInternalTru
         }
     }
 
+    public boolean isLazyLLVMIRFunction() {
+        return function instanceof LazyLLVMIRFunction;
+    }
+
+    /**
+     * Converts a lazily parsed function without installing its call target, so that it is ready
+     * when the function is resolved. This may be called from a background thread.
+     *
+     * @return the functions that are called directly by this function
+     */
+    public List<LLVMFunctionDescriptor> parseLazyLLVMIRFunction() {
+        CompilerAsserts.neverPartOfCompilation();
+        Function currentFunction = function;
+        if (currentFunction instanceof LazyLLVMIRFunction) {
+            LazyToTruffleConverter converter = ((LazyLLVMIRFunction) currentFunction).converter;
+            converter.convert();
+            return converter.getCallees();
+        }
+        return Collections.emptyList();
+    }
+
     public boolean isLLVMIRFunction() {
         return getFunction() instanceof LLVMIRFunction || getFunction() instanceof LazyLLVMIRFunction;
     }
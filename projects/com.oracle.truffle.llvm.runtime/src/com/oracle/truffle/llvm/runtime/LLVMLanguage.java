@@ -58,6 +58,8 @@ public abstract class LLVMLanguage extends TruffleLanguage<LLVMContext> {
 
     public static final String NAME = "llvm";
 
+    private final LLVMDefaultLibraryCache defaultLibraryCache = new LLVMDefaultLibraryCache();
+
     public abstract LLVMContext findLLVMContext();
 
     public static ContextReference<LLVMContext> getLLVMContextReference() {
@@ -69,4 +71,8 @@ public abstract class LLVMLanguage extends TruffleLanguage<LLVMContext> {
     }
 
     public abstract <E> E getCapability(Class<E> type);
+
+    public LLVMDefaultLibraryCache getDefaultLibraryCache() {
+        return defaultLibraryCache;
+    }
 }
@@ -31,8 +31,8 @@ package com.oracle.truffle.llvm.runtime;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -47,11 +47,11 @@ import com.oracle.truffle.llvm.runtime.global.LLVMGlobal;
 
 public final class LLVMScope implements TruffleObject {
 
-    private final HashMap<String, LLVMSymbol> symbols;
+    private final ConcurrentHashMap<String, LLVMSymbol> symbols;
     private final ArrayList<String> functionKeys;
 
     public LLVMScope() {
-        this.symbols = new HashMap<>();
+        this.symbols = new ConcurrentHashMap<>();
         this.functionKeys = new ArrayList<>();
     }
 
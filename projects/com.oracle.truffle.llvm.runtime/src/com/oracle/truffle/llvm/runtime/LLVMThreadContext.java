@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.llvm.runtime.global.LLVMThreadLocalSegment;
+import com.oracle.truffle.llvm.runtime.memory.LLVMArenaAllocator;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMPointer;
+
+/**
+ * The state that belongs to a single guest thread: the TLS base that the guest set via
+ * {@code arch_prctl}, the address registered via {@code set_tid_address}, the blocks that hold
+ * this thread's copies of {@code thread_local} globals, and the thread's allocation cache of the
+ * {@link LLVMArenaAllocator}.
+ *
+ * A thread context is owned by the {@link com.oracle.truffle.llvm.runtime.memory.LLVMStack} of
+ * its thread, so that it can be reached from the stack pointer in the current frame without any
+ * lookup. It is only ever accessed by its own thread.
+ */
+public final class LLVMThreadContext {
+
+    private static final long[] NO_BLOCKS = new long[0];
+
+    private Object threadLocalStorage;
+    private LLVMPointer clearChildTid;
+    private long[] threadLocalBlocks = NO_BLOCKS;
+    private LLVMArenaAllocator.ThreadCache allocationCache;
+
+    public Object getThreadLocalStorage() {
+        Object value = threadLocalStorage;
+        if (value != null) {
+            return value;
+        }
+        return LLVMNativePointer.createNull();
+    }
+
+    public void setThreadLocalStorage(Object value) {
+        threadLocalStorage = value;
+    }
+
+    public LLVMPointer getClearChildTid() {
+        LLVMPointer value = clearChildTid;
+        if (value != null) {
+            return value;
+        }
+        return LLVMNativePointer.createNull();
+    }
+
+    public void setClearChildTid(LLVMPointer value) {
+        clearChildTid = value;
+    }
+
+    /**
+     * Returns the address of this thread's copy of the given segment, which is created from the
+     * segment's image on first use.
+     */
+    public long getThreadLocalBlock(LLVMMemory memory, LLVMThreadLocalSegment segment) {
+        long[] blocks = threadLocalBlocks;
+        int index = segment.getIndex();
+        if (index < blocks.length && blocks[index] != 0) {
+            return blocks[index];
+        }
+        return allocateThreadLocalBlock(memory, segment);
+    }
+
+    @TruffleBoundary
+    private long allocateThreadLocalBlock(LLVMMemory memory, LLVMThreadLocalSegment segment) {
+        int index = segment.getIndex();
+        if (index >= threadLocalBlocks.length) {
+            threadLocalBlocks = Arrays.copyOf(threadLocalBlocks, index + 1);
+        }
+        long block = memory.allocateMemory(segment.getSize()).asNative();
+        memory.copyMemory(segment.getImage().asNative(), block, segment.getSize());
+        threadLocalBlocks[index] = block;
+        return block;
+    }
+
+    public LLVMArenaAllocator.ThreadCache getAllocationCache(LLVMArenaAllocator allocator) {
+        LLVMArenaAllocator.ThreadCache cache = allocationCache;
+        if (cache != null && cache.isOwnedByCurrentThread()) {
+            return cache;
+        }
+        return updateAllocationCache(allocator);
+    }
+
+    @TruffleBoundary
+    private LLVMArenaAllocator.ThreadCache updateAllocationCache(LLVMArenaAllocator allocator) {
+        allocationCache = allocator.getThreadCache();
+        return allocationCache;
+    }
+
+    @TruffleBoundary
+    public void free(LLVMMemory memory) {
+        for (long block : threadLocalBlocks) {
+            if (block != 0) {
+                memory.free(block);
+            }
+        }
+        threadLocalBlocks = NO_BLOCKS;
+    }
+}
@@ -56,6 +56,7 @@ import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
 import com.oracle.truffle.llvm.runtime.types.AggregateType;
 import com.oracle.truffle.llvm.runtime.types.ArrayType;
 import com.oracle.truffle.llvm.runtime.types.FunctionType;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType;
 import com.oracle.truffle.llvm.runtime.types.StructureType;
 import com.oracle.truffle.llvm.runtime.types.Type;
 import com.oracle.truffle.llvm.runtime.types.VectorType;
@@ -77,8 +78,12 @@ public interface NodeFactory extends InteropNodeFactory {
 
     LLVMExpressionNode createLoad(Type resolvedResultType, LLVMExpressionNode loadTarget);
 
+    LLVMExpressionNode createAtomicLoad(Type resolvedResultType, LLVMExpressionNode loadTarget, MemoryOrdering ordering);
+
     LLVMStatementNode createStore(LLVMExpressionNode pointerNode, LLVMExpressionNode valueNode, Type type, LLVMSourceLocation source);
 
+    LLVMStatementNode createAtomicStore(LLVMExpressionNode pointerNode, LLVMExpressionNode valueNode, Type type, LLVMSourceLocation source, MemoryOrdering ordering);
+
     LLVMExpressionNode createRMWXchg(LLVMExpressionNode pointerNode, LLVMExpressionNode valueNode, Type type);
 
     LLVMExpressionNode createRMWAdd(LLVMExpressionNode pointerNode, LLVMExpressionNode valueNode, Type type);
@@ -93,7 +98,7 @@ public interface NodeFactory extends InteropNodeFactory {
 
     LLVMExpressionNode createRMWXor(LLVMExpressionNode pointerNode, LLVMExpressionNode valueNode, Type type);
 
-    LLVMStatementNode createFence();
+    LLVMStatementNode createFence(MemoryOrdering ordering);
 
     LLVMExpressionNode createArithmeticOp(ArithmeticOperation op, Type type, LLVMExpressionNode left, LLVMExpressionNode right);
 
@@ -133,7 +138,7 @@ public interface NodeFactory extends InteropNodeFactory {
 
     LLVMExpressionNode createExtractValue(Type type, LLVMExpressionNode targetAddress);
 
-    LLVMExpressionNode createTypedElementPointer(LLVMExpressionNode aggregateAddress, LLVMExpressionNode index, long indexedTypeLength,
+    LLVMExpressionNode createTypedElementPointer(LLVMExpressionNode aggregateAddress, LLVMExpressionNode index, long indexedTypeLength, long constantOffset,
                     Type targetType);
 
     LLVMExpressionNode createSelect(Type type, LLVMExpressionNode condition, LLVMExpressionNode trueValue, LLVMExpressionNode falseValue);
@@ -147,6 +152,9 @@ public interface NodeFactory extends InteropNodeFactory {
     LLVMControlFlowNode createSwitch(LLVMExpressionNode cond, int[] labels, LLVMExpressionNode[] cases,
                     Type llvmType, LLVMStatementNode[] phiWriteNodes, LLVMSourceLocation source);
 
+    LLVMControlFlowNode createSwitch(LLVMExpressionNode cond, int[] labels, long[] caseValues,
+                    PrimitiveType llvmType, LLVMStatementNode[] phiWriteNodes, LLVMSourceLocation source);
+
     LLVMControlFlowNode createConditionalBranch(int trueIndex, int falseIndex, LLVMExpressionNode conditionNode, LLVMStatementNode truePhiWriteNodes,
                     LLVMStatementNode falsePhiWriteNodes, LLVMSourceLocation sourceSection);
 
@@ -179,8 +187,8 @@ public interface NodeFactory extends InteropNodeFactory {
 
     LLVMStatementNode createBasicBlockNode(LLVMStatementNode[] statementNodes, LLVMControlFlowNode terminatorNode, int blockId, String blockName);
 
-    LLVMExpressionNode createFunctionBlockNode(FrameSlot exceptionValueSlot, List<? extends LLVMStatementNode> basicBlockNodes, UniquesRegionAllocator uniquesRegionAllocator,
-                    FrameSlot[][] beforeBlockNuller, FrameSlot[][] afterBlockNuller, LLVMSourceLocation sourceSection, LLVMStatementNode[] copyArgumentsToFrame);
+    LLVMExpressionNode createFunctionBlockNode(FrameSlot exceptionValueSlot, FrameSlot loopSuccessorSlot, List<? extends LLVMStatementNode> basicBlockNodes,
+                    UniquesRegionAllocator uniquesRegionAllocator, FrameSlot[][] beforeBlockNuller, FrameSlot[][] afterBlockNuller, LLVMSourceLocation sourceSection, LLVMStatementNode[] copyArgumentsToFrame);
 
     RootNode createFunctionStartNode(LLVMExpressionNode functionBodyNode, FrameDescriptor frameDescriptor, String name, String originalName,
                     int argumentCount, Source bcSource, LLVMSourceLocation location);
@@ -31,12 +31,17 @@ package com.oracle.truffle.llvm.runtime.datalayout;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.llvm.runtime.datalayout.DataLayoutParser.DataTypeSpecification;
 import com.oracle.truffle.llvm.runtime.types.FunctionType;
 import com.oracle.truffle.llvm.runtime.types.PointerType;
 import com.oracle.truffle.llvm.runtime.types.PrimitiveType;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType.PrimitiveKind;
+import com.oracle.truffle.llvm.runtime.types.StructureType;
 import com.oracle.truffle.llvm.runtime.types.Type;
 import com.oracle.truffle.llvm.runtime.types.VariableBitWidthType;
 
@@ -50,14 +55,40 @@ import com.oracle.truffle.llvm.runtime.types.VariableBitWidthType;
  */
 public final class DataLayout {
 
+    private static final int NO_ALIGNMENT = -1;
+
     private final List<DataTypeSpecification> dataLayout;
 
+    /*
+     * The sizes and alignments are requested for nearly every node that is created, so they are
+     * looked up in precomputed tables instead of searching the specifications every time.
+     */
+    private final int[] primitiveBitAlignments;
+    private final int pointerBitAlignment;
+    private final int[] integerWidths;
+
+    private final Map<StructureType, StructureLayout> structureLayouts;
+
     public DataLayout() {
-        this.dataLayout = new ArrayList<>();
+        this(new ArrayList<>());
     }
 
     public DataLayout(String layout) {
-        this.dataLayout = DataLayoutParser.parseDataLayout(layout);
+        this(DataLayoutParser.parseDataLayout(layout));
+    }
+
+    private DataLayout(List<DataTypeSpecification> dataLayout) {
+        this.dataLayout = dataLayout;
+        this.primitiveBitAlignments = new int[PrimitiveKind.values().length];
+        for (PrimitiveKind kind : PrimitiveKind.values()) {
+            DataTypeSpecification spec = getDataTypeSpecification(kind);
+            primitiveBitAlignments[kind.ordinal()] = spec != null ? spec.getAbiAlignment() : NO_ALIGNMENT;
+        }
+        DataTypeSpecification pointerSpec = getDataTypeSpecification(DataLayoutType.POINTER);
+        this.pointerBitAlignment = pointerSpec != null ? pointerSpec.getAbiAlignment() : NO_ALIGNMENT;
+        DataTypeSpecification integerLayout = getDataTypeSpecification(DataLayoutType.INTEGER_WIDTHS);
+        this.integerWidths = integerLayout != null ? integerLayout.getValues() : null;
+        this.structureLayouts = new IdentityHashMap<>();
     }
 
     public int getSize(Type type) {
@@ -66,35 +97,121 @@ public final class DataLayout {
 
     public int getBitAlignment(Type baseType) {
         if (baseType instanceof VariableBitWidthType) {
-            /*
-             * Handling of integer datatypes when the exact match not found
-             * http://releases.llvm.org/3.9.0/docs/LangRef.html#data-layout
-             */
-            DataTypeSpecification integerLayout = dataLayout.stream().filter(d -> d.getType() == DataLayoutType.INTEGER_WIDTHS).findFirst().orElseThrow(IllegalStateException::new);
-            int minPossibleSize = Arrays.stream(integerLayout.getValues()).max().orElseThrow(IllegalStateException::new);
-            int size = baseType.getBitSize();
-            for (int value : integerLayout.getValues()) {
-                if (size < value && minPossibleSize > value) {
-                    minPossibleSize = value;
+            return getVariableBitWidthAlignment(baseType.getBitSize());
+        }
+
+        int alignment = NO_ALIGNMENT;
+        if (baseType instanceof PrimitiveType) {
+            alignment = primitiveBitAlignments[((PrimitiveType) baseType).getPrimitiveKind().ordinal()];
+        } else if (baseType instanceof PointerType || baseType instanceof FunctionType) {
+            alignment = pointerBitAlignment;
+        }
+        if (alignment == NO_ALIGNMENT) {
+            throw new IllegalStateException("No data specification found for " + baseType);
+        }
+        return alignment;
+    }
+
+    private int getVariableBitWidthAlignment(int size) {
+        /*
+         * Handling of integer datatypes when the exact match not found
+         * http://releases.llvm.org/3.9.0/docs/LangRef.html#data-layout
+         */
+        if (integerWidths == null || integerWidths.length == 0) {
+            throw new IllegalStateException();
+        }
+        int minPossibleSize = Arrays.stream(integerWidths).max().getAsInt();
+        for (int value : integerWidths) {
+            if (size < value && minPossibleSize > value) {
+                minPossibleSize = value;
+            }
+        }
+        if (minPossibleSize >= size) {
+            return minPossibleSize;
+        } else {
+            // is that correct?
+            return ((size + 7) / 8) * 8;
+        }
+    }
+
+    public int getSize(StructureType type) {
+        return getStructureLayout(type).size;
+    }
+
+    public int getAlignment(StructureType type) {
+        return getStructureLayout(type).alignment;
+    }
+
+    public long getOffsetOf(StructureType type, long index) {
+        return getStructureLayout(type).offsets[(int) index];
+    }
+
+    /**
+     * The layout of a structure type is computed once per data layout, since recomputing it
+     * requires visiting all (nested) member types.
+     */
+    @TruffleBoundary
+    private StructureLayout getStructureLayout(StructureType type) {
+        synchronized (structureLayouts) {
+            StructureLayout layout = structureLayouts.get(type);
+            if (layout == null) {
+                layout = new StructureLayout(type, this);
+                structureLayouts.put(type, layout);
+            }
+            return layout;
+        }
+    }
+
+    private static final class StructureLayout {
+
+        private final int size;
+        private final int alignment;
+        private final long[] offsets;
+
+        StructureLayout(StructureType type, DataLayout dataLayout) {
+            final Type[] types = type.getElementTypes();
+            final boolean isPacked = type.isPacked();
+
+            int largestAlignment = 0;
+            if (!isPacked) {
+                for (final Type elementType : types) {
+                    largestAlignment = Math.max(largestAlignment, elementType.getAlignment(dataLayout));
                 }
             }
-            if (minPossibleSize >= size) {
-                return minPossibleSize;
-            } else {
-                // is that correct?
-                return ((size + 7) / 8) * 8;
+            this.alignment = isPacked ? 1 : largestAlignment;
+
+            // the offset of the element, and the offset after the previous element
+            final long[] elementOffsets = new long[types.length + 1];
+            final long[] unpaddedOffsets = new long[types.length + 1];
+            int sumByte = 0;
+            for (int i = 0; i < types.length; i++) {
+                final Type elementType = types[i];
+                unpaddedOffsets[i] = sumByte;
+                if (!isPacked) {
+                    sumByte += Type.getPadding(sumByte, elementType, dataLayout);
+                }
+                elementOffsets[i] = sumByte;
+                sumByte += elementType.getSize(dataLayout);
             }
-        } else {
-            DataTypeSpecification spec = getDataTypeSpecification(baseType);
-            if (spec == null) {
-                throw new IllegalStateException("No data specification found for " + baseType);
+            unpaddedOffsets[types.length] = sumByte;
+            elementOffsets[types.length] = sumByte;
+
+            int padding = 0;
+            if (!isPacked && sumByte != 0) {
+                padding = Type.getPadding(sumByte, alignment);
+            }
+            this.size = sumByte + padding;
+
+            // an element is only padded if it does not start at the very end of the structure
+            this.offsets = new long[types.length + 1];
+            for (int i = 0; i <= types.length; i++) {
+                offsets[i] = !isPacked && size > unpaddedOffsets[i] ? elementOffsets[i] : unpaddedOffsets[i];
             }
-            return spec.getAbiAlignment();
         }
     }
 
     public DataLayout merge(DataLayout other) {
-        DataLayout result = new DataLayout();
+        List<DataTypeSpecification> result = new ArrayList<>();
         for (DataTypeSpecification otherEntry : other.dataLayout) {
             DataTypeSpecification thisEntry;
             if (otherEntry.getType() == DataLayoutType.POINTER || otherEntry.getType() == DataLayoutType.INTEGER_WIDTHS) {
@@ -105,12 +222,16 @@ public final class DataLayout {
                 throw new IllegalStateException("Unknown data layout type: " + otherEntry.getType());
             }
 
-            result.dataLayout.add(otherEntry);
+            result.add(otherEntry);
             if (thisEntry != null && !thisEntry.equals(otherEntry)) {
                 throw new IllegalStateException("Multiple bitcode files with incompatible layout strings are used: " + this.toString() + " vs. " + other.toString());
             }
         }
-        return result;
+        if (result.equals(dataLayout)) {
+            // keep the cached layouts if the data layout did not change
+            return this;
+        }
+        return new DataLayout(result);
     }
 
     @Override
@@ -118,33 +239,29 @@ public final class DataLayout {
         return dataLayout.toString();
     }
 
-    private DataTypeSpecification getDataTypeSpecification(Type baseType) {
-        if (baseType instanceof PointerType || baseType instanceof FunctionType) {
-            return getDataTypeSpecification(DataLayoutType.POINTER);
-        } else if (baseType instanceof PrimitiveType) {
-            PrimitiveType primitiveType = (PrimitiveType) baseType;
-            switch (primitiveType.getPrimitiveKind()) {
-                case I1:
-                case I8:
-                    // 1 is rounded up to 8 as well
-                    return getDataTypeSpecification(DataLayoutType.INTEGER, 8);
-                case I16:
-                    return getDataTypeSpecification(DataLayoutType.INTEGER, 16);
-                case I32:
-                    return getDataTypeSpecification(DataLayoutType.INTEGER, 32);
-                case I64:
-                    return getDataTypeSpecification(DataLayoutType.INTEGER, 64);
-                case HALF:
-                    return getDataTypeSpecification(DataLayoutType.FLOAT, 16);
-                case FLOAT:
-                    return getDataTypeSpecification(DataLayoutType.FLOAT, 32);
-                case DOUBLE:
-                    return getDataTypeSpecification(DataLayoutType.FLOAT, 64);
-                case X86_FP80:
-                    return getDataTypeSpecification(DataLayoutType.FLOAT, 80);
-            }
+    private DataTypeSpecification getDataTypeSpecification(PrimitiveKind kind) {
+        switch (kind) {
+            case I1:
+            case I8:
+                // 1 is rounded up to 8 as well
+                return getDataTypeSpecification(DataLayoutType.INTEGER, 8);
+            case I16:
+                return getDataTypeSpecification(DataLayoutType.INTEGER, 16);
+            case I32:
+                return getDataTypeSpecification(DataLayoutType.INTEGER, 32);
+            case I64:
+                return getDataTypeSpecification(DataLayoutType.INTEGER, 64);
+            case HALF:
+                return getDataTypeSpecification(DataLayoutType.FLOAT, 16);
+            case FLOAT:
+                return getDataTypeSpecification(DataLayoutType.FLOAT, 32);
+            case DOUBLE:
+                return getDataTypeSpecification(DataLayoutType.FLOAT, 64);
+            case X86_FP80:
+                return getDataTypeSpecification(DataLayoutType.FLOAT, 80);
+            default:
+                return null;
         }
-        return null;
     }
 
     private DataTypeSpecification getDataTypeSpecification(DataLayoutType dataLayoutType) {
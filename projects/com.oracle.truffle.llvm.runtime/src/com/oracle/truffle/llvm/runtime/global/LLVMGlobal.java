@@ -29,8 +29,11 @@
  */
 package com.oracle.truffle.llvm.runtime.global;
 
+import java.util.function.Supplier;
+
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.utilities.AssumedValue;
 import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.LLVMContext.ExternalLibrary;
@@ -45,7 +48,6 @@ import com.oracle.truffle.llvm.runtime.types.Type;
 public final class LLVMGlobal implements LLVMSymbol {
 
     private final LLVMContext context;
-    private final LLVMSourceSymbol sourceSymbol;
     private final boolean readOnly;
 
     /**
@@ -57,19 +59,32 @@ public final class LLVMGlobal implements LLVMSymbol {
 
     @CompilationFinal private String name;
     @CompilationFinal private PointerType type;
+    @CompilationFinal private LLVMSourceSymbol sourceSymbol;
+    private volatile Supplier<LLVMSourceSymbol> lazySourceSymbol;
     @CompilationFinal private ExternalLibrary library;
     @CompilationFinal private boolean interopTypeCached;
     @CompilationFinal private LLVMInteropType interopType;
+    @CompilationFinal private LLVMThreadLocalSegment threadLocalSegment;
+    @CompilationFinal private long threadLocalOffset;
 
     public static LLVMGlobal create(LLVMContext context, String name, PointerType type, LLVMSourceSymbol sourceSymbol, boolean readOnly) {
-        return new LLVMGlobal(context, name, type, sourceSymbol, readOnly);
+        return new LLVMGlobal(context, name, type, sourceSymbol, null, readOnly);
+    }
+
+    /**
+     * Creates a global whose source-level symbol is only computed when it is first needed, so that
+     * the debug information of its module does not need to be decoded eagerly.
+     */
+    public static LLVMGlobal createWithLazySourceSymbol(LLVMContext context, String name, PointerType type, Supplier<LLVMSourceSymbol> sourceSymbol, boolean readOnly) {
+        return new LLVMGlobal(context, name, type, null, sourceSymbol, readOnly);
     }
 
-    private LLVMGlobal(LLVMContext context, String name, PointerType type, LLVMSourceSymbol sourceSymbol, boolean readOnly) {
+    private LLVMGlobal(LLVMContext context, String name, PointerType type, LLVMSourceSymbol sourceSymbol, Supplier<LLVMSourceSymbol> lazySourceSymbol, boolean readOnly) {
         this.context = context;
         this.name = name;
         this.type = type;
         this.sourceSymbol = sourceSymbol;
+        this.lazySourceSymbol = lazySourceSymbol;
         this.readOnly = readOnly;
 
         this.library = null;
@@ -95,7 +110,8 @@ public final class LLVMGlobal implements LLVMSymbol {
     public LLVMInteropType getInteropType() {
         if (!interopTypeCached) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
-            LLVMSourceType sourceType = sourceSymbol != null ? sourceSymbol.getType() : null;
+            LLVMSourceSymbol symbol = getSourceSymbol();
+            LLVMSourceType sourceType = symbol != null ? symbol.getType() : null;
             interopType = context.getInteropType(sourceType);
             interopTypeCached = true;
         }
@@ -103,7 +119,27 @@ public final class LLVMGlobal implements LLVMSymbol {
     }
 
     public String getSourceName() {
-        return sourceSymbol != null ? sourceSymbol.getName() : name;
+        LLVMSourceSymbol symbol = getSourceSymbol();
+        return symbol != null ? symbol.getName() : name;
+    }
+
+    private LLVMSourceSymbol getSourceSymbol() {
+        if (lazySourceSymbol != null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            resolveSourceSymbol();
+        }
+        return sourceSymbol;
+    }
+
+    @TruffleBoundary
+    private synchronized void resolveSourceSymbol() {
+        // the symbol is published before the supplier is cleared, so that a thread that sees no
+        // supplier also sees the symbol
+        Supplier<LLVMSourceSymbol> supplier = lazySourceSymbol;
+        if (supplier != null) {
+            sourceSymbol = supplier.get();
+            lazySourceSymbol = null;
+        }
     }
 
     public Type getPointeeType() {
@@ -145,6 +181,30 @@ public final class LLVMGlobal implements LLVMSymbol {
         this.target.set(target);
     }
 
+    /**
+     * Binds this global to a location in a {@link LLVMThreadLocalSegment}. The
+     * {@linkplain #getTarget() target} of a thread-local global is its location in the image of
+     * the segment, which only serves as the destination of its initializer.
+     */
+    public void setThreadLocalTarget(LLVMThreadLocalSegment segment, long offset) {
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        this.threadLocalSegment = segment;
+        this.threadLocalOffset = offset;
+        this.target.set(segment.getImage().increment(offset));
+    }
+
+    public boolean isThreadLocal() {
+        return threadLocalSegment != null;
+    }
+
+    public LLVMThreadLocalSegment getThreadLocalSegment() {
+        return threadLocalSegment;
+    }
+
+    public long getThreadLocalOffset() {
+        return threadLocalOffset;
+    }
+
     public boolean isReadOnly() {
         return readOnly;
     }
@@ -44,6 +44,11 @@ import com.oracle.truffle.llvm.runtime.LLVMLanguage;
 import com.oracle.truffle.llvm.runtime.interop.LLVMInternalTruffleObject;
 import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI16;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI32;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI64;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI8;
+import com.oracle.truffle.llvm.runtime.memory.UnsafeArrayAccess;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMToNativeNode;
@@ -121,9 +126,15 @@ class ContainerForeignAccess {
     @Resolve(message = "WRITE")
     public abstract static class ForeignWriteNode extends Node {
 
+        @Child private LLVMToNativeNode toNative;
+
         protected Object access(LLVMGlobalContainer receiver, int index, Object value) {
             assert index == 0;
-            receiver.set(value);
+            if (toNative == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                toNative = insert(LLVMToNativeNode.createToNativeWithTarget());
+            }
+            receiver.set(value, toNative);
             return value;
         }
     }
@@ -132,19 +143,50 @@ class ContainerForeignAccess {
 @NodeChild(type = LLVMExpressionNode.class)
 public final class LLVMGlobalContainer implements LLVMObjectAccess, LLVMInternalTruffleObject {
 
-    long address;
-    Object contents;
+    // the contents once the value has moved to native memory
+    private static final Object IN_NATIVE = new Object();
 
-    public LLVMGlobalContainer() {
-        contents = 0L;
-    }
+    /*
+     * The value is managed in contents[0] until it moves to native memory. The move copies the
+     * value first and then replaces it by IN_NATIVE with a compare-and-swap, so a concurrent managed
+     * update either makes the move copy again or sees IN_NATIVE and waits for the address.
+     */
+    volatile long address;
+    final Object[] contents = new Object[]{0L};
 
     public Object get() {
-        return contents;
+        Object value = contents[0];
+        return value == IN_NATIVE ? getNative() : value;
+    }
+
+    /**
+     * Stores a value, in native memory if the value has already moved there.
+     */
+    @TruffleBoundary
+    public void set(Object value, LLVMToNativeNode toNative) {
+        UnsafeArrayAccess unsafeArrayAccess = LLVMLanguage.getLanguage().getCapability(UnsafeArrayAccess.class);
+        if (!trySetManaged(unsafeArrayAccess, value)) {
+            setNative(value, toNative);
+        }
+    }
+
+    /**
+     * @return {@code false} if the value has moved to native memory
+     */
+    boolean trySetManaged(UnsafeArrayAccess unsafeArrayAccess, Object value) {
+        while (true) {
+            Object current = contents[0];
+            if (current == IN_NATIVE) {
+                return false;
+            }
+            if (unsafeArrayAccess.compareAndSwapObject(contents, 0, current, value)) {
+                return true;
+            }
+        }
     }
 
-    public void set(Object value) {
-        contents = value;
+    static boolean isMoved(Object value) {
+        return value == IN_NATIVE;
     }
 
     public boolean isInNative() {
@@ -160,22 +202,42 @@ public final class LLVMGlobalContainer implements LLVMObjectAccess, LLVMInternal
         return 1;
     }
 
+    /**
+     * Moves the value to native memory. When this returns, {@link #address} is set, also if another
+     * thread did the move.
+     */
     @TruffleBoundary
-    void transformToNative(LLVMToNativeNode toNative) {
+    synchronized void transformToNative(LLVMToNativeNode toNative) {
         if (address == 0) {
             LLVMMemory memory = LLVMLanguage.getLanguage().getCapability(LLVMMemory.class);
+            UnsafeArrayAccess unsafeArrayAccess = LLVMLanguage.getLanguage().getCapability(UnsafeArrayAccess.class);
             LLVMNativePointer pointer = memory.allocateMemory(8);
+            Object value;
+            do {
+                value = contents[0];
+                memory.putI64(pointer, toI64(value, toNative));
+            } while (!unsafeArrayAccess.compareAndSwapObject(contents, 0, value, IN_NATIVE));
             address = pointer.asNative();
-            long value;
-            if (contents instanceof Number) {
-                value = ((Number) contents).longValue();
-            } else {
-                value = toNative.executeWithTarget(contents).asNative();
-            }
-            memory.putI64(pointer, value);
         }
     }
 
+    @TruffleBoundary
+    private synchronized long getNative() {
+        return LLVMLanguage.getLanguage().getCapability(LLVMMemory.class).getI64(address);
+    }
+
+    private void setNative(Object value, LLVMToNativeNode toNative) {
+        transformToNative(toNative);
+        LLVMLanguage.getLanguage().getCapability(LLVMMemory.class).putI64(address, toI64(value, toNative));
+    }
+
+    private static long toI64(Object value, LLVMToNativeNode toNative) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return toNative.executeWithTarget(value).asNative();
+    }
+
     @Override
     public ForeignAccess getForeignAccess() {
         return ContainerForeignAccessForeign.ACCESS;
@@ -191,6 +253,11 @@ public final class LLVMGlobalContainer implements LLVMObjectAccess, LLVMInternal
         return new LLVMGlobalContainerWriteNode();
     }
 
+    @Override
+    public LLVMObjectCompareExchangeNode createCompareExchangeNode() {
+        return new LLVMGlobalContainerCompareExchangeNode();
+    }
+
     static class LLVMGlobalContainerReadNode extends LLVMObjectReadNode {
 
         @Child private LLVMToNativeNode toNative;
@@ -213,7 +280,16 @@ public final class LLVMGlobalContainer implements LLVMObjectAccess, LLVMInternal
                     }
                     container.transformToNative(toNative);
                 } else {
-                    return ((LLVMGlobalContainer) obj).get();
+                    Object value = container.contents[0];
+                    if (!isMoved(value)) {
+                        return value;
+                    }
+                    // moved concurrently, wait until the address is set
+                    if (toNative == null) {
+                        CompilerDirectives.transferToInterpreterAndInvalidate();
+                        toNative = insert(LLVMToNativeNode.createToNativeWithTarget());
+                    }
+                    container.transformToNative(toNative);
                 }
             }
             if (memory == null) {
@@ -246,12 +322,13 @@ public final class LLVMGlobalContainer implements LLVMObjectAccess, LLVMInternal
     @Override
     @TruffleBoundary
     public String toString() {
-        return String.format("LLVMGlobalContainer (address = 0x%x, contents = %s)", address, contents);
+        return String.format("LLVMGlobalContainer (address = 0x%x, contents = %s)", address, contents[0]);
     }
 
     static class LLVMGlobalContainerWriteNode extends LLVMObjectWriteNode {
         @Child private LLVMToNativeNode toNative;
         @CompilationFinal private LLVMMemory memory;
+        @CompilationFinal private UnsafeArrayAccess unsafeArrayAccess;
 
         @Override
         public boolean canAccess(Object obj) {
@@ -270,8 +347,19 @@ public final class LLVMGlobalContainer implements LLVMObjectAccess, LLVMInternal
                     }
                     container.transformToNative(toNative);
                 } else {
-                    ((LLVMGlobalContainer) obj).set(value);
-                    return;
+                    if (unsafeArrayAccess == null) {
+                        CompilerDirectives.transferToInterpreterAndInvalidate();
+                        unsafeArrayAccess = getUnsafeArrayAccess();
+                    }
+                    if (container.trySetManaged(unsafeArrayAccess, value)) {
+                        return;
+                    }
+                    // moved concurrently, wait until the address is set
+                    if (toNative == null) {
+                        CompilerDirectives.transferToInterpreterAndInvalidate();
+                        toNative = insert(LLVMToNativeNode.createToNativeWithTarget());
+                    }
+                    container.transformToNative(toNative);
                 }
             }
             if (memory == null) {
@@ -315,11 +403,98 @@ public final class LLVMGlobalContainer implements LLVMObjectAccess, LLVMInternal
         }
     }
 
-    public void dispose() {
+    static class LLVMGlobalContainerCompareExchangeNode extends LLVMObjectCompareExchangeNode {
+        @Child private LLVMToNativeNode toNative;
+        @CompilationFinal private LLVMMemory memory;
+        @CompilationFinal private UnsafeArrayAccess unsafeArrayAccess;
+
+        @Override
+        public boolean canAccess(Object obj) {
+            return obj instanceof LLVMGlobalContainer;
+        }
+
+        @Override
+        public Object executeCompareExchange(Object obj, long offset, Object expected, Object newValue, ForeignToLLVMType type) throws InteropException {
+            LLVMGlobalContainer container = (LLVMGlobalContainer) obj;
+
+            if (container.address == 0) {
+                if (offset != 0 || type != ForeignToLLVMType.POINTER && type != ForeignToLLVMType.I64) {
+                    container.transformToNative(getToNative());
+                } else {
+                    if (unsafeArrayAccess == null) {
+                        CompilerDirectives.transferToInterpreterAndInvalidate();
+                        unsafeArrayAccess = getUnsafeArrayAccess();
+                    }
+                    while (true) {
+                        Object current = container.contents[0];
+                        if (isMoved(current)) {
+                            // moved concurrently, wait until the address is set
+                            container.transformToNative(getToNative());
+                            break;
+                        }
+                        if (!isSameValue(current, expected) || unsafeArrayAccess.compareAndSwapObject(container.contents, 0, current, newValue)) {
+                            return current;
+                        }
+                    }
+                }
+            }
+            if (memory == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                memory = getLLVMMemory();
+            }
+            LLVMNativePointer pointer = LLVMNativePointer.create(container.address);
+            switch (type) {
+                case I1: {
+                    CMPXCHGI8 result = memory.compareAndSwapI8(pointer, (byte) ((boolean) expected ? 1 : 0), (byte) ((boolean) newValue ? 1 : 0));
+                    return result.isSwap() ? expected : result.getValue() != 0;
+                }
+                case I8: {
+                    CMPXCHGI8 result = memory.compareAndSwapI8(pointer, (byte) expected, (byte) newValue);
+                    return result.isSwap() ? expected : result.getValue();
+                }
+                case I16: {
+                    CMPXCHGI16 result = memory.compareAndSwapI16(pointer, (short) expected, (short) newValue);
+                    return result.isSwap() ? expected : result.getValue();
+                }
+                case I32: {
+                    CMPXCHGI32 result = memory.compareAndSwapI32(pointer, (int) expected, (int) newValue);
+                    return result.isSwap() ? expected : result.getValue();
+                }
+                case I64: {
+                    CMPXCHGI64 result = memory.compareAndSwapI64(pointer, toI64(expected), toI64(newValue));
+                    return result.isSwap() ? expected : result.getValue();
+                }
+                case POINTER: {
+                    CMPXCHGI64 result = memory.compareAndSwapI64(pointer, toI64(expected), toI64(newValue));
+                    return result.isSwap() ? expected : LLVMNativePointer.create(result.getValue());
+                }
+                default:
+                    throw new IllegalStateException("unexpected type " + type);
+            }
+        }
+
+        private long toI64(Object value) {
+            if (value instanceof Long) {
+                return (long) value;
+            }
+            return getToNative().executeWithTarget(value).asNative();
+        }
+
+        private LLVMToNativeNode getToNative() {
+            if (toNative == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                toNative = insert(LLVMToNativeNode.createToNativeWithTarget());
+            }
+            return toNative;
+        }
+    }
+
+    public synchronized void dispose() {
         if (address != 0) {
             LLVMMemory memory = LLVMLanguage.getLanguage().getCapability(LLVMMemory.class);
             memory.free(address);
             address = 0;
+            contents[0] = 0L;
         }
     }
 }
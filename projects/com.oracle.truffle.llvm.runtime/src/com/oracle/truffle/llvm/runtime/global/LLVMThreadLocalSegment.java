@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.global;
+
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+
+/**
+ * The thread-local globals of a module, laid out as one block at link time. The initializers of
+ * these globals write to a shared image; each thread receives its own copy of that image when it
+ * first accesses one of the globals.
+ */
+public final class LLVMThreadLocalSegment {
+
+    private final int index;
+    private final LLVMNativePointer image;
+    private final long size;
+
+    public LLVMThreadLocalSegment(int index, LLVMNativePointer image, long size) {
+        this.index = index;
+        this.image = image;
+        this.size = size;
+    }
+
+    /**
+     * A context-wide unique index that is used to find the block of this segment in a
+     * {@link com.oracle.truffle.llvm.runtime.LLVMThreadContext}.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public LLVMNativePointer getImage() {
+        return image;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
@@ -86,6 +86,11 @@ public final class LLVMTypedForeignObject implements LLVMObjectAccess, LLVMInter
         return new ForeignWriteNode();
     }
 
+    @Override
+    public LLVMObjectCompareExchangeNode createCompareExchangeNode() {
+        return new ForeignCompareExchangeNode();
+    }
+
     @Override
     public boolean equals(Object obj) {
         // ignores the type explicitly
@@ -207,4 +212,31 @@ public final class LLVMTypedForeignObject implements LLVMObjectAccess, LLVMInter
             return obj instanceof LLVMTypedForeignObject;
         }
     }
+
+    /**
+     * Interop offers no atomic update, so the foreign object is locked for the duration of the
+     * read and the conditional write.
+     */
+    static class ForeignCompareExchangeNode extends LLVMObjectCompareExchangeNode {
+
+        @Child ForeignReadNode read = new ForeignReadNode();
+        @Child ForeignWriteNode write = new ForeignWriteNode();
+
+        @Override
+        public Object executeCompareExchange(Object obj, long offset, Object expected, Object newValue, ForeignToLLVMType type) throws InteropException {
+            LLVMTypedForeignObject object = (LLVMTypedForeignObject) obj;
+            synchronized (object.getForeign()) {
+                Object current = read.executeRead(object, offset, type);
+                if (isSameValue(current, expected)) {
+                    write.executeWrite(object, offset, newValue, type);
+                }
+                return current;
+            }
+        }
+
+        @Override
+        public boolean canAccess(Object obj) {
+            return obj instanceof LLVMTypedForeignObject;
+        }
+    }
 }
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import sun.misc.Unsafe;
+
+/**
+ * A size-class allocator for small native allocations. A single arena is reserved up front and
+ * carved into slabs of {@link #SLAB_SIZE} bytes. Every slab serves blocks of one size class and is
+ * owned by one {@link ThreadCache}, so allocating and freeing on the owning thread only touches
+ * the thread-local free lists. Blocks that are freed by another thread are pushed onto a lock-free
+ * remote free list of the owning cache, which the owner drains when its local list runs empty.
+ *
+ * Callers that can reach the {@link ThreadCache} of the current thread cheaply, e.g., through the
+ * {@link com.oracle.truffle.llvm.runtime.LLVMThreadContext}, should pass it in. Then allocating
+ * and freeing can be partially evaluated, and only taking a new slab is behind a boundary. The
+ * variants without a cache look it up in a thread local.
+ *
+ * Requests larger than {@link #MAX_BLOCK_SIZE}, and all requests once the arena is exhausted, are
+ * not handled by this allocator; callers have to fall back to the system allocator. Whether an
+ * address belongs to the arena can be decided with {@link #contains(long)}.
+ */
+public final class LLVMArenaAllocator {
+
+    private static final int SLAB_SHIFT = 16;
+    public static final long SLAB_SIZE = 1L << SLAB_SHIFT;
+
+    /* malloc has to return memory that is suitably aligned for any fundamental type */
+    private static final int GRANULE_SHIFT = 4;
+
+    private static final int[] BLOCK_SIZES = {16, 32, 48, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, 448, 512, 640, 768, 896, 1024, 1280, 1536, 1792, 2048, 2560, 3072, 3584,
+                    4096};
+
+    public static final int MAX_BLOCK_SIZE = BLOCK_SIZES[BLOCK_SIZES.length - 1];
+
+    /* maps the number of granules of a request to the index of its size class */
+    private static final byte[] SIZE_CLASS_INDEX = createSizeClassIndex();
+
+    private final Unsafe unsafe;
+    private final boolean reservationZeroed;
+
+    private final long arenaStart;
+    private final long arenaEnd;
+    private final AtomicLong slabTop;
+    private final AtomicReferenceArray<Slab> slabs;
+
+    private final ThreadLocal<ThreadCache> currentCache = new ThreadLocal<>();
+    private final Map<Thread, ThreadCache> activeCaches = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ThreadCache> orphanedCaches = new ConcurrentLinkedQueue<>();
+
+    private static final class Slab {
+        private final ThreadCache owner;
+        private final int sizeClass;
+
+        private Slab(ThreadCache owner, int sizeClass) {
+            this.owner = owner;
+            this.sizeClass = sizeClass;
+        }
+    }
+
+    /**
+     * The allocation state of one thread. A cache is used by at most one thread at a time; when its
+     * thread is released, the cache (including its slabs and free lists) is handed over to the next
+     * thread that needs one.
+     */
+    public static final class ThreadCache {
+        private volatile Thread owner;
+
+        private final long[] freeLists = new long[BLOCK_SIZES.length];
+        private final long[] slabCursors = new long[BLOCK_SIZES.length];
+        private final long[] slabLimits = new long[BLOCK_SIZES.length];
+        private final AtomicLongArray remoteFreeLists = new AtomicLongArray(BLOCK_SIZES.length);
+
+        private ThreadCache() {
+        }
+
+        /**
+         * A cache that was obtained by a thread stays valid until the thread is released.
+         */
+        public boolean isOwnedByCurrentThread() {
+            return owner == Thread.currentThread();
+        }
+    }
+
+    /**
+     * @param reservation the memory of the arena, which was allocated with
+     *            {@link #getReservationSize}
+     * @param reservationZeroed whether the reservation is known to be zero, e.g., because it is a
+     *            fresh anonymous mapping
+     */
+    LLVMArenaAllocator(Unsafe unsafe, long reservation, long reservationSize, boolean reservationZeroed) {
+        this.unsafe = unsafe;
+        this.reservationZeroed = reservationZeroed;
+        long slabCount = (reservationSize >>> SLAB_SHIFT) - 1;
+        // the operating system only commits the pages of the reservation that are actually touched
+        this.arenaStart = (reservation + SLAB_SIZE - 1) & -SLAB_SIZE;
+        this.arenaEnd = arenaStart + (slabCount << SLAB_SHIFT);
+        this.slabTop = new AtomicLong(arenaStart);
+        this.slabs = new AtomicReferenceArray<>((int) slabCount);
+    }
+
+    /**
+     * Returns the size of the memory that an arena of {@code arenaSize} bytes is carved from. It
+     * includes a slab for aligning the arena.
+     */
+    static long getReservationSize(long arenaSize) {
+        assert arenaSize > 0;
+        long slabCount = (arenaSize + SLAB_SIZE - 1) >>> SLAB_SHIFT;
+        if (slabCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Arena size too large: " + arenaSize);
+        }
+        return (slabCount + 1) << SLAB_SHIFT;
+    }
+
+    private static byte[] createSizeClassIndex() {
+        byte[] index = new byte[(MAX_BLOCK_SIZE >>> GRANULE_SHIFT) + 1];
+        int sizeClass = 0;
+        for (int granules = 0; granules < index.length; granules++) {
+            if ((granules << GRANULE_SHIFT) > BLOCK_SIZES[sizeClass]) {
+                sizeClass++;
+            }
+            index[granules] = (byte) sizeClass;
+        }
+        return index;
+    }
+
+    private static int getSizeClass(long size) {
+        assert size >= 0 && size <= MAX_BLOCK_SIZE;
+        return SIZE_CLASS_INDEX[(int) ((size + (1 << GRANULE_SHIFT) - 1) >>> GRANULE_SHIFT)];
+    }
+
+    public static boolean isSmall(long size) {
+        return size >= 0 && size <= MAX_BLOCK_SIZE;
+    }
+
+    public boolean contains(long address) {
+        return address >= arenaStart && address < arenaEnd;
+    }
+
+    /**
+     * Returns the usable size of a block that was allocated by this allocator.
+     */
+    public long getBlockSize(long address) {
+        assert contains(address);
+        return BLOCK_SIZES[getSlab(address).sizeClass];
+    }
+
+    private Slab getSlab(long address) {
+        Slab slab = slabs.get((int) ((address - arenaStart) >>> SLAB_SHIFT));
+        assert slab != null : "address " + Long.toHexString(address) + " was not allocated by the arena";
+        return slab;
+    }
+
+    /**
+     * Allocates a block for a request of at most {@link #MAX_BLOCK_SIZE} bytes.
+     *
+     * @return the address of the block, or 0 if the arena is exhausted
+     */
+    @TruffleBoundary
+    public long allocate(long size) {
+        return allocate(getThreadCache(), size);
+    }
+
+    /**
+     * Allocates a block from the cache of the current thread.
+     *
+     * @return the address of the block, or 0 if the arena is exhausted
+     */
+    public long allocate(ThreadCache cache, long size) {
+        assert cache.isOwnedByCurrentThread();
+        int sizeClass = getSizeClass(size);
+        long block = takeFreeBlock(cache, sizeClass);
+        if (block != 0) {
+            return block;
+        }
+        return carveBlock(cache, sizeClass);
+    }
+
+    private long takeFreeBlock(ThreadCache cache, int sizeClass) {
+        long block = cache.freeLists[sizeClass];
+        if (block == 0 && cache.remoteFreeLists.get(sizeClass) != 0) {
+            // take over everything that other threads have freed in the meantime
+            block = cache.remoteFreeLists.getAndSet(sizeClass, 0);
+        }
+        if (block != 0) {
+            cache.freeLists[sizeClass] = unsafe.getAddress(block);
+        }
+        return block;
+    }
+
+    private long carveBlock(ThreadCache cache, int sizeClass) {
+        long cursor = cache.slabCursors[sizeClass];
+        long next = cursor + BLOCK_SIZES[sizeClass];
+        if (next <= cache.slabLimits[sizeClass]) {
+            cache.slabCursors[sizeClass] = next;
+            return cursor;
+        }
+        return carveFromNewSlab(cache, sizeClass);
+    }
+
+    /**
+     * Like {@link #allocate(long)}, but the first {@code size} bytes of the block are zero. Blocks
+     * that are carved from a fresh slab of a zeroed reservation do not need to be cleared.
+     */
+    @TruffleBoundary
+    public long allocateZeroed(long size) {
+        return allocateZeroed(getThreadCache(), size);
+    }
+
+    public long allocateZeroed(ThreadCache cache, long size) {
+        assert cache.isOwnedByCurrentThread();
+        int sizeClass = getSizeClass(size);
+        long block = takeFreeBlock(cache, sizeClass);
+        if (block == 0) {
+            block = carveBlock(cache, sizeClass);
+            if (block == 0 || reservationZeroed) {
+                return block;
+            }
+        }
+        unsafe.setMemory(block, size, (byte) 0);
+        return block;
+    }
+
+    @TruffleBoundary
+    private long carveFromNewSlab(ThreadCache cache, int sizeClass) {
+        long slab = slabTop.getAndAdd(SLAB_SIZE);
+        if (slab >= arenaEnd) {
+            return 0;
+        }
+        slabs.set((int) ((slab - arenaStart) >>> SLAB_SHIFT), new Slab(cache, sizeClass));
+        cache.slabCursors[sizeClass] = slab + BLOCK_SIZES[sizeClass];
+        cache.slabLimits[sizeClass] = slab + SLAB_SIZE;
+        return slab;
+    }
+
+    @TruffleBoundary
+    public void free(long address) {
+        free(getThreadCache(), address);
+    }
+
+    /**
+     * Frees a block. The cache of the current thread is needed to decide whether the block can be
+     * put onto a local free list.
+     */
+    public void free(ThreadCache cache, long address) {
+        assert cache.isOwnedByCurrentThread();
+        Slab slab = getSlab(address);
+        if (slab.owner == cache) {
+            unsafe.putAddress(address, cache.freeLists[slab.sizeClass]);
+            cache.freeLists[slab.sizeClass] = address;
+        } else {
+            freeRemote(slab.owner, slab.sizeClass, address);
+        }
+    }
+
+    @TruffleBoundary
+    private void freeRemote(ThreadCache owner, int sizeClass, long address) {
+        long head;
+        do {
+            head = owner.remoteFreeLists.get(sizeClass);
+            unsafe.putAddress(address, head);
+        } while (!owner.remoteFreeLists.compareAndSet(sizeClass, head, address));
+    }
+
+    /**
+     * Returns the cache of the current thread. The result can be kept by the caller as long as
+     * {@link ThreadCache#isOwnedByCurrentThread()} holds.
+     */
+    @TruffleBoundary
+    public ThreadCache getThreadCache() {
+        ThreadCache cache = currentCache.get();
+        if (cache != null && cache.owner == Thread.currentThread()) {
+            return cache;
+        }
+        return acquireThreadCache();
+    }
+
+    private ThreadCache acquireThreadCache() {
+        Thread thread = Thread.currentThread();
+        ThreadCache cache = orphanedCaches.poll();
+        if (cache == null) {
+            cache = new ThreadCache();
+        }
+        cache.owner = thread;
+        currentCache.set(cache);
+        activeCaches.put(thread, cache);
+        return cache;
+    }
+
+    /**
+     * Hands the cache of a terminating thread over to the next thread that starts allocating, so
+     * that the slabs it owns are not lost. Blocks of these slabs that are still in use can be freed
+     * at any time.
+     */
+    @TruffleBoundary
+    public void releaseThread(Thread thread) {
+        ThreadCache cache = activeCaches.remove(thread);
+        if (cache != null) {
+            cache.owner = null;
+            orphanedCaches.add(cache);
+        }
+    }
+}
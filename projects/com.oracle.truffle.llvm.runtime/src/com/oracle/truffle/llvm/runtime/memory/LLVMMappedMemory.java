@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.interop.ForeignAccess;
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.api.interop.Message;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.NFIContextExtension;
+
+/**
+ * Serves large zeroed allocations from anonymous mappings of the operating system. The pages of a
+ * fresh mapping are zero and only committed when they are touched, so neither a clearing pass nor
+ * the page faults of untouched pages are needed. The mappings are registered by their address, so
+ * that {@link LLVMNativeMemory#free} and {@link LLVMNativeMemory#reallocateMemory} can tell them
+ * apart from blocks of the system allocator.
+ */
+public final class LLVMMappedMemory {
+
+    // Linux on AMD64
+    private static final int PROT_READ = 0x1;
+    private static final int PROT_WRITE = 0x2;
+    private static final int MAP_PRIVATE = 0x02;
+    private static final int MAP_ANONYMOUS = 0x20;
+    private static final long MAP_FAILED = -1;
+
+    private final TruffleObject mmap;
+    private final TruffleObject munmap;
+    private final Map<Long, Long> mappings = new ConcurrentHashMap<>();
+
+    private LLVMMappedMemory(TruffleObject mmap, TruffleObject munmap) {
+        this.mmap = mmap;
+        this.munmap = munmap;
+    }
+
+    /**
+     * Binds {@code mmap} and {@code munmap} of the native C library through NFI.
+     *
+     * @return {@code null} if the functions are not available on this platform
+     */
+    public static LLVMMappedMemory create(LLVMContext context, NFIContextExtension nfiContext) {
+        if (!System.getProperty("os.name").toLowerCase().contains("linux")) {
+            return null;
+        }
+        if (nfiContext.getNativeFunctionOrNull(context, "@mmap") == null || nfiContext.getNativeFunctionOrNull(context, "@munmap") == null) {
+            return null;
+        }
+        TruffleObject mmap = nfiContext.getNativeFunction(context, "@mmap", "(UINT64,UINT64,SINT32,SINT32,SINT32,SINT64):SINT64");
+        TruffleObject munmap = nfiContext.getNativeFunction(context, "@munmap", "(UINT64,UINT64):SINT32");
+        return new LLVMMappedMemory(mmap, munmap);
+    }
+
+    /**
+     * @return the address of a new mapping of at least {@code size} zero bytes, or 0 if the
+     *         operating system refused it
+     */
+    @TruffleBoundary
+    public long map(long size) {
+        long address = ((Number) execute(mmap, 0L, size, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0L)).longValue();
+        if (address == MAP_FAILED) {
+            return 0;
+        }
+        mappings.put(address, size);
+        return address;
+    }
+
+    /**
+     * @return the size of the mapping at {@code address}, or -1 if it is not a mapping
+     */
+    @TruffleBoundary
+    public long getSize(long address) {
+        Long size = mappings.get(address);
+        return size == null ? -1 : size;
+    }
+
+    /**
+     * Unmaps the mapping at {@code address}.
+     *
+     * @return {@code false} if {@code address} is not a mapping of this allocator
+     */
+    @TruffleBoundary
+    public boolean unmap(long address) {
+        Long size = mappings.remove(address);
+        if (size == null) {
+            return false;
+        }
+        execute(munmap, address, size);
+        return true;
+    }
+
+    private static Object execute(TruffleObject function, Object... args) {
+        try {
+            return ForeignAccess.sendExecute(Message.EXECUTE.createNode(), function, args);
+        } catch (InteropException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.util.function.LongBinaryOperator;
 
 import com.oracle.truffle.api.CompilerDirectives.ValueType;
 import com.oracle.truffle.llvm.runtime.LLVMIVarBit;
+import com.oracle.truffle.llvm.runtime.LLVMThreadContext;
 import com.oracle.truffle.llvm.runtime.floating.LLVM80BitFloat;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 
@@ -52,8 +53,28 @@ public abstract class LLVMMemory {
 
     public abstract void free(long address);
 
+    /**
+     * Like {@link #free(LLVMNativePointer)}, for callers that know the context of the current
+     * thread.
+     */
+    public abstract void free(LLVMThreadContext thread, LLVMNativePointer address);
+
     public abstract LLVMNativePointer allocateMemory(long size);
 
+    /**
+     * Like {@link #allocateMemory(long)}, for callers that know the context of the current thread.
+     * Small blocks are then allocated without looking up the allocation state of the thread.
+     */
+    public abstract LLVMNativePointer allocateMemory(LLVMThreadContext thread, long size);
+
+    /**
+     * Allocates {@code size} bytes that are guaranteed to be zero. Implementations should avoid
+     * clearing memory that is already known to be zero.
+     */
+    public abstract LLVMNativePointer allocateZeroedMemory(long size);
+
+    public abstract LLVMNativePointer allocateZeroedMemory(LLVMThreadContext thread, long size);
+
     /**
      * Use a realloc node instead.
      */
@@ -142,6 +163,12 @@ public abstract class LLVMMemory {
 
     public abstract void putByteArray(long ptr, byte[] bytes);
 
+    /**
+     * Copies a whole array to native memory at once, e.g., to initialize a large memory region from
+     * a precomputed image.
+     */
+    public abstract void copyFromArray(byte[] source, LLVMNativePointer target);
+
     public abstract CMPXCHGI32 compareAndSwapI32(LLVMNativePointer p, int comparisonValue, int newValue);
 
     public abstract CMPXCHGI64 compareAndSwapI64(LLVMNativePointer p, long comparisonValue, long newValue);
@@ -174,6 +201,16 @@ public abstract class LLVMMemory {
 
     public abstract void fullFence();
 
+    /**
+     * Orders loads before the fence with loads and stores after it (an acquire fence).
+     */
+    public abstract void loadFence();
+
+    /**
+     * Orders loads and stores before the fence with stores after it (a release fence).
+     */
+    public abstract void storeFence();
+
     /**
      * Allocates {@code #OBJECT_SIZE} bytes in the Kernel space.
      */
@@ -30,6 +30,9 @@
 package com.oracle.truffle.llvm.runtime.memory;
 
 import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BinaryOperator;
 import java.util.function.IntBinaryOperator;
 import java.util.function.LongBinaryOperator;
@@ -37,41 +40,58 @@ import java.util.function.LongBinaryOperator;
 import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.llvm.runtime.LLVMIVarBit;
 import com.oracle.truffle.llvm.runtime.LLVMLanguage;
+import com.oracle.truffle.llvm.runtime.LLVMThreadContext;
 import com.oracle.truffle.llvm.runtime.floating.LLVM80BitFloat;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 
 import sun.misc.Unsafe;
 
 public final class LLVMNativeMemory extends LLVMMemory {
-    /* must be a power of 2 */
-    private static final long DEREF_HANDLE_OBJECT_SIZE = 1L << 20;
-    private static final long DEREF_HANDLE_OBJECT_MASK = (1L << 20) - 1L;
+    private static final int DEREF_HANDLE_OBJECT_SHIFT = 20;
+    private static final long DEREF_HANDLE_OBJECT_SIZE = 1L << DEREF_HANDLE_OBJECT_SHIFT;
+    private static final long DEREF_HANDLE_OBJECT_MASK = DEREF_HANDLE_OBJECT_SIZE - 1L;
 
     private static final long DEREF_HANDLE_SPACE_START = 0x0FFFFFFFFFFFFFFFL & ~DEREF_HANDLE_OBJECT_MASK;
     private static final long DEREF_HANDLE_SPACE_END = 0x0FFF800000000000L & ~DEREF_HANDLE_OBJECT_MASK;
 
+    private static final long DEREF_HANDLE_SPACE_CAPACITY = (DEREF_HANDLE_SPACE_START - DEREF_HANDLE_SPACE_END) >>> DEREF_HANDLE_OBJECT_SHIFT;
+
+    /*
+     * Freed handle slots are kept on a Treiber stack of slot indices. The links of the stack live
+     * in int arrays that are created when the bump allocator first hands out a slot of a chunk, so
+     * freeing a handle never allocates. The head of the stack packs a modification count into the
+     * upper half to rule out ABA problems.
+     */
+    private static final int FREE_SLOT_CHUNK_SHIFT = 12;
+    private static final int FREE_SLOT_CHUNK_MASK = (1 << FREE_SLOT_CHUNK_SHIFT) - 1;
+    private static final int NO_FREE_SLOT = -1;
+
     private static final Unsafe unsafe = getUnsafe();
 
-    private final Object freeListLock = new Object();
-    private FreeListNode freeList;
+    private final AtomicLong freeSlotsHead = new AtomicLong(NO_FREE_SLOT & 0xFFFFFFFFL);
+    private final AtomicReferenceArray<AtomicIntegerArray> freeSlotLinks = new AtomicReferenceArray<>((int) (DEREF_HANDLE_SPACE_CAPACITY >>> FREE_SLOT_CHUNK_SHIFT) + 1);
 
-    private final Object derefSpaceTopLock = new Object();
-    private long derefSpaceTop = DEREF_HANDLE_SPACE_START;
+    private final AtomicLong derefSpaceTop = new AtomicLong(DEREF_HANDLE_SPACE_START);
+    private final AtomicLong allocatedDerefHandles = new AtomicLong();
 
     private final Assumption noDerefHandleAssumption = Truffle.getRuntime().createAssumption("no deref handle assumption");
 
-    private static final class FreeListNode {
-        protected FreeListNode(long address, FreeListNode next) {
-            this.address = address;
-            this.next = next;
-        }
+    private final Assumption noArenaAllocatorAssumption = Truffle.getRuntime().createAssumption("no arena allocator assumption");
+    @CompilationFinal private LLVMArenaAllocator arenaAllocator;
 
-        private final long address;
-        private final FreeListNode next;
-    }
+    /*
+     * Zeroed requests of at least this size get fresh pages of an anonymous mapping, like the
+     * default mmap threshold of glibc's malloc.
+     */
+    private static final long MAPPED_MEMORY_THRESHOLD = 128 * 1024;
+
+    private final Assumption noMappedMemoryAssumption = Truffle.getRuntime().createAssumption("no mapped memory assumption");
+    @CompilationFinal private LLVMMappedMemory mappedMemory;
 
     private static Unsafe getUnsafe() {
         CompilerAsserts.neverPartOfCompilation();
@@ -98,6 +118,61 @@ public final class LLVMNativeMemory extends LLVMMemory {
     private LLVMNativeMemory() {
     }
 
+    /**
+     * Serves small allocations from an {@link LLVMArenaAllocator} from now on. The arena is shared
+     * by all contexts, so only the first call reserves it and determines its size. If anonymous
+     * mappings are enabled, the arena is a mapping, whose fresh slabs need not be cleared.
+     */
+    public synchronized void enableArenaAllocator(long arenaSize) {
+        if (arenaAllocator == null) {
+            if (mappedMemory != null) {
+                long reservationSize = LLVMArenaAllocator.getReservationSize(arenaSize);
+                long reservation = mappedMemory.map(reservationSize);
+                if (reservation != 0) {
+                    arenaAllocator = new LLVMArenaAllocator(unsafe, reservation, reservationSize, true);
+                }
+            }
+            if (arenaAllocator == null) {
+                arenaAllocator = createArenaAllocator(arenaSize);
+            }
+            noArenaAllocatorAssumption.invalidate();
+        }
+    }
+
+    /**
+     * Serves large zeroed allocations from anonymous mappings from now on. Like the arena, this is
+     * shared by all contexts, so only the first call has an effect.
+     */
+    public synchronized void enableMappedMemory(LLVMMappedMemory memory) {
+        if (mappedMemory == null && memory != null) {
+            mappedMemory = memory;
+            noMappedMemoryAssumption.invalidate();
+        }
+    }
+
+    public boolean isMappedMemoryEnabled() {
+        return !noMappedMemoryAssumption.isValid();
+    }
+
+    /**
+     * Creates an arena allocator that is independent of the one that serves guest allocations.
+     */
+    public static LLVMArenaAllocator createArenaAllocator(long arenaSize) {
+        long reservationSize = LLVMArenaAllocator.getReservationSize(arenaSize);
+        // the arena lives as long as the process
+        return new LLVMArenaAllocator(unsafe, unsafe.allocateMemory(reservationSize), reservationSize, false);
+    }
+
+    public void releaseThread(Thread thread) {
+        if (!noArenaAllocatorAssumption.isValid()) {
+            arenaAllocator.releaseThread(thread);
+        }
+    }
+
+    private boolean isArenaMemory(long address) {
+        return !noArenaAllocatorAssumption.isValid() && arenaAllocator.contains(address);
+    }
+
     @Override
     @Deprecated
     @SuppressWarnings("deprecation")
@@ -127,10 +202,13 @@ public final class LLVMNativeMemory extends LLVMMemory {
     public void free(long address) {
         if (address <= DEREF_HANDLE_SPACE_START && address > DEREF_HANDLE_SPACE_END) {
             assert isAllocated(address) : "double-free of " + Long.toHexString(address);
-            synchronized (freeListLock) {
-                // We need to mask because we allow creating handles with an offset.
-                freeList = new FreeListNode(address & ~DEREF_HANDLE_OBJECT_MASK, freeList);
-            }
+            // We need to mask because we allow creating handles with an offset.
+            pushFreeSlot(getDerefHandleSlot(address & ~DEREF_HANDLE_OBJECT_MASK));
+            allocatedDerefHandles.decrementAndGet();
+        } else if (isArenaMemory(address)) {
+            arenaAllocator.free(address);
+        } else if (isMappedMemoryEnabled() && mappedMemory.unmap(address)) {
+            return;
         } else {
             try {
                 unsafe.freeMemory(address);
@@ -142,8 +220,40 @@ public final class LLVMNativeMemory extends LLVMMemory {
         }
     }
 
+    @Override
+    public void free(LLVMThreadContext thread, LLVMNativePointer address) {
+        long value = address.asNative();
+        if (isArenaMemory(value)) {
+            arenaAllocator.free(thread.getAllocationCache(arenaAllocator), value);
+        } else {
+            free(value);
+        }
+    }
+
     @Override
     public LLVMNativePointer allocateMemory(long size) {
+        if (!noArenaAllocatorAssumption.isValid() && LLVMArenaAllocator.isSmall(size)) {
+            long block = arenaAllocator.allocate(size);
+            if (block != 0) {
+                return LLVMNativePointer.create(block);
+            }
+            // the arena is exhausted, fall back to the system allocator
+        }
+        return allocateSystemMemory(size);
+    }
+
+    @Override
+    public LLVMNativePointer allocateMemory(LLVMThreadContext thread, long size) {
+        if (!noArenaAllocatorAssumption.isValid() && LLVMArenaAllocator.isSmall(size)) {
+            long block = arenaAllocator.allocate(thread.getAllocationCache(arenaAllocator), size);
+            if (block != 0) {
+                return LLVMNativePointer.create(block);
+            }
+        }
+        return allocateSystemMemory(size);
+    }
+
+    private static LLVMNativePointer allocateSystemMemory(long size) {
         try {
             return LLVMNativePointer.create(unsafe.allocateMemory(size));
         } catch (Throwable e) {
@@ -153,11 +263,60 @@ public final class LLVMNativeMemory extends LLVMMemory {
         }
     }
 
+    @Override
+    public LLVMNativePointer allocateZeroedMemory(long size) {
+        if (!noArenaAllocatorAssumption.isValid() && LLVMArenaAllocator.isSmall(size)) {
+            long block = arenaAllocator.allocateZeroed(size);
+            if (block != 0) {
+                return LLVMNativePointer.create(block);
+            }
+        }
+        return allocateZeroedSystemMemory(size);
+    }
+
+    @Override
+    public LLVMNativePointer allocateZeroedMemory(LLVMThreadContext thread, long size) {
+        if (!noArenaAllocatorAssumption.isValid() && LLVMArenaAllocator.isSmall(size)) {
+            long block = arenaAllocator.allocateZeroed(thread.getAllocationCache(arenaAllocator), size);
+            if (block != 0) {
+                return LLVMNativePointer.create(block);
+            }
+        }
+        return allocateZeroedSystemMemory(size);
+    }
+
+    private LLVMNativePointer allocateZeroedSystemMemory(long size) {
+        if (size >= MAPPED_MEMORY_THRESHOLD && isMappedMemoryEnabled()) {
+            long address = mappedMemory.map(size);
+            if (address != 0) {
+                return LLVMNativePointer.create(address);
+            }
+        }
+        try {
+            long address = unsafe.allocateMemory(size);
+            unsafe.setMemory(address, size, (byte) 0);
+            return LLVMNativePointer.create(address);
+        } catch (Throwable e) {
+            // this avoids unnecessary exception edges in the compiled code
+            CompilerDirectives.transferToInterpreter();
+            throw e;
+        }
+    }
+
     @Override
     @Deprecated
     @SuppressWarnings("deprecation")
     public LLVMNativePointer reallocateMemory(LLVMNativePointer addr, long size) {
         // a null pointer is a valid argument
+        if (isArenaMemory(addr.asNative())) {
+            return reallocateArenaMemory(addr.asNative(), size);
+        }
+        if (isMappedMemoryEnabled()) {
+            long mappedSize = mappedMemory.getSize(addr.asNative());
+            if (mappedSize >= 0) {
+                return reallocateMappedMemory(addr.asNative(), mappedSize, size);
+            }
+        }
         try {
             return LLVMNativePointer.create(unsafe.reallocateMemory(addr.asNative(), size));
         } catch (Throwable e) {
@@ -167,6 +326,29 @@ public final class LLVMNativeMemory extends LLVMMemory {
         }
     }
 
+    @TruffleBoundary
+    private LLVMNativePointer reallocateArenaMemory(long address, long size) {
+        long blockSize = arenaAllocator.getBlockSize(address);
+        if (size <= blockSize) {
+            return LLVMNativePointer.create(address);
+        }
+        LLVMNativePointer result = allocateMemory(size);
+        unsafe.copyMemory(address, result.asNative(), blockSize);
+        arenaAllocator.free(address);
+        return result;
+    }
+
+    @TruffleBoundary
+    private LLVMNativePointer reallocateMappedMemory(long address, long mappedSize, long size) {
+        if (size <= mappedSize) {
+            return LLVMNativePointer.create(address);
+        }
+        LLVMNativePointer result = allocateMemory(size);
+        unsafe.copyMemory(address, result.asNative(), mappedSize);
+        mappedMemory.unmap(address);
+        return result;
+    }
+
     /**
      * Allocates {@code #OBJECT_SIZE} bytes in the Kernel space.
      */
@@ -175,26 +357,80 @@ public final class LLVMNativeMemory extends LLVMMemory {
         noDerefHandleAssumption.invalidate();
 
         // preferably consume from free list
-        synchronized (freeListLock) {
-            if (freeList != null) {
-                FreeListNode n = freeList;
-                freeList = n.next;
-                return LLVMNativePointer.create(n.address);
-            }
+        int slot = popFreeSlot();
+        if (slot != NO_FREE_SLOT) {
+            allocatedDerefHandles.incrementAndGet();
+            return LLVMNativePointer.create(getDerefHandleAddress(slot));
         }
 
-        synchronized (derefSpaceTopLock) {
-            LLVMNativePointer addr = LLVMNativePointer.create(derefSpaceTop);
-            assert derefSpaceTop > 0L;
-            derefSpaceTop -= DEREF_HANDLE_OBJECT_SIZE;
-            if (derefSpaceTop < DEREF_HANDLE_SPACE_END) {
-                CompilerDirectives.transferToInterpreter();
-                throw new OutOfMemoryError();
-            }
-            return addr;
+        long addr = derefSpaceTop.getAndAdd(-DEREF_HANDLE_OBJECT_SIZE);
+        assert addr > 0L;
+        if (addr - DEREF_HANDLE_OBJECT_SIZE < DEREF_HANDLE_SPACE_END) {
+            CompilerDirectives.transferToInterpreter();
+            throw new OutOfMemoryError();
+        }
+        createFreeSlotLinks(getDerefHandleSlot(addr));
+        allocatedDerefHandles.incrementAndGet();
+        return LLVMNativePointer.create(addr);
+    }
+
+    private static int getDerefHandleSlot(long address) {
+        return (int) ((DEREF_HANDLE_SPACE_START - address) >>> DEREF_HANDLE_OBJECT_SHIFT);
+    }
+
+    private static long getDerefHandleAddress(int slot) {
+        return DEREF_HANDLE_SPACE_START - ((long) slot << DEREF_HANDLE_OBJECT_SHIFT);
+    }
+
+    private static long packFreeSlotsHead(long previousHead, int slot) {
+        long modificationCount = (previousHead >>> Integer.SIZE) + 1;
+        return (modificationCount << Integer.SIZE) | (slot & 0xFFFFFFFFL);
+    }
+
+    private void createFreeSlotLinks(int slot) {
+        int chunk = slot >>> FREE_SLOT_CHUNK_SHIFT;
+        if (freeSlotLinks.get(chunk) == null) {
+            freeSlotLinks.compareAndSet(chunk, null, new AtomicIntegerArray(FREE_SLOT_CHUNK_MASK + 1));
         }
     }
 
+    private void pushFreeSlot(int slot) {
+        AtomicIntegerArray links = freeSlotLinks.get(slot >>> FREE_SLOT_CHUNK_SHIFT);
+        long head;
+        do {
+            head = freeSlotsHead.get();
+            links.set(slot & FREE_SLOT_CHUNK_MASK, (int) head);
+        } while (!freeSlotsHead.compareAndSet(head, packFreeSlotsHead(head, slot)));
+    }
+
+    private int popFreeSlot() {
+        long head;
+        int slot;
+        do {
+            head = freeSlotsHead.get();
+            slot = (int) head;
+            if (slot == NO_FREE_SLOT) {
+                return NO_FREE_SLOT;
+            }
+        } while (!freeSlotsHead.compareAndSet(head, packFreeSlotsHead(head, freeSlotLinks.get(slot >>> FREE_SLOT_CHUNK_SHIFT).get(slot & FREE_SLOT_CHUNK_MASK))));
+        return slot;
+    }
+
+    /**
+     * The number of deref handles that are currently allocated.
+     */
+    public long getAllocatedDerefHandleCount() {
+        return allocatedDerefHandles.get();
+    }
+
+    /**
+     * The maximum number of deref handles that can be allocated at the same time. Once this limit
+     * is reached, {@link #allocateDerefMemory()} throws an {@link OutOfMemoryError}.
+     */
+    public static long getDerefHandleCapacity() {
+        return DEREF_HANDLE_SPACE_CAPACITY - 1;
+    }
+
     @Override
     public boolean getI1(LLVMNativePointer addr) {
         return getI1(addr.asNative());
@@ -389,6 +625,13 @@ public final class LLVMNativeMemory extends LLVMMemory {
         }
     }
 
+    @Override
+    @TruffleBoundary
+    public void copyFromArray(byte[] source, LLVMNativePointer target) {
+        assert !target.isNull() || source.length == 0;
+        unsafe.copyMemory(source, Unsafe.ARRAY_BYTE_BASE_OFFSET, null, target.asNative(), source.length);
+    }
+
     @Override
     public void putFloat(LLVMNativePointer addr, float value) {
         putFloat(addr.asNative(), value);
@@ -641,6 +884,16 @@ public final class LLVMNativeMemory extends LLVMMemory {
         unsafe.fullFence();
     }
 
+    @Override
+    public void loadFence() {
+        unsafe.loadFence();
+    }
+
+    @Override
+    public void storeFence() {
+        unsafe.storeFence();
+    }
+
     @Override
     public boolean isDerefMemory(LLVMNativePointer addr) {
         return isDerefMemory(addr.asNative());
@@ -656,17 +909,14 @@ public final class LLVMNativeMemory extends LLVMMemory {
     }
 
     private boolean isAllocated(long address) {
-        synchronized (derefSpaceTopLock) {
-            if (address <= derefSpaceTop) {
-                return false;
-            }
+        if (address <= derefSpaceTop.get()) {
+            return false;
         }
 
-        synchronized (freeListLock) {
-            for (FreeListNode cur = freeList; cur != null; cur = cur.next) {
-                if (cur.address == address) {
-                    return false;
-                }
+        int slot = getDerefHandleSlot(address & ~DEREF_HANDLE_OBJECT_MASK);
+        for (int cur = (int) freeSlotsHead.get(); cur != NO_FREE_SLOT; cur = freeSlotLinks.get(cur >>> FREE_SLOT_CHUNK_SHIFT).get(cur & FREE_SLOT_CHUNK_MASK)) {
+            if (cur == slot) {
+                return false;
             }
         }
         return true;
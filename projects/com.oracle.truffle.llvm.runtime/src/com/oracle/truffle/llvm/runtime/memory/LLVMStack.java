@@ -30,21 +30,33 @@
 package com.oracle.truffle.llvm.runtime.memory;
 
 import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameUtil;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.llvm.runtime.LLVMThreadContext;
+import com.oracle.truffle.llvm.runtime.except.LLVMStackOverflowError;
 
 /**
  * Implements a stack that grows from the top to the bottom. The stack is allocated lazily when it
- * is accessed for the first time.
+ * is accessed for the first time. The memory is only reserved at that point, the operating system
+ * commits its pages when they are touched.
+ *
+ * Allocations on the stack are checked against {@link #lowerBounds}. Below the lower bounds, a
+ * guard region is reserved that absorbs the few unchecked stack pointer adjustments (e.g., inline
+ * assembly pushes) that may happen before the next checked allocation reports the overflow.
  */
 public final class LLVMStack {
 
     public static final String FRAME_ID = "<stackpointer>";
 
+    private static final long GUARD_REGION_SIZE = 64 * 1024;
+
     private final int stackSize;
+    private final LLVMThreadContext threadContext;
 
+    private long stackAllocation;
     private long lowerBounds;
     private long upperBounds;
     private boolean isAllocated;
@@ -54,6 +66,7 @@ public final class LLVMStack {
 
     public LLVMStack(int stackSize) {
         this.stackSize = stackSize;
+        this.threadContext = new LLVMThreadContext();
 
         lowerBounds = 0;
         upperBounds = 0;
@@ -83,6 +96,14 @@ public final class LLVMStack {
             stackPointer = sp;
         }
 
+        void setChecked(long sp) {
+            if (sp < lowerBounds) {
+                CompilerDirectives.transferToInterpreter();
+                throw stackOverflow();
+            }
+            stackPointer = sp;
+        }
+
         public long getUniquesRegionPointer() {
             return uniquesRegionPointer;
         }
@@ -91,6 +112,10 @@ public final class LLVMStack {
             uniquesRegionPointer = urp;
         }
 
+        public LLVMThreadContext getThreadContext() {
+            return threadContext;
+        }
+
         @Override
         public void close() {
             if (basePointer != 0) {
@@ -159,7 +184,7 @@ public final class LLVMStack {
                 long uniquesRegionPointer = getAlignedBasePointer(stackPointer);
                 basePointer.setUniquesRegionPointer(uniquesRegionPointer);
                 long alignedAllocation = getAlignedAllocation(uniquesRegionPointer, uniquesRegionSize, NO_ALIGNMENT_REQUIREMENTS);
-                basePointer.set(alignedAllocation);
+                basePointer.setChecked(alignedAllocation);
             }
 
             long getAlignedBasePointer(long address) {
@@ -188,9 +213,9 @@ public final class LLVMStack {
     @TruffleBoundary
     private void allocate(LLVMMemory memory) {
         long size = stackSize * 1024L;
-        long stackAllocation = memory.allocateMemory(size).asNative();
-        lowerBounds = stackAllocation;
-        upperBounds = stackAllocation + size;
+        stackAllocation = memory.allocateMemory(GUARD_REGION_SIZE + size).asNative();
+        lowerBounds = stackAllocation + GUARD_REGION_SIZE;
+        upperBounds = lowerBounds + size;
         isAllocated = true;
         stackPointer = upperBounds;
     }
@@ -206,13 +231,24 @@ public final class LLVMStack {
         return new StackPointer(stackPointer, uniquesRegionPointer);
     }
 
+    public LLVMThreadContext getThreadContext() {
+        return threadContext;
+    }
+
+    @TruffleBoundary
+    private LLVMStackOverflowError stackOverflow() {
+        return new LLVMStackOverflowError(null, String.format("Stack overflow: the stack size of %d KB is exhausted.", stackSize));
+    }
+
     @TruffleBoundary
     public void free(LLVMMemory memory) {
+        threadContext.free(memory);
         if (isAllocated) {
             /*
              * It can be that the stack was never allocated.
              */
-            memory.free(lowerBounds);
+            memory.free(stackAllocation);
+            stackAllocation = 0;
             lowerBounds = 0;
             upperBounds = 0;
             stackPointer = 0;
@@ -227,7 +263,7 @@ public final class LLVMStack {
         long stackPointer = basePointer.get(memory);
         assert stackPointer != 0;
         long alignedAllocation = getAlignedAllocation(stackPointer, size, alignment);
-        basePointer.set(alignedAllocation);
+        basePointer.setChecked(alignedAllocation);
         return alignedAllocation;
     }
 
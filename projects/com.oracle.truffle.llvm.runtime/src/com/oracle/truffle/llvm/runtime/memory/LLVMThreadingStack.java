@@ -29,44 +29,63 @@
  */
 package com.oracle.truffle.llvm.runtime.memory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
 /**
  * Holds the (lazily allocated) stacks of all threads that are active in one particular LLVMContext.
+ * The stack of the thread that accessed it last is cached, so that the common case of a single
+ * thread calling into the context can be resolved without a map lookup in compiled code.
  */
 public final class LLVMThreadingStack {
     // we are not able to clean up a thread local properly, so we are using a map instead
-    private final Map<Thread, LLVMStack> threadMap;
+    private final ConcurrentHashMap<Thread, ThreadStack> threadMap;
     private final int stackSize;
+    private final int threadStackSize;
     private final Thread mainThread;
 
-    public LLVMThreadingStack(Thread mainTread, int stackSize) {
+    private volatile ThreadStack lastAccessed;
+
+    private static final class ThreadStack {
+        private final Thread thread;
+        private final LLVMStack stack;
+
+        private ThreadStack(Thread thread, LLVMStack stack) {
+            this.thread = thread;
+            this.stack = stack;
+        }
+    }
+
+    public LLVMThreadingStack(Thread mainTread, int stackSize, int threadStackSize) {
         this.mainThread = mainTread;
         this.stackSize = stackSize;
-        this.threadMap = new HashMap<>();
+        this.threadStackSize = threadStackSize;
+        this.threadMap = new ConcurrentHashMap<>();
     }
 
     public LLVMStack getStack() {
-        LLVMStack s = getCurrentStack();
-        if (s == null) {
-            s = createNewStack();
+        ThreadStack last = lastAccessed;
+        if (last != null && last.thread == Thread.currentThread()) {
+            return last.stack;
         }
-        return s;
+        return getStackSlowPath();
     }
 
     @TruffleBoundary
-    private LLVMStack getCurrentStack() {
-        return threadMap.get(Thread.currentThread());
+    private LLVMStack getStackSlowPath() {
+        ThreadStack s = threadMap.computeIfAbsent(Thread.currentThread(), t -> new ThreadStack(t, new LLVMStack(t == mainThread ? stackSize : threadStackSize)));
+        lastAccessed = s;
+        return s.stack;
     }
 
+    /**
+     * Sets the stack size of a thread that has not been started yet. The stack is allocated when the
+     * thread uses it first.
+     */
     @TruffleBoundary
-    private synchronized LLVMStack createNewStack() {
-        LLVMStack s = new LLVMStack(stackSize);
-        threadMap.put(Thread.currentThread(), s);
-        return s;
+    public void setStackSize(Thread thread, int stackSizeKB) {
+        threadMap.putIfAbsent(thread, new ThreadStack(thread, new LLVMStack(stackSizeKB)));
     }
 
     @TruffleBoundary
@@ -75,21 +94,31 @@ public final class LLVMThreadingStack {
          * Do not free the stack of the main thread: Sulong#disposeThread runs before
          * Sulong#disposeContext, which needs to call destructors that need a SP.
          */
-        if (mainThread != Thread.currentThread()) {
+        if (mainThread != thread) {
             free(memory, thread);
         }
     }
 
+    /**
+     * Frees the stack of the main thread as well as the stacks of all threads that were not
+     * disposed individually.
+     */
     @TruffleBoundary
-    public void freeMainStack(LLVMMemory memory) {
-        free(memory, mainThread);
+    public void freeStacks(LLVMMemory memory) {
+        for (Thread thread : threadMap.keySet()) {
+            free(memory, thread);
+        }
+        lastAccessed = null;
     }
 
-    private synchronized void free(LLVMMemory memory, Thread thread) {
-        LLVMStack s = threadMap.get(thread);
+    private void free(LLVMMemory memory, Thread thread) {
+        ThreadStack s = threadMap.remove(thread);
         if (s != null) {
-            s.free(memory);
-            threadMap.remove(thread);
+            if (lastAccessed == s) {
+                // at worst, this clears the entry of another thread, which then takes the slow path
+                lastAccessed = null;
+            }
+            s.stack.free(memory);
         }
     }
 }
@@ -47,6 +47,7 @@ public final class UnsafeArrayAccess {
     public static final int ARRAY_FLOAT_BASE_OFFSET = Unsafe.ARRAY_FLOAT_BASE_OFFSET;
     public static final int ARRAY_DOUBLE_BASE_OFFSET = Unsafe.ARRAY_DOUBLE_BASE_OFFSET;
     public static final int ARRAY_OBJECT_BASE_OFFSET = Unsafe.ARRAY_OBJECT_BASE_OFFSET;
+    public static final int ARRAY_OBJECT_INDEX_SCALE = Unsafe.ARRAY_OBJECT_INDEX_SCALE;
 
     private static final Unsafe unsafe = getUnsafe();
 
@@ -242,4 +243,8 @@ public final class UnsafeArrayAccess {
     public double getDouble(Object arr, long baseOffset, long offset) {
         return unsafe.getDouble(arr, baseOffset + offset);
     }
+
+    public boolean compareAndSwapObject(Object[] arr, int index, Object expected, Object value) {
+        return unsafe.compareAndSwapObject(arr, ARRAY_OBJECT_BASE_OFFSET + (long) index * ARRAY_OBJECT_INDEX_SCALE, expected, value);
+    }
 }
@@ -29,10 +29,15 @@
  */
 package com.oracle.truffle.llvm.runtime.nodes.api;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceLocation;
 
 public abstract class LLVMControlFlowNode extends LLVMNode {
 
+    public static final String LOOP_SUCCESSOR_FRAME_SLOT_ID = "<loop successor>";
+
     private final LLVMSourceLocation source;
 
     public LLVMControlFlowNode(LLVMSourceLocation source) {
@@ -47,6 +52,40 @@ public abstract class LLVMControlFlowNode extends LLVMNode {
         return getSuccessorCount() > 1;
     }
 
+    /**
+     * Maps every successor index to the first index with the same successor block. Edges to the
+     * same block write the same phis, so a node can dispatch on one index per distinct block.
+     */
+    protected static int[] getFirstSuccessorIndices(int[] successors) {
+        Map<Integer, Integer> firstIndexOfBlock = new HashMap<>();
+        int[] firstIndices = new int[successors.length];
+        for (int i = 0; i < successors.length; i++) {
+            Integer first = firstIndexOfBlock.putIfAbsent(successors[i], i);
+            firstIndices[i] = first == null ? i : first;
+        }
+        return firstIndices;
+    }
+
+    /**
+     * Returns the successor indices that are the first index of their successor block.
+     */
+    protected static int[] getDistinctSuccessorIndices(int[] firstIndices) {
+        int count = 0;
+        for (int i = 0; i < firstIndices.length; i++) {
+            if (firstIndices[i] == i) {
+                count++;
+            }
+        }
+        int[] distinct = new int[count];
+        int next = 0;
+        for (int i = 0; i < firstIndices.length; i++) {
+            if (firstIndices[i] == i) {
+                distinct[next++] = i;
+            }
+        }
+        return distinct;
+    }
+
     @Override
     public LLVMSourceLocation getSourceLocation() {
         return source;
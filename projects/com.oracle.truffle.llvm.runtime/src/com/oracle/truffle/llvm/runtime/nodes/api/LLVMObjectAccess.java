@@ -34,6 +34,7 @@ import com.oracle.truffle.api.interop.TruffleObject;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.ObjectType;
 import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
 
 /**
  * Interface for objects that want to simulate the behavior of native memory. If an object or the
@@ -48,6 +49,8 @@ public interface LLVMObjectAccess {
 
     LLVMObjectWriteNode createWriteNode();
 
+    LLVMObjectCompareExchangeNode createCompareExchangeNode();
+
     abstract class LLVMObjectAccessNode extends LLVMNode {
 
         public abstract boolean canAccess(Object obj);
@@ -76,4 +79,36 @@ public interface LLVMObjectAccess {
          */
         public abstract void executeWrite(Object obj, long offset, Object value, ForeignToLLVMType type) throws InteropException;
     }
+
+    abstract class LLVMObjectCompareExchangeNode extends LLVMObjectAccessNode {
+
+        /**
+         * Do an atomic native memory compare-and-swap on an object. The new value is written if
+         * and only if the returned previous value {@link #isSameValue is the same} as the
+         * expected value.
+         *
+         * @param obj the object that is the base of the accessed pointer
+         * @param offset the byte offset into the object
+         * @param expected the value that is expected at the accessed location
+         * @param newValue the value that is written if the expectation holds
+         * @return the value that was found at the accessed location
+         */
+        public abstract Object executeCompareExchange(Object obj, long offset, Object expected, Object newValue, ForeignToLLVMType type) throws InteropException;
+
+        public static boolean isSameValue(Object current, Object expected) {
+            if (current == expected) {
+                return true;
+            } else if (current == null || expected == null) {
+                return false;
+            }
+            return normalize(current).equals(normalize(expected));
+        }
+
+        private static Object normalize(Object value) {
+            if (LLVMNativePointer.isInstance(value)) {
+                return LLVMNativePointer.cast(value).asNative();
+            }
+            return value;
+        }
+    }
 }
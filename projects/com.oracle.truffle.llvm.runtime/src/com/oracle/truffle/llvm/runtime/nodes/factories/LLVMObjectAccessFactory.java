@@ -47,8 +47,10 @@ import com.oracle.truffle.llvm.runtime.interop.convert.ToLLVM;
 import com.oracle.truffle.llvm.runtime.interop.convert.ToLLVMNodeGen;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectCompareExchangeNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectReadNode;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectWriteNode;
+import com.oracle.truffle.llvm.runtime.nodes.factories.LLVMObjectAccessFactoryFactory.CachedCompareExchangeNodeGen;
 import com.oracle.truffle.llvm.runtime.nodes.factories.LLVMObjectAccessFactoryFactory.CachedReadNodeGen;
 import com.oracle.truffle.llvm.runtime.nodes.factories.LLVMObjectAccessFactoryFactory.CachedWriteNodeGen;
 import com.oracle.truffle.llvm.runtime.nodes.factories.LLVMObjectAccessFactoryFactory.DynamicObjectReadNodeGen;
@@ -65,6 +67,10 @@ public abstract class LLVMObjectAccessFactory {
         return CachedWriteNodeGen.create();
     }
 
+    public static LLVMObjectCompareExchangeNode createCompareExchange() {
+        return CachedCompareExchangeNodeGen.create();
+    }
+
     abstract static class CachedReadNode extends LLVMObjectReadNode {
 
         static final int TYPE_LIMIT = 8;
@@ -291,4 +297,59 @@ public abstract class LLVMObjectAccessFactory {
             return offset / 8;
         }
     }
+
+    abstract static class CachedCompareExchangeNode extends LLVMObjectCompareExchangeNode {
+
+        static final int TYPE_LIMIT = 8;
+
+        @Override
+        public boolean canAccess(Object obj) {
+            return obj instanceof LLVMObjectAccess || obj instanceof TruffleObject;
+        }
+
+        @Specialization(limit = "TYPE_LIMIT", guards = "impl.canAccess(obj)")
+        protected Object doCompareExchange(Object obj, long offset, Object expected, Object newValue, ForeignToLLVMType type,
+                        @Cached("createCompareExchangeNode(obj)") LLVMObjectCompareExchangeNode impl) {
+            try {
+                return impl.executeCompareExchange(obj, offset, expected, newValue, type);
+            } catch (InteropException ex) {
+                CompilerDirectives.transferToInterpreter();
+                throw ex.raise();
+            }
+        }
+
+        LLVMObjectCompareExchangeNode createCompareExchangeNode(Object obj) {
+            if (obj instanceof LLVMObjectAccess) {
+                return ((LLVMObjectAccess) obj).createCompareExchangeNode();
+            } else {
+                return new FallbackCompareExchangeNode();
+            }
+        }
+    }
+
+    /**
+     * Foreign objects cannot be updated atomically via interop, so the read and the conditional
+     * write are done while holding the monitor of the object.
+     */
+    static class FallbackCompareExchangeNode extends LLVMObjectCompareExchangeNode {
+
+        @Child private LLVMObjectReadNode read = createRead();
+        @Child private LLVMObjectWriteNode write = createWrite();
+
+        @Override
+        public boolean canAccess(Object obj) {
+            return obj instanceof TruffleObject && !(obj instanceof LLVMObjectAccess);
+        }
+
+        @Override
+        public Object executeCompareExchange(Object obj, long offset, Object expected, Object newValue, ForeignToLLVMType type) throws InteropException {
+            synchronized (obj) {
+                Object current = read.executeRead(obj, offset, type);
+                if (isSameValue(current, expected)) {
+                    write.executeWrite(obj, offset, newValue, type);
+                }
+                return current;
+            }
+        }
+    }
 }
@@ -51,7 +51,23 @@ public final class SulongEngineOption {
 
     public static final OptionKey<Integer> STACK_SIZE_KB = new OptionKey<>(81920);
     public static final String STACK_SIZE_KB_NAME = "llvm.stackSizeKB";
-    public static final String STACK_SIZE_KB_INFO = "The stack size in KB.";
+    public static final String STACK_SIZE_KB_INFO = "The stack size of the main thread in KB.";
+
+    public static final OptionKey<Integer> THREAD_STACK_SIZE_KB = new OptionKey<>(8192);
+    public static final String THREAD_STACK_SIZE_KB_NAME = "llvm.threadStackSizeKB";
+    public static final String THREAD_STACK_SIZE_KB_INFO = "The stack size of all other threads in KB.";
+
+    public static final String NATIVE_ALLOCATOR_SYSTEM = "system";
+    public static final String NATIVE_ALLOCATOR_ARENA = "arena";
+
+    public static final OptionKey<String> NATIVE_ALLOCATOR = new OptionKey<>(NATIVE_ALLOCATOR_SYSTEM);
+    public static final String NATIVE_ALLOCATOR_NAME = "llvm.nativeAllocator";
+    public static final String NATIVE_ALLOCATOR_INFO = "The allocator that serves malloc and free. Can be \'" + NATIVE_ALLOCATOR_SYSTEM + "\' or \'" + NATIVE_ALLOCATOR_ARENA +
+                    "\' (thread-local size-class slabs for small allocations).";
+
+    public static final OptionKey<Integer> ARENA_SIZE_MB = new OptionKey<>(1024);
+    public static final String ARENA_SIZE_MB_NAME = "llvm.arenaSizeMB";
+    public static final String ARENA_SIZE_MB_INFO = "The address space in MB that is reserved for the arena allocator.";
 
     public static final OptionKey<String> LIBRARY_PATH = new OptionKey<>("");
     public static final String LIBRARY_PATH_NAME = "llvm.libraryPath";
@@ -94,6 +110,26 @@ public final class SulongEngineOption {
     public static final String LAZY_PARSING_NAME = "llvm.lazyParsing";
     public static final String LAZY_PARSING_INFO = "Enable lazy parsing of LLVM bitcode files.";
 
+    public static final OptionKey<String> PARSE_CACHE = new OptionKey<>("");
+    public static final String PARSE_CACHE_NAME = "llvm.parseCache";
+    public static final String PARSE_CACHE_INFO = "Directory in which the decoded records of parsed bitcode files are cached, keyed by the path, modification time and size of the file and validated against the hash of its content. Leave empty to disable the cache.";
+
+    public static final OptionKey<Integer> BACKGROUND_PARSING_THREADS = new OptionKey<>(0);
+    public static final String BACKGROUND_PARSING_THREADS_NAME = "llvm.backgroundParsingThreads";
+    public static final String BACKGROUND_PARSING_THREADS_INFO = "Number of threads that speculatively parse lazily parsed functions before they are called. Set to 0 to disable background parsing.";
+
+    public static final OptionKey<Integer> PARALLEL_PARSING_THREADS = new OptionKey<>(0);
+    public static final String PARALLEL_PARSING_THREADS_NAME = "llvm.parallelParsingThreads";
+    public static final String PARALLEL_PARSING_THREADS_INFO = "Number of threads that scan independent bitcode libraries concurrently while loading. Set to 0 to load all libraries on the calling thread.";
+
+    public static final OptionKey<Boolean> GLOBAL_DATA_SEGMENT = new OptionKey<>(true);
+    public static final String GLOBAL_DATA_SEGMENT_NAME = "llvm.globalDataSegment";
+    public static final String GLOBAL_DATA_SEGMENT_INFO = "Initialize global variables with constant data by copying a precomputed memory image instead of executing an initialization node per global.";
+
+    public static final OptionKey<Boolean> OSR_LOOPS = new OptionKey<>(true);
+    public static final String OSR_LOOPS_NAME = "llvm.osrLoops";
+    public static final String OSR_LOOPS_INFO = "Execute the loops of a function as separate loop nodes so that long running loops can be compiled with on-stack replacement.";
+
     public static final OptionKey<Boolean> LL_DEBUG = new OptionKey<>(false);
     public static final String LL_DEBUG_NAME = "llvm.llDebug";
     public static final String LL_DEBUG_INFO = "Enable IR-level debugging of LLVM bitcode files.";
@@ -110,6 +146,9 @@ public final class SulongEngineOption {
         ArrayList<OptionDescriptor> options = new ArrayList<>();
         options.add(OptionDescriptor.newBuilder(CONFIGURATION, CONFIGURATION_NAME).help(CONFIGURATION_INFO).category(OptionCategory.USER).build());
         options.add(OptionDescriptor.newBuilder(STACK_SIZE_KB, STACK_SIZE_KB_NAME).help(STACK_SIZE_KB_INFO).category(OptionCategory.USER).build());
+        options.add(OptionDescriptor.newBuilder(THREAD_STACK_SIZE_KB, THREAD_STACK_SIZE_KB_NAME).help(THREAD_STACK_SIZE_KB_INFO).category(OptionCategory.USER).build());
+        options.add(OptionDescriptor.newBuilder(NATIVE_ALLOCATOR, NATIVE_ALLOCATOR_NAME).help(NATIVE_ALLOCATOR_INFO).category(OptionCategory.EXPERT).build());
+        options.add(OptionDescriptor.newBuilder(ARENA_SIZE_MB, ARENA_SIZE_MB_NAME).help(ARENA_SIZE_MB_INFO).category(OptionCategory.EXPERT).build());
         options.add(OptionDescriptor.newBuilder(LIBRARIES, LIBRARIES_NAME).help(LIBRARIES_INFO).category(OptionCategory.USER).build());
         options.add(OptionDescriptor.newBuilder(LIBRARY_PATH, LIBRARY_PATH_NAME).help(LIBRARY_PATH_INFO).category(OptionCategory.USER).build());
         options.add(OptionDescriptor.newBuilder(ENABLE_NFI, ENABLE_NFI_NAME).help(ENABLE_NFI_INFO).category(OptionCategory.USER).build());
@@ -119,6 +158,11 @@ public final class SulongEngineOption {
         options.add(OptionDescriptor.newBuilder(PARSE_ONLY, PARSE_ONLY_NAME).help(PARSE_ONLY_INFO).category(OptionCategory.EXPERT).build());
         options.add(OptionDescriptor.newBuilder(ENABLE_LVI, ENABLE_LVI_NAME).help(ENABLE_LVI_INFO).category(OptionCategory.DEBUG).build());
         options.add(OptionDescriptor.newBuilder(LAZY_PARSING, LAZY_PARSING_NAME).help(LAZY_PARSING_INFO).category(OptionCategory.EXPERT).build());
+        options.add(OptionDescriptor.newBuilder(PARSE_CACHE, PARSE_CACHE_NAME).help(PARSE_CACHE_INFO).category(OptionCategory.EXPERT).build());
+        options.add(OptionDescriptor.newBuilder(BACKGROUND_PARSING_THREADS, BACKGROUND_PARSING_THREADS_NAME).help(BACKGROUND_PARSING_THREADS_INFO).category(OptionCategory.EXPERT).build());
+        options.add(OptionDescriptor.newBuilder(PARALLEL_PARSING_THREADS, PARALLEL_PARSING_THREADS_NAME).help(PARALLEL_PARSING_THREADS_INFO).category(OptionCategory.EXPERT).build());
+        options.add(OptionDescriptor.newBuilder(GLOBAL_DATA_SEGMENT, GLOBAL_DATA_SEGMENT_NAME).help(GLOBAL_DATA_SEGMENT_INFO).category(OptionCategory.EXPERT).build());
+        options.add(OptionDescriptor.newBuilder(OSR_LOOPS, OSR_LOOPS_NAME).help(OSR_LOOPS_INFO).category(OptionCategory.EXPERT).build());
         options.add(OptionDescriptor.newBuilder(LL_DEBUG, LL_DEBUG_NAME).help(LL_DEBUG_INFO).category(OptionCategory.DEBUG).build());
         options.add(OptionDescriptor.newBuilder(LL_DEBUG_SOURCES, LL_DEBUG_SOURCES_NAME).help(LL_DEBUG_SOURCES_INFO).category(OptionCategory.DEBUG).build());
         options.add(OptionDescriptor.newBuilder(STACKTRACE_ON_ABORT, STACKTRACE_ON_ABORT_NAME).help(STACKTRACE_ON_ABORT_INFO).category(OptionCategory.DEBUG).build());
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.pthread;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+
+/**
+ * The wait queues of the {@code futex} syscall. Waiting threads are kept in a hashed table of
+ * queues keyed by the address of the futex word, and are blocked with {@link LockSupport#park}.
+ */
+public final class LLVMFutexTable {
+
+    public static final int WOKEN = 0;
+    public static final int VALUE_CHANGED = 1;
+    public static final int TIMED_OUT = 2;
+
+    // must be a power of 2
+    private static final int BUCKETS = 64;
+
+    private static final class Waiter {
+        private final long address;
+        private final int bitset;
+        private final Thread thread;
+        private volatile boolean woken;
+
+        private Waiter(long address, int bitset, Thread thread) {
+            this.address = address;
+            this.bitset = bitset;
+            this.thread = thread;
+        }
+    }
+
+    private static final class Bucket {
+        private final List<Waiter> waiters = new ArrayList<>();
+    }
+
+    private final Bucket[] buckets;
+
+    public LLVMFutexTable() {
+        buckets = new Bucket[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    private Bucket getBucket(long address) {
+        // futex words are 4-byte aligned
+        long hash = (address >>> 2) * 0x9E3779B97F4A7C15L;
+        return buckets[(int) (hash >>> 58) & (BUCKETS - 1)];
+    }
+
+    /**
+     * Blocks the current thread if the futex word still holds {@code expected}.
+     *
+     * @param timed whether the thread gives up waiting at {@code deadlineNanos}
+     * @param deadlineNanos the deadline in terms of {@link System#nanoTime()}
+     * @return {@link #WOKEN}, {@link #VALUE_CHANGED} or {@link #TIMED_OUT}
+     */
+    @TruffleBoundary
+    public int await(LLVMMemory memory, LLVMNativePointer address, int expected, int bitset, boolean timed, long deadlineNanos) {
+        Bucket bucket = getBucket(address.asNative());
+        Waiter waiter = new Waiter(address.asNative(), bitset, Thread.currentThread());
+        synchronized (bucket) {
+            // wakers take the same lock, so a wake-up after this comparison finds the waiter
+            if (!memory.compareAndSwapI32(address, expected, expected).isSwap()) {
+                return VALUE_CHANGED;
+            }
+            bucket.waiters.add(waiter);
+        }
+        while (!waiter.woken) {
+            if (Thread.currentThread().isInterrupted()) {
+                cancel(bucket, waiter);
+                throw new LLVMPThreadInterruptedException();
+            }
+            if (!timed) {
+                LockSupport.park(this);
+            } else {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return cancel(bucket, waiter) ? TIMED_OUT : WOKEN;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+        return WOKEN;
+    }
+
+    /**
+     * @return {@code true} if the waiter was removed before anybody woke it up
+     */
+    private static boolean cancel(Bucket bucket, Waiter waiter) {
+        synchronized (bucket) {
+            if (waiter.woken) {
+                return false;
+            }
+            bucket.waiters.remove(waiter);
+            return true;
+        }
+    }
+
+    /**
+     * Wakes up to {@code count} threads that wait on the futex word with a bitset that intersects
+     * {@code bitset}.
+     *
+     * @return the number of threads that were woken up
+     */
+    @TruffleBoundary
+    public int wake(LLVMNativePointer address, int count, int bitset) {
+        Bucket bucket = getBucket(address.asNative());
+        List<Thread> woken = new ArrayList<>();
+        synchronized (bucket) {
+            Iterator<Waiter> iterator = bucket.waiters.iterator();
+            while (woken.size() < count && iterator.hasNext()) {
+                Waiter waiter = iterator.next();
+                if (waiter.address == address.asNative() && (waiter.bitset & bitset) != 0) {
+                    waiter.woken = true;
+                    iterator.remove();
+                    woken.add(waiter.thread);
+                }
+            }
+        }
+        for (Thread thread : woken) {
+            LockSupport.unpark(thread);
+        }
+        return woken.size();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.pthread;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.LLVMThread;
+
+/**
+ * A thread that was started by {@code pthread_create}. The {@code pthread_t} of the thread is the
+ * id of the Java thread.
+ */
+public final class LLVMPThread implements LLVMThread, Runnable {
+
+    private final LLVMContext context;
+    private final LLVMPThreadContext pthreadContext;
+    private final CallTarget start;
+    private final Object startRoutine;
+    private final Object argument;
+
+    private Thread thread;
+    private volatile Object result;
+    private boolean detached;
+    private boolean finished;
+    private long tid;
+
+    LLVMPThread(LLVMContext context, LLVMPThreadContext pthreadContext, CallTarget start, Object startRoutine, Object argument, boolean detached) {
+        this.context = context;
+        this.pthreadContext = pthreadContext;
+        this.start = start;
+        this.startRoutine = startRoutine;
+        this.argument = argument;
+        this.detached = detached;
+    }
+
+    void start(Thread javaThread) {
+        this.thread = javaThread;
+        javaThread.start();
+    }
+
+    public long getId() {
+        return thread.getId();
+    }
+
+    /**
+     * The TID is only allocated once the thread asks for it, because the PID is not known earlier.
+     */
+    synchronized long getTid(long pid) {
+        if (tid == 0) {
+            tid = pthreadContext.allocateTid(pid);
+        }
+        return tid;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public synchronized boolean isDetached() {
+        return detached;
+    }
+
+    @Override
+    public void run() {
+        try {
+            result = start.call(startRoutine, argument);
+        } finally {
+            boolean remove;
+            synchronized (this) {
+                finished = true;
+                remove = detached;
+            }
+            if (remove) {
+                pthreadContext.removeThread(this);
+            }
+            // a joinable thread keeps its pthread_t until it is joined, but it is no longer
+            // running, so the context must neither stop nor wait for it
+            context.unregisterThread(this);
+        }
+    }
+
+    /**
+     * Marks the thread as detached, i.e., nobody will join it.
+     *
+     * @return {@code false} if the thread was already detached
+     */
+    @TruffleBoundary
+    boolean detach() {
+        boolean remove;
+        synchronized (this) {
+            if (detached) {
+                return false;
+            }
+            detached = true;
+            remove = finished;
+        }
+        if (remove) {
+            pthreadContext.removeThread(this);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the thread has finished.
+     *
+     * @return {@code false} if the waiting thread was interrupted
+     */
+    @TruffleBoundary
+    boolean join() {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @TruffleBoundary
+    public void stop() {
+        // blocking pthread operations give up when they are interrupted
+        thread.interrupt();
+    }
+
+    @Override
+    @TruffleBoundary
+    public void awaitFinish() {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        // the thread unregisters itself when it finishes, unless it was never started
+        context.unregisterThread(this);
+    }
+
+    @Override
+    @TruffleBoundary
+    public String toString() {
+        return "LLVMPThread [thread=" + thread + ", detached=" + isDetached() + "]";
+    }
+}
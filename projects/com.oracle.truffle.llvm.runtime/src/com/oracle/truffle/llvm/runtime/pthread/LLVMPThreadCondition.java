@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.pthread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The Java counterpart of a {@code pthread_cond_t}. A Java {@link Condition} belongs to a single
+ * lock and must only be signalled by its owner, whereas POSIX allows signalling a condition variable
+ * without holding the mutex. The condition variable therefore has an internal lock, and every
+ * signal opens a new generation, so that it only wakes up threads that were already waiting.
+ */
+public final class LLVMPThreadCondition {
+
+    private final ReentrantLock internalLock = new ReentrantLock();
+    private final Condition changed = internalLock.newCondition();
+
+    private long generation;
+    private int waiters;
+    private int wakeups;
+
+    /**
+     * Waits until the condition is signalled.
+     *
+     * @param deadlineMillis the absolute deadline in milliseconds since the epoch, or a negative
+     *            number to wait without a timeout
+     */
+    @TruffleBoundary
+    public int await(LLVMPThreadMutex mutex, long deadlineMillis) {
+        if (!mutex.isHeldByCurrentThread()) {
+            return LLVMPThreadContext.EPERM;
+        }
+        internalLock.lock();
+        int holdCount = mutex.release();
+        try {
+            long myGeneration = generation;
+            waiters++;
+            try {
+                while (true) {
+                    if (deadlineMillis < 0) {
+                        changed.await();
+                    } else {
+                        long remaining = deadlineMillis - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            return LLVMPThreadContext.ETIMEDOUT;
+                        }
+                        changed.await(remaining, TimeUnit.MILLISECONDS);
+                    }
+                    if (wakeups > 0 && generation != myGeneration) {
+                        wakeups--;
+                        return 0;
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new LLVMPThreadInterruptedException();
+            } finally {
+                waiters--;
+                if (wakeups > waiters) {
+                    // a waiter that timed out does not consume its wakeup
+                    wakeups = waiters;
+                }
+            }
+        } finally {
+            internalLock.unlock();
+            mutex.reacquire(holdCount);
+        }
+    }
+
+    @TruffleBoundary
+    public int signal() {
+        internalLock.lock();
+        try {
+            if (waiters > wakeups) {
+                wakeups++;
+                generation++;
+                changed.signalAll();
+            }
+        } finally {
+            internalLock.unlock();
+        }
+        return 0;
+    }
+
+    @TruffleBoundary
+    public int broadcast() {
+        internalLock.lock();
+        try {
+            if (waiters > 0) {
+                wakeups = waiters;
+                generation++;
+                changed.signalAll();
+            }
+        } finally {
+            internalLock.unlock();
+        }
+        return 0;
+    }
+
+    @TruffleBoundary
+    boolean hasWaiters() {
+        internalLock.lock();
+        try {
+            return waiters > 0;
+        } finally {
+            internalLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.pthread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.llvm.runtime.LLVMContext;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory.CMPXCHGI32;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+
+/**
+ * Holds the state of the pthreads implementation of one context. Threads are Truffle threads, and
+ * the synchronization objects of the guest are mapped to Java objects by their address. The guest
+ * memory of such an object holds a serial number, which {@code *_init} sets and which the static
+ * initializers like {@code PTHREAD_MUTEX_INITIALIZER} leave 0. A Java object is only reused while
+ * the serial number matches, so that a new object at the address of a freed one starts afresh.
+ */
+public final class LLVMPThreadContext {
+
+    // error numbers of Linux on AMD64
+    public static final int EPERM = 1;
+    public static final int ESRCH = 3;
+    public static final int EAGAIN = 11;
+    public static final int EBUSY = 16;
+    public static final int EINVAL = 22;
+    public static final int EDEADLK = 35;
+    public static final int ETIMEDOUT = 110;
+
+    // the first int of glibc's pthread_mutex_t, pthread_cond_t and pthread_rwlock_t
+    private static final long SERIAL_OFFSET = 0;
+
+    private final LLVMContext context;
+
+    private final Map<Long, LLVMPThread> threads = new ConcurrentHashMap<>();
+    private final Map<Long, SyncObject<LLVMPThreadMutex>> mutexes = new ConcurrentHashMap<>();
+    private final Map<Long, SyncObject<LLVMPThreadCondition>> conditions = new ConcurrentHashMap<>();
+    private final Map<Long, SyncObject<LLVMPThreadRWLock>> rwlocks = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSerial = new AtomicInteger(1);
+    private final AtomicLong lastTid = new AtomicLong();
+    private final Map<Long, ReentrantLock> onceLocks = new ConcurrentHashMap<>();
+    private final LLVMFutexTable futexTable = new LLVMFutexTable();
+
+    private final AtomicInteger nextKey = new AtomicInteger();
+    private final Map<Integer, Key> keys = new ConcurrentHashMap<>();
+
+    private volatile CallTarget threadStart;
+
+    /**
+     * The Java object of a synchronization object of the guest, together with the serial number
+     * that identifies it in guest memory.
+     */
+    private static final class SyncObject<T> {
+        private final int serial;
+        private final T object;
+
+        private SyncObject(int serial, T object) {
+            this.serial = serial;
+            this.object = object;
+        }
+    }
+
+    private static final class Key {
+        private final Object destructor;
+        private final Map<Long, Object> values = new ConcurrentHashMap<>();
+
+        private Key(Object destructor) {
+            this.destructor = destructor;
+        }
+    }
+
+    public LLVMPThreadContext(LLVMContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns the call target that runs the start routine of a new thread. It is created on first
+     * use by {@code factory}.
+     */
+    @TruffleBoundary
+    public CallTarget getThreadStart(Supplier<CallTarget> factory) {
+        CallTarget result = threadStart;
+        if (result == null) {
+            synchronized (this) {
+                result = threadStart;
+                if (result == null) {
+                    result = threadStart = factory.get();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts a new thread that calls {@code start} with the start routine and its argument.
+     *
+     * @param stackSize the stack size in bytes, or 0 for the default stack size of threads
+     * @return the {@code pthread_t} of the new thread
+     */
+    @TruffleBoundary
+    public long createThread(CallTarget start, Object startRoutine, Object argument, boolean detached, long stackSize) {
+        LLVMPThread pthread = new LLVMPThread(context, this, start, startRoutine, argument, detached);
+        Thread thread = context.getEnv().createThread(pthread);
+        if (stackSize > 0) {
+            context.getThreadingStack().setStackSize(thread, (int) Math.min((stackSize + 1023) / 1024, Integer.MAX_VALUE));
+        }
+        threads.put(thread.getId(), pthread);
+        context.registerThread(pthread);
+        pthread.start(thread);
+        return thread.getId();
+    }
+
+    @TruffleBoundary
+    public static long getCurrentThreadId() {
+        return Thread.currentThread().getId();
+    }
+
+    /**
+     * Returns the TID of the current thread. The TID of the main thread is the PID, and the threads
+     * created by {@code pthread_create} get TIDs above the PID, so that they never collide.
+     */
+    @TruffleBoundary
+    public long getCurrentTid(long pid) {
+        LLVMPThread thread = threads.get(getCurrentThreadId());
+        return thread == null ? pid : thread.getTid(pid);
+    }
+
+    long allocateTid(long pid) {
+        return lastTid.accumulateAndGet(pid, (last, p) -> Math.max(last, p) + 1);
+    }
+
+    @TruffleBoundary
+    public LLVMPThread getThread(long id) {
+        return threads.get(id);
+    }
+
+    @TruffleBoundary
+    void removeThread(LLVMPThread thread) {
+        threads.remove(thread.getId(), thread);
+    }
+
+    /**
+     * Waits for a thread and releases it.
+     *
+     * @return {@code false} if the thread is detached and cannot be joined
+     */
+    @TruffleBoundary
+    public boolean join(LLVMPThread thread) {
+        if (thread.isDetached()) {
+            return false;
+        }
+        if (!thread.join()) {
+            throw new LLVMPThreadInterruptedException();
+        }
+        removeThread(thread);
+        return true;
+    }
+
+    @TruffleBoundary
+    public int detach(long id) {
+        LLVMPThread thread = threads.get(id);
+        if (thread == null) {
+            return ESRCH;
+        }
+        return thread.detach() ? 0 : EINVAL;
+    }
+
+    /**
+     * Waits until all threads that were started by {@code pthread_create} have finished.
+     */
+    @TruffleBoundary
+    public void joinAll() {
+        long self = getCurrentThreadId();
+        for (LLVMPThread thread : new ArrayList<>(threads.values())) {
+            if (thread.getId() != self) {
+                thread.awaitFinish();
+            }
+        }
+    }
+
+    @TruffleBoundary
+    public LLVMPThreadMutex getMutex(LLVMMemory memory, long address, int type) {
+        return get(mutexes, memory, address, () -> new LLVMPThreadMutex(type));
+    }
+
+    @TruffleBoundary
+    public void initMutex(LLVMMemory memory, long address, int type) {
+        init(mutexes, memory, address, new LLVMPThreadMutex(type));
+    }
+
+    @TruffleBoundary
+    public int destroyMutex(LLVMMemory memory, long address) {
+        return destroy(mutexes, memory, address, LLVMPThreadMutex::isLocked);
+    }
+
+    @TruffleBoundary
+    public LLVMPThreadCondition getCondition(LLVMMemory memory, long address) {
+        return get(conditions, memory, address, LLVMPThreadCondition::new);
+    }
+
+    @TruffleBoundary
+    public void initCondition(LLVMMemory memory, long address) {
+        init(conditions, memory, address, new LLVMPThreadCondition());
+    }
+
+    @TruffleBoundary
+    public int destroyCondition(LLVMMemory memory, long address) {
+        return destroy(conditions, memory, address, LLVMPThreadCondition::hasWaiters);
+    }
+
+    @TruffleBoundary
+    public LLVMPThreadRWLock getRWLock(LLVMMemory memory, long address) {
+        return get(rwlocks, memory, address, LLVMPThreadRWLock::new);
+    }
+
+    @TruffleBoundary
+    public void initRWLock(LLVMMemory memory, long address) {
+        init(rwlocks, memory, address, new LLVMPThreadRWLock());
+    }
+
+    @TruffleBoundary
+    public int destroyRWLock(LLVMMemory memory, long address) {
+        return destroy(rwlocks, memory, address, LLVMPThreadRWLock::isLocked);
+    }
+
+    private int newSerial() {
+        int serial;
+        do {
+            serial = nextSerial.getAndIncrement();
+        } while (serial == 0);
+        return serial;
+    }
+
+    /**
+     * Returns the serial number in the guest memory at {@code address}, and stores a new one if the
+     * object was set up by a static initializer.
+     */
+    private int getSerial(LLVMMemory memory, long address) {
+        int serial = memory.getI32(address + SERIAL_OFFSET);
+        if (serial == 0) {
+            int newSerial = newSerial();
+            CMPXCHGI32 result = memory.compareAndSwapI32(LLVMNativePointer.create(address + SERIAL_OFFSET), 0, newSerial);
+            serial = result.isSwap() ? newSerial : result.getValue();
+        }
+        return serial;
+    }
+
+    private <T> T get(Map<Long, SyncObject<T>> map, LLVMMemory memory, long address, Supplier<T> factory) {
+        int serial = getSerial(memory, address);
+        SyncObject<T> current = map.get(address);
+        if (current == null || current.serial != serial) {
+            // a new object at this address replaces the state of a stale one
+            current = map.compute(address, (a, old) -> old != null && old.serial == serial ? old : new SyncObject<>(serial, factory.get()));
+        }
+        return current.object;
+    }
+
+    private <T> void init(Map<Long, SyncObject<T>> map, LLVMMemory memory, long address, T object) {
+        int serial = newSerial();
+        memory.putI32(address + SERIAL_OFFSET, serial);
+        map.put(address, new SyncObject<>(serial, object));
+    }
+
+    private static <T> int destroy(Map<Long, SyncObject<T>> map, LLVMMemory memory, long address, Predicate<T> isBusy) {
+        SyncObject<T> current = map.get(address);
+        if (current != null) {
+            if (current.serial == memory.getI32(address + SERIAL_OFFSET) && isBusy.test(current.object)) {
+                return EBUSY;
+            }
+            map.remove(address, current);
+        }
+        memory.putI32(address + SERIAL_OFFSET, 0);
+        return 0;
+    }
+
+    /**
+     * Returns the lock that serializes the calls of {@code pthread_once} for one
+     * {@code pthread_once_t}. The caller removes it with {@link #removeOnceLock} once the
+     * initialization is done, because later calls do not need it.
+     */
+    @TruffleBoundary
+    public ReentrantLock getOnceLock(long address) {
+        return onceLocks.computeIfAbsent(address, a -> new ReentrantLock());
+    }
+
+    @TruffleBoundary
+    public void removeOnceLock(long address, ReentrantLock lock) {
+        onceLocks.remove(address, lock);
+    }
+
+    public LLVMFutexTable getFutexTable() {
+        return futexTable;
+    }
+
+    @TruffleBoundary
+    public int createKey(Object destructor) {
+        int key = nextKey.getAndIncrement();
+        keys.put(key, new Key(destructor));
+        return key;
+    }
+
+    @TruffleBoundary
+    public int deleteKey(int key) {
+        return keys.remove(key) != null ? 0 : EINVAL;
+    }
+
+    /**
+     * @return the value of the current thread, or {@code null} if there is none
+     */
+    @TruffleBoundary
+    public Object getSpecific(int key) {
+        Key k = keys.get(key);
+        return k == null ? null : k.values.get(getCurrentThreadId());
+    }
+
+    /**
+     * @param value the new value of the current thread, or {@code null} to remove it
+     */
+    @TruffleBoundary
+    public int setSpecific(int key, Object value) {
+        Key k = keys.get(key);
+        if (k == null) {
+            return EINVAL;
+        }
+        if (value == null) {
+            k.values.remove(getCurrentThreadId());
+        } else {
+            k.values.put(getCurrentThreadId(), value);
+        }
+        return 0;
+    }
+
+    /**
+     * Removes the values of the current thread from all keys that have a destructor.
+     *
+     * @return pairs of destructors and the values they must be called with
+     */
+    @TruffleBoundary
+    public List<Object[]> takeValuesForDestruction() {
+        long self = getCurrentThreadId();
+        List<Object[]> result = new ArrayList<>();
+        for (Key key : keys.values()) {
+            Object value = key.values.remove(self);
+            if (value != null && key.destructor != null) {
+                result.add(new Object[]{key.destructor, value});
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.pthread;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The Java counterpart of a {@code pthread_mutex_t}. All methods return {@code 0} or an error
+ * number as defined by POSIX.
+ */
+public final class LLVMPThreadMutex {
+
+    public static final int TYPE_NORMAL = 0;
+    public static final int TYPE_RECURSIVE = 1;
+    public static final int TYPE_ERRORCHECK = 2;
+
+    private final int type;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    LLVMPThreadMutex(int type) {
+        this.type = type;
+    }
+
+    @TruffleBoundary
+    public int lock() {
+        if (type != TYPE_RECURSIVE && lock.isHeldByCurrentThread()) {
+            // a normal mutex would deadlock, which is undefined behavior that we report instead
+            return LLVMPThreadContext.EDEADLK;
+        }
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw new LLVMPThreadInterruptedException();
+        }
+        return 0;
+    }
+
+    @TruffleBoundary
+    public int tryLock() {
+        if (type != TYPE_RECURSIVE && lock.isHeldByCurrentThread()) {
+            return LLVMPThreadContext.EBUSY;
+        }
+        return lock.tryLock() ? 0 : LLVMPThreadContext.EBUSY;
+    }
+
+    @TruffleBoundary
+    public int unlock() {
+        if (!lock.isHeldByCurrentThread()) {
+            return LLVMPThreadContext.EPERM;
+        }
+        lock.unlock();
+        return 0;
+    }
+
+    @TruffleBoundary
+    boolean isLocked() {
+        return lock.isLocked();
+    }
+
+    /**
+     * Releases the mutex completely, e.g., while waiting for a condition variable.
+     *
+     * @return the hold count that must be passed to {@link #reacquire}
+     */
+    @TruffleBoundary
+    int release() {
+        int holdCount = lock.getHoldCount();
+        for (int i = 0; i < holdCount; i++) {
+            lock.unlock();
+        }
+        return holdCount;
+    }
+
+    @TruffleBoundary
+    void reacquire(int holdCount) {
+        // POSIX requires that the mutex is held again when the wait returns, even when cancelled
+        for (int i = 0; i < holdCount; i++) {
+            lock.lock();
+        }
+    }
+
+    @TruffleBoundary
+    boolean isHeldByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+}
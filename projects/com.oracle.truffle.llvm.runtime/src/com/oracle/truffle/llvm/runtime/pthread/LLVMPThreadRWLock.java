@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.runtime.pthread;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The Java counterpart of a {@code pthread_rwlock_t}. All methods return {@code 0} or an error
+ * number as defined by POSIX.
+ */
+public final class LLVMPThreadRWLock {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @TruffleBoundary
+    public int readLock() {
+        if (lock.isWriteLockedByCurrentThread()) {
+            return LLVMPThreadContext.EDEADLK;
+        }
+        try {
+            lock.readLock().lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw new LLVMPThreadInterruptedException();
+        }
+        return 0;
+    }
+
+    @TruffleBoundary
+    public int tryReadLock() {
+        if (lock.isWriteLockedByCurrentThread()) {
+            return LLVMPThreadContext.EDEADLK;
+        }
+        return lock.readLock().tryLock() ? 0 : LLVMPThreadContext.EBUSY;
+    }
+
+    @TruffleBoundary
+    public int writeLock() {
+        if (lock.isWriteLockedByCurrentThread() || lock.getReadHoldCount() > 0) {
+            return LLVMPThreadContext.EDEADLK;
+        }
+        try {
+            lock.writeLock().lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw new LLVMPThreadInterruptedException();
+        }
+        return 0;
+    }
+
+    @TruffleBoundary
+    public int tryWriteLock() {
+        if (lock.isWriteLockedByCurrentThread() || lock.getReadHoldCount() > 0) {
+            return LLVMPThreadContext.EDEADLK;
+        }
+        return lock.writeLock().tryLock() ? 0 : LLVMPThreadContext.EBUSY;
+    }
+
+    @TruffleBoundary
+    public int unlock() {
+        if (lock.isWriteLockedByCurrentThread()) {
+            lock.writeLock().unlock();
+        } else if (lock.getReadHoldCount() > 0) {
+            lock.readLock().unlock();
+        } else {
+            return LLVMPThreadContext.EPERM;
+        }
+        return 0;
+    }
+
+    @TruffleBoundary
+    boolean isLocked() {
+        return lock.isWriteLocked() || lock.getReadLockCount() > 0;
+    }
+}
@@ -95,25 +95,17 @@ public final class StructureType extends AggregateType {
 
     @Override
     public int getAlignment(DataLayout targetDataLayout) {
-        return isPacked ? 1 : getLargestAlignment(targetDataLayout);
+        if (isPacked) {
+            return 1;
+        } else if (targetDataLayout != null) {
+            return targetDataLayout.getAlignment(this);
+        }
+        return getLargestAlignment(null);
     }
 
     @Override
     public int getSize(DataLayout targetDataLayout) {
-        int sumByte = 0;
-        for (final Type elementType : types) {
-            if (!isPacked) {
-                sumByte += Type.getPadding(sumByte, elementType, targetDataLayout);
-            }
-            sumByte += elementType.getSize(targetDataLayout);
-        }
-
-        int padding = 0;
-        if (!isPacked && sumByte != 0) {
-            padding = Type.getPadding(sumByte, getAlignment(targetDataLayout));
-        }
-
-        return sumByte + padding;
+        return targetDataLayout.getSize(this);
     }
 
     @Override
@@ -124,19 +116,7 @@ public final class StructureType extends AggregateType {
 
     @Override
     public long getOffsetOf(long index, DataLayout targetDataLayout) {
-        int offset = 0;
-        for (int i = 0; i < index; i++) {
-            final Type elementType = types[i];
-            if (!isPacked) {
-                offset += Type.getPadding(offset, elementType, targetDataLayout);
-            }
-            offset += elementType.getSize(targetDataLayout);
-        }
-        if (!isPacked && getSize(targetDataLayout) > offset) {
-            assert index == (int) index;
-            offset += Type.getPadding(offset, types[(int) index], targetDataLayout);
-        }
-        return offset;
+        return targetDataLayout.getOffsetOf(this, index);
     }
 
     private int getLargestAlignment(DataLayout targetDataLayout) {
@@ -1168,6 +1168,13 @@ public class LLVMInteropTest {
         }
     }
 
+    @Test
+    public void testManagedMallocAtomic() throws Exception {
+        try (Runner runner = new Runner("managedMallocAtomic")) {
+            Assert.assertEquals(0, runner.run());
+        }
+    }
+
     @Test
     public void testVirtualMallocArray() throws Exception {
         try (Runner runner = new Runner("virtualMallocArray")) {
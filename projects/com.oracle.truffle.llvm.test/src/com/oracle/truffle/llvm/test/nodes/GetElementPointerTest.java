@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.nodes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.llvm.nodes.intrinsics.interop.LLVMTruffleManagedMalloc.ManagedMallocObject;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMI32LiteralNode;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMI64LiteralNode;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMNativePointerLiteralNode;
+import com.oracle.truffle.llvm.nodes.memory.LLVMGetElementPtrNode;
+import com.oracle.truffle.llvm.nodes.memory.LLVMGetElementPtrNode.LLVMConstantOffsetElementPtrNode;
+import com.oracle.truffle.llvm.parser.factories.BasicNodeFactory;
+import com.oracle.truffle.llvm.runtime.NodeFactory;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMManagedPointer;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType;
+
+public final class GetElementPointerTest {
+
+    private static final long BASE = 0x1000;
+
+    private final NodeFactory nodeFactory = new BasicNodeFactory(null);
+
+    private static LLVMExpressionNode createBase() {
+        return new LLVMNativePointerLiteralNode(LLVMNativePointer.create(BASE));
+    }
+
+    @Test
+    public void testConstantIndicesUseConstantOffsetNode() {
+        LLVMExpressionNode gep = nodeFactory.createTypedElementPointer(createBase(), null, 0, 24, PrimitiveType.I32);
+        Assert.assertTrue(gep instanceof LLVMConstantOffsetElementPtrNode);
+        Assert.assertEquals(BASE + 24, LLVMNativePointer.cast(gep.executeGeneric(null)).asNative());
+    }
+
+    @Test
+    public void testZeroOffset() {
+        LLVMExpressionNode gep = nodeFactory.createTypedElementPointer(createBase(), null, 0, 0, PrimitiveType.I32);
+        Assert.assertTrue(gep instanceof LLVMConstantOffsetElementPtrNode);
+        Assert.assertEquals(BASE, LLVMNativePointer.cast(gep.executeGeneric(null)).asNative());
+    }
+
+    @Test
+    public void testDynamicI32IndexWithConstantOffset() {
+        LLVMExpressionNode gep = nodeFactory.createTypedElementPointer(createBase(), new LLVMI32LiteralNode(3), 16, 8, PrimitiveType.I32);
+        Assert.assertTrue(gep instanceof LLVMGetElementPtrNode);
+        Assert.assertEquals(BASE + 3 * 16 + 8, LLVMNativePointer.cast(gep.executeGeneric(null)).asNative());
+    }
+
+    @Test
+    public void testDynamicI64IndexWithConstantOffset() {
+        LLVMExpressionNode gep = nodeFactory.createTypedElementPointer(createBase(), new LLVMI64LiteralNode(-2), 12, 4, PrimitiveType.I32);
+        Assert.assertTrue(gep instanceof LLVMGetElementPtrNode);
+        Assert.assertEquals(BASE - 2 * 12 + 4, LLVMNativePointer.cast(gep.executeGeneric(null)).asNative());
+    }
+
+    @Test
+    public void testManagedPointerKeepsObject() {
+        ManagedMallocObject object = new ManagedMallocObject(8);
+        LLVMExpressionNode base = new LLVMExpressionNode() {
+            @Override
+            public Object executeGeneric(VirtualFrame frame) {
+                return LLVMManagedPointer.create(object, 8);
+            }
+        };
+        LLVMExpressionNode gep = nodeFactory.createTypedElementPointer(base, new LLVMI32LiteralNode(2), 8, 16, PrimitiveType.I64);
+        LLVMManagedPointer result = LLVMManagedPointer.cast(gep.executeGeneric(null));
+        Assert.assertSame(object, result.getObject());
+        Assert.assertEquals(8 + 2 * 8 + 16, result.getOffset());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.nodes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.llvm.nodes.control.LLVMIndirectBranchNode;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMNativePointerLiteralNode;
+import com.oracle.truffle.llvm.parser.factories.BasicNodeFactory;
+import com.oracle.truffle.llvm.runtime.NodeFactory;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
+import com.oracle.truffle.llvm.runtime.pointer.LLVMNativePointer;
+
+public final class IndirectBranchTest {
+
+    private final NodeFactory nodeFactory = new BasicNodeFactory(null);
+
+    private LLVMIndirectBranchNode createBranch(long blockAddress, int[] targets) {
+        LLVMNativePointerLiteralNode address = new LLVMNativePointerLiteralNode(LLVMNativePointer.create(blockAddress));
+        return (LLVMIndirectBranchNode) nodeFactory.createIndirectBranch(address, targets, new LLVMStatementNode[targets.length], null);
+    }
+
+    @Test
+    public void testTargetsResolveToTheirIndex() {
+        int[] targets = {7, 3, 12, 5};
+        for (int i = 0; i < targets.length; i++) {
+            LLVMIndirectBranchNode node = createBranch(targets[i], targets);
+            Assert.assertEquals(i, node.executeSuccessorIndex(null));
+            Assert.assertArrayEquals(new int[]{0, 1, 2, 3}, node.getDistinctSuccessorIndices());
+        }
+    }
+
+    @Test
+    public void testDuplicateTargetsResolveToFirstIndex() {
+        int[] targets = {4, 9, 4, 2, 9};
+        int[] expected = {0, 1, 0, 3, 1};
+        for (int i = 0; i < targets.length; i++) {
+            LLVMIndirectBranchNode node = createBranch(targets[i], targets);
+            Assert.assertEquals(expected[i], node.executeSuccessorIndex(null));
+            // compiled code only compares the resolved index with these
+            Assert.assertArrayEquals(new int[]{0, 1, 3}, node.getDistinctSuccessorIndices());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownTarget() {
+        createBranch(6, new int[]{4, 9, 2}).executeSuccessorIndex(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTargetOutOfRange() {
+        createBranch(100, new int[]{4, 9, 2}).executeSuccessorIndex(null);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.nodes;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.llvm.nodes.control.LLVMSwitchNode;
+import com.oracle.truffle.llvm.nodes.control.LLVMSwitchNode.LLVMSwitchNodeImpl;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMI32LiteralNode;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMI64LiteralNode;
+import com.oracle.truffle.llvm.nodes.literals.LLVMSimpleLiteralNode.LLVMI8LiteralNode;
+import com.oracle.truffle.llvm.parser.factories.BasicNodeFactory;
+import com.oracle.truffle.llvm.runtime.NodeFactory;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMStatementNode;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType;
+
+public final class SwitchNodeTest {
+
+    private final NodeFactory nodeFactory = new BasicNodeFactory(null);
+
+    private LLVMSwitchNode createSwitch(LLVMExpressionNode cond, int[] successors, long[] caseValues, PrimitiveType type) {
+        return (LLVMSwitchNode) nodeFactory.createSwitch(cond, successors, caseValues, type, new LLVMStatementNode[successors.length], null);
+    }
+
+    private static int executeSuccessor(LLVMSwitchNode node) {
+        int successorIndex = node.executeSuccessorIndex(null);
+        // the region node only dispatches on these indices in compiled code
+        Assert.assertTrue(Arrays.binarySearch(node.getDistinctSuccessorIndices(), successorIndex) >= 0);
+        return node.getSuccessors()[successorIndex];
+    }
+
+    private static int expectedDenseSuccessor(int value) {
+        switch (value) {
+            case 0:
+            case 1:
+            case 2:
+                return 10;
+            case 3:
+                return 11;
+            case 5:
+                return 12;
+            default:
+                return 13;
+        }
+    }
+
+    @Test
+    public void testDenseCases() {
+        int[] successors = {10, 10, 10, 11, 12, 13};
+        long[] caseValues = {2, 0, 1, 3, 5};
+        for (int value = -3; value < 10; value++) {
+            LLVMSwitchNode node = createSwitch(new LLVMI32LiteralNode(value), successors, caseValues, PrimitiveType.I32);
+            Assert.assertArrayEquals(new int[]{0, 3, 4, 5}, node.getDistinctSuccessorIndices());
+            Assert.assertEquals("value " + value, expectedDenseSuccessor(value), executeSuccessor(node));
+        }
+    }
+
+    @Test
+    public void testSparseCases() {
+        int[] successors = {20, 21, 22, 21, 23};
+        long[] caseValues = {Long.MAX_VALUE, -5, 1L << 40, Long.MIN_VALUE};
+        long[] values = {Long.MAX_VALUE, -5, 1L << 40, Long.MIN_VALUE, 0, -4, (1L << 40) + 1};
+        int[] expected = {20, 21, 22, 21, 23, 23, 23};
+        for (int i = 0; i < values.length; i++) {
+            LLVMSwitchNode node = createSwitch(new LLVMI64LiteralNode(values[i]), successors, caseValues, PrimitiveType.I64);
+            Assert.assertEquals("value " + values[i], expected[i], executeSuccessor(node));
+        }
+    }
+
+    @Test
+    public void testDefaultSharesBlockWithCase() {
+        int[] successors = {30, 31, 30};
+        long[] caseValues = {7, 8};
+        LLVMSwitchNode node = createSwitch(new LLVMI32LiteralNode(9), successors, caseValues, PrimitiveType.I32);
+        Assert.assertArrayEquals(new int[]{0, 1}, node.getDistinctSuccessorIndices());
+        Assert.assertEquals(0, node.executeSuccessorIndex(null));
+    }
+
+    @Test
+    public void testUnsignedByteCases() {
+        // the parser provides i8 case values sign-extended
+        int[] successors = {40, 41, 42};
+        long[] caseValues = {-1, 127};
+        Assert.assertEquals(40, executeSuccessor(createSwitch(new LLVMI8LiteralNode((byte) 0xff), successors, caseValues, PrimitiveType.I8)));
+        Assert.assertEquals(41, executeSuccessor(createSwitch(new LLVMI8LiteralNode((byte) 127), successors, caseValues, PrimitiveType.I8)));
+        Assert.assertEquals(42, executeSuccessor(createSwitch(new LLVMI8LiteralNode((byte) 0x80), successors, caseValues, PrimitiveType.I8)));
+    }
+
+    @Test
+    public void testGenericCases() {
+        int[] successors = {50, 51, 50, 52};
+        LLVMExpressionNode[] cases = {new LLVMI32LiteralNode(1), new LLVMI32LiteralNode(2), new LLVMI32LiteralNode(3)};
+        int[] expected = {52, 50, 51, 50, 52};
+        for (int value = 0; value < expected.length; value++) {
+            LLVMSwitchNode node = new LLVMSwitchNodeImpl(successors, new LLVMStatementNode[successors.length], new LLVMI32LiteralNode(value), cases.clone(), null);
+            Assert.assertArrayEquals(new int[]{0, 1, 3}, node.getDistinctSuccessorIndices());
+            Assert.assertEquals("value " + value, expected[value], executeSuccessor(node));
+        }
+    }
+}
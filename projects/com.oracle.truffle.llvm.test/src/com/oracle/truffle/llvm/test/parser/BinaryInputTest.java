@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.llvm.parser.scanner.BitReader;
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
+import com.oracle.truffle.llvm.runtime.except.LLVMParserException;
+
+public final class BinaryInputTest {
+
+    private static final int SMALL_CHUNK_SHIFT = 4;
+    private static final int INPUT_SIZE = 200;
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testGetLongAcrossChunks() {
+        byte[] bytes = randomBytes(INPUT_SIZE);
+        BinaryInput input = BinaryInput.create(bytes, SMALL_CHUNK_SHIFT);
+        ByteBuffer expected = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i <= bytes.length - Long.BYTES; i++) {
+            Assert.assertEquals("offset " + i, expected.getLong(i), input.getLong(i));
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            Assert.assertEquals("offset " + i, bytes[i], input.byteAt(i));
+        }
+    }
+
+    @Test
+    public void testSubSequenceAcrossChunks() {
+        byte[] bytes = randomBytes(INPUT_SIZE);
+        BinaryInput input = BinaryInput.create(bytes, SMALL_CHUNK_SHIFT);
+        BinaryInput sub = input.subSequence(13, 77);
+        Assert.assertEquals(64, sub.size());
+        ByteBuffer expected = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i <= sub.size() - Long.BYTES; i++) {
+            Assert.assertEquals("offset " + i, expected.getLong(13 + i), sub.getLong(i));
+        }
+        Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 13, 77), sub.asByteSequence().toByteArray());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetLongPastEnd() {
+        BinaryInput input = BinaryInput.create(randomBytes(INPUT_SIZE), SMALL_CHUNK_SHIFT);
+        input.getLong(INPUT_SIZE - Long.BYTES + 1);
+    }
+
+    @Test
+    public void testDigestAcrossChunks() throws NoSuchAlgorithmException {
+        byte[] bytes = randomBytes(INPUT_SIZE);
+        MessageDigest expected = MessageDigest.getInstance("SHA-256");
+        expected.update(bytes, 5, 150);
+        MessageDigest actual = MessageDigest.getInstance("SHA-256");
+        BinaryInput.create(bytes, SMALL_CHUNK_SHIFT).subSequence(5, 155).updateDigest(actual);
+        Assert.assertArrayEquals(expected.digest(), actual.digest());
+    }
+
+    private static long readBits(byte[] bytes, long offset, int bits) {
+        long value = 0;
+        for (int i = 0; i < bits; i++) {
+            long bit = offset + i;
+            value |= (long) ((bytes[(int) (bit >>> 3)] >>> (bit & 7)) & 1) << i;
+        }
+        return value;
+    }
+
+    @Test
+    public void testReadMatchesReference() {
+        byte[] bytes = randomBytes(INPUT_SIZE);
+        BitReader reader = BitReader.create(BinaryInput.create(bytes, SMALL_CHUNK_SHIFT));
+        Random random = new Random(7);
+        long offset = 0;
+        while (true) {
+            int bits = 1 + random.nextInt(Long.SIZE);
+            if (offset + bits > bytes.length * 8L) {
+                break;
+            }
+            Assert.assertEquals("offset " + offset, readBits(bytes, offset, bits), reader.read(bits));
+            offset += bits;
+            Assert.assertEquals(offset, reader.getPosition());
+        }
+    }
+
+    @Test
+    public void testSetPositionUnaligned() {
+        byte[] bytes = randomBytes(INPUT_SIZE);
+        BitReader reader = BitReader.create(BinaryInput.create(bytes, SMALL_CHUNK_SHIFT));
+        long size = bytes.length * 8L;
+        for (long offset = 0; offset <= size - Long.SIZE; offset += 13) {
+            reader.setPosition(offset);
+            Assert.assertEquals(offset, reader.getPosition());
+            Assert.assertEquals("offset " + offset, readBits(bytes, offset, Long.SIZE), reader.read(Long.SIZE));
+        }
+    }
+
+    @Test
+    public void testReadNearEnd() {
+        // the last bytes are loaded one by one because a whole word does not fit anymore
+        byte[] bytes = randomBytes(11);
+        BitReader reader = BitReader.create(BinaryInput.create(bytes, SMALL_CHUNK_SHIFT));
+        reader.setPosition(5);
+        Assert.assertEquals(readBits(bytes, 5, 60), reader.read(60));
+        Assert.assertEquals(readBits(bytes, 65, 20), reader.read(20));
+        Assert.assertEquals(readBits(bytes, 85, 3), reader.read(3));
+        Assert.assertEquals(reader.size(), reader.getPosition());
+    }
+
+    @Test(expected = LLVMParserException.class)
+    public void testReadPastEnd() {
+        BitReader reader = BitReader.create(BinaryInput.create(randomBytes(11), SMALL_CHUNK_SHIFT));
+        reader.setPosition(80);
+        reader.read(9);
+    }
+
+    @Test
+    public void testReadVBR() {
+        // 0x1234 in 6-bit chunks: 5 payload bits each, low chunks first
+        long value = 0x1234;
+        long bits = 0;
+        int width = 0;
+        for (long rest = value; rest != 0 || width == 0; rest >>>= 5) {
+            long chunk = rest & 0x1f;
+            if ((rest >>> 5) != 0) {
+                chunk |= 0x20;
+            }
+            bits |= chunk << width;
+            width += 6;
+        }
+        // put the field at an odd offset so that it spans two words
+        byte[] bytes = new byte[16];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putLong(0, bits << 61).putLong(8, bits >>> 3);
+        BitReader reader = BitReader.create(BinaryInput.create(bytes, SMALL_CHUNK_SHIFT));
+        reader.setPosition(61);
+        Assert.assertEquals(value, reader.readVBR6());
+        Assert.assertEquals(61 + width, reader.getPosition());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.llvm.parser.model.ModelModule;
+import com.oracle.truffle.llvm.runtime.debug.scope.LLVMSourceSymbol;
+import com.oracle.truffle.llvm.runtime.global.LLVMGlobal;
+import com.oracle.truffle.llvm.runtime.types.PointerType;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType;
+
+public final class LazyDebugInfoTest {
+
+    private static final int THREAD_COUNT = 8;
+
+    @Test
+    public void testFunctionsDoNotProcessModuleDebugInfo() {
+        AtomicInteger functionProcessorsCreated = new AtomicInteger();
+        AtomicInteger modulesProcessed = new AtomicInteger();
+        ModelModule module = new ModelModule();
+        module.setDebugInfoParser(() -> {
+            functionProcessorsCreated.incrementAndGet();
+            return null;
+        }, (functionProcessor, context) -> modulesProcessed.incrementAndGet());
+
+        Assert.assertFalse(module.isDebugInfoParsed());
+
+        // converting functions only prepares the per-function processing, once
+        module.getFunctionProcessor();
+        module.getFunctionProcessor();
+        Assert.assertEquals(1, functionProcessorsCreated.get());
+        Assert.assertEquals(0, modulesProcessed.get());
+        Assert.assertTrue(module.isMetadataParsed());
+        Assert.assertFalse(module.isDebugInfoParsed());
+
+        // the source-level globals of the module are only processed on request
+        module.parseDebugInfo(null);
+        module.parseDebugInfo(null);
+        Assert.assertEquals(1, functionProcessorsCreated.get());
+        Assert.assertEquals(1, modulesProcessed.get());
+        Assert.assertTrue(module.isDebugInfoParsed());
+    }
+
+    @Test
+    public void testModuleDebugInfoPreparesFunctionProcessor() {
+        AtomicInteger functionProcessorsCreated = new AtomicInteger();
+        ModelModule module = new ModelModule();
+        module.setDebugInfoParser(() -> {
+            functionProcessorsCreated.incrementAndGet();
+            return null;
+        }, (functionProcessor, context) -> Assert.assertEquals(1, functionProcessorsCreated.get()));
+
+        module.parseDebugInfo(null);
+        module.getFunctionProcessor();
+        Assert.assertEquals(1, functionProcessorsCreated.get());
+    }
+
+    @Test
+    public void testLazySourceSymbolIsResolvedOnce() throws Exception {
+        AtomicInteger resolved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        LLVMGlobal global = LLVMGlobal.createWithLazySourceSymbol(null, "@global", new PointerType(PrimitiveType.I32), () -> {
+            resolved.incrementAndGet();
+            return LLVMSourceSymbol.create("global", null, null, true);
+        }, false);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<String>> names = new ArrayList<>(THREAD_COUNT);
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                names.add(executor.submit(() -> {
+                    start.await();
+                    return global.getSourceName();
+                }));
+            }
+            start.countDown();
+
+            Set<String> distinctNames = ConcurrentHashMap.newKeySet();
+            for (Future<String> name : names) {
+                distinctNames.add(name.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, resolved.get());
+            Assert.assertEquals(1, distinctNames.size());
+            Assert.assertTrue(distinctNames.contains("global"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
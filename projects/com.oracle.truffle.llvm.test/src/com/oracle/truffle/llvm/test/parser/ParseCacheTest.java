@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Source;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oracle.truffle.llvm.runtime.options.SulongEngineOption;
+import com.oracle.truffle.llvm.test.options.TestOptions;
+
+public final class ParseCacheTest {
+
+    private static final File TEST_FILE = new File(TestOptions.TEST_SUITE_PATH, "interop/interop001/O0_MEM2REG.bc");
+    private static final int EXPECTED_RESULT = 42;
+    // magic, version and bitcode size precede the content hash in the entry header
+    private static final int CONTENT_HASH_OFFSET = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File bitcode;
+    private File cacheDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        bitcode = tempFolder.newFile("test.bc");
+        Files.copy(TEST_FILE.toPath(), bitcode.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        cacheDirectory = new File(tempFolder.getRoot(), "cache");
+    }
+
+    private int run() throws IOException {
+        try (Context context = Context.newBuilder().allowAllAccess(true).option(SulongEngineOption.PARSE_CACHE_NAME, cacheDirectory.getPath()).build()) {
+            return context.eval(Source.newBuilder("llvm", bitcode).build()).execute().asInt();
+        }
+    }
+
+    /**
+     * The default libraries are cached as well, so the entries of all parsed files are returned.
+     */
+    private Map<String, Long> entries() {
+        Map<String, Long> entries = new HashMap<>();
+        File[] files = cacheDirectory.listFiles((dir, name) -> name.endsWith(".records"));
+        if (files != null) {
+            for (File file : files) {
+                entries.put(file.getName(), file.lastModified());
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    public void testCacheHit() throws IOException {
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        Map<String, Long> stored = entries();
+        Assert.assertFalse(stored.isEmpty());
+
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        // a hit neither adds nor rewrites entries
+        Assert.assertEquals(stored, entries());
+    }
+
+    @Test
+    public void testModifiedFileMisses() throws IOException {
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        Map<String, Long> stored = entries();
+
+        Assert.assertTrue(bitcode.setLastModified(bitcode.lastModified() + 10000));
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        Map<String, Long> updated = entries();
+        Assert.assertEquals(stored.size() + 1, updated.size());
+        Assert.assertTrue(updated.entrySet().containsAll(stored.entrySet()));
+    }
+
+    @Test
+    public void testCorruptEntryIsReplaced() throws IOException {
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        Map<String, Long> stored = entries();
+        for (String name : stored.keySet()) {
+            Files.write(new File(cacheDirectory, name).toPath(), new byte[]{1, 2, 3});
+        }
+
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        Assert.assertEquals(stored.keySet(), entries().keySet());
+        for (String name : stored.keySet()) {
+            Assert.assertTrue(new File(cacheDirectory, name).length() > 3);
+        }
+    }
+
+    @Test
+    public void testEntryOfOtherContentMisses() throws IOException {
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        Map<String, Long> stored = entries();
+        for (String name : stored.keySet()) {
+            // keep the size and the payload checksum, but change the content hash of the header
+            Path entry = new File(cacheDirectory, name).toPath();
+            byte[] content = Files.readAllBytes(entry);
+            content[CONTENT_HASH_OFFSET] ^= 0xFF;
+            Files.write(entry, content);
+            Assert.assertTrue(entry.toFile().setLastModified(stored.get(name) - 10000));
+        }
+
+        Assert.assertEquals(EXPECTED_RESULT, run());
+        Map<String, Long> updated = entries();
+        Assert.assertEquals(stored.keySet(), updated.keySet());
+        for (String name : stored.keySet()) {
+            Assert.assertNotEquals(stored.get(name) - 10000, updated.get(name).longValue());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.runtime;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.llvm.runtime.memory.LLVMArenaAllocator;
+import com.oracle.truffle.llvm.runtime.memory.LLVMArenaAllocator.ThreadCache;
+import com.oracle.truffle.llvm.runtime.memory.LLVMNativeMemory;
+
+public final class ArenaAllocatorTest {
+
+    private static final int ALIGNMENT = 16;
+
+    @Test
+    public void testSizeClasses() {
+        LLVMArenaAllocator allocator = LLVMNativeMemory.createArenaAllocator(64 * LLVMArenaAllocator.SLAB_SIZE);
+        ThreadCache cache = allocator.getThreadCache();
+        Set<Long> blocks = new HashSet<>();
+        for (int size = 0; size <= LLVMArenaAllocator.MAX_BLOCK_SIZE; size += 7) {
+            long block = allocator.allocate(cache, size);
+            Assert.assertNotEquals(0, block);
+            Assert.assertTrue(allocator.contains(block));
+            Assert.assertEquals(0, block % ALIGNMENT);
+            long blockSize = allocator.getBlockSize(block);
+            Assert.assertTrue("size " + size, blockSize >= size);
+            // the size classes are at most 25% larger than the request
+            Assert.assertTrue("size " + size, size <= ALIGNMENT || blockSize <= size + size / 4 + ALIGNMENT);
+            Assert.assertTrue(blocks.add(block));
+        }
+        Assert.assertFalse(LLVMArenaAllocator.isSmall(LLVMArenaAllocator.MAX_BLOCK_SIZE + 1));
+    }
+
+    @Test
+    public void testLocalFreeIsReused() {
+        LLVMArenaAllocator allocator = LLVMNativeMemory.createArenaAllocator(LLVMArenaAllocator.SLAB_SIZE);
+        ThreadCache cache = allocator.getThreadCache();
+        long first = allocator.allocate(cache, 24);
+        long second = allocator.allocate(cache, 24);
+        Assert.assertEquals(first + allocator.getBlockSize(first), second);
+
+        allocator.free(cache, first);
+        Assert.assertEquals(first, allocator.allocate(cache, 17));
+        // the variants without a cache use the same cache
+        allocator.free(second);
+        Assert.assertEquals(second, allocator.allocateZeroed(32));
+    }
+
+    @Test
+    public void testRemoteFree() throws Exception {
+        LLVMArenaAllocator allocator = LLVMNativeMemory.createArenaAllocator(4 * LLVMArenaAllocator.SLAB_SIZE);
+        ThreadCache cache = allocator.getThreadCache();
+        long block = allocator.allocate(cache, 100);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                ThreadCache other = allocator.getThreadCache();
+                Assert.assertNotSame(cache, other);
+                allocator.free(other, block);
+                // the block belongs to the other thread and is not handed out here
+                Assert.assertNotEquals(block, allocator.allocate(other, 100));
+            }).get();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        // the owner takes the block over from its remote free list
+        Assert.assertEquals(block, allocator.allocate(cache, 100));
+    }
+
+    @Test
+    public void testReleasedCacheIsHandedOver() throws Exception {
+        LLVMArenaAllocator allocator = LLVMNativeMemory.createArenaAllocator(4 * LLVMArenaAllocator.SLAB_SIZE);
+        long[] block = new long[1];
+        Thread thread = new Thread(() -> block[0] = allocator.allocate(64));
+        thread.start();
+        thread.join();
+        allocator.releaseThread(thread);
+
+        ThreadCache cache = allocator.getThreadCache();
+        Assert.assertTrue(cache.isOwnedByCurrentThread());
+        // the slab of the terminated thread is continued instead of taking a new one
+        Assert.assertEquals(block[0] + 64, allocator.allocate(cache, 64));
+    }
+
+    @Test
+    public void testExhaustion() {
+        LLVMArenaAllocator allocator = LLVMNativeMemory.createArenaAllocator(LLVMArenaAllocator.SLAB_SIZE);
+        ThreadCache cache = allocator.getThreadCache();
+        long blockSize = 256;
+        long last = 0;
+        for (long i = 0; i < LLVMArenaAllocator.SLAB_SIZE / blockSize; i++) {
+            last = allocator.allocate(cache, blockSize);
+            Assert.assertNotEquals(0, last);
+        }
+        // callers fall back to the system allocator when the arena is exhausted
+        Assert.assertEquals(0, allocator.allocate(cache, blockSize));
+        Assert.assertEquals(0, allocator.allocate(cache, 16));
+
+        allocator.free(cache, last);
+        Assert.assertEquals(last, allocator.allocate(cache, blockSize));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.llvm.runtime.LLVMBackgroundParser;
+import com.oracle.truffle.llvm.runtime.LLVMContext.ExternalLibrary;
+import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor;
+import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor.LazyLLVMIRFunction;
+import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor.LazyToTruffleConverter;
+import com.oracle.truffle.llvm.runtime.debug.type.LLVMSourceFunctionType;
+import com.oracle.truffle.llvm.runtime.types.FunctionType;
+import com.oracle.truffle.llvm.runtime.types.PrimitiveType;
+import com.oracle.truffle.llvm.runtime.types.Type;
+
+public final class BackgroundParserTest {
+
+    private static final ExternalLibrary LIBRARY = new ExternalLibrary("test", false);
+    private static final FunctionType TYPE = new FunctionType(PrimitiveType.VOID, new Type[0], false);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<String> converted = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger converting = new AtomicInteger();
+    private final AtomicInteger maxConverting = new AtomicInteger();
+    private int functionId;
+
+    @After
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private final class TestConverter implements LazyToTruffleConverter {
+
+        private final String name;
+        private final CountDownLatch latch;
+        private List<LLVMFunctionDescriptor> callees = Collections.emptyList();
+        private RootCallTarget callTarget;
+
+        TestConverter(String name, CountDownLatch latch) {
+            this.name = name;
+            this.latch = latch;
+        }
+
+        @Override
+        public synchronized RootCallTarget convert() {
+            if (callTarget == null) {
+                maxConverting.accumulateAndGet(converting.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                converting.decrementAndGet();
+                callTarget = Truffle.getRuntime().createCallTarget(RootNode.createConstantNode(name));
+                converted.add(name);
+                latch.countDown();
+            }
+            return callTarget;
+        }
+
+        @Override
+        public LLVMSourceFunctionType getSourceType() {
+            return null;
+        }
+
+        @Override
+        public List<LLVMFunctionDescriptor> getCallees() {
+            return callees;
+        }
+    }
+
+    private LLVMFunctionDescriptor createFunction(TestConverter converter) {
+        LLVMFunctionDescriptor function = LLVMFunctionDescriptor.createDescriptor(null, converter.name, TYPE, ++functionId);
+        function.define(LIBRARY, new LazyLLVMIRFunction(converter));
+        return function;
+    }
+
+    @Test
+    public void testCalleesAreConvertedBeforeTheyAreCalled() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(4);
+        TestConverter main = new TestConverter("main", latch);
+        TestConverter foo = new TestConverter("foo", latch);
+        TestConverter bar = new TestConverter("bar", latch);
+        TestConverter baz = new TestConverter("baz", latch);
+
+        LLVMFunctionDescriptor mainFunction = createFunction(main);
+        LLVMFunctionDescriptor fooFunction = createFunction(foo);
+        LLVMFunctionDescriptor barFunction = createFunction(bar);
+        LLVMFunctionDescriptor bazFunction = createFunction(baz);
+        main.callees = Arrays.asList(fooFunction, barFunction);
+        foo.callees = Arrays.asList(bazFunction);
+        bar.callees = Arrays.asList(bazFunction, mainFunction);
+
+        new LLVMBackgroundParser(executor, 1).schedule(mainFunction);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        // the functions are converted in the order of their distance from main, and only once
+        Assert.assertEquals(Arrays.asList("main", "foo", "bar", "baz"), converted);
+
+        // the call targets are ready but not installed until the functions are called
+        Assert.assertTrue(bazFunction.isLazyLLVMIRFunction());
+        bazFunction.resolveIfLazyLLVMIRFunction();
+        Assert.assertFalse(bazFunction.isLazyLLVMIRFunction());
+        Assert.assertEquals(4, converted.size());
+    }
+
+    @Test
+    public void testShutdownStopsParsing() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        TestConverter main = new TestConverter("main", latch);
+        TestConverter foo = new TestConverter("foo", latch);
+        LLVMFunctionDescriptor mainFunction = createFunction(main);
+        main.callees = Arrays.asList(createFunction(foo));
+
+        LLVMBackgroundParser parser = new LLVMBackgroundParser(executor, 1);
+        parser.shutdown();
+        parser.schedule(mainFunction);
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(converted.isEmpty());
+    }
+
+    @Test
+    public void testWorkersAreLimited() throws InterruptedException {
+        ExecutorService sharedExecutor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch latch = new CountDownLatch(9);
+            TestConverter main = new TestConverter("main", latch);
+            List<LLVMFunctionDescriptor> callees = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                callees.add(createFunction(new TestConverter("f" + i, latch)));
+            }
+            main.callees = callees;
+
+            // the executor has more threads than background parsing may use
+            new LLVMBackgroundParser(sharedExecutor, 2).schedule(createFunction(main));
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(9, converted.size());
+            Assert.assertTrue(maxConverting.get() <= 2);
+        } finally {
+            sharedExecutor.shutdownNow();
+            Assert.assertTrue(sharedExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.runtime;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.llvm.runtime.LLVMDefaultLibraryCache;
+
+public final class DefaultLibraryCacheTest {
+
+    private static final Path PATH = Paths.get("libsulong.bc");
+    private static final int THREAD_COUNT = 8;
+
+    private static Source createSource() {
+        return Source.newBuilder("llvm", "", PATH.toString()).build();
+    }
+
+    @Test
+    public void testStaleEntryIsDiscarded() {
+        LLVMDefaultLibraryCache cache = new LLVMDefaultLibraryCache();
+        Assert.assertNull(cache.get(PATH, 1));
+
+        LLVMDefaultLibraryCache.Entry entry = cache.put(PATH, 1, createSource());
+        Assert.assertSame(entry, cache.get(PATH, 1));
+        Assert.assertSame(entry, cache.put(PATH, 1, createSource()));
+
+        Assert.assertNull(cache.get(PATH, 2));
+        Assert.assertNotSame(entry, cache.put(PATH, 2, createSource()));
+    }
+
+    @Test
+    public void testModuleIsParsedOnce() throws Exception {
+        LLVMDefaultLibraryCache.Entry entry = new LLVMDefaultLibraryCache().put(PATH, 1, createSource());
+        AtomicInteger parsed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<Object>> modules = new ArrayList<>(THREAD_COUNT);
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                modules.add(executor.submit(() -> {
+                    start.await();
+                    return entry.getModule(() -> {
+                        parsed.incrementAndGet();
+                        return new Object();
+                    });
+                }));
+            }
+            start.countDown();
+
+            Object module = modules.get(0).get(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(module);
+            for (Future<Object> other : modules) {
+                Assert.assertSame(module, other.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, parsed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import org.graalvm.polyglot.Context;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.llvm.runtime.global.LLVMGlobalContainer;
+import com.oracle.truffle.llvm.runtime.interop.convert.ForeignToLLVM.ForeignToLLVMType;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectCompareExchangeNode;
+import com.oracle.truffle.llvm.runtime.nodes.api.LLVMObjectAccess.LLVMObjectReadNode;
+
+public final class GlobalContainerTest {
+
+    private static final int THREADS = 4;
+    private static final int INCREMENTS = 10000;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = Context.newBuilder().allowAllAccess(true).build();
+        context.initialize("llvm");
+        context.enter();
+    }
+
+    @After
+    public void tearDown() {
+        context.leave();
+        context.close();
+    }
+
+    private static void increment(LLVMObjectCompareExchangeNode compareExchange, LLVMGlobalContainer container) throws InteropException {
+        while (true) {
+            Object current = compareExchange.executeCompareExchange(container, 0, 0L, 0L, ForeignToLLVMType.I64);
+            long expected = ((Number) current).longValue();
+            Object previous = compareExchange.executeCompareExchange(container, 0, expected, expected + 1, ForeignToLLVMType.I64);
+            if (LLVMObjectCompareExchangeNode.isSameValue(previous, expected)) {
+                return;
+            }
+        }
+    }
+
+    @Test
+    public void testNoUpdateIsLostWhileMovingToNative() throws Throwable {
+        LLVMGlobalContainer container = new LLVMGlobalContainer();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS + 1);
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                context.enter();
+                try {
+                    LLVMObjectCompareExchangeNode compareExchange = container.createCompareExchangeNode();
+                    barrier.await();
+                    for (int j = 0; j < INCREMENTS; j++) {
+                        increment(compareExchange, container);
+                    }
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                } finally {
+                    context.leave();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // an access that is not pointer-sized moves the value to native memory in the middle of the
+        // increments
+        LLVMObjectReadNode read = container.createReadNode();
+        barrier.await();
+        Thread.yield();
+        read.executeRead(container, 0, ForeignToLLVMType.I32);
+        long address = container.getAddress();
+        Assert.assertNotEquals(0, address);
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Throwable failure : failures) {
+            throw failure;
+        }
+        Assert.assertEquals(address, container.getAddress());
+        Assert.assertEquals((long) THREADS * INCREMENTS, ((Number) read.executeRead(container, 0, ForeignToLLVMType.I64)).longValue());
+        container.dispose();
+    }
+}
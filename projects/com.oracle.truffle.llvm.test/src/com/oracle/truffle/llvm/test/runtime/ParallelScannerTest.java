@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm.test.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.llvm.ParallelScanner;
+
+public final class ParallelScannerTest {
+
+    private static final int LIBRARY_COUNT = 16;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static List<Integer> createLibraries() {
+        List<Integer> libraries = new ArrayList<>(LIBRARY_COUNT);
+        for (int i = 0; i < LIBRARY_COUNT; i++) {
+            libraries.add(i);
+        }
+        return libraries;
+    }
+
+    private static String scan(int library) {
+        try {
+            // the libraries at the end of the link order finish scanning first
+            Thread.sleep(LIBRARY_COUNT - library);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return "lib" + library;
+    }
+
+    private static List<String> expectedLinkOrder(int count) {
+        List<String> expected = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expected.add("lib" + i);
+        }
+        return expected;
+    }
+
+    @Test
+    public void testLinkOrderIsPreserved() {
+        Thread caller = Thread.currentThread();
+        Set<Thread> scanningThreads = ConcurrentHashMap.newKeySet();
+        List<String> linked = new ArrayList<>();
+        ParallelScanner.scanAndLink(executor, createLibraries(), lib -> {
+            scanningThreads.add(Thread.currentThread());
+            return scan(lib);
+        }, scanned -> {
+            Assert.assertSame(caller, Thread.currentThread());
+            linked.add(scanned);
+        });
+        Assert.assertEquals(expectedLinkOrder(LIBRARY_COUNT), linked);
+        Assert.assertFalse(scanningThreads.contains(caller));
+    }
+
+    @Test
+    public void testSequentialWithoutExecutor() {
+        List<String> linked = new ArrayList<>();
+        ParallelScanner.scanAndLink(null, createLibraries(), ParallelScannerTest::scan, linked::add);
+        Assert.assertEquals(expectedLinkOrder(LIBRARY_COUNT), linked);
+    }
+
+    @Test
+    public void testScanErrorStopsLinking() {
+        IllegalStateException error = new IllegalStateException("broken library");
+        List<String> linked = new ArrayList<>();
+        try {
+            ParallelScanner.scanAndLink(executor, createLibraries(), lib -> {
+                if (lib == 5) {
+                    throw error;
+                }
+                return scan(lib);
+            }, linked::add);
+            Assert.fail("expected the scan error to be rethrown");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(error, e);
+        }
+        Assert.assertEquals(expectedLinkOrder(5), linked);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.oracle.truffle.llvm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.oracle.truffle.llvm.runtime.except.LLVMParserException;
+
+/**
+ * Scans a batch of libraries concurrently, but links them one after the other and in the order of
+ * the batch, so that the link order does not depend on the scheduling of the parser threads.
+ */
+public final class ParallelScanner {
+
+    private ParallelScanner() {
+    }
+
+    /**
+     * @param executor the parser threads, or {@code null} to scan and link each library on the
+     *            calling thread
+     * @param libraries the libraries in link order
+     * @param scanner scans a library, must not modify the context
+     * @param linker links a scanned library, is always called on the calling thread
+     */
+    public static <L, S> void scanAndLink(ExecutorService executor, List<L> libraries, Function<L, S> scanner, Consumer<S> linker) {
+        if (executor == null || libraries.size() <= 1) {
+            for (L lib : libraries) {
+                linker.accept(scanner.apply(lib));
+            }
+            return;
+        }
+
+        List<Future<S>> scannedLibraries = new ArrayList<>(libraries.size());
+        try {
+            for (L lib : libraries) {
+                scannedLibraries.add(executor.submit(() -> scanner.apply(lib)));
+            }
+            for (Future<S> scannedLibrary : scannedLibraries) {
+                linker.accept(await(scannedLibrary));
+            }
+        } finally {
+            for (Future<S> scannedLibrary : scannedLibraries) {
+                scannedLibrary.cancel(true);
+            }
+        }
+    }
+
+    private static <S> S await(Future<S> scannedLibrary) {
+        try {
+            return scannedLibrary.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LLVMParserException("Interrupted while parsing.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
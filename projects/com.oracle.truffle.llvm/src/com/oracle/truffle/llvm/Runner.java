@@ -42,10 +42,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import org.graalvm.collections.EconomicMap;
 import org.graalvm.collections.EconomicSet;
 import org.graalvm.collections.Equivalence;
+import org.graalvm.options.OptionValues;
 import org.graalvm.polyglot.io.ByteSequence;
 
 import com.oracle.truffle.api.CallTarget;
@@ -74,6 +76,7 @@ import com.oracle.truffle.llvm.RunnerFactory.SulongLibraryMessageResolutionFacto
 import com.oracle.truffle.llvm.RunnerFactory.SulongLibraryMessageResolutionFactory.LookupNodeGen;
 import com.oracle.truffle.llvm.nodes.func.LLVMGlobalRootNode;
 import com.oracle.truffle.llvm.nodes.others.LLVMStaticInitsBlockNode;
+import com.oracle.truffle.llvm.parser.LLVMDataSegment;
 import com.oracle.truffle.llvm.parser.LLVMParser;
 import com.oracle.truffle.llvm.parser.LLVMParserResult;
 import com.oracle.truffle.llvm.parser.LLVMParserRuntime;
@@ -86,11 +89,13 @@ import com.oracle.truffle.llvm.parser.model.symbols.constants.aggregate.Structur
 import com.oracle.truffle.llvm.parser.model.symbols.globals.GlobalVariable;
 import com.oracle.truffle.llvm.parser.nodes.LLVMSymbolReadResolver;
 import com.oracle.truffle.llvm.parser.scanner.LLVMScanner;
+import com.oracle.truffle.llvm.parser.util.BinaryInput;
 import com.oracle.truffle.llvm.parser.util.Pair;
 import com.oracle.truffle.llvm.runtime.GetStackSpaceFactory;
 import com.oracle.truffle.llvm.runtime.LLVMAlias;
 import com.oracle.truffle.llvm.runtime.LLVMContext;
 import com.oracle.truffle.llvm.runtime.LLVMContext.ExternalLibrary;
+import com.oracle.truffle.llvm.runtime.LLVMDefaultLibraryCache;
 import com.oracle.truffle.llvm.runtime.LLVMFunctionDescriptor;
 import com.oracle.truffle.llvm.runtime.LLVMIntrinsicProvider;
 import com.oracle.truffle.llvm.runtime.LLVMLanguage;
@@ -105,9 +110,11 @@ import com.oracle.truffle.llvm.runtime.except.LLVMLinkerException;
 import com.oracle.truffle.llvm.runtime.except.LLVMParserException;
 import com.oracle.truffle.llvm.runtime.global.LLVMGlobal;
 import com.oracle.truffle.llvm.runtime.global.LLVMGlobalContainer;
+import com.oracle.truffle.llvm.runtime.global.LLVMThreadLocalSegment;
 import com.oracle.truffle.llvm.runtime.interop.LLVMForeignCallNode;
 import com.oracle.truffle.llvm.runtime.interop.LLVMForeignCallNodeGen;
 import com.oracle.truffle.llvm.runtime.memory.LLVMAllocateStructNode;
+import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
 import com.oracle.truffle.llvm.runtime.memory.LLVMStack;
 import com.oracle.truffle.llvm.runtime.memory.LLVMStack.StackPointer;
 import com.oracle.truffle.llvm.runtime.nodes.api.LLVMExpressionNode;
@@ -404,11 +411,21 @@ public final class Runner {
         LLVMPointer nonPointerStore = allocationNode.executeWithTarget();
         LLVMScope fileScope = res.getRuntime().getFileScope();
 
+        // constant initializers are written to an image of the store, which is copied at once
+        LLVMDataSegment dataSegment = null;
+        if (context.getEnv().getOptions().get(SulongEngineOption.GLOBAL_DATA_SEGMENT)) {
+            dataSegment = new LLVMDataSegment(dataLayout, structType.getSize(dataLayout));
+        }
+
         HashMap<LLVMPointer, LLVMGlobal> reverseMap = new HashMap<>();
         int nonPointerOffset = 0;
         for (GlobalVariable global : res.getDefinedGlobals()) {
+            if (global.isThreadLocal()) {
+                continue;
+            }
             Type type = global.getType().getPointeeType();
             LLVMPointer ref;
+            int offset = -1;
             if (isSpecialGlobalSlot(global.getType().getPointeeType())) {
                 ref = LLVMManagedPointer.create(new LLVMGlobalContainer());
             } else {
@@ -419,6 +436,7 @@ public final class Runner {
                 int alignment = getAlignment(dataLayout, global, type);
                 nonPointerOffset += Type.getPadding(nonPointerOffset, alignment);
                 ref = nonPointerStore.increment(nonPointerOffset);
+                offset = nonPointerOffset;
                 nonPointerOffset += type.getSize(dataLayout);
             }
 
@@ -428,10 +446,80 @@ public final class Runner {
                 // already bound before to a different target location
                 descriptor.setTarget(ref);
                 reverseMap.put(ref, descriptor);
+                if (dataSegment != null && offset >= 0 && dataSegment.write(global, offset)) {
+                    res.addPreinitializedGlobal(global);
+                }
             }
         }
 
+        if (dataSegment != null) {
+            LLVMMemory memory = context.getLanguage().getCapability(LLVMMemory.class);
+            memory.copyFromArray(dataSegment.getImage(), LLVMNativePointer.cast(nonPointerStore));
+        }
         context.registerGlobals(nonPointerStore, reverseMap);
+
+        allocateThreadLocalGlobals(res);
+    }
+
+    /**
+     * Lays out all thread-local globals of a module, including those of pointer type, as one
+     * native struct. The struct allocated here is the image that is copied for every thread.
+     */
+    private void allocateThreadLocalGlobals(LLVMParserResult res) {
+        DataLayout dataLayout = context.getDataSpecConverter();
+        ArrayList<Type> threadLocalTypes = getThreadLocalTypes(res, dataLayout);
+        if (threadLocalTypes.isEmpty()) {
+            return;
+        }
+
+        StructureType structType = new StructureType("thread_locals_struct", true, threadLocalTypes.toArray(new Type[0]));
+        LLVMAllocateStructNode allocationNode = context.getNodeFactory().createAllocateStruct(structType);
+        LLVMPointer image = allocationNode.executeWithTarget();
+        LLVMThreadLocalSegment segment = context.createThreadLocalSegment(LLVMNativePointer.cast(image), context.getByteSize(structType));
+        LLVMScope fileScope = res.getRuntime().getFileScope();
+
+        HashMap<LLVMPointer, LLVMGlobal> reverseMap = new HashMap<>();
+        int threadLocalOffset = 0;
+        for (GlobalVariable global : res.getDefinedGlobals()) {
+            if (!global.isThreadLocal()) {
+                continue;
+            }
+            Type type = getAllocatedType(dataLayout, global);
+            threadLocalOffset += Type.getPadding(threadLocalOffset, getAlignment(dataLayout, global, type));
+
+            LLVMGlobal descriptor = fileScope.getGlobalVariable(global.getName());
+            if (!descriptor.isInitialized()) {
+                descriptor.setThreadLocalTarget(segment, threadLocalOffset);
+                reverseMap.put(image.increment(threadLocalOffset), descriptor);
+            }
+            threadLocalOffset += type.getSize(dataLayout);
+        }
+        context.registerGlobals(image, reverseMap);
+    }
+
+    private static ArrayList<Type> getThreadLocalTypes(LLVMParserResult res, DataLayout dataLayout) {
+        ArrayList<Type> result = new ArrayList<>();
+        int threadLocalOffset = 0;
+        for (GlobalVariable global : res.getDefinedGlobals()) {
+            if (global.isThreadLocal()) {
+                Type type = getAllocatedType(dataLayout, global);
+                int padding = Type.getPadding(threadLocalOffset, getAlignment(dataLayout, global, type));
+                addPaddingTypes(result, padding);
+                threadLocalOffset += padding;
+                result.add(type);
+                threadLocalOffset += type.getSize(dataLayout);
+            }
+        }
+        return result;
+    }
+
+    private static Type getAllocatedType(DataLayout dataLayout, GlobalVariable global) {
+        Type type = global.getType().getPointeeType();
+        // allocate at least one byte per global (to make the pointers unique)
+        if (type.getSize(dataLayout) == 0) {
+            return PrimitiveType.getIntegerType(8);
+        }
+        return type;
     }
 
     private static ArrayList<Type> getNonPointerTypes(LLVMParserResult res, DataLayout dataLayout) {
@@ -439,7 +527,7 @@ public final class Runner {
         int nonPointerOffset = 0;
         for (GlobalVariable global : res.getDefinedGlobals()) {
             Type type = global.getType().getPointeeType();
-            if (!isSpecialGlobalSlot(type)) {
+            if (!global.isThreadLocal() && !isSpecialGlobalSlot(type)) {
                 // allocate at least one byte per global (to make the pointers unique)
                 if (type.getSize(dataLayout) == 0) {
                     type = PrimitiveType.getIntegerType(8);
@@ -478,12 +566,9 @@ public final class Runner {
      * @return The sulong default libraries, if any were parsed.
      */
     private ExternalLibrary[] parseDependencies(List<LLVMParserResult> parserResults, ArrayDeque<ExternalLibrary> dependencyQueue) {
+        ExecutorService scanner = getParallelScanner();
         // at first, we are only parsing the direct dependencies of the main bitcode file
-        int directDependencies = dependencyQueue.size();
-        for (int i = 0; i < directDependencies; i++) {
-            ExternalLibrary lib = dependencyQueue.removeFirst();
-            parse(parserResults, dependencyQueue, lib);
-        }
+        parse(parserResults, dependencyQueue, drain(dependencyQueue), scanner);
 
         // then, we are parsing the default libraries
         ExternalLibrary[] sulongLibraries;
@@ -500,36 +585,42 @@ public final class Runner {
                 sulongLibraries[i] = context.addExternalLibrary(sulongLibraryNames[i], false);
             }
 
-            // parse all libraries that were passed on the command-line
+            // parse all libraries that were passed on the command-line, one after the other,
+            // because each of them may add the next one as its own dependency
             List<String> externals = SulongEngineOption.getPolyglotOptionExternalLibraries(env);
             for (String external : externals) {
                 // assume that the library is a native one until we parsed it and can say for sure
                 ExternalLibrary lib = context.addExternalLibrary(external, true);
                 if (lib != null) {
-                    parse(parserResults, dependencyQueue, lib);
+                    parse(parserResults, dependencyQueue, scan(lib));
                 }
             }
 
             // now parse the default Sulong libraries
             // TODO (chaeubl): we have an ordering issue here... - the search order for native
             // code comes last, which is not necessarily correct...
-            LLVMParserResult[] sulongLibraryResults = new LLVMParserResult[sulongLibraries.length];
-            for (int i = 0; i < sulongLibraries.length; i++) {
-                sulongLibraryResults[i] = parse(parserResults, dependencyQueue, sulongLibraries[i]);
-            }
-            combineSulongLibraries(sulongLibraryResults);
+            List<LLVMParserResult> sulongLibraryResults = new ArrayList<>(sulongLibraries.length);
+            ParallelScanner.scanAndLink(scanner, Arrays.asList(sulongLibraries), this::scanDefaultLibrary,
+                            scannedLibrary -> sulongLibraryResults.add(parse(parserResults, dependencyQueue, scannedLibrary)));
+            combineSulongLibraries(sulongLibraryResults.toArray(new LLVMParserResult[sulongLibraryResults.size()]));
         } else {
             sulongLibraries = new ExternalLibrary[0];
         }
 
-        // finally we are dealing with all indirect dependencies
+        // finally we are dealing with all indirect dependencies, one level of the breadth-first
+        // traversal at a time
         while (!dependencyQueue.isEmpty()) {
-            ExternalLibrary lib = dependencyQueue.removeFirst();
-            parse(parserResults, dependencyQueue, lib);
+            parse(parserResults, dependencyQueue, drain(dependencyQueue), scanner);
         }
         return sulongLibraries;
     }
 
+    private static List<ExternalLibrary> drain(ArrayDeque<ExternalLibrary> dependencyQueue) {
+        List<ExternalLibrary> libraries = new ArrayList<>(dependencyQueue);
+        dependencyQueue.clear();
+        return libraries;
+    }
+
     private void combineSulongLibraries(LLVMParserResult[] sulongLibraryResults) {
         if (sulongLibraryResults.length > 1) {
             EconomicMap<LLVMSymbol, List<LLVMAlias>> usagesInAliases = computeUsagesInAliases(sulongLibraryResults);
@@ -616,31 +707,131 @@ public final class Runner {
         return "@__" + libraryName + "_" + functionName.substring(1);
     }
 
-    private LLVMParserResult parse(List<LLVMParserResult> parserResults, ArrayDeque<ExternalLibrary> dependencyQueue, ExternalLibrary lib) {
-        if (lib.getPath() == null || !lib.getPath().toFile().isFile()) {
+    /**
+     * Parses a batch of libraries whose position in the link order is already fixed. If parallel
+     * parsing is enabled, the libraries are scanned concurrently, but they are always linked one
+     * after the other and in the order of the batch.
+     */
+    private void parse(List<LLVMParserResult> parserResults, ArrayDeque<ExternalLibrary> dependencyQueue, List<ExternalLibrary> libraries, ExecutorService scanner) {
+        ParallelScanner.scanAndLink(scanner, libraries, this::scan, scannedLibrary -> parse(parserResults, dependencyQueue, scannedLibrary));
+    }
+
+    private ExecutorService getParallelScanner() {
+        int threads = context.getEnv().getOptions().get(SulongEngineOption.PARALLEL_PARSING_THREADS);
+        return threads > 0 ? context.getParserThreadPool() : null;
+    }
+
+    /**
+     * Reads and scans a library. This does not modify the context, so that independent libraries
+     * can be scanned concurrently.
+     */
+    private ScannedLibrary scan(ExternalLibrary lib) {
+        if (!isRegularFile(lib)) {
             if (!lib.isNative()) {
                 throw new LLVMParserException("'" + lib.getPath() + "' is not a file or does not exist.");
             } else {
                 // lets assume that this is not a bitcode file and the NFI is going to handle it
-                return null;
+                return new ScannedLibrary(lib, null, null);
             }
         }
 
         Path path = lib.getPath();
-        TruffleFile file = context.getEnv().getTruffleFile(path.toUri());
+        BinaryInput bytes;
         Source source;
         try {
-            source = Source.newBuilder("llvm", file).build();
+            TruffleFile file = context.getEnv().getTruffleFile(path.toUri());
+            bytes = BinaryInput.map(file);
+            source = createMappedSource(file, bytes);
+        } catch (IOException | SecurityException | OutOfMemoryError ex) {
+            throw new LLVMParserException("Error reading file " + path + ".");
+        }
+        return new ScannedLibrary(lib, source, LLVMScanner.parse(bytes, source, context));
+    }
+
+    private boolean isRegularFile(ExternalLibrary lib) {
+        if (lib.getPath() == null) {
+            return false;
+        }
+        try {
+            return context.getEnv().getTruffleFile(lib.getPath().toUri()).isRegularFile();
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the source of a memory-mapped file. The source refers to the mapped data instead of
+     * reading the file onto the heap.
+     */
+    private static Source createMappedSource(TruffleFile file, BinaryInput bytes) throws IOException {
+        return Source.newBuilder("llvm", file).content(bytes.asByteSequence()).build();
+    }
+
+    /**
+     * Scans one of Sulong's default libraries. Their sources and parsed modules are shared by all
+     * contexts of the engine, see {@link #canShareModules()}.
+     */
+    private ScannedLibrary scanDefaultLibrary(ExternalLibrary lib) {
+        if (!isRegularFile(lib)) {
+            return scan(lib);
+        }
+
+        Path path = lib.getPath();
+        TruffleFile file = context.getEnv().getTruffleFile(path.toUri());
+        LLVMDefaultLibraryCache cache = context.getLanguage().getDefaultLibraryCache();
+        LLVMDefaultLibraryCache.Entry entry;
+        try {
+            long lastModified = file.getLastModifiedTime().toMillis();
+            entry = cache.get(path, lastModified);
+            if (entry == null) {
+                entry = cache.put(path, lastModified, createMappedSource(file, BinaryInput.map(file)));
+            }
         } catch (IOException | SecurityException | OutOfMemoryError ex) {
             throw new LLVMParserException("Error reading file " + path + ".");
         }
-        return parse(parserResults, dependencyQueue, source, lib, source.getBytes());
+        Source source = entry.getSource();
+        if (!canShareModules()) {
+            return new ScannedLibrary(lib, source, LLVMScanner.parse(BinaryInput.create(source.getBytes()), source, context));
+        }
+        ModelModule module = entry.getModule(() -> {
+            ModelModule parsedModule = LLVMScanner.parse(BinaryInput.create(source.getBytes()), source, context);
+            if (parsedModule != null) {
+                parsedModule.setShared();
+            }
+            return parsedModule;
+        });
+        return new ScannedLibrary(lib, source, module);
+    }
+
+    /**
+     * The shared module of a default library is parsed with the options of whichever context parses
+     * it first, so contexts whose options change the parsed model get a module of their own: value
+     * inspection binds the static members of the model to the values of this context, and
+     * {@code llvm.llDebug} replaces the source locations of the parsed functions with the locations
+     * in the .ll files found via {@code llvm.llDebug.sources}.
+     */
+    private boolean canShareModules() {
+        OptionValues options = context.getEnv().getOptions();
+        return !options.get(SulongEngineOption.ENABLE_LVI) && !options.get(SulongEngineOption.LL_DEBUG);
     }
 
     private LLVMParserResult parse(List<LLVMParserResult> parserResults, ArrayDeque<ExternalLibrary> dependencyQueue, Source source,
                     ExternalLibrary library, ByteSequence bytes) {
-        ModelModule module = LLVMScanner.parse(bytes, source, context);
-        if (module != null) {
+        BinaryInput input = BinaryInput.create(bytes);
+        return parse(parserResults, dependencyQueue, new ScannedLibrary(library, source, LLVMScanner.parse(input, source, context)));
+    }
+
+    /**
+     * Links a scanned library into the context: registers its dependencies and converts its model
+     * to Truffle. This must happen in the dynamic linking order.
+     */
+    private LLVMParserResult parse(List<LLVMParserResult> parserResults, ArrayDeque<ExternalLibrary> dependencyQueue, ScannedLibrary scannedLibrary) {
+        ExternalLibrary library = scannedLibrary.library;
+        if (scannedLibrary.source == null) {
+            return null;
+        }
+        if (scannedLibrary.module != null) {
+            ModelModule module = scannedLibrary.module;
             library.setIsNative(false);
             context.addLibraryPaths(module.getLibraryPaths());
             List<String> libraries = module.getLibraries();
@@ -652,7 +843,7 @@ public final class Runner {
             }
             LLVMScope fileScope = new LLVMScope();
             LLVMParserRuntime runtime = new LLVMParserRuntime(context, library, fileScope);
-            LLVMParser parser = new LLVMParser(source, runtime);
+            LLVMParser parser = new LLVMParser(scannedLibrary.source, runtime);
             LLVMParserResult parserResult = parser.parse(module);
             parserResults.add(parserResult);
             return parserResult;
@@ -882,6 +1073,10 @@ public final class Runner {
         LLVMSymbolReadResolver symbolResolver = new LLVMSymbolReadResolver(runtime, rootFrame, GetStackSpaceFactory.createAllocaFactory());
         final List<LLVMStatementNode> globalNodes = new ArrayList<>();
         for (GlobalVariable global : parserResult.getDefinedGlobals()) {
+            if (parserResult.isPreinitialized(global)) {
+                // the initial value was already copied from the data segment
+                continue;
+            }
             final LLVMStatementNode store = createGlobalInitialization(runtime, symbolResolver, global);
             if (store != null) {
                 globalNodes.add(store);
@@ -909,7 +1104,9 @@ public final class Runner {
             // for fetching the address of the global that we want to initialize, we must use the
             // file scope because we are initializing the globals of the current file
             LLVMGlobal globalDescriptor = runtime.getFileScope().getGlobalVariable(global.getName());
-            final LLVMExpressionNode globalVarAddress = context.getNodeFactory().createLiteral(globalDescriptor, new PointerType(global.getType()));
+            // thread-local globals are initialized in the image from which each thread copies them
+            Object target = globalDescriptor.isThreadLocal() ? globalDescriptor.getTarget() : globalDescriptor;
+            final LLVMExpressionNode globalVarAddress = context.getNodeFactory().createLiteral(target, new PointerType(global.getType()));
             if (size != 0) {
                 if (type instanceof ArrayType || type instanceof StructureType) {
                     return context.getNodeFactory().createStore(globalVarAddress, constant, type, null);
@@ -966,11 +1163,11 @@ public final class Runner {
         for (int i = 0; i < elemCount; i++) {
             final LLVMExpressionNode globalVarAddress = context.getNodeFactory().createLiteral(global, new PointerType(globalSymbol.getType()));
             final LLVMExpressionNode iNode = context.getNodeFactory().createLiteral(i, PrimitiveType.I32);
-            final LLVMExpressionNode structPointer = context.getNodeFactory().createTypedElementPointer(globalVarAddress, iNode, elementSize, elementType);
+            final LLVMExpressionNode structPointer = context.getNodeFactory().createTypedElementPointer(globalVarAddress, iNode, elementSize, 0, elementType);
             final LLVMExpressionNode loadedStruct = context.getNodeFactory().createLoad(elementType, structPointer);
 
             final LLVMExpressionNode oneLiteralNode = context.getNodeFactory().createLiteral(1, PrimitiveType.I32);
-            final LLVMExpressionNode functionLoadTarget = context.getNodeFactory().createTypedElementPointer(loadedStruct, oneLiteralNode, indexedTypeLength, functionType);
+            final LLVMExpressionNode functionLoadTarget = context.getNodeFactory().createTypedElementPointer(loadedStruct, oneLiteralNode, indexedTypeLength, 0, functionType);
             final LLVMExpressionNode loadedFunction = context.getNodeFactory().createLoad(functionType, functionLoadTarget);
             final LLVMExpressionNode[] argNodes = new LLVMExpressionNode[]{
                             context.getNodeFactory().createFrameRead(PointerType.VOID, rootFrame.findFrameSlot(LLVMStack.FRAME_ID))};
@@ -1013,6 +1210,9 @@ public final class Runner {
             Path applicationPath = mainFunctionDescriptor.getLibrary().getPath();
             RootNode rootNode = new LLVMGlobalRootNode(context.getLanguage(), StackManager.createRootFrame(), mainFunctionDescriptor, startCallTarget, Objects.toString(applicationPath, ""));
             mainFunctionCallTarget = Truffle.getRuntime().createCallTarget(rootNode);
+            if (context.getBackgroundParser() != null) {
+                context.getBackgroundParser().schedule(mainFunctionDescriptor);
+            }
         }
 
         if (context.getEnv().getOptions().get(SulongEngineOption.PARSE_ONLY)) {
@@ -1104,6 +1304,18 @@ public final class Runner {
         }
     }
 
+    private static final class ScannedLibrary {
+        private final ExternalLibrary library;
+        private final Source source;
+        private final ModelModule module;
+
+        private ScannedLibrary(ExternalLibrary library, Source source, ModelModule module) {
+            this.library = library;
+            this.source = source;
+            this.module = module;
+        }
+    }
+
     private static final class ParserInput {
         private final ByteSequence bytes;
         private final ExternalLibrary library;
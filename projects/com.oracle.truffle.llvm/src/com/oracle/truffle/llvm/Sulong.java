@@ -61,6 +61,7 @@ import com.oracle.truffle.llvm.runtime.debug.value.LLVMDebugObject;
 import com.oracle.truffle.llvm.runtime.interop.LLVMInternalTruffleObject;
 import com.oracle.truffle.llvm.runtime.interop.access.LLVMInteropType;
 import com.oracle.truffle.llvm.runtime.memory.LLVMMemory;
+import com.oracle.truffle.llvm.runtime.memory.LLVMNativeMemory;
 import com.oracle.truffle.llvm.runtime.options.SulongEngineOption;
 import com.oracle.truffle.llvm.runtime.pointer.LLVMPointer;
 
@@ -99,6 +100,11 @@ public final class Sulong extends LLVMLanguage {
         return newContext;
     }
 
+    @Override
+    protected void finalizeContext(LLVMContext context) {
+        context.finalizeContext();
+    }
+
     @Override
     protected void disposeContext(LLVMContext context) {
         LLVMMemory memory = getCapability(LLVMMemory.class);
@@ -209,7 +215,11 @@ public final class Sulong extends LLVMLanguage {
     @Override
     protected void disposeThread(LLVMContext context, Thread thread) {
         super.disposeThread(context, thread);
-        context.getThreadingStack().freeStack(getCapability(LLVMMemory.class), thread);
+        LLVMMemory memory = getCapability(LLVMMemory.class);
+        context.getThreadingStack().freeStack(memory, thread);
+        if (memory instanceof LLVMNativeMemory) {
+            ((LLVMNativeMemory) memory).releaseThread(thread);
+        }
     }
 
     @Override
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <stdio.h>
+
+/*
+ * A small stack machine that dispatches every instruction with a computed goto, as threaded-code
+ * interpreters do. With a large ITERATIONS value this doubles as a benchmark for indirectbr.
+ */
+
+#ifndef ITERATIONS
+#define ITERATIONS 100000
+#endif
+
+enum { OP_PUSH, OP_ADD, OP_SUB, OP_MUL, OP_MOD, OP_DUP, OP_OVER, OP_SWAP, OP_DROP, OP_JNZ, OP_HALT };
+
+long run(const long *code, long counter) {
+  static void *dispatch[] = { &&push, &&add, &&sub, &&mul, &&mod, &&dup, &&over, &&swap, &&drop, &&jnz, &&halt };
+  long stack[16];
+  long tmp;
+  int sp = 0;
+  const long *pc = code;
+
+  stack[sp++] = counter;
+
+#define NEXT goto *dispatch[*pc++]
+  NEXT;
+
+push:
+  stack[sp++] = *pc++;
+  NEXT;
+add:
+  sp--;
+  stack[sp - 1] += stack[sp];
+  NEXT;
+sub:
+  sp--;
+  stack[sp - 1] -= stack[sp];
+  NEXT;
+mul:
+  sp--;
+  stack[sp - 1] *= stack[sp];
+  NEXT;
+mod:
+  sp--;
+  stack[sp - 1] %= stack[sp];
+  NEXT;
+dup:
+  stack[sp] = stack[sp - 1];
+  sp++;
+  NEXT;
+over:
+  stack[sp] = stack[sp - 2];
+  sp++;
+  NEXT;
+swap:
+  tmp = stack[sp - 1];
+  stack[sp - 1] = stack[sp - 2];
+  stack[sp - 2] = tmp;
+  NEXT;
+drop:
+  sp--;
+  NEXT;
+jnz:
+  tmp = *pc++;
+  if (stack[--sp] != 0) {
+    pc = code + tmp;
+  }
+  NEXT;
+halt:
+  return stack[sp - 1];
+#undef NEXT
+}
+
+int main() {
+  /* sum = (sum * 31 + counter) % 1000003 for counter = ITERATIONS .. 1 */
+  const long program[] = {
+    /*  0 */ OP_PUSH, 0,       /* counter sum */
+    /*  2 */ OP_PUSH, 31,      /* counter sum 31 */
+    /*  4 */ OP_MUL,           /* counter sum*31 */
+    /*  5 */ OP_OVER,          /* counter sum*31 counter */
+    /*  6 */ OP_ADD,           /* counter sum*31+counter */
+    /*  7 */ OP_PUSH, 1000003, /* counter sum*31+counter 1000003 */
+    /*  9 */ OP_MOD,           /* counter sum */
+    /* 10 */ OP_SWAP,          /* sum counter */
+    /* 11 */ OP_PUSH, 1,       /* sum counter 1 */
+    /* 13 */ OP_SUB,           /* sum counter-1 */
+    /* 14 */ OP_DUP,           /* sum counter counter */
+    /* 15 */ OP_JNZ, 19,       /* sum counter */
+    /* 17 */ OP_DROP,          /* sum */
+    /* 18 */ OP_HALT,
+    /* 19 */ OP_SWAP,          /* counter sum */
+    /* 20 */ OP_PUSH, 1,       /* counter sum 1 */
+    /* 22 */ OP_JNZ, 2         /* counter sum */
+  };
+  long expected = 0;
+  long i;
+  for (i = ITERATIONS; i > 0; i--) {
+    expected = (expected * 31 + i) % 1000003;
+  }
+  long result = run(program, ITERATIONS);
+  printf("%ld\n", result);
+  return result == expected ? 0 : 1;
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <pthread.h>
+#include <stdatomic.h>
+#include <stdio.h>
+
+#define ROUNDS 10000
+
+static int data[ROUNDS];
+static atomic_int published;
+static atomic_int sum;
+
+static void *producer(void *arg) {
+  for (int i = 0; i < ROUNDS; i++) {
+    data[i] = i;
+    // the release store publishes data[i] to the acquire load in the consumer
+    atomic_store_explicit(&published, i + 1, memory_order_release);
+  }
+  return NULL;
+}
+
+static void *consumer(void *arg) {
+  int seen = 0;
+  while (seen < ROUNDS) {
+    int available = atomic_load_explicit(&published, memory_order_acquire);
+    for (; seen < available; seen++) {
+      atomic_fetch_add_explicit(&sum, data[seen], memory_order_relaxed);
+    }
+  }
+  return NULL;
+}
+
+int main() {
+  pthread_t threads[2];
+  pthread_create(&threads[0], NULL, consumer, NULL);
+  pthread_create(&threads[1], NULL, producer, NULL);
+  pthread_join(threads[0], NULL);
+  pthread_join(threads[1], NULL);
+
+  atomic_thread_fence(memory_order_seq_cst);
+  atomic_signal_fence(memory_order_seq_cst);
+  atomic_store(&published, 0);
+  printf("sum %d, published %d\n", atomic_load(&sum), atomic_load_explicit(&published, memory_order_relaxed));
+  return 0;
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <errno.h>
+#include <linux/futex.h>
+#include <pthread.h>
+#include <stdatomic.h>
+#include <stdio.h>
+#include <sys/syscall.h>
+#include <time.h>
+#include <unistd.h>
+
+#define THREADS 4
+#define ROUNDS 1000
+
+static long futex(atomic_int *uaddr, int op, int val, const struct timespec *timeout, int val3) {
+  return syscall(SYS_futex, uaddr, op, val, timeout, NULL, val3);
+}
+
+// a lock that is 0 if unlocked, 1 if locked and 2 if locked with waiters
+static atomic_int lock;
+static int counter;
+
+static void acquire(int bitset) {
+  int c = 0;
+  if (atomic_compare_exchange_strong(&lock, &c, 1)) {
+    return;
+  }
+  if (c != 2) {
+    c = atomic_exchange(&lock, 2);
+  }
+  while (c != 0) {
+    if (bitset) {
+      futex(&lock, FUTEX_WAIT_BITSET | FUTEX_PRIVATE_FLAG, 2, NULL, bitset);
+    } else {
+      futex(&lock, FUTEX_WAIT | FUTEX_PRIVATE_FLAG, 2, NULL, 0);
+    }
+    c = atomic_exchange(&lock, 2);
+  }
+}
+
+static void release(int bitset) {
+  if (atomic_fetch_sub(&lock, 1) != 1) {
+    atomic_store(&lock, 0);
+    if (bitset) {
+      futex(&lock, FUTEX_WAKE_BITSET | FUTEX_PRIVATE_FLAG, 1, NULL, bitset);
+    } else {
+      futex(&lock, FUTEX_WAKE | FUTEX_PRIVATE_FLAG, 1, NULL, 0);
+    }
+  }
+}
+
+static long mainTid;
+static atomic_int distinctTids;
+
+static void *increment(void *arg) {
+  // even threads use the plain operations, odd threads wait on a single bit and wake all bits
+  int bitset = (long) arg % 2 == 0 ? 0 : 1 << (int) (long) arg;
+  long tid = syscall(SYS_gettid);
+  if (tid != mainTid && tid != getpid()) {
+    atomic_fetch_add(&distinctTids, 1);
+  }
+  for (int i = 0; i < ROUNDS; i++) {
+    acquire(bitset);
+    counter++;
+    release(bitset == 0 ? 0 : FUTEX_BITSET_MATCH_ANY);
+  }
+  return NULL;
+}
+
+int main() {
+  mainTid = syscall(SYS_gettid);
+  printf("main tid is pid: %d\n", mainTid == getpid());
+
+  pthread_t threads[THREADS];
+  for (long i = 0; i < THREADS; i++) {
+    pthread_create(&threads[i], NULL, increment, (void *) i);
+  }
+  for (int i = 0; i < THREADS; i++) {
+    pthread_join(threads[i], NULL);
+  }
+  printf("counter %d, distinct tids %d\n", counter, atomic_load(&distinctTids));
+
+  atomic_int word = 0;
+  long result = futex(&word, FUTEX_WAIT_PRIVATE, 1, NULL, 0);
+  printf("wait on changed value: %ld %d\n", result, result == -1 && errno == EAGAIN);
+
+  result = futex(&word, FUTEX_WAKE_BITSET | FUTEX_PRIVATE_FLAG, 1, NULL, 0);
+  printf("wake with empty bitset: %ld %d\n", result, result == -1 && errno == EINVAL);
+
+  result = futex(&word, FUTEX_WAKE_PRIVATE, 1, NULL, 0);
+  printf("wake without waiters: %ld\n", result);
+
+  // the timeout of FUTEX_WAIT is relative
+  struct timespec start, end;
+  struct timespec relative = {0, 20 * 1000 * 1000};
+  clock_gettime(CLOCK_MONOTONIC, &start);
+  result = futex(&word, FUTEX_WAIT_PRIVATE, 0, &relative, 0);
+  clock_gettime(CLOCK_MONOTONIC, &end);
+  long elapsed = (end.tv_sec - start.tv_sec) * 1000 + (end.tv_nsec - start.tv_nsec) / 1000000;
+  printf("relative timeout: %ld %d %d\n", result, result == -1 && errno == ETIMEDOUT, elapsed >= 20);
+
+  // the timeout of FUTEX_WAIT_BITSET is an absolute time of the monotonic or the realtime clock
+  struct timespec absolute;
+  clock_gettime(CLOCK_MONOTONIC, &absolute);
+  absolute.tv_nsec += 20 * 1000 * 1000;
+  if (absolute.tv_nsec >= 1000 * 1000 * 1000) {
+    absolute.tv_sec++;
+    absolute.tv_nsec -= 1000 * 1000 * 1000;
+  }
+  result = futex(&word, FUTEX_WAIT_BITSET | FUTEX_PRIVATE_FLAG, 0, &absolute, FUTEX_BITSET_MATCH_ANY);
+  clock_gettime(CLOCK_MONOTONIC, &end);
+  printf("absolute monotonic timeout: %ld %d %d\n", result, result == -1 && errno == ETIMEDOUT,
+         end.tv_sec > absolute.tv_sec || (end.tv_sec == absolute.tv_sec && end.tv_nsec >= absolute.tv_nsec));
+
+  // a deadline in the past expires immediately
+  clock_gettime(CLOCK_REALTIME, &absolute);
+  absolute.tv_sec--;
+  result = futex(&word, FUTEX_WAIT_BITSET | FUTEX_PRIVATE_FLAG | FUTEX_CLOCK_REALTIME, 0, &absolute, FUTEX_BITSET_MATCH_ANY);
+  printf("absolute realtime timeout: %ld %d\n", result, result == -1 && errno == ETIMEDOUT);
+  return 0;
+}
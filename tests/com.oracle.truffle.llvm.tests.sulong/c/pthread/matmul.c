@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <pthread.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <sys/time.h>
+
+/*
+ * Multiplies two matrices with a team of threads, each computing a band of rows. Without arguments
+ * it checks the result against a sequential multiplication. With arguments
+ * ("matmul <size> <max threads>") it is a benchmark that prints the time for 1, 2, 4, ... threads.
+ */
+
+struct matmul {
+  int size;
+  const double *a;
+  const double *b;
+  double *c;
+};
+
+struct band {
+  const struct matmul *m;
+  int from;
+  int to;
+};
+
+static pthread_mutex_t mutex = PTHREAD_MUTEX_INITIALIZER;
+static pthread_cond_t cond = PTHREAD_COND_INITIALIZER;
+static int finished;
+
+static void multiplyRows(const struct matmul *m, int from, int to) {
+  int n = m->size;
+  for (int i = from; i < to; i++) {
+    for (int j = 0; j < n; j++) {
+      m->c[i * n + j] = 0;
+    }
+    for (int k = 0; k < n; k++) {
+      double aik = m->a[i * n + k];
+      for (int j = 0; j < n; j++) {
+        m->c[i * n + j] += aik * m->b[k * n + j];
+      }
+    }
+  }
+}
+
+static void *worker(void *arg) {
+  struct band *band = arg;
+  multiplyRows(band->m, band->from, band->to);
+  pthread_mutex_lock(&mutex);
+  finished++;
+  pthread_cond_signal(&cond);
+  pthread_mutex_unlock(&mutex);
+  return band;
+}
+
+static int multiply(const struct matmul *m, int threads) {
+  pthread_t *ids = malloc(threads * sizeof(pthread_t));
+  struct band *bands = malloc(threads * sizeof(struct band));
+  finished = 0;
+  for (int t = 0; t < threads; t++) {
+    bands[t].m = m;
+    bands[t].from = m->size * t / threads;
+    bands[t].to = m->size * (t + 1) / threads;
+    if (pthread_create(&ids[t], NULL, worker, &bands[t]) != 0) {
+      return 1;
+    }
+  }
+  pthread_mutex_lock(&mutex);
+  while (finished < threads) {
+    pthread_cond_wait(&cond, &mutex);
+  }
+  pthread_mutex_unlock(&mutex);
+  for (int t = 0; t < threads; t++) {
+    void *result;
+    if (pthread_join(ids[t], &result) != 0 || result != &bands[t]) {
+      return 1;
+    }
+  }
+  free(bands);
+  free(ids);
+  return 0;
+}
+
+static struct matmul *create(int size) {
+  struct matmul *m = malloc(sizeof(struct matmul));
+  double *a = malloc(size * size * sizeof(double));
+  double *b = malloc(size * size * sizeof(double));
+  for (int i = 0; i < size * size; i++) {
+    a[i] = i % 7;
+    b[i] = i % 5 - 2;
+  }
+  m->size = size;
+  m->a = a;
+  m->b = b;
+  m->c = calloc(size * size, sizeof(double));
+  return m;
+}
+
+static long millis() {
+  struct timeval tv;
+  gettimeofday(&tv, NULL);
+  return tv.tv_sec * 1000L + tv.tv_usec / 1000;
+}
+
+int main(int argc, char **argv) {
+  if (argc > 2) {
+    int size = atoi(argv[1]);
+    int maxThreads = atoi(argv[2]);
+    struct matmul *m = create(size);
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      long start = millis();
+      if (multiply(m, threads) != 0) {
+        return 1;
+      }
+      printf("matmul-%d-threads: %ld\n", threads, millis() - start);
+    }
+    return 0;
+  }
+
+  int size = 64;
+  struct matmul *m = create(size);
+  if (multiply(m, 4) != 0) {
+    return 1;
+  }
+  double *expected = malloc(size * size * sizeof(double));
+  struct matmul sequential = { size, m->a, m->b, expected };
+  multiplyRows(&sequential, 0, size);
+  double sum = 0;
+  for (int i = 0; i < size * size; i++) {
+    if (m->c[i] != expected[i]) {
+      return 2;
+    }
+    sum += m->c[i];
+  }
+  printf("%.1f\n", sum);
+  return 0;
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <pthread.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+
+static int calls;
+
+static void init() {
+  calls++;
+}
+
+static void *worker(void *arg) {
+  // use a good part of the requested stack
+  char buffer[128 * 1024];
+  memset(buffer, *(int *)arg, sizeof(buffer));
+  return (void *)(long)buffer[sizeof(buffer) - 1];
+}
+
+int main() {
+  // a static initializer resets a mutex that is still locked
+  pthread_mutex_t *mutex = malloc(sizeof(pthread_mutex_t));
+  *mutex = (pthread_mutex_t)PTHREAD_MUTEX_INITIALIZER;
+  pthread_mutex_lock(mutex);
+  *mutex = (pthread_mutex_t)PTHREAD_MUTEX_INITIALIZER;
+  printf("trylock after reset: %d\n", pthread_mutex_trylock(mutex));
+  pthread_mutex_unlock(mutex);
+  free(mutex);
+
+  // the same for a pthread_once_t
+  pthread_once_t once = PTHREAD_ONCE_INIT;
+  pthread_once(&once, init);
+  pthread_once(&once, init);
+  once = (pthread_once_t)PTHREAD_ONCE_INIT;
+  pthread_once(&once, init);
+  printf("init called %d times\n", calls);
+
+  pthread_attr_t attr;
+  pthread_attr_init(&attr);
+  pthread_attr_setstacksize(&attr, 1024 * 1024);
+  size_t stacksize;
+  pthread_attr_getstacksize(&attr, &stacksize);
+  printf("stacksize %zu\n", stacksize);
+  int value = 42;
+  pthread_t thread;
+  pthread_create(&thread, &attr, worker, &value);
+  pthread_attr_destroy(&attr);
+  void *result;
+  pthread_join(thread, &result);
+  printf("result %ld\n", (long)result);
+  return 0;
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017, 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <stdio.h>
+#include <stdlib.h>
+
+static int isZero(const char *block, size_t size) {
+  for (size_t i = 0; i < size; i++) {
+    if (block[i] != 0) {
+      return 0;
+    }
+  }
+  return 1;
+}
+
+int main() {
+  // large enough to be served by an anonymous mapping
+  size_t size = 1024 * 1024;
+  char *block = calloc(size, 1);
+  if (block == NULL || !isZero(block, size)) {
+    return 1;
+  }
+  block[0] = 1;
+  block[size - 1] = 2;
+
+  // growing copies the contents and releases the mapping
+  block = realloc(block, 2 * size);
+  if (block == NULL || block[0] != 1 || block[size - 1] != 2) {
+    return 2;
+  }
+  free(block);
+
+  // a new block is zero again, also if it reuses the same pages
+  for (int i = 0; i < 4; i++) {
+    block = calloc(size / 8, 8);
+    if (block == NULL || !isZero(block, size)) {
+      return 3;
+    }
+    block[i] = 1;
+    block = realloc(block, size / 2);
+    if (block == NULL || block[i] != 1) {
+      return 4;
+    }
+    free(block);
+  }
+
+  // small blocks come from the arena and are cleared if they were used before
+  for (int i = 0; i < 64; i++) {
+    char *small = calloc(100, 1);
+    if (small == NULL || !isZero(small, 100)) {
+      return 5;
+    }
+    small[99] = 1;
+    free(small);
+  }
+  printf("ok\n");
+  return 0;
+}
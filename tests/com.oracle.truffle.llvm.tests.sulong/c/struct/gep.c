@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <stdio.h>
+
+struct inner {
+  char c;
+  int values[4];
+  long l;
+};
+
+struct outer {
+  short s;
+  struct inner inners[3];
+  double d;
+};
+
+struct outer global;
+
+int main() {
+  struct outer local;
+  char *base = (char *) &local;
+  for (int i = 0; i < 3; i++) {
+    for (int j = 0; j < 4; j++) {
+      local.inners[i].values[j] = i * 10 + j;
+      global.inners[i].values[j] = i * 100 + j;
+    }
+    local.inners[i].l = i;
+  }
+
+  /* constant indices only */
+  printf("%ld\n", (long) ((char *) &local.inners[2].values[3] - base));
+  printf("%ld\n", (long) ((char *) &local.inners[1].l - base));
+  printf("%ld\n", (long) ((char *) &local.d - base));
+  printf("%d %d\n", global.inners[2].values[1], local.inners[1].values[2]);
+
+  /* constant offsets mixed with dynamic indices */
+  for (int i = 0; i < 3; i++) {
+    for (int j = 0; j < 4; j++) {
+      printf("%ld %d %d\n", (long) ((char *) &local.inners[i].values[j] - base), local.inners[i].values[j], global.inners[i].values[j]);
+    }
+    printf("%ld %ld\n", (long) ((char *) &local.inners[i].l - base), local.inners[i].l);
+  }
+  return 0;
+}
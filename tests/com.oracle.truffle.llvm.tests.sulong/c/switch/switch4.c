@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates.
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+ * AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+#include <stdio.h>
+
+/* dense cases, several of which lead to the same block */
+__attribute__((noinline)) int dense(int x) {
+  int result;
+  switch (x) {
+  case 0:
+  case 1:
+  case 2:
+    result = 3;
+    break;
+  case 3:
+    result = 7;
+    break;
+  case 5:
+  case 6:
+    result = 11;
+    break;
+  case -1:
+    result = 13;
+    break;
+  default:
+    result = 17;
+  }
+  return result;
+}
+
+/* sparse cases, the default shares its block with a case */
+__attribute__((noinline)) int sparse(long long x) {
+  int result;
+  switch (x) {
+  case -1000000000000LL:
+    result = 1;
+    break;
+  case -5:
+    result = 2;
+    break;
+  case 100:
+  case 100000:
+    result = 3;
+    break;
+  case 0x7fffffffffffffffLL:
+    result = 4;
+    break;
+  case 77777:
+  default:
+    result = 5;
+  }
+  return result;
+}
+
+__attribute__((noinline)) int byte(unsigned char c) {
+  switch (c) {
+  case 'a':
+    return 1;
+  case 'z':
+  case 200:
+    return 2;
+  case 255:
+    return 3;
+  default:
+    return 4;
+  }
+}
+
+__attribute__((noinline)) int shortSwitch(short s) {
+  switch (s) {
+  case -32768:
+    return 1;
+  case 32767:
+    return 2;
+  case 0:
+  case 1:
+    return 3;
+  default:
+    return 4;
+  }
+}
+
+int main() {
+  long long sparseValues[] = { -1000000000000LL, -5, 100, 100000, 0x7fffffffffffffffLL, 77777, 42, -1 };
+  long sum = 0;
+  for (int iteration = 0; iteration < 10000; iteration++) {
+    for (int i = -3; i < 9; i++) {
+      sum += dense(i) * (i + 4);
+    }
+    for (int i = 0; i < sizeof(sparseValues) / sizeof(sparseValues[0]); i++) {
+      sum += sparse(sparseValues[i]) * (i + 1);
+    }
+    for (int c = 0; c < 256; c += 5) {
+      sum += byte((unsigned char)c);
+    }
+    sum += shortSwitch(-32768) + shortSwitch(32767) + shortSwitch(1) + shortSwitch(12);
+  }
+  printf("%ld\n", sum);
+  return sum % 256;
+}